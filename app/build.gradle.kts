@@ -84,6 +84,14 @@ android {
             // Keep debug builds fast - no minification
             isMinifyEnabled = false
         }
+
+        // Release build signed with the debug key, measured by the :benchmark module
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+        }
     }
     
     // Product flavors for server environment switching
@@ -144,6 +152,9 @@ dependencies {
     // ExifInterface for image rotation
     implementation("androidx.exifinterface:exifinterface:1.3.7")
     
+    // Off-main-thread inflation of chat bubbles (MessageViewPool)
+    implementation("androidx.asynclayoutinflater:asynclayoutinflater:1.0.0")
+    
     // SwipeRefreshLayout for pull-to-refresh
     implementation("androidx.swiperefreshlayout:swiperefreshlayout:1.1.0")
     
@@ -21,7 +21,8 @@ import com.example.doan_zaloclone.ui.home.HomeFragment;
 import com.example.doan_zaloclone.ui.login.LoginActivity;
 import com.example.doan_zaloclone.ui.newsfeed.NewsfeedFragment;
 import com.example.doan_zaloclone.ui.personal.PersonalFragment;
-import com.example.doan_zaloclone.utils.NotificationHelper;
+import com.example.doan_zaloclone.utils.StartupOrchestrator;
+import com.example.doan_zaloclone.utils.StartupTrace;
 import com.example.doan_zaloclone.viewmodel.MainViewModel;
 import android.view.View;
 import android.widget.ImageView;
@@ -65,9 +66,6 @@ public class MainActivity extends AppCompatActivity {
     
     // Friend repository for badge updates
     private com.example.doan_zaloclone.repository.FriendRepository friendRepository;
-    
-    // Track active conversation to avoid notifications
-    private static String activeConversationId = null;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -79,12 +77,6 @@ public class MainActivity extends AppCompatActivity {
         
         setContentView(R.layout.activity_main);
 
-        // Create notification channels
-        NotificationHelper.createNotificationChannels(this);
-        
-        // Request notification permission for Android 13+
-        requestNotificationPermission();
-
         // Record login timestamp for force logout comparison
         loginTimestamp = System.currentTimeMillis();
 
@@ -104,9 +96,6 @@ public class MainActivity extends AppCompatActivity {
             showFragment(0);
         }
 
-        // Setup friend events via WebSocket
-        setupFriendEventListener();
-        
         // Setup notification listener for messages and friend requests
         setupNotificationListener();
 
@@ -122,37 +111,38 @@ public class MainActivity extends AppCompatActivity {
             });
         }
 
+        // Everything below is not needed to draw the home tab
+        StartupOrchestrator.getInstance().runAfterFirstFrame(this, this::setupAfterFirstFrame);
+
+        // TEMPORARY: API Test Button - Only in DEBUG builds
+        // addApiTestButton();
+    }
+
+    /**
+     * Listeners and services that can start once the first frame is out
+     */
+    private void setupAfterFirstFrame() {
+        if (isFinishing() || isDestroyed()) return;
+        StartupTrace trace = StartupTrace.getInstance();
+
+        // Request notification permission for Android 13+
+        requestNotificationPermission();
+
         // Start listening for incoming calls
-        setupIncomingCallListener();
+        trace.section("incoming_call_listener", this::setupIncomingCallListener);
 
         // Start listening for force logout / ban
-        setupForceLogoutListener();
+        trace.section("force_logout_listener", this::setupForceLogoutListener);
 
         // Setup friend events via WebSocket
-        setupFriendEventListener();
-        
+        trace.section("friend_events", this::setupFriendEventListener);
+
         // Initialize FriendRepository and load friend requests badge
-        setupFriendRequestsBadge();
-        
-        // Start NotificationService to maintain WebSocket in background
-        startNotificationService();
+        trace.section("friend_requests_badge", this::setupFriendRequestsBadge);
 
-        // TEMPORARY: API Test Button - Only in DEBUG builds
-        // addApiTestButton();
-    }
-    
-    /**
-     * Start NotificationService as foreground service
-     * This maintains WebSocket connection when app is in background
-     */
-    private void startNotificationService() {
-        Intent serviceIntent = new Intent(this, com.example.doan_zaloclone.services.NotificationService.class);
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            startForegroundService(serviceIntent);
-        } else {
-            startService(serviceIntent);
-        }
-        Log.d("MainActivity", "NotificationService started");
+        // Background delivery: FCM push-wake, or the foreground socket service as fallback
+        trace.section("push_delivery_start", () ->
+                com.example.doan_zaloclone.services.PushDelivery.getInstance().start());
     }
     
     /**
@@ -443,7 +433,11 @@ public class MainActivity extends AppCompatActivity {
             incomingCallListener = null;
         }
 
-        // Sign out
+        // Stop pushes to this device, then sign out
+        FirebaseUser forcedUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (forcedUser != null) {
+            com.example.doan_zaloclone.services.PushDelivery.getInstance().unregister(forcedUser.getUid());
+        }
         FirebaseAuth.getInstance().signOut();
         
         // Stop NotificationService
@@ -812,159 +806,8 @@ public class MainActivity extends AppCompatActivity {
         
         final String currentUserId = currentUser.getUid();
         
-        socketManager.setNotificationListener(new com.example.doan_zaloclone.websocket.SocketManager.OnNotificationListener() {
-            @Override
-            public void onNewMessage(org.json.JSONObject messageData) {
-                try {
-                    String conversationId = messageData.optString("conversationId");
-                    String senderId = messageData.optString("senderId");
-                    String senderName = messageData.optString("senderName", "Unknown");
-                    String messageText = messageData.optString("text", "");
-                    String messageType = messageData.optString("type", "text");
-                    
-                    // Skip if from current user
-                    if (senderId.equals(currentUserId)) {
-                        return;
-                    }
-                    
-                    // Skip if user is viewing this conversation
-                    if (conversationId.equals(activeConversationId)) {
-                        Log.d("MainActivity", "Skipping notification - user is in this conversation");
-                        return;
-                    }
-                    
-                    // Format message text based on type
-                    String displayText = messageText;
-                    if ("image".equals(messageType)) {
-                        displayText = "\ud83d\uddbc\ufe0f Hình ảnh";
-                    } else if ("voice".equals(messageType)) {
-                        displayText = "\ud83c\udfa4 Tin nhắn thoại";
-                    } else if ("file".equals(messageType)) {
-                        displayText = "\ud83d\udcce Tệp tin";
-                    } else if ("sticker".equals(messageType)) {
-                        displayText = "\ud83d\ude00 Nhãn dán";
-                    } else if ("location".equals(messageType)) {
-                        displayText = "\ud83d\udccd Vị trí";
-                    } else if ("card".equals(messageType)) {
-                        displayText = "\ud83d\udcbc Danh thiếp";
-                    }
-                    
-                    // Show notification
-                    NotificationHelper.showMessageNotification(
-                            MainActivity.this, 
-                            senderName, 
-                            displayText, 
-                            conversationId, 
-                            null  // Avatar will be loaded async in future
-                    );
-                    
-                } catch (Exception e) {
-                    Log.e("MainActivity", "Error showing message notification", e);
-                }
-            }
-            
-            @Override
-            public void onMessageRecalled(org.json.JSONObject messageData) {
-                try {
-                    String conversationId = messageData.optString("conversationId");
-                    String senderId = messageData.optString("senderId");
-                    String senderName = messageData.optString("senderName", "Unknown");
-                    
-                    // Skip if from current user
-                    if (senderId.equals(currentUserId)) {
-                        return;
-                    }
-                    
-                    // Skip if user is viewing this conversation
-                    if (conversationId.equals(activeConversationId)) {
-                        return;
-                    }
-                    
-                    // Show recall notification
-                    NotificationHelper.showMessageRecallNotification(
-                            MainActivity.this,
-                            senderName,
-                            conversationId
-                    );
-                    
-                } catch (Exception e) {
-                    Log.e("MainActivity", "Error showing recall notification", e);
-                }
-            }
-            
-            @Override
-            public void onMessageReaction(org.json.JSONObject reactionData) {
-                try {
-                    String conversationId = reactionData.optString("conversationId");
-                    String userId = reactionData.optString("userId");
-                    String reactionType = reactionData.optString("reactionType");
-                    
-                    // Skip if from current user
-                    if (userId.equals(currentUserId)) {
-                        return;
-                    }
-                    
-                    // Skip if user is viewing this conversation
-                    if (conversationId.equals(activeConversationId)) {
-                        return;
-                    }
-                    
-                    // Fetch user name and show notification
-                    com.google.firebase.firestore.FirebaseFirestore.getInstance()
-                            .collection("users")
-                            .document(userId)
-                            .get()
-                            .addOnSuccessListener(doc -> {
-                                String userName = "Unknown";
-                                if (doc.exists() && doc.contains("name")) {
-                                    userName = doc.getString("name");
-                                }
-                                
-                                NotificationHelper.showMessageReactionNotification(
-                                        MainActivity.this,
-                                        userName,
-                                        reactionType,
-                                        conversationId
-                                );
-                            });
-                    
-                } catch (Exception e) {
-                    Log.e("MainActivity", "Error showing reaction notification", e);
-                }
-            }
-            
-            @Override
-            public void onFriendRequestReceived(String senderId, String senderName) {
-                // Show friend request notification
-                NotificationHelper.showFriendRequestNotification(
-                        MainActivity.this,
-                        senderName,
-                        senderId,
-                        null  // Avatar will be loaded async in future
-                );
-            }
-            
-            @Override
-            public void onFriendRequestAccepted(String userId) {
-                // Fetch user name and show notification
-                com.google.firebase.firestore.FirebaseFirestore.getInstance()
-                        .collection("users")
-                        .document(userId)
-                        .get()
-                        .addOnSuccessListener(doc -> {
-                            String userName = "Unknown";
-                            if (doc.exists() && doc.contains("name")) {
-                                userName = doc.getString("name");
-                            }
-                            
-                            NotificationHelper.showFriendAcceptedNotification(
-                                    MainActivity.this,
-                                    userName,
-                                    userId
-                            );
-                        });
-            }
-        });
+        socketManager.setNotificationListener(
+                new com.example.doan_zaloclone.services.ChatNotificationListener(this, currentUserId));
     }
     
     /**
@@ -972,14 +815,14 @@ public class MainActivity extends AppCompatActivity {
      * Used to prevent notifications when user is viewing the conversation
      */
     public static void setActiveConversationId(String conversationId) {
-        activeConversationId = conversationId;
+        com.example.doan_zaloclone.services.PushDelivery.getInstance().setActiveConversation(conversationId);
     }
     
     /**
      * Clear the active conversation ID (called when RoomActivity is destroyed)
      */
     public static void clearActiveConversationId() {
-        activeConversationId = null;
+        com.example.doan_zaloclone.services.PushDelivery.getInstance().setActiveConversation(null);
     }
 
     @Override
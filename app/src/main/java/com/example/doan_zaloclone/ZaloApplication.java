@@ -1,31 +1,98 @@
 package com.example.doan_zaloclone;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.lifecycle.ProcessLifecycleOwner;
 
 import com.cloudinary.android.MediaManager;
+import com.example.doan_zaloclone.repository.ChatRepository;
+import com.example.doan_zaloclone.repository.ConversationListCache;
+import com.example.doan_zaloclone.repository.PendingVideoSends;
+import com.example.doan_zaloclone.repository.PostRepository;
+import com.example.doan_zaloclone.repository.StickerRepository;
+import com.example.doan_zaloclone.services.PushDelivery;
+import com.example.doan_zaloclone.ui.sticker.StickerAnimationEngine;
 import com.example.doan_zaloclone.utils.AppLifecycleObserver;
+import com.example.doan_zaloclone.utils.ChunkedUploader;
+import com.example.doan_zaloclone.utils.LinkPreviewService;
+import com.example.doan_zaloclone.utils.NotificationHelper;
+import com.example.doan_zaloclone.utils.StartupOrchestrator;
+import com.example.doan_zaloclone.utils.StartupOrchestrator.Phase;
+import com.example.doan_zaloclone.utils.VideoTranscoder;
 
 import java.util.HashMap;
 import java.util.Map;
 
 public class ZaloApplication extends Application {
 
+    // Startup task names (see StartupOrchestrator)
+    public static final String TASK_CLOUDINARY = "cloudinary";
+    public static final String TASK_LINK_PREVIEWS = "link_previews";
+    public static final String TASK_UPLOADS = "uploads";
+
     @Override
     public void onCreate() {
         super.onCreate();
 
-        // Initialize Cloudinary (credentials injected from local.properties)
+        StartupOrchestrator.getInstance()
+                // Offline sticker pack bundles
+                .add("sticker_store", Phase.IMMEDIATE,
+                        () -> StickerRepository.getInstance().init(this))
+                // Newsfeed and conversation list disk caches so both tabs open from cache
+                .add("disk_caches", Phase.IMMEDIATE, () -> {
+                    PostRepository.getInstance().init(this);
+                    ConversationListCache.getInstance().init(this);
+                })
+                // Link previews are only read once a chat or the links tab binds
+                .add(TASK_LINK_PREVIEWS, Phase.BACKGROUND,
+                        () -> LinkPreviewService.getInstance().init(this))
+                // Background delivery mode (FCM push-wake or persistent socket); observes the
+                // process lifecycle, so it must be registered before the first activity starts
+                .add("push_delivery", Phase.IMMEDIATE,
+                        () -> PushDelivery.getInstance().init(this))
+                // Register lifecycle observer for real-time presence tracking
+                .add("presence", Phase.IMMEDIATE, () -> ProcessLifecycleOwner.get().getLifecycle()
+                        .addObserver(new AppLifecycleObserver()))
+                // Needed before any notification, including in processes woken by a push; a few
+                // binder calls, cheap enough to finish before any service can post
+                .add("notification_channels", Phase.IMMEDIATE,
+                        () -> NotificationHelper.createNotificationChannels(this))
+                // Cloudinary is only used for uploads; callers wait for it with whenReady()
+                .add(TASK_CLOUDINARY, Phase.AFTER_FIRST_FRAME, this::initCloudinary)
+                // Chunked file uploads; ones cut off by the process dying pick up where they stopped
+                .add(TASK_UPLOADS, Phase.AFTER_FIRST_FRAME, this::initUploads)
+                .start();
+    }
+
+    private void initCloudinary() {
+        // Credentials injected from local.properties
         Map<String, String> config = new HashMap<>();
         config.put("cloud_name", BuildConfig.CLOUDINARY_CLOUD_NAME);
         config.put("api_key", BuildConfig.CLOUDINARY_API_KEY);
         config.put("api_secret", BuildConfig.CLOUDINARY_API_SECRET);
 
         MediaManager.init(this, config);
+    }
 
-        // Register lifecycle observer for real-time presence tracking
-        ProcessLifecycleOwner.get().getLifecycle()
-                .addObserver(new AppLifecycleObserver());
+    private void initUploads() {
+        ChunkedUploader.getInstance().init(this);
+        VideoTranscoder.getInstance().init(this);
+        PendingVideoSends.getInstance().init(this);
+        if (!ChunkedUploader.getInstance().getPending().isEmpty()
+                || !PendingVideoSends.getInstance().getAll().isEmpty()) {
+            // ChatRepository opens the socket when created; do that on the main thread
+            new Handler(Looper.getMainLooper()).post(() -> ChatRepository.getInstance().resumeFileUploads());
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Decoded sticker frames are cheap to rebuild, drop them first
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            StickerAnimationEngine.getInstance(this).trimMemory();
+        }
     }
 }
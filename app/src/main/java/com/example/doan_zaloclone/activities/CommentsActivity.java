@@ -35,6 +35,9 @@ public class CommentsActivity extends AppCompatActivity {
     private List<Comment> commentList;
     private String postId;
 
+    // Số bình luận còn lại trước khi tải trang cũ hơn
+    private static final int PREFETCH_DISTANCE = 5;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -71,22 +74,31 @@ public class CommentsActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         commentList = new ArrayList<>();
         adapter = new CommentAdapter(this, commentList);
-        rvComments.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rvComments.setLayoutManager(layoutManager);
         rvComments.setAdapter(adapter);
+
+        // Bình luận mới nhất ở trên, cuộn xuống để tải bình luận cũ hơn
+        rvComments.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= layoutManager.getItemCount() - PREFETCH_DISTANCE) {
+                    viewModel.loadOlderComments();
+                }
+            }
+        });
     }
 
     private void observeComments() {
         viewModel.getComments(postId).observe(this, resource -> {
             if (resource.getStatus() == Resource.Status.SUCCESS) {
-                commentList.clear();
-                if (resource.getData() != null) {
-                    commentList.addAll(resource.getData());
-                }
-                adapter.notifyDataSetChanged();
-                
-                // Scroll to bottom if new comment added
-                if (!commentList.isEmpty()) {
-                    rvComments.smoothScrollToPosition(commentList.size() - 1);
+                boolean atTop = !rvComments.canScrollVertically(-1);
+                adapter.updateComments(resource.getData() != null ? resource.getData() : new ArrayList<>());
+
+                // Bình luận mới chèn ở đầu danh sách: chỉ cuộn lên nếu đang ở đầu
+                if (atTop && !commentList.isEmpty()) {
+                    rvComments.scrollToPosition(0);
                 }
             } else if (resource.getStatus() == Resource.Status.ERROR) {
                 Toast.makeText(this, "Lỗi tải bình luận: " + resource.getMessage(), Toast.LENGTH_SHORT).show();
@@ -99,6 +111,7 @@ public class CommentsActivity extends AppCompatActivity {
         if (TextUtils.isEmpty(content)) return;
 
         etContent.setText(""); // Clear input
+        rvComments.scrollToPosition(0);
         
         viewModel.sendComment(postId, content).observe(this, resource -> {
             if (resource.getStatus() == Resource.Status.ERROR) {
@@ -7,6 +7,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -15,9 +16,11 @@ import com.example.doan_zaloclone.models.Comment;
 
 import org.ocpsoft.prettytime.PrettyTime;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 import de.hdodenhof.circleimageview.CircleImageView;
 
@@ -33,6 +36,42 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
         this.prettyTime = new PrettyTime(new Locale("vi"));
     }
 
+    /**
+     * Cập nhật danh sách bằng DiffUtil (trang mới và bình luận mới không làm nhảy danh sách)
+     */
+    public void updateComments(List<Comment> newComments) {
+        List<Comment> oldComments = new ArrayList<>(commentList);
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldComments.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newComments.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return Objects.equals(oldComments.get(oldPosition).getId(), newComments.get(newPosition).getId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                Comment oldComment = oldComments.get(oldPosition);
+                Comment newComment = newComments.get(newPosition);
+                return Objects.equals(oldComment.getContent(), newComment.getContent())
+                        && Objects.equals(oldComment.getUserName(), newComment.getUserName())
+                        && Objects.equals(oldComment.getUserAvatar(), newComment.getUserAvatar())
+                        && Objects.equals(oldComment.getTimestamp(), newComment.getTimestamp());
+            }
+        });
+        commentList.clear();
+        commentList.addAll(newComments);
+        diff.dispatchUpdatesTo(this);
+    }
+
     @NonNull
     @Override
     public CommentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -9,23 +9,30 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.Post;
+import com.example.doan_zaloclone.repository.PostLikeRepository;
 import com.google.firebase.auth.FirebaseAuth;
 
 import org.ocpsoft.prettytime.PrettyTime;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 import de.hdodenhof.circleimageview.CircleImageView;
 
 public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
 
+    // Payload: chỉ vẽ lại nút like, không load lại ảnh
+    private static final String PAYLOAD_LIKE = "payload_like";
+
     private Context context;
     private List<Post> postList;
     private PrettyTime prettyTime;
@@ -49,6 +56,58 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         }
     }
 
+    /**
+     * Cập nhật danh sách bằng DiffUtil để giữ vị trí cuộn khi cửa sổ bảng tin thay đổi
+     */
+    public void updatePosts(List<Post> newPosts) {
+        List<Post> oldPosts = new ArrayList<>(postList);
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldPosts.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newPosts.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return Objects.equals(oldPosts.get(oldPosition).getPostId(), newPosts.get(newPosition).getPostId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                Post oldPost = oldPosts.get(oldPosition);
+                Post newPost = newPosts.get(newPosition);
+                return Objects.equals(oldPost.getContent(), newPost.getContent())
+                        && Objects.equals(oldPost.getImageUrl(), newPost.getImageUrl())
+                        && Objects.equals(oldPost.getUserName(), newPost.getUserName())
+                        && Objects.equals(oldPost.getUserAvatar(), newPost.getUserAvatar())
+                        && Objects.equals(oldPost.getTimestamp(), newPost.getTimestamp())
+                        && oldPost.getLikeCount() == newPost.getLikeCount()
+                        && oldPost.isLikedBy(currentUserId) == newPost.isLikedBy(currentUserId)
+                        && oldPost.getCommentCount() == newPost.getCommentCount();
+            }
+        });
+        postList.clear();
+        postList.addAll(newPosts);
+        diff.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Cập nhật nút like của một bài viết sau khi trạng thái like thay đổi
+     */
+    public void notifyLikeChanged(String postId) {
+        for (int i = 0; i < postList.size(); i++) {
+            if (Objects.equals(postList.get(i).getPostId(), postId)) {
+                notifyItemChanged(i, PAYLOAD_LIKE);
+                return;
+            }
+        }
+    }
+
     @NonNull
     @Override
     public PostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -101,18 +160,9 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
             holder.imgContent.setVisibility(View.GONE);
         }
 
-        // 6. Hiển thị số lượt like
-        holder.tvLikeCount.setText(String.valueOf(post.getLikeCount()));
-        
-        // 7. Xử lý trạng thái Like (đổi màu nút)
-        if (post.isLikedBy(currentUserId)) {
-            holder.btnLike.setColorFilter(Color.parseColor("#1E88E5")); // Màu xanh Zalo
-            holder.btnLike.setImageResource(android.R.drawable.btn_star_big_on);
-        } else {
-            holder.btnLike.setColorFilter(Color.parseColor("#757575")); // Màu xám
-            holder.btnLike.setImageResource(android.R.drawable.btn_star_big_off);
-        }
-        
+        // 6-7. Số lượt like và trạng thái nút like
+        bindLike(holder, post);
+
         // 8. Sự kiện Click
         holder.btnLike.setOnClickListener(v -> {
             if (listener != null) listener.onLikeClick(post.getPostId());
@@ -127,6 +177,31 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         });
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_LIKE)) {
+            bindLike(holder, postList.get(position));
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    private void bindLike(PostViewHolder holder, Post post) {
+        // Trạng thái like (đã cập nhật lạc quan) lấy từ PostLikeRepository; chưa có thì dùng dữ liệu bài viết
+        PostLikeRepository.LikeState state = PostLikeRepository.getInstance().getState(post.getPostId());
+        int likeCount = state != null ? state.getCount() : post.getLikeCount();
+        boolean liked = state != null ? state.isLiked() : post.isLikedBy(currentUserId);
+
+        holder.tvLikeCount.setText(String.valueOf(likeCount));
+        if (liked) {
+            holder.btnLike.setColorFilter(Color.parseColor("#1E88E5")); // Màu xanh Zalo
+            holder.btnLike.setImageResource(android.R.drawable.btn_star_big_on);
+        } else {
+            holder.btnLike.setColorFilter(Color.parseColor("#757575")); // Màu xám
+            holder.btnLike.setImageResource(android.R.drawable.btn_star_big_off);
+        }
+    }
+
     @Override
     public int getItemCount() {
         if (postList != null) {
@@ -1,6 +1,5 @@
 package com.example.doan_zaloclone.adapters;
 
-import android.media.MediaPlayer;
 import android.os.Handler;
 import android.os.Looper;
 import android.view.LayoutInflater;
@@ -18,8 +17,12 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.Message;
 import com.example.doan_zaloclone.models.MessageReaction;
+import com.example.doan_zaloclone.ui.room.BubbleViews;
 import com.example.doan_zaloclone.ui.room.MessageAdapter;
 import com.example.doan_zaloclone.ui.room.WaveformView;
+import com.example.doan_zaloclone.utils.VoiceMessageCache;
+import com.example.doan_zaloclone.utils.VoicePlaybackManager;
+import com.example.doan_zaloclone.utils.VoiceWaveformUtils;
 
 import java.util.List;
 import java.util.Map;
@@ -27,20 +30,23 @@ import java.util.Map;
 /**
  * Phase 4D-4: ViewHolder for voice message display with playback controls
  * Updated: Added support for pin, forward, recall, reply, and reaction features
+ * Updated: Playback goes through the shared VoicePlaybackManager and cached voice files
  */
-public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
+public class VoiceMessageViewHolder extends RecyclerView.ViewHolder
+        implements VoicePlaybackManager.PlaybackListener {
     
     private ImageButton playPauseButton;
     private WaveformView waveformView;
     private TextView durationText;
     private TextView speedButton;
     
-    private MediaPlayer mediaPlayer;
+    private final VoicePlaybackManager playbackManager = VoicePlaybackManager.getInstance();
     private boolean isPlaying = false;
     private float playbackSpeed = 1.0f;
     private Handler progressHandler = new Handler(Looper.getMainLooper());
     private Runnable progressRunnable;
     
+    private String currentMessageId;
     private String currentVoiceUrl;
     private int totalDuration;
     
@@ -88,15 +94,22 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
             return;
         }
         
+        currentMessageId = message.getId();
         currentVoiceUrl = message.getVoiceUrl();
         totalDuration = message.getVoiceDuration();
         
-        android.util.Log.d("VoiceViewHolder", "Binding voice message - URL: " + currentVoiceUrl + ", Duration: " + totalDuration);
-        
-        // Reset state
-        stopPlayback();
-        updateDurationDisplay(0, totalDuration);
-        waveformView.setProgress(0f);
+        // Reset UI state; audio keeps playing in the shared player if this message owns it
+        stopProgressTracking();
+        playbackManager.detachListener(this);
+        isPlaying = playbackManager.isPlaying(currentMessageId);
+        playbackManager.attachListener(currentMessageId, this);
+        updatePlayPauseButton();
+        if (isPlaying) {
+            startProgressTracking();
+        } else {
+            updateDurationDisplay(0, totalDuration);
+            waveformView.setProgress(0f);
+        }
         
         // Update speed display
         speedButton.setText(String.format("%.1fx", playbackSpeed).replace(".0", ""));
@@ -107,8 +120,11 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
             durationText.setText("Error: No audio file");
             waveformView.clear();
         } else {
-            // Generate static waveform visualization
-            waveformView.setStaticWaveform(totalDuration);
+            // Real waveform from record-time peaks (static fallback for older messages)
+            waveformView.setPeaks(VoiceWaveformUtils.decodePeaks(message.getVoicePeaks()), totalDuration);
+            
+            // Prefetch audio so tapping play starts instantly and works offline
+            VoiceMessageCache.getInstance(itemView.getContext()).prefetch(currentVoiceUrl);
         }
         
         // Apply pin indicator and highlight effect
@@ -134,7 +150,7 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
      * Helper method to apply pin indicator and highlight effect
      */
     private static void applyPinAndHighlight(View itemView, boolean isPinned, boolean isHighlighted) {
-        View pinIndicator = itemView.findViewById(R.id.pinIndicator);
+        View pinIndicator = BubbleViews.of(itemView).pinIndicator;
         if (pinIndicator != null) {
             pinIndicator.setVisibility(isPinned ? View.VISIBLE : View.GONE);
         }
@@ -212,9 +228,10 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
     private static void bindReactionIndicator(View itemView, Message message,
                                               String currentUserId,
                                               MessageAdapter.OnMessageReactionListener reactionListener) {
-        View reactionContainer = itemView.findViewById(R.id.reactionContainer);
-        View existingReactionsLayout = itemView.findViewById(R.id.existingReactionsLayout);
-        ImageView addReactionButton = itemView.findViewById(R.id.addReactionButton);
+        BubbleViews views = BubbleViews.of(itemView);
+        View reactionContainer = views.reactionContainer;
+        View existingReactionsLayout = views.existingReactionsLayout;
+        ImageView addReactionButton = views.addReactionButton;
 
         if (reactionContainer == null || addReactionButton == null) {
             return; // Layout doesn't have reaction views
@@ -248,14 +265,12 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
 
         if (hasReactions && hasValidReactions && existingReactionsLayout != null) {
             existingReactionsLayout.setVisibility(View.VISIBLE);
-            hideAllReactionLayouts(itemView);
+            views.hideAllReactions();
 
             for (String reactionType : topReactions) {
-                int layoutId = getReactionLayoutId(reactionType);
-                int countTextId = getReactionCountTextId(reactionType);
                 Integer count = reactionCounts.get(reactionType);
-                if (layoutId != 0 && countTextId != 0 && count != null && count > 0) {
-                    bindSingleReaction(itemView, layoutId, countTextId, count);
+                if (count != null && count > 0) {
+                    bindSingleReaction(views.reactionLayout(reactionType), views.reactionCount(reactionType), count);
                 }
             }
 
@@ -297,9 +312,7 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
         });
     }
     
-    private static void bindSingleReaction(View itemView, int layoutId, int countTextId, int count) {
-        View layout = itemView.findViewById(layoutId);
-        TextView countText = itemView.findViewById(countTextId);
+    private static void bindSingleReaction(View layout, TextView countText, int count) {
         if (layout == null) return;
         
         if (count > 0) {
@@ -312,24 +325,6 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
         }
     }
     
-    private static void hideAllReactionLayouts(View itemView) {
-        int[] layoutIds = {
-                R.id.heartReactionLayout,
-                R.id.likeReactionLayout,
-                R.id.hahaReactionLayout,
-                R.id.sadReactionLayout,
-                R.id.angryReactionLayout,
-                R.id.wowReactionLayout
-        };
-        
-        for (int layoutId : layoutIds) {
-            View layout = itemView.findViewById(layoutId);
-            if (layout != null) {
-                layout.setVisibility(View.GONE);
-            }
-        }
-    }
-    
     private static int getReactionIconResource(String reactionType) {
         if (reactionType == null) return R.drawable.ic_reaction_heart_outline;
         switch (reactionType) {
@@ -343,32 +338,6 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
         }
     }
     
-    private static int getReactionLayoutId(String reactionType) {
-        if (reactionType == null) return 0;
-        switch (reactionType) {
-            case MessageReaction.REACTION_HEART: return R.id.heartReactionLayout;
-            case MessageReaction.REACTION_LIKE: return R.id.likeReactionLayout;
-            case MessageReaction.REACTION_HAHA: return R.id.hahaReactionLayout;
-            case MessageReaction.REACTION_SAD: return R.id.sadReactionLayout;
-            case MessageReaction.REACTION_ANGRY: return R.id.angryReactionLayout;
-            case MessageReaction.REACTION_WOW: return R.id.wowReactionLayout;
-            default: return 0;
-        }
-    }
-    
-    private static int getReactionCountTextId(String reactionType) {
-        if (reactionType == null) return 0;
-        switch (reactionType) {
-            case MessageReaction.REACTION_HEART: return R.id.heartReactionCount;
-            case MessageReaction.REACTION_LIKE: return R.id.likeReactionCount;
-            case MessageReaction.REACTION_HAHA: return R.id.hahaReactionCount;
-            case MessageReaction.REACTION_SAD: return R.id.sadReactionCount;
-            case MessageReaction.REACTION_ANGRY: return R.id.angryReactionCount;
-            case MessageReaction.REACTION_WOW: return R.id.wowReactionCount;
-            default: return 0;
-        }
-    }
-    
     private void togglePlayPause() {
         if (isPlaying) {
             pausePlayback();
@@ -383,102 +352,66 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
             return;
         }
         
-        try {
-            // Release existing player
-            releaseMediaPlayer();
-            
-            // Create new player
-            mediaPlayer = new MediaPlayer();
-            mediaPlayer.setDataSource(currentVoiceUrl);
-            mediaPlayer.prepareAsync();
-            
-            mediaPlayer.setOnPreparedListener(mp -> {
-                // Apply speed
-                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
-                    try {
-                        android.media.PlaybackParams params = mp.getPlaybackParams();
-                        params.setSpeed(playbackSpeed);
-                        mp.setPlaybackParams(params);
-                    } catch (Exception e) {
-                        android.util.Log.e("VoiceViewHolder", "Error setting speed", e);
-                    }
-                }
-                
-                mp.start();
-                isPlaying = true;
-                updatePlayPauseButton();
-                startProgressTracking();
-            });
-            
-            mediaPlayer.setOnCompletionListener(mp -> {
-                isPlaying = false;
-                updatePlayPauseButton();
-                stopProgressTracking();
-                updateDurationDisplay(0, totalDuration);
-                waveformView.setProgress(0f);
-            });
-            
-            mediaPlayer.setOnErrorListener((mp, what, extra) -> {
-                Toast.makeText(itemView.getContext(), "Lỗi phát âm thanh", Toast.LENGTH_SHORT).show();
-                stopPlayback();
-                return true;
-            });
-            
-        } catch (Exception e) {
-            android.util.Log.e("VoiceViewHolder", "Error starting playback", e);
-            Toast.makeText(itemView.getContext(), "Lỗi phát âm thanh", Toast.LENGTH_SHORT).show();
-        }
+        playbackManager.play(itemView.getContext(), currentMessageId, currentVoiceUrl, playbackSpeed, this);
     }
     
     private void pausePlayback() {
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
-            isPlaying = false;
-            updatePlayPauseButton();
-            stopProgressTracking();
-        }
+        playbackManager.pause();
     }
     
-    private void stopPlayback() {
-        pausePlayback();
-        releaseMediaPlayer();
+    @Override
+    public void onPlaybackStarted() {
+        isPlaying = true;
+        updatePlayPauseButton();
+        startProgressTracking();
     }
     
-    private void releaseMediaPlayer() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-                mediaPlayer.release();
-            } catch (Exception e) {
-                // Ignore
-            }
-            mediaPlayer = null;
-        }
+    @Override
+    public void onPlaybackPaused() {
+        isPlaying = false;
+        updatePlayPauseButton();
+        stopProgressTracking();
+    }
+    
+    @Override
+    public void onPlaybackCompleted() {
+        resetPlaybackUi();
+    }
+    
+    @Override
+    public void onPlaybackStopped() {
+        resetPlaybackUi();
+    }
+    
+    @Override
+    public void onPlaybackError() {
+        Toast.makeText(itemView.getContext(), "Lỗi phát âm thanh", Toast.LENGTH_SHORT).show();
+        resetPlaybackUi();
+    }
+    
+    private void resetPlaybackUi() {
         isPlaying = false;
+        updatePlayPauseButton();
         stopProgressTracking();
+        updateDurationDisplay(0, totalDuration);
+        waveformView.setProgress(0f);
     }
     
     private void startProgressTracking() {
         progressRunnable = new Runnable() {
             @Override
             public void run() {
-                if (mediaPlayer != null && isPlaying) {
-                    try {
-                        int currentPos = mediaPlayer.getCurrentPosition() / 1000;
-                        updateDurationDisplay(currentPos, totalDuration);
-                        
-                        // Update waveform progress
-                        if (totalDuration > 0) {
-                            float progress = (float) mediaPlayer.getCurrentPosition() / (totalDuration * 1000f);
-                            waveformView.setProgress(progress);
-                        }
-                        
-                        progressHandler.postDelayed(this, 100);
-                    } catch (Exception e) {
-                        // Player released
+                if (isPlaying && playbackManager.isActive(currentMessageId)) {
+                    int positionMs = playbackManager.getCurrentPosition();
+                    updateDurationDisplay(positionMs / 1000, totalDuration);
+                    
+                    // Update waveform progress
+                    if (totalDuration > 0) {
+                        float progress = positionMs / (totalDuration * 1000f);
+                        waveformView.setProgress(progress);
                     }
+                    
+                    progressHandler.postDelayed(this, 100);
                 }
             }
         };
@@ -538,19 +471,14 @@ public class VoiceMessageViewHolder extends RecyclerView.ViewHolder {
         speedButton.setText(String.format("%.1fx", speed).replace(".0", ""));
         
         // Apply to current playback
-        if (mediaPlayer != null && android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
-            try {
-                android.media.PlaybackParams params = mediaPlayer.getPlaybackParams();
-                params.setSpeed(playbackSpeed);
-                mediaPlayer.setPlaybackParams(params);
-            } catch (Exception e) {
-                android.util.Log.e("VoiceViewHolder", "Error updating speed", e);
-            }
+        if (playbackManager.isActive(currentMessageId)) {
+            playbackManager.setSpeed(playbackSpeed);
         }
     }
     
-    // Cleanup when ViewHolder is recycled
+    // Cleanup when ViewHolder is recycled - audio keeps playing in the shared player
     public void onRecycled() {
-        releaseMediaPlayer();
+        stopProgressTracking();
+        playbackManager.detachListener(this);
     }
 }
@@ -196,9 +196,13 @@ public interface ApiService {
 
     // ========== Conversations ==========
 
+    /**
+     * @param since Sync token of a previous response for a delta, or null for the full list
+     */
     @GET("conversations")
     Call<ConversationListResponse> getConversations(
-            @Query("limit") int limit
+            @Query("limit") int limit,
+            @Query("since") Long since
     );
 
     @GET("conversations/{conversationId}")
@@ -336,6 +340,10 @@ public interface ApiService {
     @GET("conversations/{id}/settings")
     Call<Map<String, Object>> getConversationSettings(@Path("id") String conversationId);
 
+    // Build the "Files & media" index of a conversation (no-op once built)
+    @POST("conversations/{id}/media/index")
+    Call<Map<String, Object>> ensureMediaIndex(@Path("id") String conversationId);
+
     // ========== Search & Filter (Phase 4A - 3F) ==========
 
     // Search conversations by name
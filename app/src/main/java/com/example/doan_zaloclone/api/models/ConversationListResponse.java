@@ -12,6 +12,16 @@ public class ConversationListResponse {
     @SerializedName("count")
     private int count;
 
+    // Current order of all conversations; in a delta, ids not listed were removed
+    @SerializedName("ids")
+    private List<String> ids;
+
+    @SerializedName("syncToken")
+    private long syncToken;
+
+    @SerializedName("delta")
+    private boolean delta;
+
     public List<Conversation> getConversations() {
         return conversations;
     }
@@ -19,4 +29,16 @@ public class ConversationListResponse {
     public int getCount() {
         return count;
     }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public long getSyncToken() {
+        return syncToken;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
 }
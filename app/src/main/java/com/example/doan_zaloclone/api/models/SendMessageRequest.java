@@ -106,6 +106,16 @@ public class SendMessageRequest {
             this.fileMimeType = message.getFileMimeType();
         }
 
+        // Video poster and metadata, sent ahead of the video upload
+        if (message.isVideoFile()) {
+            this.thumbnailUrl = message.getThumbnailUrl();
+            this.videoDuration = message.getVideoDuration() > 0 ? message.getVideoDuration() : null;
+            this.videoWidth = message.getVideoWidth() > 0 ? message.getVideoWidth() : null;
+            this.videoHeight = message.getVideoHeight() > 0 ? message.getVideoHeight() : null;
+            this.videoCodec = message.getVideoCodec();
+            this.uploading = message.isUploading() ? true : null;
+        }
+
         // Reply fields
         if (message.getReplyToId() != null && !message.getReplyToId().isEmpty()) {
             this.replyToId = message.getReplyToId();
@@ -151,6 +161,7 @@ public class SendMessageRequest {
         if (Message.TYPE_VOICE.equals(message.getType())) {
             this.voiceUrl = message.getVoiceUrl();
             this.voiceDuration = message.getVoiceDuration() > 0 ? message.getVoiceDuration() : null;
+            this.voicePeaks = message.getVoicePeaks();
             android.util.Log.d("SendMessageRequest", "Voice message - URL: " + this.voiceUrl + ", Duration: " + this.voiceDuration);
         }
 
@@ -166,6 +177,27 @@ public class SendMessageRequest {
     @SerializedName("voiceDuration")
     private Integer voiceDuration;
 
+    @SerializedName("voicePeaks")
+    private String voicePeaks;
+
+    @SerializedName("thumbnailUrl")
+    private String thumbnailUrl;
+
+    @SerializedName("videoDuration")
+    private Integer videoDuration;
+
+    @SerializedName("videoWidth")
+    private Integer videoWidth;
+
+    @SerializedName("videoHeight")
+    private Integer videoHeight;
+
+    @SerializedName("videoCodec")
+    private String videoCodec;
+
+    @SerializedName("uploading")
+    private Boolean uploading;
+
     @SerializedName("pollData")
     private com.example.doan_zaloclone.models.Poll pollData;
 
@@ -19,17 +19,16 @@ import com.example.doan_zaloclone.activities.CreatePostActivity;
 import com.example.doan_zaloclone.activities.CommentsActivity;
 import com.example.doan_zaloclone.models.Post;
 import com.example.doan_zaloclone.adapters.PostAdapter;
+import com.example.doan_zaloclone.repository.PostLikeRepository;
+import com.example.doan_zaloclone.repository.PostRepository;
 
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class PostsFragment extends Fragment implements PostAdapter.OnPostInteractionListener {
 
@@ -63,6 +62,8 @@ public class PostsFragment extends Fragment implements PostAdapter.OnPostInterac
 
         postAdapter = new PostAdapter(requireContext(), postList, this);
         rvPosts.setAdapter(postAdapter);
+        PostLikeRepository.getInstance().getLikeChanges()
+                .observe(getViewLifecycleOwner(), postAdapter::notifyLikeChanged);
 
         if (layoutPostInput != null) {
             layoutPostInput.setOnClickListener(v -> {
@@ -96,26 +97,14 @@ public class PostsFragment extends Fragment implements PostAdapter.OnPostInterac
                             }
                         }
                         postAdapter.notifyDataSetChanged();
+                        PostLikeRepository.getInstance().loadLikes(postList);
                     }
                 });
     }
 
     @Override
     public void onLikeClick(String postId) {
-        String currentUserId = FirebaseAuth.getInstance().getUid();
-        if (postId == null || currentUserId == null) return;
-
-        db.collection("posts").document(postId).get().addOnSuccessListener(documentSnapshot -> {
-            Post post = documentSnapshot.toObject(Post.class);
-            if (post != null) {
-                Map<String, Boolean> likes = post.getLikes();
-                if (likes.containsKey(currentUserId)) {
-                    db.collection("posts").document(postId).update("likes."+currentUserId, FieldValue.delete());
-                } else {
-                    db.collection("posts").document(postId).update("likes."+currentUserId, true);
-                }
-            }
-        });
+        PostRepository.getInstance().toggleLike(postId);
     }
 
     @Override
@@ -25,6 +25,7 @@ public class Comment {
     }
 
     public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
     public String getPostId() { return postId; } // Thêm getter cho postId
     public String getUserId() { return userId; }
     public String getUserName() { return userName; }
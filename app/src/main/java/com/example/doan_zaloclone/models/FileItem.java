@@ -1,23 +1,26 @@
 package com.example.doan_zaloclone.models;
 
+import com.example.doan_zaloclone.utils.MessageTextCache;
+
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
-import java.util.regex.Pattern;
 
 /**
  * Wrapper model for messages containing files
  * Adds sender information for display in file management UI
  */
 public class FileItem {
-    // URL pattern for link extraction
-    private static final Pattern URL_PATTERN = Pattern.compile(
-            "(https?://[^\\s]+)",
-            Pattern.CASE_INSENSITIVE
-    );
     private Message message;
     private String senderName;
     private String senderAvatarUrl;
+    // Precomputed by the server-side media index (null when built from a raw message)
+    private FileCategory indexedCategory;
+    private String indexedUrl;
+    private String indexedDomain;
+    private String indexedMediaType;
+    private String indexedFileType;
 
     public FileItem(Message message) {
         this.message = message;
@@ -55,10 +58,26 @@ public class FileItem {
         this.senderAvatarUrl = senderAvatarUrl;
     }
 
+    /**
+     * Use the fields precomputed by the media index instead of re-deriving them
+     *
+     * @param mediaType "IMAGE" or "VIDEO" for MEDIA items
+     * @param fileType  "PDF", "WORD", "EXCEL", "POWERPOINT", "ARCHIVE" or "OTHER" for FILES items
+     */
+    public void setIndexFields(FileCategory category, String url, String domain,
+                               String mediaType, String fileType) {
+        this.indexedCategory = category;
+        this.indexedUrl = url;
+        this.indexedDomain = domain;
+        this.indexedMediaType = mediaType;
+        this.indexedFileType = fileType;
+    }
+
     /**
      * Determine the category type based on message type and MIME type
      */
     public FileCategory getCategoryType() {
+        if (indexedCategory != null) return indexedCategory;
         if (message == null) return FileCategory.FILES;
 
         String type = message.getType();
@@ -81,8 +100,7 @@ public class FileItem {
 
         // Text messages with URLs are LINKS
         if (Message.TYPE_TEXT.equals(type)) {
-            String content = message.getContent();
-            if (content != null && URL_PATTERN.matcher(content).find()) {
+            if (findUrl() != null) {
                 return FileCategory.LINKS;
             }
             // TEXT messages without URLs should not be categorized as FILES
@@ -104,24 +122,16 @@ public class FileItem {
         FileCategory category = getCategoryType();
 
         if (category == FileCategory.LINKS) {
-            String content = message.getContent();
-            if (content != null) {
-                // Extract domain from URL
-                try {
-                    java.util.regex.Matcher matcher = URL_PATTERN.matcher(content);
-                    if (matcher.find()) {
-                        String url = matcher.group(1);
-                        // Simple domain extraction
-                        url = url.replaceFirst("https?://", "");
-                        int slashIndex = url.indexOf('/');
-                        if (slashIndex > 0) {
-                            url = url.substring(0, slashIndex);
-                        }
-                        return url;
-                    }
-                } catch (Exception e) {
-                    return "Link";
+            if (indexedDomain != null) return indexedDomain;
+            String url = findUrl();
+            if (url != null) {
+                // Simple domain extraction
+                url = url.replaceFirst("https?://", "");
+                int slashIndex = url.indexOf('/');
+                if (slashIndex > 0) {
+                    url = url.substring(0, slashIndex);
                 }
+                return url;
             }
             return "Link";
         }
@@ -185,25 +195,27 @@ public class FileItem {
      * Get extracted URL for link items
      */
     public String getExtractedUrl() {
+        if (indexedUrl != null) return indexedUrl;
         if (message == null || !Message.TYPE_TEXT.equals(message.getType())) {
             return null;
         }
+        return findUrl();
+    }
 
-        String content = message.getContent();
-        if (content != null) {
-            java.util.regex.Matcher matcher = URL_PATTERN.matcher(content);
-            if (matcher.find()) {
-                return matcher.group(1);
-            }
-        }
-
-        return null;
+    /**
+     * First web link in a text message, from the chat's parsed message text
+     */
+    private String findUrl() {
+        if (message == null || message.getContent() == null) return null;
+        List<String> urls = MessageTextCache.getInstance().get(message).getWebUrls();
+        return urls.isEmpty() ? null : urls.get(0);
     }
 
     /**
      * Get domain from URL (for link items)
      */
     public String getDomain() {
+        if (indexedDomain != null) return indexedDomain;
         String url = getExtractedUrl();
         if (url == null) return null;
 
@@ -232,6 +244,7 @@ public class FileItem {
      * Check if this is a video file
      */
     public boolean isVideo() {
+        if (indexedMediaType != null) return "VIDEO".equals(indexedMediaType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         return mimeType != null && mimeType.startsWith("video/");
@@ -241,6 +254,7 @@ public class FileItem {
      * Check if this is an image file
      */
     public boolean isImage() {
+        if (indexedMediaType != null) return "IMAGE".equals(indexedMediaType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         String type = message.getType();
@@ -252,6 +266,7 @@ public class FileItem {
      * Check if this is a PDF file
      */
     public boolean isPdf() {
+        if (indexedFileType != null) return "PDF".equals(indexedFileType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         String fileName = message.getFileName();
@@ -263,6 +278,7 @@ public class FileItem {
      * Check if this is a Word document
      */
     public boolean isWord() {
+        if (indexedFileType != null) return "WORD".equals(indexedFileType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         String fileName = message.getFileName();
@@ -276,6 +292,7 @@ public class FileItem {
      * Check if this is an Excel spreadsheet
      */
     public boolean isExcel() {
+        if (indexedFileType != null) return "EXCEL".equals(indexedFileType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         String fileName = message.getFileName();
@@ -289,6 +306,7 @@ public class FileItem {
      * Check if this is a PowerPoint presentation
      */
     public boolean isPowerPoint() {
+        if (indexedFileType != null) return "POWERPOINT".equals(indexedFileType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         String fileName = message.getFileName();
@@ -302,6 +320,7 @@ public class FileItem {
      * Check if this is an archive file (zip, rar, 7z, etc.)
      */
     public boolean isArchive() {
+        if (indexedFileType != null) return "ARCHIVE".equals(indexedFileType);
         if (message == null) return false;
         String mimeType = message.getFileMimeType();
         String fileName = message.getFileName();
@@ -0,0 +1,55 @@
+package com.example.doan_zaloclone.models;
+
+/**
+ * Open Graph summary of a shared link (title, description, site, downscaled thumbnail)
+ * An empty preview (no title and no image) is cached too, so dead links are not refetched.
+ */
+public class LinkPreview {
+    private String url;
+    private String title;
+    private String description;
+    private String siteName;
+    private String imagePath; // Local downscaled thumbnail file, null if the page has none
+    private long fetchedAt;
+
+    public LinkPreview() {
+    }
+
+    public LinkPreview(String url, String title, String description, String siteName,
+                       String imagePath, long fetchedAt) {
+        this.url = url;
+        this.title = title;
+        this.description = description;
+        this.siteName = siteName;
+        this.imagePath = imagePath;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getSiteName() {
+        return siteName;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public boolean isEmpty() {
+        return (title == null || title.isEmpty()) && imagePath == null;
+    }
+}
@@ -78,6 +78,15 @@ public class Message {
     // Voice data (only used for TYPE_VOICE messages)
     private String voiceUrl;            // URL of voice message audio file
     private int voiceDuration;          // Duration in seconds
+    private String voicePeaks;          // Base64 amplitude peaks computed at record time
+
+    // Video data (TYPE_FILE messages with a video/* mime)
+    private String thumbnailUrl;        // Poster frame, uploaded before the video itself
+    private int videoDuration;          // Duration in seconds
+    private int videoWidth;             // Display size (rotation applied)
+    private int videoHeight;
+    private String videoCodec;          // "avc" / "hevc" when transcoded on device, else null
+    private boolean uploading;          // Sent ahead of its file; content is empty until the upload lands
 
     // Empty constructor bắt buộc cho Firestore serialization/deserialization
     public Message() {
@@ -128,6 +137,14 @@ public class Message {
         // Voice message fields
         this.voiceUrl = other.voiceUrl;
         this.voiceDuration = other.voiceDuration;
+        this.voicePeaks = other.voicePeaks;
+        // Video fields
+        this.thumbnailUrl = other.thumbnailUrl;
+        this.videoDuration = other.videoDuration;
+        this.videoWidth = other.videoWidth;
+        this.videoHeight = other.videoHeight;
+        this.videoCodec = other.videoCodec;
+        this.uploading = other.uploading;
     }
 
     // Constructor cũ (backward compatible) - mặc định type là TEXT
@@ -592,7 +609,68 @@ public class Message {
         this.voiceDuration = voiceDuration;
     }
 
+    public String getVoicePeaks() {
+        return voicePeaks;
+    }
+
+    public void setVoicePeaks(String voicePeaks) {
+        this.voicePeaks = voicePeaks;
+    }
+
     public boolean isVoiceMessage() {
         return TYPE_VOICE.equals(this.type);
     }
+
+    // Video getters and setters
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public int getVideoDuration() {
+        return videoDuration;
+    }
+
+    public void setVideoDuration(int videoDuration) {
+        this.videoDuration = videoDuration;
+    }
+
+    public int getVideoWidth() {
+        return videoWidth;
+    }
+
+    public void setVideoWidth(int videoWidth) {
+        this.videoWidth = videoWidth;
+    }
+
+    public int getVideoHeight() {
+        return videoHeight;
+    }
+
+    public void setVideoHeight(int videoHeight) {
+        this.videoHeight = videoHeight;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
+    public boolean isUploading() {
+        return uploading;
+    }
+
+    public void setUploading(boolean uploading) {
+        this.uploading = uploading;
+    }
+
+    public boolean isVideoFile() {
+        return TYPE_FILE.equals(this.type) && fileMimeType != null && fileMimeType.startsWith("video/");
+    }
 }
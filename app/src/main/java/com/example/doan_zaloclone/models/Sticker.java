@@ -1,5 +1,7 @@
 package com.example.doan_zaloclone.models;
 
+import com.google.firebase.firestore.Exclude;
+
 /**
  * Sticker model class
  * Represents a single sticker within a sticker pack
@@ -16,6 +18,8 @@ public class Sticker {
     private long createdAt;
     private String[] tags;          // For search
     private String format;          // webp, gif, png, apng, jpeg, lottie
+    // Downloaded copy from an offline pack bundle (device only, never stored remotely)
+    private transient String localPath;
 
     // Empty constructor for Firestore
     public Sticker() {
@@ -127,6 +131,25 @@ public class Sticker {
         this.format = format;
     }
 
+    @Exclude
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    @Exclude
+    public void setLocalPath(String localPath) {
+        this.localPath = localPath;
+    }
+
+    /**
+     * Source to display: the offline bundle file when downloaded, otherwise the remote URL
+     * Messages must still be sent with getImageUrl()
+     */
+    @Exclude
+    public String getDisplayUrl() {
+        return localPath != null ? localPath : imageUrl;
+    }
+
     /**
      * Check if this is an official sticker
      */
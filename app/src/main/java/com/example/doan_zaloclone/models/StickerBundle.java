@@ -0,0 +1,65 @@
+package com.example.doan_zaloclone.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StickerBundle model class
+ * Offline copy of a sticker pack: the manifest (pack info, version, stickers)
+ * stored on disk next to the downloaded sticker files
+ */
+public class StickerBundle {
+    private String packId;
+    private long version;           // Pack version from the server (pack updatedAt)
+    private long syncedAt;          // Last successful sync, 0 = needs sync
+    private StickerPack pack;
+    private List<Sticker> stickers = new ArrayList<>();
+
+    // Empty constructor for Gson
+    public StickerBundle() {
+    }
+
+    public StickerBundle(String packId) {
+        this.packId = packId;
+    }
+
+    public String getPackId() {
+        return packId;
+    }
+
+    public void setPackId(String packId) {
+        this.packId = packId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getSyncedAt() {
+        return syncedAt;
+    }
+
+    public void setSyncedAt(long syncedAt) {
+        this.syncedAt = syncedAt;
+    }
+
+    public StickerPack getPack() {
+        return pack;
+    }
+
+    public void setPack(StickerPack pack) {
+        this.pack = pack;
+    }
+
+    public List<Sticker> getStickers() {
+        return stickers;
+    }
+
+    public void setStickers(List<Sticker> stickers) {
+        this.stickers = stickers != null ? stickers : new ArrayList<>();
+    }
+}
@@ -7,6 +7,7 @@ import android.util.Log;
 import com.example.doan_zaloclone.api.RetrofitClient;
 import com.example.doan_zaloclone.api.models.ApiResponse;
 import com.example.doan_zaloclone.api.ApiService;
+import com.example.doan_zaloclone.services.PushDelivery;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
@@ -18,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import retrofit2.Call;
 
@@ -182,6 +184,13 @@ public class AuthRepository {
                             Log.w(TAG, "Failed to set offline status on logout (Firestore fallback)", ex);
                         }
                     }
+
+                    // Stop pushes to this device while still authorized to edit the user doc
+                    try {
+                        Tasks.await(PushDelivery.getInstance().unregister(user.getUid()), 5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        Log.w(TAG, "Failed to remove push token on logout", e);
+                    }
                 }
                 
                 firebaseAuth.signOut();
@@ -0,0 +1,234 @@
+package com.example.doan_zaloclone.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.webrtc.CameraVideoCapturer;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adaptive video quality for a 1:1 call
+ * Fed with the getStats reports polled by WebRtcRepository, derives RTT / packet loss /
+ * available outgoing bitrate / encoder CPU limitation, and steps the outgoing video between quality levels by changing
+ * the capture format and the RtpSender encodings (maxBitrate, scaleResolutionDownBy,
+ * maxFramerate). Steps down quickly, steps up only after a run of good samples.
+ * Encodings are handled as a list so a simulcast sender gets its upper layers switched off.
+ */
+public class CallQualityController {
+
+    private static final String TAG = "CallQualityController";
+
+    // Step down on the first bad sample pair, step up after ~10s of good ones
+    private static final int BAD_SAMPLES_TO_DOWNGRADE = 2;
+    private static final int GOOD_SAMPLES_TO_UPGRADE = 5;
+
+    private static final double LOSS_BAD = 0.08;
+    private static final double LOSS_GOOD = 0.02;
+    private static final double RTT_BAD_SEC = 0.45;
+    private static final double RTT_GOOD_SEC = 0.25;
+    // Upgrade only when the estimate has this much headroom over the next level's bitrate
+    private static final double BITRATE_HEADROOM = 1.3;
+
+    /**
+     * Outgoing video quality levels, best first
+     */
+    enum Level {
+        HIGH(540, 960, 24, 1.0, 1_200_000),
+        MEDIUM(540, 960, 20, 1.5, 650_000),
+        LOW(480, 640, 15, 2.0, 300_000),
+        MINIMAL(480, 640, 10, 2.0, 150_000);
+
+        final int captureWidth;
+        final int captureHeight;
+        final int fps;
+        final double scaleDown;
+        final int maxBitrateBps;
+
+        Level(int captureWidth, int captureHeight, int fps, double scaleDown, int maxBitrateBps) {
+            this.captureWidth = captureWidth;
+            this.captureHeight = captureHeight;
+            this.fps = fps;
+            this.scaleDown = scaleDown;
+            this.maxBitrateBps = maxBitrateBps;
+        }
+    }
+
+    private final RtpSender videoSender;
+    @Nullable
+    private final CameraVideoCapturer capturer;
+
+    private Level level;
+    private int badSamples = 0;
+    private int goodSamples = 0;
+    private boolean running = false;
+
+    /**
+     * @param initialLevel Level the capturer was started with
+     */
+    CallQualityController(@NonNull RtpSender videoSender, @Nullable CameraVideoCapturer capturer,
+                          @NonNull Level initialLevel) {
+        this.videoSender = videoSender;
+        this.capturer = capturer;
+        this.level = initialLevel;
+    }
+
+    void start() {
+        if (running) return;
+        running = true;
+        applyEncodings(level);
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Evaluate one stats report (called every stats interval)
+     */
+    void onStats(RTCStatsReport report) {
+        if (!running) return;
+
+        Sample sample = Sample.from(report);
+        boolean bad = sample.lossFraction > LOSS_BAD
+                || sample.rttSec > RTT_BAD_SEC
+                || sample.cpuLimited
+                || (sample.availableBitrateBps > 0 && sample.availableBitrateBps < level.maxBitrateBps * 0.6);
+
+        Level better = level.ordinal() > 0 ? Level.values()[level.ordinal() - 1] : null;
+        boolean good = !bad
+                && sample.lossFraction < LOSS_GOOD
+                && sample.rttSec < RTT_GOOD_SEC
+                && !sample.bandwidthLimited
+                && better != null
+                && (sample.availableBitrateBps <= 0 || sample.availableBitrateBps > better.maxBitrateBps * BITRATE_HEADROOM);
+
+        if (bad) {
+            goodSamples = 0;
+            if (++badSamples >= BAD_SAMPLES_TO_DOWNGRADE && level.ordinal() < Level.values().length - 1) {
+                setLevel(Level.values()[level.ordinal() + 1], sample);
+            }
+        } else if (good) {
+            badSamples = 0;
+            if (++goodSamples >= GOOD_SAMPLES_TO_UPGRADE) {
+                setLevel(better, sample);
+            }
+        } else {
+            badSamples = 0;
+            goodSamples = 0;
+        }
+    }
+
+    private void setLevel(Level next, Sample sample) {
+        Log.d(TAG, "Video quality " + level + " -> " + next + " (" + sample + ")");
+        Level previous = level;
+        level = next;
+        badSamples = 0;
+        goodSamples = 0;
+
+        // Restarting the camera is visible, so only change the capture format between tiers
+        if (capturer != null && (previous.captureWidth != next.captureWidth
+                || previous.captureHeight != next.captureHeight)) {
+            try {
+                capturer.changeCaptureFormat(next.captureWidth, next.captureHeight, next.fps);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Could not change capture format", e);
+            }
+        }
+        applyEncodings(next);
+    }
+
+    private void applyEncodings(Level target) {
+        try {
+            RtpParameters parameters = videoSender.getParameters();
+            if (parameters == null || parameters.encodings == null || parameters.encodings.isEmpty()) {
+                return;
+            }
+            // CPU or network trouble: keep the frame rate readable, trade resolution first
+            parameters.degradationPreference = target == Level.HIGH
+                    ? RtpParameters.DegradationPreference.BALANCED
+                    : RtpParameters.DegradationPreference.MAINTAIN_FRAMERATE;
+
+            List<RtpParameters.Encoding> encodings = parameters.encodings;
+            int layers = encodings.size();
+            for (int i = 0; i < layers; i++) {
+                RtpParameters.Encoding encoding = encodings.get(i);
+                // Simulcast: layer i is 2^(layers-1-i) smaller than the top layer
+                int factor = 1 << (layers - 1 - i);
+                encoding.scaleResolutionDownBy = target.scaleDown * factor;
+                encoding.maxBitrateBps = target.maxBitrateBps / factor;
+                encoding.maxFramerate = target.fps;
+                // Lowest levels only keep the smallest simulcast layer
+                encoding.active = i == 0 || target.ordinal() < Level.LOW.ordinal();
+            }
+            videoSender.setParameters(parameters);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not apply encoding parameters", e);
+        }
+    }
+
+    /**
+     * Link metrics extracted from one stats report
+     */
+    static class Sample {
+        double rttSec;
+        double lossFraction;
+        double availableBitrateBps;
+        boolean cpuLimited;
+        boolean bandwidthLimited;
+
+        static Sample from(RTCStatsReport report) {
+            Sample sample = new Sample();
+            for (RTCStats stats : report.getStatsMap().values()) {
+                Map<String, Object> members = stats.getMembers();
+                switch (stats.getType()) {
+                    case "candidate-pair":
+                        if (Boolean.TRUE.equals(members.get("nominated"))
+                                && "succeeded".equals(members.get("state"))) {
+                            sample.rttSec = Math.max(sample.rttSec, number(members.get("currentRoundTripTime")));
+                            sample.availableBitrateBps = number(members.get("availableOutgoingBitrate"));
+                        }
+                        break;
+                    case "remote-inbound-rtp":
+                        if ("video".equals(members.get("kind"))) {
+                            sample.lossFraction = Math.max(sample.lossFraction, number(members.get("fractionLost")));
+                            sample.rttSec = Math.max(sample.rttSec, number(members.get("roundTripTime")));
+                        }
+                        break;
+                    case "outbound-rtp":
+                        if ("video".equals(members.get("kind"))) {
+                            Object reason = members.get("qualityLimitationReason");
+                            sample.cpuLimited |= "cpu".equals(reason);
+                            sample.bandwidthLimited |= "bandwidth".equals(reason);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return sample;
+        }
+
+        static double number(Object value) {
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "rtt=" + Math.round(rttSec * 1000) + "ms loss=" + Math.round(lossFraction * 100)
+                    + "% bwe=" + Math.round(availableBitrateBps / 1000) + "kbps cpu=" + cpuLimited;
+        }
+    }
+}
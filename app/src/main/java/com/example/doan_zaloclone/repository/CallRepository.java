@@ -328,6 +328,22 @@ public class CallRepository {
                 });
     }
 
+    /**
+     * Attach one participant's call telemetry summary to the call record
+     * Stored under telemetry.{userId} so both sides can write without overwriting each other.
+     *
+     * @param callId  ID of the call
+     * @param userId  Participant the telemetry belongs to
+     * @param summary Summary from CallTelemetry.getSummary()
+     */
+    public void attachTelemetry(@NonNull String callId, @NonNull String userId, @NonNull Map<String, Object> summary) {
+        db.collection(COLLECTION_CALLS)
+                .document(callId)
+                .update("telemetry." + userId, summary)
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Telemetry attached to call: " + callId))
+                .addOnFailureListener(e -> Log.w(TAG, "Error attaching telemetry", e));
+    }
+
     /**
      * Listen to a call with real-time updates (callback version)
      *
@@ -0,0 +1,235 @@
+package com.example.doan_zaloclone.repository;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Setup timings and media quality samples for one call
+ * Records time-to-offer/answer, ICE gathering time, time-to-connected and the selected
+ * candidate pair type, plus periodic bitrate / jitter / loss / RTT samples taken from
+ * getStats. Samples are kept in a bounded ring buffer; running totals cover the whole call
+ * so the summary stays correct after old samples are overwritten.
+ * Thread-safe: WebRTC callbacks arrive on the signaling thread, stats on the main thread.
+ */
+public class CallTelemetry {
+
+    private static final String TAG = "CallTelemetry";
+    // 2 minutes at the 2s stats interval
+    private static final int RING_CAPACITY = 60;
+
+    private final String callId;
+    private final boolean isVideo;
+    private final long startedAt = SystemClock.elapsedRealtime();
+
+    // Setup timings, -1 = did not happen
+    private long sdpCreatedMs = -1;      // Offer (caller) or answer (callee) ready
+    private long gatheringStartedAt = -1;
+    private long iceGatheringMs = -1;
+    private long connectedMs = -1;
+    private int localCandidates = 0;
+    private String candidatePairType;    // e.g. "host/srflx", "relay/host"
+
+    // Ring buffer of samples
+    private final Sample[] ring = new Sample[RING_CAPACITY];
+    private int ringNext = 0;
+    private int ringSize = 0;
+
+    // Whole-call totals
+    private int sampleCount = 0;
+    private double sumSendKbps, sumRecvKbps, sumJitterMs, sumLossPercent, sumRttMs;
+    private double maxRttMs, maxLossPercent;
+
+    // Previous cumulative counters, for deltas
+    private long lastStatsAt = -1;
+    private double lastBytesSent, lastBytesReceived, lastPacketsReceived, lastPacketsLost;
+
+    CallTelemetry(@NonNull String callId, boolean isVideo) {
+        this.callId = callId;
+        this.isVideo = isVideo;
+    }
+
+    // ========== Setup events ==========
+
+    synchronized void onLocalDescriptionCreated() {
+        if (sdpCreatedMs < 0) {
+            sdpCreatedMs = elapsed();
+            Log.d(TAG, callId + " local SDP ready after " + sdpCreatedMs + "ms");
+        }
+    }
+
+    synchronized void onIceGatheringStarted() {
+        if (gatheringStartedAt < 0) {
+            gatheringStartedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    synchronized void onIceGatheringComplete() {
+        if (gatheringStartedAt >= 0 && iceGatheringMs < 0) {
+            iceGatheringMs = SystemClock.elapsedRealtime() - gatheringStartedAt;
+            Log.d(TAG, callId + " ICE gathering took " + iceGatheringMs + "ms, " + localCandidates + " candidates");
+        }
+    }
+
+    synchronized void onLocalCandidate() {
+        localCandidates++;
+    }
+
+    synchronized void onConnected() {
+        if (connectedMs < 0) {
+            connectedMs = elapsed();
+            Log.d(TAG, callId + " connected after " + connectedMs + "ms");
+        }
+    }
+
+    // ========== Stats ==========
+
+    /**
+     * Add one getStats report (called every stats interval)
+     */
+    synchronized void onStats(@NonNull RTCStatsReport report) {
+        Map<String, RTCStats> all = report.getStatsMap();
+        double bytesSent = 0, bytesReceived = 0, packetsReceived = 0, packetsLost = 0;
+        double jitterSec = 0, rttSec = 0;
+
+        for (RTCStats stats : all.values()) {
+            Map<String, Object> members = stats.getMembers();
+            switch (stats.getType()) {
+                case "candidate-pair":
+                    if (Boolean.TRUE.equals(members.get("nominated")) && "succeeded".equals(members.get("state"))) {
+                        rttSec = number(members.get("currentRoundTripTime"));
+                        candidatePairType = candidateType(all, members.get("localCandidateId"))
+                                + "/" + candidateType(all, members.get("remoteCandidateId"));
+                    }
+                    break;
+                case "outbound-rtp":
+                    bytesSent += number(members.get("bytesSent"));
+                    break;
+                case "inbound-rtp":
+                    bytesReceived += number(members.get("bytesReceived"));
+                    packetsReceived += number(members.get("packetsReceived"));
+                    packetsLost += number(members.get("packetsLost"));
+                    // Audio jitter is what the user hears
+                    if ("audio".equals(members.get("kind"))) {
+                        jitterSec = number(members.get("jitter"));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (lastStatsAt > 0 && now > lastStatsAt) {
+            double seconds = (now - lastStatsAt) / 1000.0;
+            double received = packetsReceived - lastPacketsReceived;
+            double lost = packetsLost - lastPacketsLost;
+
+            Sample sample = new Sample();
+            sample.atMs = now - startedAt;
+            sample.sendKbps = Math.max(0, (bytesSent - lastBytesSent) * 8 / 1000 / seconds);
+            sample.recvKbps = Math.max(0, (bytesReceived - lastBytesReceived) * 8 / 1000 / seconds);
+            sample.lossPercent = received + lost > 0 ? Math.max(0, lost) * 100 / (received + lost) : 0;
+            sample.jitterMs = jitterSec * 1000;
+            sample.rttMs = rttSec * 1000;
+            add(sample);
+        }
+        lastStatsAt = now;
+        lastBytesSent = bytesSent;
+        lastBytesReceived = bytesReceived;
+        lastPacketsReceived = packetsReceived;
+        lastPacketsLost = packetsLost;
+    }
+
+    private void add(Sample sample) {
+        ring[ringNext] = sample;
+        ringNext = (ringNext + 1) % RING_CAPACITY;
+        ringSize = Math.min(ringSize + 1, RING_CAPACITY);
+
+        sampleCount++;
+        sumSendKbps += sample.sendKbps;
+        sumRecvKbps += sample.recvKbps;
+        sumJitterMs += sample.jitterMs;
+        sumLossPercent += sample.lossPercent;
+        sumRttMs += sample.rttMs;
+        maxRttMs = Math.max(maxRttMs, sample.rttMs);
+        maxLossPercent = Math.max(maxLossPercent, sample.lossPercent);
+    }
+
+    /**
+     * Most recent sample, or null before the second stats report
+     */
+    @Nullable
+    public synchronized Sample getLatestSample() {
+        if (ringSize == 0) return null;
+        return ring[(ringNext - 1 + RING_CAPACITY) % RING_CAPACITY];
+    }
+
+    /**
+     * Per-call summary, in a form that can be written to Firestore
+     */
+    @NonNull
+    public synchronized Map<String, Object> getSummary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("video", isVideo);
+        summary.put("durationMs", elapsed());
+        summary.put("sdpReadyMs", sdpCreatedMs);
+        summary.put("iceGatheringMs", iceGatheringMs);
+        summary.put("connectedMs", connectedMs);
+        summary.put("localCandidates", localCandidates);
+        summary.put("candidatePair", candidatePairType);
+        summary.put("samples", sampleCount);
+        if (sampleCount > 0) {
+            summary.put("avgSendKbps", round(sumSendKbps / sampleCount));
+            summary.put("avgRecvKbps", round(sumRecvKbps / sampleCount));
+            summary.put("avgJitterMs", round(sumJitterMs / sampleCount));
+            summary.put("avgLossPercent", round(sumLossPercent / sampleCount));
+            summary.put("maxLossPercent", round(maxLossPercent));
+            summary.put("avgRttMs", round(sumRttMs / sampleCount));
+            summary.put("maxRttMs", round(maxRttMs));
+        }
+        return summary;
+    }
+
+    public String getCallId() {
+        return callId;
+    }
+
+    private long elapsed() {
+        return SystemClock.elapsedRealtime() - startedAt;
+    }
+
+    private static String candidateType(Map<String, RTCStats> all, Object candidateId) {
+        RTCStats candidate = candidateId != null ? all.get(candidateId.toString()) : null;
+        Object type = candidate != null ? candidate.getMembers().get("candidateType") : null;
+        return type != null ? type.toString() : "unknown";
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * One stats interval
+     */
+    public static class Sample {
+        public long atMs;
+        public double sendKbps;
+        public double recvKbps;
+        public double lossPercent;
+        public double jitterMs;
+        public double rttMs;
+    }
+}
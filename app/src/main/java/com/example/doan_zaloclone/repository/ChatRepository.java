@@ -1,5 +1,6 @@
 package com.example.doan_zaloclone.repository;
 
+import com.example.doan_zaloclone.ZaloApplication;
 import com.example.doan_zaloclone.api.ApiService;
 import com.example.doan_zaloclone.api.RetrofitClient;
 import com.example.doan_zaloclone.api.models.ApiResponse;
@@ -9,7 +10,14 @@ import com.example.doan_zaloclone.websocket.SocketManager;
 import com.example.doan_zaloclone.models.Conversation;
 import com.example.doan_zaloclone.models.Message;
 import com.example.doan_zaloclone.services.FirestoreManager;
+import com.example.doan_zaloclone.utils.AppLog;
+import com.example.doan_zaloclone.utils.ChunkedUploader;
+import com.example.doan_zaloclone.utils.EventTrace;
+import com.example.doan_zaloclone.utils.LinkPreviewService;
+import com.example.doan_zaloclone.utils.MessageTextCache;
 import com.example.doan_zaloclone.utils.Resource;
+import com.example.doan_zaloclone.utils.StartupOrchestrator;
+import com.example.doan_zaloclone.utils.VideoTranscoder;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -22,6 +30,7 @@ import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
@@ -33,6 +42,7 @@ import com.cloudinary.android.MediaManager;
 import com.cloudinary.android.callback.ErrorInfo;
 import com.cloudinary.android.callback.UploadCallback;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -71,6 +81,25 @@ public class ChatRepository {
 
     private final java.util.concurrent.ExecutorService backgroundExecutor;
 
+    // Screen callbacks of running file sends, by send id; detachUploadCallback() drops them
+    private final Map<String, DetachableCallback> uploadCallbacks = new java.util.concurrent.ConcurrentHashMap<>();
+
+    // Keys stored with chat file uploads so they can be finished after a restart
+    private static final String UPLOAD_EXTRA_KIND = "kind";
+    private static final String UPLOAD_KIND_CHAT_FILE = "chat_file";
+    private static final String UPLOAD_EXTRA_CONVERSATION = "conversationId";
+    private static final String UPLOAD_EXTRA_SENDER = "senderId";
+    // Videos: the poster goes out first, then the video is attached to the message it created
+    private static final String UPLOAD_KIND_VIDEO_POSTER = "chat_video_poster";
+    private static final String UPLOAD_KIND_CHAT_VIDEO = "chat_video";
+    private static final String UPLOAD_EXTRA_MESSAGE = "messageId";
+    private static final String UPLOAD_EXTRA_LOCAL_FILE = "localFile";
+    private static final String UPLOAD_EXTRA_VIDEO_CODEC = "videoCodec";
+    // Share of the progress bar spent transcoding; the upload fills the rest
+    private static final int VIDEO_TRANSCODE_PROGRESS = 40;
+    // Placeholder timestamps come from the server clock; allow for skew with the journal's
+    private static final long ORPHAN_CLOCK_SLACK_MS = 60_000;
+
     // Singleton instance
     private static ChatRepository instance;
     
@@ -94,7 +123,7 @@ public class ChatRepository {
         this.mainHandler = new Handler(Looper.getMainLooper());
         
         // Connect WebSocket for real-time updates
-        Log.d("ChatRepository", "Initializing ChatRepository, WebSocket connection");
+        if (AppLog.DEBUG) Log.d("ChatRepository", "Initializing ChatRepository, WebSocket connection");
         socketManager.connect();
     }
 
@@ -135,12 +164,13 @@ public class ChatRepository {
     public void sendMessage(String conversationId, Message message, SendMessageCallback callback) {
         // Run in background queue to serialize requests
         backgroundExecutor.execute(() -> {
+            long traceStart = EventTrace.begin(EventTrace.SEND);
             try {
                 // Create API request from Message object
                 SendMessageRequest request = new SendMessageRequest(message);
                 
                 // Debug log for voice message
-                if (Message.TYPE_VOICE.equals(message.getType())) {
+                if (AppLog.DEBUG && Message.TYPE_VOICE.equals(message.getType())) {
                     Log.d("ChatRepository", "Sending VOICE message - voiceUrl: " + message.getVoiceUrl() + ", duration: " + message.getVoiceDuration());
                 }
                 
@@ -156,7 +186,9 @@ public class ChatRepository {
                         Message savedMessage = apiResponse.getData();
                         String messageId = savedMessage.getId();
                         
-                        Log.d("ChatRepository", "Message sent successfully - ID: " + messageId + ", Type: " + savedMessage.getType() + ", VoiceUrl: " + savedMessage.getVoiceUrl() + ", VoiceDuration: " + savedMessage.getVoiceDuration());
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Message sent successfully - ID: " + messageId + ", Type: " + savedMessage.getType() + ", VoiceUrl: " + savedMessage.getVoiceUrl() + ", VoiceDuration: " + savedMessage.getVoiceDuration());
+                        MessageTextCache.getInstance().warm(savedMessage);
+                        LinkPreviewService.getInstance().prefetch(savedMessage);
                         
                         // Add to pending set - to prevent WebSocket duplicate
                         synchronized (pendingSentMessageIds) {
@@ -167,7 +199,7 @@ public class ChatRepository {
                         mainHandler.postDelayed(() -> {
                             synchronized (pendingSentMessageIds) {
                                 pendingSentMessageIds.remove(messageId);
-                                Log.d("ChatRepository", "Removed message from pending: " + messageId);
+                                if (AppLog.DEBUG) Log.d("ChatRepository", "Removed message from pending: " + messageId);
                             }
                         }, 5000);
                         
@@ -187,7 +219,7 @@ public class ChatRepository {
                             if (existingIndex >= 0) {
                                 // UPDATE existing message with full data from API response
                                 // (WebSocket message may be missing some fields like voiceUrl)
-                                Log.d("ChatRepository", "Updating existing message in cache with API data: " + messageId);
+                                if (AppLog.DEBUG) Log.d("ChatRepository", "Updating existing message in cache with API data: " + messageId);
                                 cachedMessages.set(existingIndex, savedMessage);
                                 
                                 // Notify UI on main thread to refresh
@@ -198,7 +230,7 @@ public class ChatRepository {
                                 }
                             } else {
                                 // Add new message
-                                Log.d("ChatRepository", "Adding sent message to cache immediately: " + messageId);
+                                if (AppLog.DEBUG) Log.d("ChatRepository", "Adding sent message to cache immediately: " + messageId);
                                 cachedMessages.add(savedMessage);
                                 
                                 // Notify UI on main thread
@@ -210,7 +242,11 @@ public class ChatRepository {
                             }
                         }
                         
-                        mainHandler.post(callback::onSuccess);
+                        Message sentMessage = savedMessage;
+                        mainHandler.post(() -> {
+                            callback.onSent(sentMessage);
+                            callback.onSuccess();
+                        });
                     } else {
                         String error = apiResponse.getMessage() != null 
                             ? apiResponse.getMessage() 
@@ -228,6 +264,8 @@ public class ChatRepository {
             } catch (Exception e) {
                 String error = e.getMessage() != null ? e.getMessage() : "Network error";
                 mainHandler.post(() -> callback.onError(error));
+            } finally {
+                EventTrace.end(EventTrace.SEND, traceStart, message.getType());
             }
         });
     }
@@ -248,7 +286,7 @@ public class ChatRepository {
                     ApiResponse<Message> apiResponse = response.body();
                     
                     if (apiResponse.isSuccess()) {
-                        Log.d("ChatRepository", "Message recalled successfully - ID: " + messageId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Message recalled successfully - ID: " + messageId);
                         // Backend broadcasts update via WebSocket
                         callback.onSuccess();
                     } else {
@@ -289,7 +327,7 @@ public class ChatRepository {
                     ApiResponse<Message> apiResponse = response.body();
                     
                     if (apiResponse.isSuccess()) {
-                        Log.d("ChatRepository", "Message updated successfully - ID: " + messageId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Message updated successfully - ID: " + messageId);
                         // Backend broadcasts update via WebSocket
                         callback.onSuccess();
                     } else {
@@ -326,7 +364,7 @@ public class ChatRepository {
                     ApiResponse<Void> apiResponse = response.body();
                     
                     if (apiResponse.isSuccess()) {
-                        Log.d("ChatRepository", "Message deleted successfully - ID: " + messageId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Message deleted successfully - ID: " + messageId);
                         // Backend broadcasts delete via WebSocket
                         callback.onSuccess();
                     } else {
@@ -368,10 +406,10 @@ public class ChatRepository {
         activeMessagesListener = new MessagesListener() {
             @Override
             public void onMessagesChanged(List<Message> messages) {
-                Log.d("ChatRepository", "🎯 MessagesListener.onMessagesChanged called with " + messages.size() + " messages");
-                Log.d("ChatRepository", "🎯 Setting LiveData value, result=" + result + ", hasObservers=" + result.hasActiveObservers());
+                if (AppLog.DEBUG) Log.d("ChatRepository", "🎯 MessagesListener.onMessagesChanged called with " + messages.size() + " messages");
+                if (AppLog.DEBUG) Log.d("ChatRepository", "🎯 Setting LiveData value, result=" + result + ", hasObservers=" + result.hasActiveObservers());
                 result.setValue(Resource.success(messages));
-                Log.d("ChatRepository", "🎯 LiveData value set complete");
+                if (AppLog.DEBUG) Log.d("ChatRepository", "🎯 LiveData value set complete");
             }
             
             @Override
@@ -394,7 +432,7 @@ public class ChatRepository {
      * @return ListenerRegistration for cleanup
      */
     public ListenerRegistration listenToMessages(String conversationId, MessagesListener listener) {
-        Log.d("ChatRepository", "🎯 listenToMessages called for: " + conversationId);
+        if (AppLog.DEBUG) Log.d("ChatRepository", "🎯 listenToMessages called for: " + conversationId);
         
         // Null check để tránh crash trong các closure
         if (conversationId == null || conversationId.isEmpty()) {
@@ -409,7 +447,7 @@ public class ChatRepository {
         
         // Leave previous conversation room if different
         if (currentConversationId != null && !currentConversationId.equals(conversationId)) {
-            Log.d("ChatRepository", "📤 Leaving previous conversation: " + currentConversationId);
+            if (AppLog.DEBUG) Log.d("ChatRepository", "📤 Leaving previous conversation: " + currentConversationId);
             socketManager.leaveConversation(currentConversationId);
         }
         
@@ -432,7 +470,7 @@ public class ChatRepository {
                     }
                     
                     String messageId = newMessage.getId();
-                    Log.d("ChatRepository", "WebSocket message received - ID: " + messageId);
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "WebSocket message received - ID: " + messageId);
                     
                     // Remove from pending if it was sent by us
                     boolean wasPending = false;
@@ -440,7 +478,7 @@ public class ChatRepository {
                         wasPending = pendingSentMessageIds.remove(messageId);
                     }
                     if (wasPending) {
-                        Log.d("ChatRepository", "Message was pending, removed from set: " + messageId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Message was pending, removed from set: " + messageId);
                     }
                     
                     // Check if message already exists (avoid duplicates)
@@ -454,7 +492,9 @@ public class ChatRepository {
                     }
                     
                     if (!exists) {
-                        Log.d("ChatRepository", "Adding new message from WebSocket: " + messageId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Adding new message from WebSocket: " + messageId);
+                        // Parse its text here on the socket thread, not on bind
+                        MessageTextCache.getInstance().warm(newMessage);
                         cachedMessages.add(newMessage);
                         
                         // CRITICAL: Post to main thread for UI update
@@ -476,7 +516,7 @@ public class ChatRepository {
                     }
                     
                     String messageId = messageData.optString("id");
-                    Log.d("ChatRepository", "Message updated via WebSocket - ID: " + messageId);
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "Message updated via WebSocket - ID: " + messageId);
                     
                     // Find and update message in cache
                     boolean found = false;
@@ -494,6 +534,7 @@ public class ChatRepository {
                             // 1. Content update (Edit)
                             if (messageData.has("content")) {
                                 updatedMsg.setContent(messageData.optString("content"));
+                                MessageTextCache.getInstance().warm(updatedMsg);
                             }
                             
                             // 2. Recall update
@@ -501,16 +542,30 @@ public class ChatRepository {
                                 updatedMsg.setRecalled(messageData.optBoolean("isRecalled"));
                             }
                             
-                            // 3. Poll data update
+                            // 3. Upload attached to a message sent ahead of its file
+                            if (messageData.has("uploading")) {
+                                updatedMsg.setUploading(messageData.optBoolean("uploading"));
+                            }
+                            if (messageData.has("fileSize")) {
+                                updatedMsg.setFileSize(messageData.optLong("fileSize"));
+                            }
+                            if (messageData.has("fileMimeType")) {
+                                updatedMsg.setFileMimeType(messageData.optString("fileMimeType"));
+                            }
+                            if (messageData.has("fileName")) {
+                                updatedMsg.setFileName(messageData.optString("fileName"));
+                            }
+                            
+                            // 4. Poll data update
                             if (messageData.has("pollData")) {
                                 Message tempMsg = parseMessageFromJson(messageData); 
                                 if (tempMsg.getPollData() != null) {
                                     updatedMsg.setPollData(tempMsg.getPollData());
-                                    Log.d("ChatRepository", "Updated poll data for message: " + messageId);
+                                    if (AppLog.DEBUG) Log.d("ChatRepository", "Updated poll data for message: " + messageId);
                                 }
                             }
                             
-                            // 4. Other fields
+                            // 5. Other fields
                             if (messageData.has("editedAt")) {
                                 // optional handling
                             }
@@ -519,7 +574,7 @@ public class ChatRepository {
                             cachedMessages.set(i, updatedMsg);
                             found = true;
                             
-                            Log.d("ChatRepository", "Message updated & replaced in cache - ID: " + messageId);
+                            if (AppLog.DEBUG) Log.d("ChatRepository", "Message updated & replaced in cache - ID: " + messageId);
                             
                             // Notify UI with a new list
                             mainHandler.post(() -> {
@@ -546,7 +601,7 @@ public class ChatRepository {
                     }
                     
                     String messageId = messageData.optString("messageId");
-                    Log.d("ChatRepository", "Message deleted via WebSocket - ID: " + messageId);
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "Message deleted via WebSocket - ID: " + messageId);
                     
                     // Remove message from cache
                     boolean removed = false;
@@ -556,7 +611,7 @@ public class ChatRepository {
                             cachedMessages.remove(i);
                             removed = true;
                             
-                            Log.d("ChatRepository", "Message removed from cache");
+                            if (AppLog.DEBUG) Log.d("ChatRepository", "Message removed from cache");
                             
                             // Notify UI
                             mainHandler.post(() -> {
@@ -586,24 +641,26 @@ public class ChatRepository {
                                           java.util.Map<String, java.util.Map<String, Object>> reactionsDetailed,
                                           java.util.Map<String, Integer> reactionCounts) {
                 try {
-                    Log.d("ChatRepository", "🔔 Reaction update received: convId=" + convId 
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "🔔 Reaction update received: convId=" + convId 
                         + ", messageId=" + messageId + ", type=" + reactionType
                         + ", reactions=" + reactions + ", counts=" + reactionCounts);
                     
                     if (!conversationId.equals(convId)) {
-                        Log.d("ChatRepository", "⏭️ Skipping reaction update - different conversation");
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "⏭️ Skipping reaction update - different conversation");
                         return; // Not for this conversation
                     }
                     
-                    Log.d("ChatRepository", "📦 cachedMessages size: " + cachedMessages.size());
-                    Log.d("ChatRepository", "🔍 Looking for messageId: [" + messageId + "]");
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "📦 cachedMessages size: " + cachedMessages.size());
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "🔍 Looking for messageId: [" + messageId + "]");
                     
                     // Log all messageIds in cache for debugging
-                    StringBuilder cacheIds = new StringBuilder("📋 Cache messageIds: ");
-                    for (int i = 0; i < Math.min(cachedMessages.size(), 10); i++) {
-                        cacheIds.append("[").append(cachedMessages.get(i).getId()).append("] ");
+                    if (AppLog.VERBOSE) {
+                        StringBuilder cacheIds = new StringBuilder("📋 Cache messageIds: ");
+                        for (int i = 0; i < Math.min(cachedMessages.size(), 10); i++) {
+                            cacheIds.append("[").append(cachedMessages.get(i).getId()).append("] ");
+                        }
+                        Log.d("ChatRepository", cacheIds.toString());
                     }
-                    Log.d("ChatRepository", cacheIds.toString());
                     
                     // Find and update message reactions in cache
                     boolean found = false;
@@ -611,7 +668,7 @@ public class ChatRepository {
                         Message msg = cachedMessages.get(i);
                         if (msg.getId() != null && msg.getId().equals(messageId)) {
                             found = true;
-                            Log.d("ChatRepository", "✅ Found message at index " + i + ", updating reactions");
+                            if (AppLog.DEBUG) Log.d("ChatRepository", "✅ Found message at index " + i + ", updating reactions");
                             
                             // Create NEW maps to ensure DiffUtil detects changes
                             java.util.Map<String, String> newReactions = new java.util.HashMap<>();
@@ -637,7 +694,7 @@ public class ChatRepository {
                             msg.setReactionCounts(newCounts);
                             msg.setReactionsDetailed(newDetailed);
                             
-                            Log.d("ChatRepository", "📊 Updated message reactions: " + newReactions + ", counts: " + newCounts);
+                            if (AppLog.DEBUG) Log.d("ChatRepository", "📊 Updated message reactions: " + newReactions + ", counts: " + newCounts);
                             
                             // Create deep copy list for UI update
                             List<Message> messagesCopy = new ArrayList<>();
@@ -646,7 +703,7 @@ public class ChatRepository {
                             }
                             
                             mainHandler.post(() -> {
-                                Log.d("ChatRepository", "📤 Notifying UI about reaction update, list size: " + messagesCopy.size());
+                                if (AppLog.DEBUG) Log.d("ChatRepository", "📤 Notifying UI about reaction update, list size: " + messagesCopy.size());
                                 listener.onMessagesChanged(messagesCopy);
                             });
                             break;
@@ -663,19 +720,19 @@ public class ChatRepository {
         });
 
         // 3. Setup connection listener and ensure socket is connected before joining room
-        Log.d("ChatRepository", "🔌 Checking socket connection before joining room...");
+        if (AppLog.DEBUG) Log.d("ChatRepository", "🔌 Checking socket connection before joining room...");
         
         // Always set up connection listener to ensure join happens after connect
         socketManager.setConnectionListener(new SocketManager.OnConnectionListener() {
             @Override
             public void onConnected() {
-                Log.d("ChatRepository", "✅ Socket connected callback received, now joining room: " + conversationId);
+                if (AppLog.DEBUG) Log.d("ChatRepository", "✅ Socket connected callback received, now joining room: " + conversationId);
                 socketManager.joinConversation(conversationId);
             }
             
             @Override
             public void onDisconnected() {
-                Log.d("ChatRepository", "❌ Socket disconnected");
+                if (AppLog.DEBUG) Log.d("ChatRepository", "❌ Socket disconnected");
             }
             
             @Override
@@ -685,10 +742,10 @@ public class ChatRepository {
         });
         
         if (socketManager.isConnected()) {
-            Log.d("ChatRepository", "🔌 Socket already connected, joining room directly...");
+            if (AppLog.DEBUG) Log.d("ChatRepository", "🔌 Socket already connected, joining room directly...");
             socketManager.joinConversation(conversationId);
         } else {
-            Log.d("ChatRepository", "🔌 Socket not connected, connecting now (will auto-join on connect)...");
+            if (AppLog.DEBUG) Log.d("ChatRepository", "🔌 Socket not connected, connecting now (will auto-join on connect)...");
             socketManager.connect();
         }
         
@@ -697,7 +754,7 @@ public class ChatRepository {
         call.enqueue(new Callback<MessageListResponse>() {
             @Override
             public void onResponse(Call<MessageListResponse> call, Response<MessageListResponse> response) {
-                Log.d("ChatRepository", "GET messages response: " + response.code());
+                if (AppLog.DEBUG) Log.d("ChatRepository", "GET messages response: " + response.code());
                 if (response.isSuccessful() && response.body() != null) {
                     List<Message> messages = response.body().getMessages();
                     if (messages != null) {
@@ -734,7 +791,12 @@ public class ChatRepository {
                             cachedMessages.sort((m1, m2) -> Long.compare(m1.getTimestamp(), m2.getTimestamp()));
                         }
                         
-                        listener.onMessagesChanged(new ArrayList<>(cachedMessages));
+                        // Show the list once the texts on the first screen are parsed and measured
+                        MessageTextCache.getInstance().prefetch(cachedMessages, () -> {
+                            if (conversationId.equals(currentConversationId)) {
+                                listener.onMessagesChanged(new ArrayList<>(cachedMessages));
+                            }
+                        });
                     }
                 } else {
                     Log.e("ChatRepository", "API error: HTTP " + response.code());
@@ -772,24 +834,25 @@ public class ChatRepository {
      * @param listener Callback for refresh result
      */
     public void refreshMessages(@NonNull String conversationId, @NonNull MessagesListener listener) {
-        Log.d("ChatRepository", "🔄 refreshMessages called for: " + conversationId);
+        if (AppLog.DEBUG) Log.d("ChatRepository", "🔄 refreshMessages called for: " + conversationId);
         
         Call<MessageListResponse> call = apiService.getMessages(conversationId, 100, null);
         call.enqueue(new Callback<MessageListResponse>() {
             @Override
             public void onResponse(Call<MessageListResponse> call, Response<MessageListResponse> response) {
-                Log.d("ChatRepository", "🔄 Refresh response: " + response.code());
+                if (AppLog.DEBUG) Log.d("ChatRepository", "🔄 Refresh response: " + response.code());
                 if (response.isSuccessful() && response.body() != null) {
                     List<Message> messages = response.body().getMessages();
                     if (messages != null) {
                         // Update cached messages
                         cachedMessages.clear();
                         cachedMessages.addAll(messages);
+                        MessageTextCache.getInstance().prefetch(messages, null);
                         
                         // Sort by timestamp
                         cachedMessages.sort((m1, m2) -> Long.compare(m1.getTimestamp(), m2.getTimestamp()));
                         
-                        Log.d("ChatRepository", "🔄 Refresh success: " + messages.size() + " messages");
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "🔄 Refresh success: " + messages.size() + " messages");
                         listener.onMessagesChanged(new ArrayList<>(cachedMessages));
                         
                         // Also notify active LiveData if exists
@@ -821,7 +884,7 @@ public class ChatRepository {
     private Message parseMessageFromJson(org.json.JSONObject messageData) {
         // Debug log raw JSON data for voice messages
         String type = messageData.optString("type", Message.TYPE_TEXT);
-        if (Message.TYPE_VOICE.equals(type)) {
+        if (AppLog.VERBOSE && Message.TYPE_VOICE.equals(type)) {
             Log.d("ChatRepository", "parseMessageFromJson VOICE - raw JSON: " + messageData.toString());
         }
         
@@ -851,7 +914,7 @@ public class ChatRepository {
         // Recalled flag
         if (messageData.has("isRecalled")) {
             message.setRecalled(messageData.optBoolean("isRecalled", false));
-            Log.d("ChatRepository", "parseMessageFromJson - isRecalled: " + message.isRecalled());
+            if (AppLog.DEBUG) Log.d("ChatRepository", "parseMessageFromJson - isRecalled: " + message.isRecalled());
         }
         
         // Optional fields
@@ -924,12 +987,24 @@ public class ChatRepository {
         // Voice fields
         if (messageData.has("voiceUrl")) {
             message.setVoiceUrl(messageData.optString("voiceUrl"));
-            Log.d("ChatRepository", "parseMessageFromJson - voiceUrl parsed: " + message.getVoiceUrl());
+            if (AppLog.DEBUG) Log.d("ChatRepository", "parseMessageFromJson - voiceUrl parsed: " + message.getVoiceUrl());
         }
         if (messageData.has("voiceDuration")) {
             message.setVoiceDuration(messageData.optInt("voiceDuration", 0));
-            Log.d("ChatRepository", "parseMessageFromJson - voiceDuration parsed: " + message.getVoiceDuration());
+            if (AppLog.DEBUG) Log.d("ChatRepository", "parseMessageFromJson - voiceDuration parsed: " + message.getVoiceDuration());
         }
+        if (messageData.has("voicePeaks")) {
+            message.setVoicePeaks(messageData.optString("voicePeaks", null));
+        }
+
+        // Video fields
+        if (messageData.has("thumbnailUrl")) {
+            message.setThumbnailUrl(messageData.optString("thumbnailUrl", null));
+        }
+        message.setVideoDuration(messageData.optInt("videoDuration", 0));
+        message.setVideoWidth(messageData.optInt("videoWidth", 0));
+        message.setVideoHeight(messageData.optInt("videoHeight", 0));
+        message.setUploading(messageData.optBoolean("uploading", false));
         
         // Poll fields (Important for realtime updates)
         if (messageData.has("pollData")) {
@@ -1044,7 +1119,7 @@ public class ChatRepository {
                 .document(conversationId)
                 .update(updates)
                 .addOnSuccessListener(aVoid -> {
-                    Log.d("ChatRepository", "Marked conversation " + conversationId + " as read for user " + userId);
+                    if (AppLog.DEBUG) Log.d("ChatRepository", "Marked conversation " + conversationId + " as read for user " + userId);
                 })
                 .addOnFailureListener(e -> {
                     Log.e("ChatRepository", "Failed to mark as read", e);
@@ -1087,6 +1162,11 @@ public class ChatRepository {
      * @param callback Callback for success/error
      */
     public void uploadImageAndSendMessage(String conversationId, Uri imageUri, String senderId, SendMessageCallback callback) {
+        if (!StartupOrchestrator.getInstance().isDone(ZaloApplication.TASK_CLOUDINARY)) {
+            StartupOrchestrator.getInstance().whenReady(ZaloApplication.TASK_CLOUDINARY,
+                    () -> uploadImageAndSendMessage(conversationId, imageUri, senderId, callback));
+            return;
+        }
         try {
             // Upload to Cloudinary (signed - no preset needed)
             MediaManager.get().upload(imageUri)
@@ -1094,7 +1174,7 @@ public class ChatRepository {
                     .callback(new UploadCallback() {
                         @Override
                         public void onStart(String requestId) {
-                            Log.d("Cloudinary", "Upload started");
+                            if (AppLog.DEBUG) Log.d("Cloudinary", "Upload started");
                         }
 
                         @Override
@@ -1145,7 +1225,7 @@ public class ChatRepository {
                                 }
                             }
                             
-                            Log.d("Cloudinary", "Image uploaded: " + fileName + 
+                            if (AppLog.DEBUG) Log.d("Cloudinary", "Image uploaded: " + fileName + 
                                 ", size: " + fileSize + ", mimeType: " + mimeType);
                             
                             // Create IMAGE type message with metadata
@@ -1187,7 +1267,7 @@ public class ChatRepository {
 
                         @Override
                         public void onReschedule(String requestId, ErrorInfo error) {
-                            Log.d("Cloudinary", "Upload rescheduled");
+                            if (AppLog.DEBUG) Log.d("Cloudinary", "Upload rescheduled");
                         }
                     })
                     .dispatch();
@@ -1233,20 +1313,30 @@ public class ChatRepository {
     
     /**
      * Upload file to Cloudinary and send as message (callback version)
+     * The file is streamed in resumable chunks; if the app dies mid-upload,
+     * resumeFileUploads() finishes it and sends the message on the next start.
      * @param conversationId ID of the conversation
      * @param fileUri Local URI of the file to upload
      * @param senderId ID of the sender
      * @param fileName Original file name
      * @param fileSize File size in bytes
      * @param fileMimeType File MIME type
-     * @param callback Callback for success/error
+     * @param screenCallback Callback for progress/success/error
+     * @return Send id for detachUploadCallback()
      */
-    public void uploadFileAndSendMessage(String conversationId, Uri fileUri, String senderId,
-                                         String fileName, long fileSize, String fileMimeType,
-                                         SendMessageCallback callback) {
+    public String uploadFileAndSendMessage(String conversationId, Uri fileUri, String senderId,
+                                           String fileName, long fileSize, String fileMimeType,
+                                           SendMessageCallback screenCallback) {
+        String sendId = java.util.UUID.randomUUID().toString();
+        DetachableCallback callback = new DetachableCallback(sendId, screenCallback);
+        uploadCallbacks.put(sendId, callback);
+        if (fileMimeType.startsWith("video/")) {
+            uploadVideoAndSendMessage(conversationId, fileUri, senderId, fileName, fileSize, fileMimeType, callback);
+            return sendId;
+        }
         try {
             // Determine resource type based on MIME type
-            String resourceType = "auto"; // Cloudinary auto-detects type
+            String resourceType;
             if (fileMimeType.startsWith("image/")) {
                 resourceType = "image";
             } else if (fileMimeType.startsWith("video/")) {
@@ -1254,74 +1344,560 @@ public class ChatRepository {
             } else {
                 resourceType = "raw"; // For documents, audio, etc.
             }
-            
-            // Upload to Cloudinary
-            MediaManager.get().upload(fileUri)
-                    .option("folder", "zalo_chat/" + conversationId + "/files")
-                    .option("resource_type", resourceType)
-                    .callback(new UploadCallback() {
-                        @Override
-                        public void onStart(String requestId) {
-                            Log.d("Cloudinary", "File upload started: " + fileName);
-                        }
 
-                        @Override
-                        public void onProgress(String requestId, long bytes, long totalBytes) {
-                            // Optional: track upload progress
-                            int progress = (int) ((bytes * 100) / totalBytes);
-                            Log.d("Cloudinary", "Upload progress: " + progress + "%");
-                        }
+            Map<String, String> extras = new HashMap<>();
+            extras.put(UPLOAD_EXTRA_KIND, UPLOAD_KIND_CHAT_FILE);
+            extras.put(UPLOAD_EXTRA_CONVERSATION, conversationId);
+            extras.put(UPLOAD_EXTRA_SENDER, senderId);
 
+            StartupOrchestrator.getInstance().ensure(ZaloApplication.TASK_UPLOADS);
+            ChunkedUploader.getInstance().start(fileUri, fileName, fileSize, fileMimeType,
+                    "zalo_chat/" + conversationId + "/files", resourceType, extras,
+                    new FileUploadListener(conversationId, senderId, fileName, fileSize, fileMimeType, callback));
+        } catch (Exception e) {
+            callback.onError("Failed to start file upload: " + e.getMessage());
+        }
+        return sendId;
+    }
+
+    /**
+     * Stop reporting a send started by uploadFileAndSendMessage() (its screen is going away)
+     * The upload and the message still go through; only the callback is let go.
+     */
+    public void detachUploadCallback(@NonNull String sendId) {
+        DetachableCallback callback = uploadCallbacks.remove(sendId);
+        if (callback != null) callback.target = null;
+    }
+
+    /**
+     * Forwards to the screen's callback until detached, so uploads don't keep the screen alive
+     */
+    private class DetachableCallback implements SendMessageCallback {
+        private final String sendId;
+        private volatile SendMessageCallback target;
+
+        DetachableCallback(String sendId, SendMessageCallback target) {
+            this.sendId = sendId;
+            this.target = target;
+        }
+
+        @Override
+        public void onProgress(int percent) {
+            SendMessageCallback callback = target;
+            if (callback != null) callback.onProgress(percent);
+        }
+
+        @Override
+        public void onSent(@NonNull Message message) {
+            SendMessageCallback callback = target;
+            if (callback != null) callback.onSent(message);
+        }
+
+        @Override
+        public void onSuccess() {
+            SendMessageCallback callback = finish();
+            if (callback != null) callback.onSuccess();
+        }
+
+        @Override
+        public void onError(String error) {
+            SendMessageCallback callback = finish();
+            if (callback != null) callback.onError(error);
+        }
+
+        private SendMessageCallback finish() {
+            uploadCallbacks.remove(sendId);
+            SendMessageCallback callback = target;
+            target = null;
+            return callback;
+        }
+    }
+
+    /**
+     * Finish chat file uploads interrupted by the process being killed (called at startup)
+     */
+    public void resumeFileUploads() {
+        recallOrphanedVideoPlaceholders();
+        for (ChunkedUploader.Upload upload : ChunkedUploader.getInstance().getPending()) {
+            String kind = upload.getExtra(UPLOAD_EXTRA_KIND);
+            if (UPLOAD_KIND_VIDEO_POSTER.equals(kind)) {
+                // Its video was never transcoded; nothing is waiting for this poster
+                ChunkedUploader.getInstance().cancel(upload.getId());
+                continue;
+            }
+            if (UPLOAD_KIND_CHAT_VIDEO.equals(kind)) {
+                resumeVideoUpload(upload);
+                continue;
+            }
+            if (!UPLOAD_KIND_CHAT_FILE.equals(kind)) continue;
+            String conversationId = upload.getExtra(UPLOAD_EXTRA_CONVERSATION);
+            String senderId = upload.getExtra(UPLOAD_EXTRA_SENDER);
+            if (conversationId == null || senderId == null) {
+                ChunkedUploader.getInstance().cancel(upload.getId());
+                continue;
+            }
+            if (AppLog.DEBUG) Log.d("ChatRepository", "Resuming file upload " + upload.getFileName());
+            ChunkedUploader.getInstance().resume(upload.getId(),
+                    new FileUploadListener(conversationId, senderId, upload.getFileName(), upload.getSize(),
+                            upload.getMimeType(), upload.getExtra(UPLOAD_EXTRA_VIDEO_CODEC), new SendMessageCallback() {
                         @Override
-                        public void onSuccess(String requestId, Map resultData) {
-                            // Get the secure URL from Cloudinary response
-                            String fileUrl = (String) resultData.get("secure_url");
-                            
-                            // Create FILE type message with Cloudinary URL and metadata
-                            Message fileMessage = new Message(
-                                    null,
-                                    senderId,
-                                    fileUrl,  // URL in content field
-                                    Message.TYPE_FILE,
-                                    System.currentTimeMillis(),
-                                    fileName,
-                                    fileSize,
-                                    fileMimeType
-                            );
-                            
-                            // Fetch sender name before sending
-                            firestore.collection("users")
-                                    .document(senderId)
-                                    .get()
-                                    .addOnSuccessListener(doc -> {
-                                        if (doc.exists()) {
-                                            String name = doc.getString("name");
-                                            if (name != null && !name.isEmpty()) {
-                                                fileMessage.setSenderName(name);
-                                            }
-                                        }
-                                        // Send message to Firestore
-                                        sendMessage(conversationId, fileMessage, callback);
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        // Send anyway without name
-                                        sendMessage(conversationId, fileMessage, callback);
-                                    });
+                        public void onSuccess() {
+                            if (AppLog.DEBUG) Log.d("ChatRepository", "Resumed file upload sent");
                         }
 
                         @Override
-                        public void onError(String requestId, ErrorInfo error) {
-                            callback.onError("File upload failed: " + error.getDescription());
+                        public void onError(String error) {
+                            Log.e("ChatRepository", "Resumed file upload failed: " + error);
                         }
+                    }));
+        }
+    }
 
-                        @Override
-                        public void onReschedule(String requestId, ErrorInfo error) {
-                            Log.d("Cloudinary", "File upload rescheduled");
+    /**
+     * Recall video placeholders whose transcode was cut off by the process dying
+     * Their source URI is usually no longer readable after a restart, so the message is
+     * recalled instead of transcoding again. Placeholders whose video upload is already
+     * persisted in ChunkedUploader are left to resumeVideoUpload().
+     */
+    private void recallOrphanedVideoPlaceholders() {
+        Set<String> uploading = new HashSet<>();
+        for (ChunkedUploader.Upload upload : ChunkedUploader.getInstance().getPending()) {
+            if (UPLOAD_KIND_CHAT_VIDEO.equals(upload.getExtra(UPLOAD_EXTRA_KIND))) {
+                uploading.add(upload.getExtra(UPLOAD_EXTRA_MESSAGE));
+            }
+        }
+        SendMessageCallback logOnly = new SendMessageCallback() {
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w("ChatRepository", "Cannot recall orphaned video placeholder: " + error);
+            }
+        };
+        for (PendingVideoSends.Entry entry : PendingVideoSends.getInstance().getAll()) {
+            PendingVideoSends.getInstance().remove(entry.getKey());
+            String conversationId = entry.getConversationId();
+            if (entry.getMessageId() != null) {
+                if (!uploading.contains(entry.getMessageId())) {
+                    recallMessage(conversationId, entry.getMessageId(), logOnly);
+                }
+                continue;
+            }
+            // Died before the server answered: look for the placeholder it may have stored
+            firestore.collection("conversations").document(conversationId).collection("messages")
+                    .whereEqualTo("senderId", entry.getSenderId())
+                    .whereEqualTo("uploading", true)
+                    .get()
+                    .addOnSuccessListener(snapshots -> {
+                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                            Long timestamp = doc.getLong("timestamp");
+                            if (timestamp == null || timestamp < entry.getCreatedAt() - ORPHAN_CLOCK_SLACK_MS) continue;
+                            if (uploading.contains(doc.getId())) continue;
+                            recallMessage(conversationId, doc.getId(), logOnly);
                         }
                     })
-                    .dispatch();
-        } catch (Exception e) {
-            callback.onError("Failed to start file upload: " + e.getMessage());
+                    .addOnFailureListener(e -> Log.w("ChatRepository", "Cannot look up video placeholders", e));
+        }
+    }
+
+    /**
+     * Upload progress → callback; uploaded URL → FILE message
+     */
+    private class FileUploadListener implements ChunkedUploader.Listener {
+        private final String conversationId;
+        private final String senderId;
+        private final String fileName;
+        private final long fileSize;
+        private final String fileMimeType;
+        private final String videoCodec;
+        private final SendMessageCallback callback;
+
+        FileUploadListener(String conversationId, String senderId, String fileName, long fileSize,
+                           String fileMimeType, SendMessageCallback callback) {
+            this(conversationId, senderId, fileName, fileSize, fileMimeType, null, callback);
+        }
+
+        FileUploadListener(String conversationId, String senderId, String fileName, long fileSize,
+                           String fileMimeType, String videoCodec, SendMessageCallback callback) {
+            this.conversationId = conversationId;
+            this.senderId = senderId;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+            this.fileMimeType = fileMimeType;
+            this.videoCodec = videoCodec;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onProgress(long bytesSent, long totalBytes) {
+            callback.onProgress((int) (bytesSent * 100 / totalBytes));
+        }
+
+        @Override
+        public void onSuccess(@NonNull String fileUrl) {
+            // Create FILE type message with Cloudinary URL and metadata
+            Message fileMessage = new Message(
+                    null,
+                    senderId,
+                    fileUrl,  // URL in content field
+                    Message.TYPE_FILE,
+                    System.currentTimeMillis(),
+                    fileName,
+                    fileSize,
+                    fileMimeType
+            );
+            fileMessage.setVideoCodec(videoCodec);
+
+            sendWithSenderName(conversationId, fileMessage, callback);
+        }
+
+        @Override
+        public void onError(@NonNull String error) {
+            callback.onError("File upload failed: " + error);
+        }
+
+        @Override
+        public void onWaitingForNetwork() {
+            if (AppLog.DEBUG) Log.d("ChatRepository", "File upload waiting for network: " + fileName);
+        }
+    }
+
+    /**
+     * Fill in the sender's display name, then send (sends without it if the lookup fails)
+     */
+    private void sendWithSenderName(String conversationId, Message message, SendMessageCallback callback) {
+        firestore.collection("users")
+                .document(message.getSenderId())
+                .get()
+                .addOnSuccessListener(doc -> {
+                    if (doc.exists()) {
+                        String name = doc.getString("name");
+                        if (name != null && !name.isEmpty()) {
+                            message.setSenderName(name);
+                        }
+                    }
+                    sendMessage(conversationId, message, callback);
+                })
+                .addOnFailureListener(e -> sendMessage(conversationId, message, callback));
+    }
+
+    /**
+     * Video: transcoded on device, and the poster goes out first as an "uploading" FILE message
+     * so the bubble shows up right away; the video upload is attached to that message when done.
+     * Without a poster frame the video is sent as a plain file message once uploaded.
+     */
+    private void uploadVideoAndSendMessage(String conversationId, Uri fileUri, String senderId,
+                                           String fileName, long fileSize, String fileMimeType,
+                                           SendMessageCallback callback) {
+        StartupOrchestrator.getInstance().ensure(ZaloApplication.TASK_UPLOADS);
+        VideoTranscoder transcoder = VideoTranscoder.getInstance();
+        VideoSend send = new VideoSend(conversationId, fileUri, senderId, fileName, fileSize, fileMimeType, callback);
+        VideoTranscoder.Listener listener = new VideoTranscoder.Listener() {
+            @Override
+            public void onProbed(@NonNull VideoTranscoder.VideoInfo info) {
+                send.onProbed(info);
+            }
+
+            @Override
+            public void onProgress(int percent) {
+                callback.onProgress(percent * VIDEO_TRANSCODE_PROGRESS / 100);
+            }
+
+            @Override
+            public void onReady(@NonNull Uri video, long size, @NonNull String mimeType, @Nullable String codec) {
+                send.onVideoReady(video, size, mimeType, codec);
+            }
+        };
+        transcoder.prepare(fileUri, fileSize, fileMimeType, transcoder.defaultPreset(), transcoder.defaultCodec(), listener);
+    }
+
+    /**
+     * State of one video send (main thread): the video upload starts once both the transcode
+     * is done and the poster message is out (or known not to be coming)
+     */
+    private class VideoSend {
+        private final String conversationId;
+        private final Uri source;
+        private final String senderId;
+        private final String fileName;
+        private final long fileSize;
+        private final String fileMimeType;
+        private final SendMessageCallback callback;
+        private VideoTranscoder.VideoInfo info;
+        private boolean placeholderSettled;
+        private String messageId;
+        private String pendingKey;      // PendingVideoSends entry while the placeholder has no video
+        private Uri video;
+        private long videoSize;
+        private String videoMime;
+        private String videoCodec;
+
+        VideoSend(String conversationId, Uri source, String senderId, String fileName, long fileSize,
+                  String fileMimeType, SendMessageCallback callback) {
+            this.conversationId = conversationId;
+            this.source = source;
+            this.senderId = senderId;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+            this.fileMimeType = fileMimeType;
+            this.callback = callback;
+        }
+
+        void onProbed(VideoTranscoder.VideoInfo info) {
+            this.info = info;
+            File poster = info.getPoster();
+            if (poster == null) {
+                settlePlaceholder(null);
+                return;
+            }
+            Uri posterUri = Uri.fromFile(poster);
+            Map<String, String> extras = new HashMap<>();
+            extras.put(UPLOAD_EXTRA_KIND, UPLOAD_KIND_VIDEO_POSTER);
+            try {
+                ChunkedUploader.getInstance().start(posterUri, poster.getName(), poster.length(), "image/jpeg",
+                        "zalo_chat/" + conversationId + "/thumbs", "image", extras, new ChunkedUploader.Listener() {
+                            @Override
+                            public void onProgress(long bytesSent, long totalBytes) {
+                            }
+
+                            @Override
+                            public void onSuccess(@NonNull String secureUrl) {
+                                VideoTranscoder.getInstance().discard(posterUri);
+                                sendPlaceholder(secureUrl);
+                            }
+
+                            @Override
+                            public void onError(@NonNull String error) {
+                                Log.w("ChatRepository", "Video poster upload failed: " + error);
+                                VideoTranscoder.getInstance().discard(posterUri);
+                                settlePlaceholder(null);
+                            }
+                        });
+            } catch (Exception e) {
+                Log.w("ChatRepository", "Cannot upload video poster", e);
+                settlePlaceholder(null);
+            }
+        }
+
+        private void sendPlaceholder(String thumbnailUrl) {
+            Message message = new Message(null, senderId, "", Message.TYPE_FILE, System.currentTimeMillis(),
+                    fileName, fileSize, fileMimeType);
+            message.setThumbnailUrl(thumbnailUrl);
+            message.setVideoDuration(info.getDurationSeconds());
+            message.setVideoWidth(info.getDisplayWidth());
+            message.setVideoHeight(info.getDisplayHeight());
+            message.setUploading(true);
+            // Journaled first: if the process dies during the transcode, the next start recalls it
+            pendingKey = PendingVideoSends.getInstance().add(conversationId, senderId, source.toString());
+            sendWithSenderName(conversationId, message, new SendMessageCallback() {
+                private String sentId;
+
+                @Override
+                public void onSent(@NonNull Message saved) {
+                    sentId = saved.getId();
+                    if (sentId != null) PendingVideoSends.getInstance().setMessageId(pendingKey, sentId);
+                }
+
+                @Override
+                public void onSuccess() {
+                    settlePlaceholder(sentId);
+                }
+
+                @Override
+                public void onError(String error) {
+                    // The entry stays: the server may have stored it anyway, the next start cleans up
+                    Log.w("ChatRepository", "Video placeholder not sent: " + error);
+                    settlePlaceholder(null);
+                }
+            });
+        }
+
+        private void settlePlaceholder(String messageId) {
+            this.messageId = messageId;
+            placeholderSettled = true;
+            startVideoUpload();
+        }
+
+        void onVideoReady(Uri video, long size, String mimeType, String codec) {
+            this.video = video;
+            this.videoSize = size;
+            this.videoMime = mimeType;
+            this.videoCodec = codec;
+            startVideoUpload();
+        }
+
+        private void startVideoUpload() {
+            if (!placeholderSettled || video == null) return;
+            String uploadName = videoMime.equals(fileMimeType) ? fileName : withExtension(fileName, "mp4");
+            Map<String, String> extras = new HashMap<>();
+            extras.put(UPLOAD_EXTRA_CONVERSATION, conversationId);
+            extras.put(UPLOAD_EXTRA_SENDER, senderId);
+            if ("file".equals(video.getScheme())) {
+                extras.put(UPLOAD_EXTRA_LOCAL_FILE, video.toString());
+            }
+            if (videoCodec != null) {
+                extras.put(UPLOAD_EXTRA_VIDEO_CODEC, videoCodec);
+            }
+            ChunkedUploader.Listener listener;
+            if (messageId != null) {
+                extras.put(UPLOAD_EXTRA_KIND, UPLOAD_KIND_CHAT_VIDEO);
+                extras.put(UPLOAD_EXTRA_MESSAGE, messageId);
+                listener = new VideoAttachListener(conversationId, messageId, uploadName, videoSize, videoMime,
+                        videoCodec, video, callback);
+            } else {
+                extras.put(UPLOAD_EXTRA_KIND, UPLOAD_KIND_CHAT_FILE);
+                listener = new FileUploadListener(conversationId, senderId, uploadName, videoSize, videoMime,
+                        videoCodec, new SendMessageCallback() {
+                            @Override
+                            public void onSuccess() {
+                                VideoTranscoder.getInstance().discard(video);
+                                callback.onSuccess();
+                            }
+
+                            @Override
+                            public void onError(String error) {
+                                VideoTranscoder.getInstance().discard(video);
+                                callback.onError(error);
+                            }
+
+                            @Override
+                            public void onProgress(int percent) {
+                                callback.onProgress(VIDEO_TRANSCODE_PROGRESS
+                                        + percent * (100 - VIDEO_TRANSCODE_PROGRESS) / 100);
+                            }
+                        });
+            }
+            try {
+                ChunkedUploader.getInstance().start(video, uploadName, videoSize, videoMime,
+                        "zalo_chat/" + conversationId + "/files", "video", extras, listener);
+            } catch (Exception e) {
+                listener.onError("Failed to start video upload: " + e.getMessage());
+            }
+            if (messageId != null) {
+                // The upload (and its message id) is persisted by ChunkedUploader from here on,
+                // or the placeholder was recalled by the listener
+                PendingVideoSends.getInstance().remove(pendingKey);
+            }
+        }
+    }
+
+    private static String withExtension(String fileName, String extension) {
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return base + "." + extension;
+    }
+
+    /**
+     * Resume the video of a poster message that was already sent (after a restart)
+     */
+    private void resumeVideoUpload(ChunkedUploader.Upload upload) {
+        String conversationId = upload.getExtra(UPLOAD_EXTRA_CONVERSATION);
+        String messageId = upload.getExtra(UPLOAD_EXTRA_MESSAGE);
+        if (conversationId == null || messageId == null) {
+            ChunkedUploader.getInstance().cancel(upload.getId());
+            return;
+        }
+        String localFile = upload.getExtra(UPLOAD_EXTRA_LOCAL_FILE);
+        if (AppLog.DEBUG) Log.d("ChatRepository", "Resuming video upload " + upload.getFileName());
+        ChunkedUploader.getInstance().resume(upload.getId(),
+                new VideoAttachListener(conversationId, messageId, upload.getFileName(), upload.getSize(),
+                        upload.getMimeType(), upload.getExtra(UPLOAD_EXTRA_VIDEO_CODEC),
+                        localFile != null ? Uri.parse(localFile) : null,
+                        new SendMessageCallback() {
+                            @Override
+                            public void onSuccess() {
+                                if (AppLog.DEBUG) Log.d("ChatRepository", "Resumed video attached");
+                            }
+
+                            @Override
+                            public void onError(String error) {
+                                Log.e("ChatRepository", "Resumed video upload failed: " + error);
+                            }
+                        }));
+    }
+
+    /**
+     * Video upload progress → callback; uploaded URL → attached to the poster message.
+     * If the upload fails for good the poster message is recalled, so nobody waits on it.
+     */
+    private class VideoAttachListener implements ChunkedUploader.Listener {
+        private final String conversationId;
+        private final String messageId;
+        private final String fileName;
+        private final long fileSize;
+        private final String fileMimeType;
+        private final String videoCodec;
+        private final Uri localFile;
+        private final SendMessageCallback callback;
+
+        VideoAttachListener(String conversationId, String messageId, String fileName, long fileSize,
+                            String fileMimeType, String videoCodec, Uri localFile, SendMessageCallback callback) {
+            this.conversationId = conversationId;
+            this.messageId = messageId;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+            this.fileMimeType = fileMimeType;
+            this.videoCodec = videoCodec;
+            this.localFile = localFile;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onProgress(long bytesSent, long totalBytes) {
+            callback.onProgress(VIDEO_TRANSCODE_PROGRESS
+                    + (int) (bytesSent * (100 - VIDEO_TRANSCODE_PROGRESS) / totalBytes));
+        }
+
+        @Override
+        public void onSuccess(@NonNull String videoUrl) {
+            VideoTranscoder.getInstance().discard(localFile);
+            Map<String, Object> body = new HashMap<>();
+            body.put("conversationId", conversationId);
+            body.put("action", "attach");
+            body.put("content", videoUrl);
+            body.put("fileName", fileName);
+            body.put("fileSize", fileSize);
+            body.put("fileMimeType", fileMimeType);
+            if (videoCodec != null) body.put("videoCodec", videoCodec);
+            apiService.updateMessageV2(messageId, body).enqueue(new Callback<Map<String, Object>>() {
+                @Override
+                public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
+                    if (response.isSuccessful()) {
+                        // Backend broadcasts message_updated; the bubble swaps its spinner for the play icon
+                        callback.onSuccess();
+                    } else {
+                        callback.onError("Failed to attach video: HTTP " + response.code());
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<Map<String, Object>> call, Throwable t) {
+                    callback.onError(t.getMessage() != null ? t.getMessage() : "Network error");
+                }
+            });
+        }
+
+        @Override
+        public void onError(@NonNull String error) {
+            VideoTranscoder.getInstance().discard(localFile);
+            recallMessage(conversationId, messageId, new SendMessageCallback() {
+                @Override
+                public void onSuccess() {
+                }
+
+                @Override
+                public void onError(String recallError) {
+                    Log.w("ChatRepository", "Cannot recall video placeholder: " + recallError);
+                }
+            });
+            callback.onError("File upload failed: " + error);
+        }
+
+        @Override
+        public void onWaitingForNetwork() {
+            if (AppLog.DEBUG) Log.d("ChatRepository", "Video upload waiting for network: " + fileName);
         }
     }
     
@@ -1329,7 +1905,7 @@ public class ChatRepository {
      * Clean up listeners when repository is no longer needed
      */
     public void cleanup() {
-        Log.d("ChatRepository", "🧹 Cleaning up repository listeners");
+        if (AppLog.DEBUG) Log.d("ChatRepository", "🧹 Cleaning up repository listeners");
         
         if (messagesListener != null) {
             messagesListener.remove();
@@ -1342,7 +1918,7 @@ public class ChatRepository {
         
         // Leave current conversation room
         if (currentConversationId != null) {
-            Log.d("ChatRepository", "📤 Leaving conversation room: " + currentConversationId);
+            if (AppLog.DEBUG) Log.d("ChatRepository", "📤 Leaving conversation room: " + currentConversationId);
             socketManager.leaveConversation(currentConversationId);
             currentConversationId = null;
         }
@@ -1351,7 +1927,7 @@ public class ChatRepository {
         cachedMessages.clear();
         activeMessagesListener = null;
         
-        Log.d("ChatRepository", "✅ Repository cleanup complete");
+        if (AppLog.DEBUG) Log.d("ChatRepository", "✅ Repository cleanup complete");
     }
 
     /**
@@ -1399,7 +1975,7 @@ public class ChatRepository {
                     Map<String, Object> responseBody = response.body();
                     String conversationId = (String) responseBody.get("conversationId");
                     
-                    Log.d(TAG, "✅ Group created successfully via API: " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "✅ Group created successfully via API: " + conversationId);
                     
                     // Create Conversation object for UI
                     Conversation conversation = new Conversation(
@@ -1774,7 +2350,7 @@ public class ChatRepository {
         reactionData.put("reactionType", reactionType);
         reactionData.put("action", action); // "add" or "remove"
         
-        Log.d("ChatRepository", "Sending reaction request: action=" + action + ", type=" + reactionType + ", user=" + userId);
+        if (AppLog.DEBUG) Log.d("ChatRepository", "Sending reaction request: action=" + action + ", type=" + reactionType + ", user=" + userId);
         
         // Call API to add/remove reaction
         Call<ApiResponse<Message>> call = apiService.addReaction(conversationId, messageId, reactionData);
@@ -1782,13 +2358,13 @@ public class ChatRepository {
         call.enqueue(new Callback<ApiResponse<Message>>() {
             @Override
             public void onResponse(Call<ApiResponse<Message>> call, Response<ApiResponse<Message>> response) {
-                Log.d("ChatRepository", "Reaction response code: " + response.code());
+                if (AppLog.DEBUG) Log.d("ChatRepository", "Reaction response code: " + response.code());
                 
                 if (response.isSuccessful() && response.body() != null) {
                     ApiResponse<Message> apiResponse = response.body();
                     
                     if (apiResponse.isSuccess()) {
-                        Log.d("ChatRepository", "Reaction " + action + " successful: " + reactionType + " by user: " + userId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Reaction " + action + " successful: " + reactionType + " by user: " + userId);
                         result.setValue(Resource.success(true));
                         // Note: WebSocket will push the update to refresh UI - no optimistic update needed
                     } else {
@@ -1847,7 +2423,7 @@ public class ChatRepository {
                     ApiResponse<Message> apiResponse = response.body();
                     
                     if (apiResponse.isSuccess()) {
-                        Log.d("ChatRepository", "Reaction removed via API for user: " + userId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Reaction removed via API for user: " + userId);
                         
                         // Optimistic update: Update local cache immediately
                         updateLocalReactionCache(messageId, userId, null);
@@ -1904,7 +2480,7 @@ public class ChatRepository {
         for (int i = 0; i < cachedMessages.size(); i++) {
             Message msg = cachedMessages.get(i);
             if (msg.getId() != null && msg.getId().equals(messageId)) {
-                Log.d("ChatRepository", "🔄 Optimistic update for message: " + messageId);
+                if (AppLog.DEBUG) Log.d("ChatRepository", "🔄 Optimistic update for message: " + messageId);
                 
                 // Get or create maps
                 java.util.Map<String, String> reactions = msg.getReactions();
@@ -1966,7 +2542,7 @@ public class ChatRepository {
                         messagesCopy.add(new Message(m));
                     }
                     mainHandler.post(() -> {
-                        Log.d("ChatRepository", "📤 Notifying UI about optimistic reaction update, list size: " + messagesCopy.size());
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "📤 Notifying UI about optimistic reaction update, list size: " + messagesCopy.size());
                         activeMessagesListener.onMessagesChanged(messagesCopy);
                     });
                 } else {
@@ -2101,6 +2677,18 @@ public class ChatRepository {
     public interface SendMessageCallback {
         void onSuccess();
         void onError(String error);
+
+        /**
+         * Upload progress of file messages, 0-100 (main thread)
+         */
+        default void onProgress(int percent) {
+        }
+
+        /**
+         * Server copy of the sent message (with its ID), right before onSuccess (main thread)
+         */
+        default void onSent(@NonNull Message message) {
+        }
     }
 
     /**
@@ -2124,7 +2712,7 @@ public class ChatRepository {
      * If existing conversation is missing memberNames, it will be updated
      */
     public void getOrCreateConversationWithFriend(String currentUserId, String friendId, ConversationCallback callback) {
-        android.util.Log.d("ChatRepository", "getOrCreateConversationWithFriend - currentUserId: " + currentUserId + ", friendId: " + friendId);
+        if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "getOrCreateConversationWithFriend - currentUserId: " + currentUserId + ", friendId: " + friendId);
         
         // Query for existing conversation between these two users
         // Don't filter by type - old conversations may not have type field
@@ -2132,7 +2720,7 @@ public class ChatRepository {
             .whereArrayContains("memberIds", currentUserId)
             .get()
             .addOnSuccessListener(querySnapshot -> {
-                android.util.Log.d("ChatRepository", "Found " + querySnapshot.size() + " conversations containing currentUser");
+                if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Found " + querySnapshot.size() + " conversations containing currentUser");
                 
                 com.google.firebase.firestore.DocumentSnapshot existingDoc = null;
                 
@@ -2141,7 +2729,7 @@ public class ChatRepository {
                     java.util.List<String> memberIds = (java.util.List<String>) doc.get("memberIds");
                     String type = doc.getString("type");
                     
-                    android.util.Log.d("ChatRepository", "Checking conversation " + doc.getId() + 
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Checking conversation " + doc.getId() + 
                         " - memberIds: " + memberIds + ", type: " + type + 
                         ", containsFriend: " + (memberIds != null && memberIds.contains(friendId)));
                     
@@ -2149,7 +2737,7 @@ public class ChatRepository {
                     if (memberIds != null && memberIds.contains(friendId) && memberIds.size() == 2) {
                         // Accept conversations with type=FRIEND, type=null, or type="" (for backward compatibility)
                         if (type == null || type.isEmpty() || "FRIEND".equals(type)) {
-                            android.util.Log.d("ChatRepository", "Found existing conversation: " + doc.getId());
+                            if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Found existing conversation: " + doc.getId());
                             existingDoc = doc;
                             break;
                         }
@@ -2158,7 +2746,7 @@ public class ChatRepository {
                 
                 if (existingDoc != null) {
                     final String conversationId = existingDoc.getId();
-                    android.util.Log.d("ChatRepository", "Using existing conversation: " + conversationId);
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Using existing conversation: " + conversationId);
                     
                     // Check if conversation has memberNames and type
                     @SuppressWarnings("unchecked")
@@ -2174,7 +2762,7 @@ public class ChatRepository {
                         callback.onSuccess(conversationId);
                     }
                 } else {
-                    android.util.Log.d("ChatRepository", "No existing conversation found, creating new one");
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "No existing conversation found, creating new one");
                     // Create new conversation
                     createConversationWithFriend(currentUserId, friendId, callback);
                 }
@@ -2238,7 +2826,7 @@ public class ChatRepository {
      * Uses REST API to comply with Firestore security rules that block client-side writes
      */
     private void createConversationWithFriend(String currentUserId, String friendId, ConversationCallback callback) {
-        android.util.Log.d("ChatRepository", "createConversationWithFriend via REST API - currentUserId: " + currentUserId + ", friendId: " + friendId);
+        if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "createConversationWithFriend via REST API - currentUserId: " + currentUserId + ", friendId: " + friendId);
         
         // Prepare request body for REST API
         java.util.Map<String, Object> conversationData = new java.util.HashMap<>();
@@ -2252,7 +2840,7 @@ public class ChatRepository {
             public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     String conversationId = (String) response.body().get("conversationId");
-                    android.util.Log.d("ChatRepository", "Created conversation via API: " + conversationId);
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Created conversation via API: " + conversationId);
                     callback.onSuccess(conversationId);
                 } else {
                     String error = "HTTP " + response.code();
@@ -2436,7 +3024,7 @@ public class ChatRepository {
                                                 activeMessagesListener.onMessagesChanged(new ArrayList<>(cachedMessages));
                                             }
                                         });
-                                        Log.d("ChatRepository", "Manual poll update applied for: " + messageId);
+                                        if (AppLog.DEBUG) Log.d("ChatRepository", "Manual poll update applied for: " + messageId);
                                     }
                                     break;
                                 }
@@ -2496,7 +3084,7 @@ public class ChatRepository {
                     Boolean success = (Boolean) result.get("success");
                     
                     if (success != null && success) {
-                        Log.d("ChatRepository", "Poll closed successfully via API - ID: " + messageId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Poll closed successfully via API - ID: " + messageId);
                         
                         // Update local cache immediately
                         for (int i = 0; i < cachedMessages.size(); i++) {
@@ -2507,7 +3095,7 @@ public class ChatRepository {
                                 if (poll != null) {
                                     poll.setClosed(true);
                                     msg.setPollData(poll);
-                                    Log.d("ChatRepository", "Updated local poll cache - isClosed: true");
+                                    if (AppLog.DEBUG) Log.d("ChatRepository", "Updated local poll cache - isClosed: true");
                                     
                                     // Notify UI
                                     if (activeMessagesLiveData != null) {
@@ -2573,7 +3161,7 @@ public class ChatRepository {
                     ApiResponse<Map<String, Object>> apiResponse = response.body();
                     
                     if (apiResponse.isSuccess()) {
-                        Log.d("ChatRepository", "Conversation marked as seen via API: " + conversationId);
+                        if (AppLog.DEBUG) Log.d("ChatRepository", "Conversation marked as seen via API: " + conversationId);
                         // Backend broadcasts update via WebSocket (message_read event)
                         result.setValue(Resource.success(true));
                     } else {
@@ -2627,7 +3215,7 @@ public class ChatRepository {
      * @param callback Callback for success/error
      */
     public void getOrCreateMyCloudConversation(String userId, ConversationCallback callback) {
-        android.util.Log.d("ChatRepository", "getOrCreateMyCloudConversation - userId: " + userId);
+        if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "getOrCreateMyCloudConversation - userId: " + userId);
         
         // Query for existing "My Cloud" conversation (type = MY_CLOUD, memberIds contains only this user)
         firestore.collection("conversations")
@@ -2635,16 +3223,16 @@ public class ChatRepository {
             .whereEqualTo("type", "MY_CLOUD")
             .get()
             .addOnSuccessListener(querySnapshot -> {
-                android.util.Log.d("ChatRepository", "Found " + querySnapshot.size() + " MY_CLOUD conversations");
+                if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Found " + querySnapshot.size() + " MY_CLOUD conversations");
                 
                 if (!querySnapshot.isEmpty()) {
                     // Use existing My Cloud conversation
                     String conversationId = querySnapshot.getDocuments().get(0).getId();
-                    android.util.Log.d("ChatRepository", "Using existing My Cloud conversation: " + conversationId);
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Using existing My Cloud conversation: " + conversationId);
                     callback.onSuccess(conversationId);
                 } else {
                     // Create new My Cloud conversation via REST API
-                    android.util.Log.d("ChatRepository", "Creating new My Cloud conversation");
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Creating new My Cloud conversation");
                     createMyCloudConversation(userId, callback);
                 }
             })
@@ -2659,7 +3247,7 @@ public class ChatRepository {
      * Uses REST API to comply with Firestore security rules
      */
     private void createMyCloudConversation(String userId, ConversationCallback callback) {
-        android.util.Log.d("ChatRepository", "createMyCloudConversation via REST API - userId: " + userId);
+        if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "createMyCloudConversation via REST API - userId: " + userId);
         
         // Prepare request body - single participant for self-chat
         java.util.Map<String, Object> conversationData = new java.util.HashMap<>();
@@ -2675,7 +3263,7 @@ public class ChatRepository {
             public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     String conversationId = (String) response.body().get("conversationId");
-                    android.util.Log.d("ChatRepository", "Created My Cloud conversation via API: " + conversationId);
+                    if (AppLog.DEBUG) android.util.Log.d("ChatRepository", "Created My Cloud conversation via API: " + conversationId);
                     callback.onSuccess(conversationId);
                 } else {
                     String error = "HTTP " + response.code();
@@ -0,0 +1,192 @@
+package com.example.doan_zaloclone.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.doan_zaloclone.models.Comment;
+import com.example.doan_zaloclone.utils.Resource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Paged comment thread of one post, newest first
+ * Older comments are loaded page by page with cursors; a live listener only covers
+ * comments newer than the first page, so a viral post never streams its whole thread.
+ * Main thread only; call close() when the screen goes away.
+ */
+public class CommentThread {
+
+    private static final String TAG = "CommentThread";
+    private static final int PAGE_SIZE = 20;
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final String postId;
+    private final MutableLiveData<Resource<List<Comment>>> comments = new MutableLiveData<>();
+
+    // Comments that arrived after the first page, keyed by ID (newest last)
+    private final Map<String, Comment> tail = new LinkedHashMap<>();
+    private final List<Comment> pages = new ArrayList<>();
+    private DocumentSnapshot lastDoc;
+    private ListenerRegistration tailListener;
+    private boolean hasOlder = true;
+    private boolean loadingOlder = false;
+    private boolean closed = false;
+
+    CommentThread(@NonNull String postId) {
+        this.postId = postId;
+        comments.setValue(Resource.loading(null));
+        loadFirstPage();
+    }
+
+    public LiveData<Resource<List<Comment>>> getComments() {
+        return comments;
+    }
+
+    public boolean hasOlderComments() {
+        return hasOlder;
+    }
+
+    /**
+     * Load the next page of older comments (call when the list nears its end)
+     */
+    public void loadOlder() {
+        if (closed || loadingOlder || !hasOlder || lastDoc == null) return;
+        loadingOlder = true;
+        commentsQuery()
+                .startAfter(lastDoc)
+                .limit(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    loadingOlder = false;
+                    if (closed) return;
+                    addPage(snapshots.getDocuments());
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    loadingOlder = false;
+                    Log.e(TAG, "Error loading older comments", e);
+                });
+    }
+
+    /**
+     * Show a just-sent comment before the server confirms it
+     */
+    void addLocal(@NonNull Comment comment) {
+        if (closed || comment.getId() == null) return;
+        tail.put(comment.getId(), comment);
+        publish();
+    }
+
+    void removeLocal(@NonNull String commentId) {
+        if (tail.remove(commentId) != null) {
+            publish();
+        }
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public void close() {
+        closed = true;
+        if (tailListener != null) {
+            tailListener.remove();
+            tailListener = null;
+        }
+    }
+
+    private void loadFirstPage() {
+        commentsQuery()
+                .limit(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (closed) return;
+                    List<DocumentSnapshot> docs = snapshots.getDocuments();
+                    addPage(docs);
+                    Date anchor = docs.isEmpty() ? null : docs.get(0).getDate("timestamp");
+                    startTailListener(anchor);
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    if (closed) return;
+                    Log.e(TAG, "Error loading comments", e);
+                    comments.setValue(Resource.error(e.getMessage(), null));
+                });
+    }
+
+    private void startTailListener(Date anchor) {
+        Query query = db.collection("posts").document(postId).collection("comments")
+                .orderBy("timestamp", Query.Direction.ASCENDING);
+        if (anchor != null) {
+            query = query.whereGreaterThan("timestamp", anchor);
+        }
+        tailListener = query.addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                Log.e(TAG, "Comment tail listener failed", e);
+                return;
+            }
+            if (snapshots == null || closed) return;
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                Comment comment = toComment(change.getDocument());
+                if (comment == null) continue;
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    tail.remove(comment.getId());
+                } else {
+                    tail.put(comment.getId(), comment);
+                }
+            }
+            publish();
+        });
+    }
+
+    private void addPage(List<DocumentSnapshot> docs) {
+        hasOlder = docs.size() == PAGE_SIZE;
+        if (docs.isEmpty()) return;
+        for (DocumentSnapshot doc : docs) {
+            Comment comment = toComment(doc);
+            if (comment != null) pages.add(comment);
+        }
+        lastDoc = docs.get(docs.size() - 1);
+    }
+
+    private void publish() {
+        List<Comment> list = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<Comment> newest = new ArrayList<>(tail.values());
+        for (int i = newest.size() - 1; i >= 0; i--) {
+            Comment comment = newest.get(i);
+            if (seen.add(comment.getId())) list.add(comment);
+        }
+        for (Comment comment : pages) {
+            if (seen.add(comment.getId())) list.add(comment);
+        }
+        comments.setValue(Resource.success(list));
+    }
+
+    private Query commentsQuery() {
+        return db.collection("posts").document(postId).collection("comments")
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    private static Comment toComment(DocumentSnapshot doc) {
+        Comment comment = doc.toObject(Comment.class);
+        if (comment != null && comment.getId() == null) {
+            comment.setId(doc.getId());
+        }
+        return comment;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.doan_zaloclone.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.models.Conversation;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-disk copy of the conversation list (one file per user) with the server sync token,
+ * so the home tab renders without waiting for the network and then asks only for the delta
+ */
+public class ConversationListCache {
+
+    private static final String TAG = "ConversationListCache";
+    private static final String FILE_PREFIX = "conversations_";
+    private static final int VERSION = 1;
+
+    private static ConversationListCache instance;
+
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+    private File cacheDir;
+
+    public static synchronized ConversationListCache getInstance() {
+        if (instance == null) {
+            instance = new ConversationListCache();
+        }
+        return instance;
+    }
+
+    private ConversationListCache() {
+    }
+
+    /**
+     * Enable the disk cache (called once from the Application)
+     */
+    public void init(@NonNull Context context) {
+        cacheDir = context.getCacheDir();
+    }
+
+    /**
+     * Read a user's cached list off the main thread
+     *
+     * @param listener Called on the main thread with the snapshot, or null if there is none
+     */
+    public void load(@NonNull String userId, @NonNull OnLoadedListener listener) {
+        if (cacheDir == null) {
+            listener.onLoaded(null);
+            return;
+        }
+        File file = fileFor(userId);
+        diskExecutor.execute(() -> {
+            Snapshot snapshot = null;
+            if (file.exists()) {
+                try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                    snapshot = gson.fromJson(reader, Snapshot.class);
+                    if (snapshot != null && (snapshot.version != VERSION || snapshot.conversations == null)) {
+                        snapshot = null;
+                    }
+                } catch (Exception e) {
+                    Log.w(TAG, "Ignoring corrupt conversation cache", e);
+                    file.delete();
+                }
+            }
+            Snapshot result = snapshot;
+            mainHandler.post(() -> listener.onLoaded(result));
+        });
+    }
+
+    public void save(@NonNull String userId, long syncToken, @NonNull List<Conversation> conversations) {
+        if (cacheDir == null) return;
+        File file = fileFor(userId);
+        Snapshot snapshot = new Snapshot(syncToken, new ArrayList<>(conversations));
+        diskExecutor.execute(() -> {
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            } catch (Exception e) {
+                Log.w(TAG, "Error writing conversation cache", e);
+                temp.delete();
+                return;
+            }
+            temp.renameTo(file);
+        });
+    }
+
+    private File fileFor(String userId) {
+        return new File(cacheDir, FILE_PREFIX + userId + ".json");
+    }
+
+    public static class Snapshot {
+        int version = VERSION;
+        long syncToken;
+        List<Conversation> conversations;
+
+        Snapshot(long syncToken, List<Conversation> conversations) {
+            this.syncToken = syncToken;
+            this.conversations = conversations;
+        }
+
+        public long getSyncToken() {
+            return syncToken;
+        }
+
+        public List<Conversation> getConversations() {
+            return conversations;
+        }
+    }
+
+    public interface OnLoadedListener {
+        void onLoaded(@Nullable Snapshot snapshot);
+    }
+}
@@ -35,6 +35,7 @@ public class ConversationRepository {
 
     private static final String TAG = "ConversationRepo";
     private static final long REFRESH_DEBOUNCE_MS = 500; // Debounce time for refresh events (reduced for faster updates)
+    private static final int LIST_LIMIT = 50;
 
     // Singleton instance
     private static ConversationRepository instance;
@@ -44,8 +45,11 @@ public class ConversationRepository {
     private final Handler mainHandler;
     private final java.util.concurrent.ExecutorService backgroundExecutor;
 
-    // Cache conversations locally
+    // Cache conversations locally (mirrored on disk by ConversationListCache)
     private final List<Conversation> cachedConversations = new ArrayList<>();
+    private final ConversationListCache listCache = ConversationListCache.getInstance();
+    private String cachedUserId;   // Owner of cachedConversations, guarded by it
+    private long syncToken;        // Server token matching cachedConversations, guarded by it
 
     // LiveData for real-time events
     private final MutableLiveData<String> groupLeftEvent = new MutableLiveData<>();
@@ -114,10 +118,7 @@ public class ConversationRepository {
             @Override
             public void onConversationCreated(String conversationId) {
                 Log.d(TAG, "➕ New conversation created: " + conversationId);
-                // Clear cache and trigger refresh
-                synchronized (cachedConversations) {
-                    cachedConversations.clear();
-                }
+                // The delta refresh brings it in
                 triggerRefreshDebounced();
             }
 
@@ -239,42 +240,70 @@ public class ConversationRepository {
     }
 
     /**
-     * Get conversations for a user via REST API
+     * Get conversations for a user
+     * Emits the cached list first (memory, else disk) so the home tab does not wait for the
+     * network, then reconciles with the server using a delta request.
      *
-     * @param userId ID of the user (for future use, currently server gets from auth token)
+     * @param userId ID of the user (server gets the user from the auth token; also keys the cache)
      * @return LiveData containing Resource with list of conversations
      */
     public LiveData<Resource<List<Conversation>>> getConversations(@NonNull String userId) {
         MutableLiveData<Resource<List<Conversation>>> result = new MutableLiveData<>();
+
+        List<Conversation> cached = getCachedConversations(userId);
+        if (cached != null) {
+            result.setValue(Resource.success(cached));
+            fetchConversations(userId, result);
+            return result;
+        }
+
         result.setValue(Resource.loading());
+        listCache.load(userId, snapshot -> {
+            if (snapshot != null) {
+                synchronized (cachedConversations) {
+                    // Unless a fetch already filled the memory cache meanwhile
+                    if (!userId.equals(cachedUserId)) {
+                        cachedUserId = userId;
+                        syncToken = snapshot.getSyncToken();
+                        cachedConversations.clear();
+                        cachedConversations.addAll(snapshot.getConversations());
+                    }
+                }
+                Log.d(TAG, "Showing " + snapshot.getConversations().size() + " cached conversations");
+                result.setValue(Resource.success(getCachedConversations(userId)));
+            }
+            fetchConversations(userId, result);
+        });
+        return result;
+    }
 
-        Log.d(TAG, "Fetching conversations from API...");
+    /**
+     * Copy of the in-memory list, or null if it holds nothing for this user
+     */
+    private List<Conversation> getCachedConversations(String userId) {
+        synchronized (cachedConversations) {
+            return userId.equals(cachedUserId) ? new ArrayList<>(cachedConversations) : null;
+        }
+    }
 
-        // Fetch conversations from API
-        Call<ConversationListResponse> call = apiService.getConversations(50);
+    private void fetchConversations(String userId, MutableLiveData<Resource<List<Conversation>>> result) {
+        long since;
+        synchronized (cachedConversations) {
+            since = userId.equals(cachedUserId) ? syncToken : 0;
+        }
+        Log.d(TAG, "Fetching conversations from API" + (since > 0 ? " since " + since : ""));
 
-        call.enqueue(new Callback<ConversationListResponse>() {
+        apiService.getConversations(LIST_LIMIT, since > 0 ? since : null).enqueue(new Callback<ConversationListResponse>() {
             @Override
             public void onResponse(Call<ConversationListResponse> call, Response<ConversationListResponse> response) {
-                Log.d(TAG, "API Response code: " + response.code());
-
                 if (response.isSuccessful() && response.body() != null) {
-                    ConversationListResponse responseBody = response.body();
-                    List<Conversation> conversations = responseBody.getConversations();
-
-                    Log.d(TAG, "Response body: " + (responseBody != null ? "exists" : "null"));
-                    Log.d(TAG, "Conversations list: " + (conversations != null ? "size=" + conversations.size() : "null"));
-
-                    // Update cache
-                    synchronized (cachedConversations) {
-                        cachedConversations.clear();
-                        if (conversations != null) {
-                            cachedConversations.addAll(conversations);
-                        }
+                    List<Conversation> merged = applyResponse(userId, since, response.body());
+                    if (merged == null) {
+                        // Delta did not match the cached list, start over
+                        fetchConversations(userId, result);
+                        return;
                     }
-
-                    Log.d(TAG, "✅ Fetched " + (conversations != null ? conversations.size() : 0) + " conversations");
-                    result.setValue(Resource.success(conversations != null ? conversations : new ArrayList<>()));
+                    result.setValue(Resource.success(merged));
                 } else {
                     String error = "HTTP " + response.code();
                     try {
@@ -283,7 +312,7 @@ public class ConversationRepository {
                     } catch (Exception e) {
                         Log.e(TAG, "Failed to fetch conversations: " + error);
                     }
-                    result.setValue(Resource.error(error));
+                    result.setValue(Resource.error(error, getCachedConversations(userId)));
                 }
             }
 
@@ -291,11 +320,59 @@ public class ConversationRepository {
             public void onFailure(Call<ConversationListResponse> call, Throwable t) {
                 String error = t.getMessage() != null ? t.getMessage() : "Network error";
                 Log.e(TAG, "❌ Network error fetching conversations: " + error, t);
-                result.setValue(Resource.error(error));
+                result.setValue(Resource.error(error, getCachedConversations(userId)));
             }
         });
+    }
 
-        return result;
+    /**
+     * Merge a (delta) response into the cache and persist it
+     *
+     * @return The new list, or null if the delta referenced conversations we do not have
+     */
+    private List<Conversation> applyResponse(String userId, long since, ConversationListResponse body) {
+        List<Conversation> received = body.getConversations() != null ? body.getConversations() : new ArrayList<>();
+        List<Conversation> merged;
+        boolean changed;
+        synchronized (cachedConversations) {
+            if (body.isDelta() && body.getIds() != null) {
+                if (!userId.equals(cachedUserId) || syncToken != since) {
+                    return null;
+                }
+                Map<String, Conversation> byId = new HashMap<>();
+                List<String> previousIds = new ArrayList<>();
+                for (Conversation conversation : cachedConversations) {
+                    byId.put(conversation.getId(), conversation);
+                    previousIds.add(conversation.getId());
+                }
+                for (Conversation conversation : received) {
+                    byId.put(conversation.getId(), conversation);
+                }
+                merged = new ArrayList<>();
+                for (String id : body.getIds()) {
+                    Conversation conversation = byId.get(id);
+                    if (conversation == null) {
+                        syncToken = 0;
+                        return null;
+                    }
+                    merged.add(conversation);
+                }
+                changed = !received.isEmpty() || !previousIds.equals(body.getIds());
+            } else {
+                merged = new ArrayList<>(received);
+                changed = true;
+            }
+            cachedUserId = userId;
+            syncToken = body.getSyncToken();
+            cachedConversations.clear();
+            cachedConversations.addAll(merged);
+        }
+
+        Log.d(TAG, "✅ Conversations: " + received.size() + " received, " + merged.size() + " total");
+        if (changed) {
+            listCache.save(userId, body.getSyncToken(), merged);
+        }
+        return new ArrayList<>(merged);
     }
 
     /**
@@ -1,156 +1,134 @@
 package com.example.doan_zaloclone.repository;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
-import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 
+import com.example.doan_zaloclone.api.ApiService;
+import com.example.doan_zaloclone.api.RetrofitClient;
 import com.example.doan_zaloclone.models.FileCategory;
 import com.example.doan_zaloclone.models.FileItem;
 import com.example.doan_zaloclone.models.Message;
+import com.example.doan_zaloclone.models.SenderInfo;
 import com.example.doan_zaloclone.models.User;
 import com.example.doan_zaloclone.services.FirestoreManager;
-import com.example.doan_zaloclone.utils.Resource;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.EventListener;
-import com.google.firebase.firestore.FirebaseFirestoreException;
-import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QuerySnapshot;
+import com.example.doan_zaloclone.utils.MessageTextCache;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 /**
  * Repository for file management operations
- * Handles querying, categorizing, and enriching file data from Firestore
+ * Reads the per-conversation media index maintained by the server (see MediaIndexQuery)
  */
 public class FileRepository {
 
     private static final String TAG = "FileRepository";
-    private static final int DEFAULT_PAGE_SIZE = 50;
-
-    // URL pattern for extracting links from text messages
-    private static final Pattern URL_PATTERN = Pattern.compile(
-            "(https?://[^\\s]+)",
-            Pattern.CASE_INSENSITIVE
-    );
 
     private final FirestoreManager firestoreManager;
-    private ListenerRegistration fileListener;
+    private final ApiService apiService;
 
     public FileRepository() {
         this.firestoreManager = FirestoreManager.getInstance();
+        this.apiService = RetrofitClient.getApiService();
     }
 
     /**
-     * Get all files for a conversation with real-time updates
+     * Make sure the conversation's media index exists (the server backfills it once)
      *
-     * @param conversationId ID of the conversation
-     * @param limit          Maximum number of items to load
-     * @return LiveData containing Resource with list of FileItems
+     * @param onReady Called on the main thread once the index can be queried; also called
+     *                if the request fails, since items indexed so far are still useful
      */
-    public LiveData<Resource<List<FileItem>>> getFilesForConversation(
-            @NonNull String conversationId,
-            int limit) {
-
-        MutableLiveData<Resource<List<FileItem>>> result = new MutableLiveData<>();
-        result.setValue(Resource.loading(null));
-
-        // Remove existing listener if any
-        if (fileListener != null) {
-            fileListener.remove();
-        }
-
-        // Query messages with files or images, ordered by timestamp descending
-        fileListener = firestoreManager.getFirestore()
-                .collection("conversations")
-                .document(conversationId)
-                .collection("messages")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(limit)
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        if (error != null) {
-                            android.util.Log.e(TAG, "Listen failed.", error);
-                            result.setValue(Resource.error("Lỗi đồng bộ file: " + error.getMessage(), null));
-                            return;
-                        }
-
-                        if (value != null) {
-                            List<Message> messages = new ArrayList<>();
-                            for (DocumentSnapshot doc : value.getDocuments()) {
-                                Message message = doc.toObject(Message.class);
-                                if (message != null) {
-                                    message.setId(doc.getId());
-                                    messages.add(message);
-                                }
-                            }
-
-                            // Convert to FileItems and enrich with sender info
-                            enrichWithSenderInfo(messages, enrichedItems -> {
-                                result.setValue(Resource.success(enrichedItems));
-                            }, errorMsg -> {
-                                result.setValue(Resource.error(errorMsg, null));
-                            });
-                        }
-                    }
-                });
+    public void ensureIndex(@NonNull String conversationId, @NonNull Runnable onReady) {
+        apiService.ensureMediaIndex(conversationId).enqueue(new Callback<Map<String, Object>>() {
+            @Override
+            public void onResponse(@NonNull Call<Map<String, Object>> call,
+                                   @NonNull Response<Map<String, Object>> response) {
+                if (!response.isSuccessful()) {
+                    android.util.Log.w(TAG, "Media index request failed: " + response.code());
+                }
+                onReady.run();
+            }
 
-        return result;
+            @Override
+            public void onFailure(@NonNull Call<Map<String, Object>> call, @NonNull Throwable t) {
+                android.util.Log.w(TAG, "Media index request failed", t);
+                onReady.run();
+            }
+        });
     }
 
     /**
-     * Load more files for pagination (remains one-time fetch)
+     * Open a paged, live view of one category of the media index
      *
      * @param conversationId ID of the conversation
-     * @param lastTimestamp  Timestamp of the last loaded message
-     * @param limit          Maximum number of items to load
-     * @return LiveData containing Resource with list of FileItems
+     * @param category       Category to query
+     * @param filter         Sender/date/type/domain filters
+     * @param pageSize       Items per page
+     * @return Query to observe; close it when the filter or screen changes
      */
-    public LiveData<Resource<List<FileItem>>> loadMoreFiles(
-            @NonNull String conversationId,
-            long lastTimestamp,
-            int limit) {
-
-        MutableLiveData<Resource<List<FileItem>>> result = new MutableLiveData<>();
-        result.setValue(Resource.loading(null));
+    public MediaIndexQuery queryIndex(@NonNull String conversationId,
+                                      @NonNull FileCategory category,
+                                      @NonNull MediaIndexQuery.Filter filter,
+                                      int pageSize) {
+        return new MediaIndexQuery(conversationId, category, filter, pageSize);
+    }
 
+    /**
+     * Senders and link domains of the whole conversation, for the filter dialogs
+     */
+    public void getFacets(@NonNull String conversationId, @NonNull OnFacetsCallback callback) {
         firestoreManager.getFirestore()
                 .collection("conversations")
                 .document(conversationId)
-                .collection("messages")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .whereLessThan("timestamp", lastTimestamp)
-                .limit(limit)
+                .collection("mediaMeta")
+                .document("facets")
                 .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Message> messages = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        Message message = doc.toObject(Message.class);
-                        if (message != null) {
-                            message.setId(doc.getId());
-                            messages.add(message);
+                .addOnSuccessListener(doc -> {
+                    List<SenderInfo> senders = new ArrayList<>();
+                    Object sendersValue = doc.get("senders");
+                    if (sendersValue instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) sendersValue).entrySet()) {
+                            if (!(entry.getValue() instanceof Map)) continue;
+                            Map<?, ?> sender = (Map<?, ?>) entry.getValue();
+                            int count = sender.get("count") instanceof Number
+                                    ? ((Number) sender.get("count")).intValue() : 0;
+                            if (count <= 0) continue;
+
+                            String senderId = String.valueOf(entry.getKey());
+                            User cached = UserProfileCache.getInstance().peek(senderId);
+                            Object name = sender.get("name");
+                            senders.add(new SenderInfo(
+                                    senderId,
+                                    name != null ? String.valueOf(name) : (cached != null ? cached.getName() : "User"),
+                                    cached != null ? cached.getAvatarUrl() : null,
+                                    count
+                            ));
+                        }
+                    }
+
+                    List<String> domains = new ArrayList<>();
+                    Object domainsValue = doc.get("domains");
+                    if (domainsValue instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) domainsValue).entrySet()) {
+                            if (entry.getValue() instanceof Number && ((Number) entry.getValue()).intValue() > 0) {
+                                domains.add(String.valueOf(entry.getKey()));
+                            }
                         }
                     }
+                    Collections.sort(domains);
 
-                    enrichWithSenderInfo(messages, enrichedItems -> {
-                        result.setValue(Resource.success(enrichedItems));
-                    }, error -> {
-                        result.setValue(Resource.error(error, null));
-                    });
+                    callback.onFacets(senders, domains);
                 })
                 .addOnFailureListener(e -> {
-                    android.util.Log.e(TAG, "Error loading more files", e);
-                    result.setValue(Resource.error("Lỗi tải thêm file: " + e.getMessage(), null));
+                    android.util.Log.e(TAG, "Error loading media facets", e);
+                    callback.onFacets(new ArrayList<>(), new ArrayList<>());
                 });
-
-        return result;
     }
 
     /**
@@ -186,159 +164,18 @@ public class FileRepository {
         List<FileItem> linkItems = new ArrayList<>();
 
         for (Message message : messages) {
-            if (Message.TYPE_TEXT.equals(message.getType())) {
-                String content = message.getContent();
-                if (content != null) {
-                    Matcher matcher = URL_PATTERN.matcher(content);
-                    if (matcher.find()) {
-                        // Found a URL in this message
-                        FileItem linkItem = new FileItem(message);
-                        linkItems.add(linkItem);
-                    }
-                }
+            if (Message.TYPE_TEXT.equals(message.getType()) && message.getContent() != null
+                    && !MessageTextCache.getInstance().get(message).getWebUrls().isEmpty()) {
+                // Found a URL in this message
+                linkItems.add(new FileItem(message));
             }
         }
 
         return linkItems;
     }
 
-    /**
-     * Enrich FileItems with sender information
-     *
-     * @param messages  List of messages to enrich
-     * @param onSuccess Callback when enrichment succeeds
-     * @param onError   Callback when enrichment fails
-     */
-    private void enrichWithSenderInfo(
-            @NonNull List<Message> messages,
-            @NonNull OnEnrichCallback onSuccess,
-            @NonNull OnErrorCallback onError) {
-
-        if (messages.isEmpty()) {
-            onSuccess.onEnriched(new ArrayList<>());
-            return;
-        }
-
-        // Filter messages to only include relevant types
-        // Exclude TEXT messages that don't contain URLs
-        List<Message> relevantMessages = new ArrayList<>();
-        for (Message message : messages) {
-            if (Message.TYPE_IMAGE.equals(message.getType()) ||
-                    Message.TYPE_FILE.equals(message.getType())) {
-                relevantMessages.add(message);
-            } else if (Message.TYPE_TEXT.equals(message.getType())) {
-                // Only include text messages with URLs
-                String content = message.getContent();
-                if (content != null && URL_PATTERN.matcher(content).find()) {
-                    relevantMessages.add(message);
-                }
-            }
-        }
-
-        // If no relevant messages after filtering
-        if (relevantMessages.isEmpty()) {
-            onSuccess.onEnriched(new ArrayList<>());
-            return;
-        }
-
-        // Collect unique sender IDs from relevant messages
-        Map<String, String> senderNames = new HashMap<>();
-        Map<String, String> senderAvatars = new HashMap<>();
-        List<String> uniqueSenderIds = new ArrayList<>();
-
-        for (Message message : relevantMessages) {
-            String senderId = message.getSenderId();
-            if (senderId != null && !uniqueSenderIds.contains(senderId)) {
-                uniqueSenderIds.add(senderId);
-            }
-        }
-
-        // Batch fetch user data
-        final int[] pendingRequests = {uniqueSenderIds.size()};
-        final boolean[] hasError = {false};
-
-        if (uniqueSenderIds.isEmpty()) {
-            // No senders to fetch
-            List<FileItem> fileItems = new ArrayList<>();
-            for (Message message : relevantMessages) {
-                fileItems.add(new FileItem(message, "Unknown", null));
-            }
-            onSuccess.onEnriched(fileItems);
-            return;
-        }
-
-        for (String senderId : uniqueSenderIds) {
-            firestoreManager.getFirestore()
-                    .collection("users")
-                    .document(senderId)
-                    .get()
-                    .addOnSuccessListener(doc -> {
-                        if (doc.exists()) {
-                            User user = doc.toObject(User.class);
-                            if (user != null) {
-                                senderNames.put(senderId, user.getName() != null ? user.getName() : "User");
-                                senderAvatars.put(senderId, user.getAvatarUrl());
-                            }
-                        } else {
-                            senderNames.put(senderId, "User");
-                        }
-
-                        pendingRequests[0]--;
-                        if (pendingRequests[0] == 0 && !hasError[0]) {
-                            // All requests completed, create FileItems
-                            List<FileItem> fileItems = new ArrayList<>();
-                            for (Message message : relevantMessages) {
-                                String senderName = senderNames.get(message.getSenderId());
-                                String senderAvatar = senderAvatars.get(message.getSenderId());
-                                fileItems.add(new FileItem(
-                                        message,
-                                        senderName != null ? senderName : "User",
-                                        senderAvatar
-                                ));
-                            }
-                            onSuccess.onEnriched(fileItems);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        android.util.Log.w(TAG, "Error fetching sender info for " + senderId, e);
-                        senderNames.put(senderId, "User");
-
-                        pendingRequests[0]--;
-                        if (pendingRequests[0] == 0 && !hasError[0]) {
-                            hasError[0] = true;
-                            // Continue with partial data
-                            List<FileItem> fileItems = new ArrayList<>();
-                            for (Message message : relevantMessages) {
-                                String senderName = senderNames.get(message.getSenderId());
-                                String senderAvatar = senderAvatars.get(message.getSenderId());
-                                fileItems.add(new FileItem(
-                                        message,
-                                        senderName != null ? senderName : "User",
-                                        senderAvatar
-                                ));
-                            }
-                            onSuccess.onEnriched(fileItems);
-                        }
-                    });
-        }
-    }
-
-    /**
-     * Stop listening to updates
-     */
-    public void cleanup() {
-        if (fileListener != null) {
-            fileListener.remove();
-            fileListener = null;
-        }
-    }
-
     // Callback interfaces
-    public interface OnEnrichCallback {
-        void onEnriched(List<FileItem> fileItems);
-    }
-
-    public interface OnErrorCallback {
-        void onError(String error);
+    public interface OnFacetsCallback {
+        void onFacets(List<SenderInfo> senders, List<String> domains);
     }
 }
@@ -0,0 +1,292 @@
+package com.example.doan_zaloclone.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.doan_zaloclone.models.FileCategory;
+import com.example.doan_zaloclone.models.FileItem;
+import com.example.doan_zaloclone.models.Message;
+import com.example.doan_zaloclone.models.User;
+import com.example.doan_zaloclone.utils.Resource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One category of a conversation's media index (conversations/{id}/media), newest first
+ * Filters run as Firestore constraints on precomputed fields; pages are loaded with
+ * cursors and a live listener only covers items newer than the first page, so a long
+ * conversation costs the same as a short one.
+ * Main thread only; call close() when the filter or screen changes.
+ */
+public class MediaIndexQuery {
+
+    private static final String TAG = "MediaIndexQuery";
+    // Firestore limit for values in a whereIn clause
+    private static final int MAX_IN_VALUES = 10;
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final String conversationId;
+    private final FileCategory category;
+    private final Filter filter;
+    private final int pageSize;
+    private final MutableLiveData<Resource<List<FileItem>>> items = new MutableLiveData<>();
+
+    // Items that arrived after the first page, keyed by message ID (newest last)
+    private final Map<String, FileItem> tail = new LinkedHashMap<>();
+    private final List<FileItem> pages = new ArrayList<>();
+    private DocumentSnapshot lastDoc;
+    private ListenerRegistration tailListener;
+    private boolean hasOlder = true;
+    private boolean loadingOlder = false;
+    private boolean closed = false;
+
+    MediaIndexQuery(@NonNull String conversationId, @NonNull FileCategory category,
+                    @NonNull Filter filter, int pageSize) {
+        this.conversationId = conversationId;
+        this.category = category;
+        this.filter = filter;
+        this.pageSize = pageSize;
+        items.setValue(Resource.loading(null));
+        loadFirstPage();
+    }
+
+    public LiveData<Resource<List<FileItem>>> getItems() {
+        return items;
+    }
+
+    public FileCategory getCategory() {
+        return category;
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    /**
+     * Load the next page of older items (call when the list nears its end)
+     */
+    public void loadOlder() {
+        if (closed || loadingOlder || !hasOlder || lastDoc == null) return;
+        loadingOlder = true;
+        indexQuery(Query.Direction.DESCENDING)
+                .startAfter(lastDoc)
+                .limit(pageSize)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    loadingOlder = false;
+                    if (closed) return;
+                    addPage(snapshots.getDocuments());
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    loadingOlder = false;
+                    Log.e(TAG, "Error loading older " + category + " items", e);
+                });
+    }
+
+    public void close() {
+        closed = true;
+        if (tailListener != null) {
+            tailListener.remove();
+            tailListener = null;
+        }
+    }
+
+    private void loadFirstPage() {
+        indexQuery(Query.Direction.DESCENDING)
+                .limit(pageSize)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (closed) return;
+                    List<DocumentSnapshot> docs = snapshots.getDocuments();
+                    addPage(docs);
+                    Long anchor = docs.isEmpty() ? null : docs.get(0).getLong("timestamp");
+                    startTailListener(anchor);
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    if (closed) return;
+                    Log.e(TAG, "Error loading " + category + " items", e);
+                    items.setValue(Resource.error("Lỗi tải file: " + e.getMessage(), null));
+                });
+    }
+
+    private void startTailListener(@Nullable Long anchor) {
+        Query query = indexQuery(Query.Direction.ASCENDING);
+        if (anchor != null) {
+            query = query.whereGreaterThan("timestamp", anchor);
+        }
+        tailListener = query.addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                Log.e(TAG, "Media tail listener failed", e);
+                return;
+            }
+            if (snapshots == null || closed) return;
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                DocumentSnapshot doc = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    tail.remove(doc.getId());
+                    continue;
+                }
+                FileItem item = toFileItem(doc);
+                if (matches(item)) {
+                    tail.put(doc.getId(), item);
+                } else {
+                    tail.remove(doc.getId());
+                }
+            }
+            publish();
+        });
+    }
+
+    private void addPage(List<DocumentSnapshot> docs) {
+        hasOlder = docs.size() == pageSize;
+        if (docs.isEmpty()) return;
+        for (DocumentSnapshot doc : docs) {
+            FileItem item = toFileItem(doc);
+            if (matches(item)) pages.add(item);
+        }
+        lastDoc = docs.get(docs.size() - 1);
+    }
+
+    private void publish() {
+        List<FileItem> list = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<FileItem> newest = new ArrayList<>(tail.values());
+        for (int i = newest.size() - 1; i >= 0; i--) {
+            FileItem item = newest.get(i);
+            if (seen.add(item.getMessage().getId())) list.add(item);
+        }
+        for (FileItem item : pages) {
+            if (seen.add(item.getMessage().getId())) list.add(item);
+        }
+        items.setValue(Resource.success(list));
+    }
+
+    /**
+     * Index query with as many filters as Firestore can take in one query;
+     * the rest are checked by matches() on the same precomputed fields
+     */
+    private Query indexQuery(Query.Direction direction) {
+        Query query = db.collection("conversations").document(conversationId)
+                .collection("media")
+                .whereEqualTo("category", category.name());
+
+        boolean senderInQuery = filter.senderIds.size() > 0 && filter.senderIds.size() <= MAX_IN_VALUES;
+        if (senderInQuery) {
+            query = query.whereIn("senderId", new ArrayList<>(filter.senderIds));
+        }
+        if (category == FileCategory.MEDIA && filter.mediaType != null) {
+            query = query.whereEqualTo("mediaType", filter.mediaType);
+        }
+        if (category == FileCategory.FILES && filter.fileType != null) {
+            query = query.whereEqualTo("fileType", filter.fileType);
+        }
+        // Only one whereIn per query
+        if (category == FileCategory.LINKS && !senderInQuery
+                && filter.domains.size() > 0 && filter.domains.size() <= MAX_IN_VALUES) {
+            query = query.whereIn("domain", new ArrayList<>(filter.domains));
+        }
+        if (filter.startDate != null) {
+            query = query.whereGreaterThanOrEqualTo("timestamp", filter.startDate);
+        }
+        if (filter.endDate != null) {
+            query = query.whereLessThanOrEqualTo("timestamp", filter.endDate);
+        }
+        return query.orderBy("timestamp", direction);
+    }
+
+    private boolean matches(FileItem item) {
+        Message message = item.getMessage();
+        if (!filter.senderIds.isEmpty() && !filter.senderIds.contains(message.getSenderId())) {
+            return false;
+        }
+        if (category == FileCategory.LINKS && !filter.domains.isEmpty()
+                && !filter.domains.contains(item.getDomain())) {
+            return false;
+        }
+        return true;
+    }
+
+    private FileItem toFileItem(DocumentSnapshot doc) {
+        Message message = new Message();
+        message.setId(doc.getId());
+        message.setType(doc.getString("type"));
+        message.setContent(doc.getString("content"));
+        message.setSenderId(doc.getString("senderId"));
+        message.setSenderName(doc.getString("senderName"));
+        message.setFileName(doc.getString("fileName"));
+        message.setFileMimeType(doc.getString("fileMimeType"));
+        Long timestamp = doc.getLong("timestamp");
+        message.setTimestamp(timestamp != null ? timestamp : 0);
+        Long fileSize = doc.getLong("fileSize");
+        message.setFileSize(fileSize != null ? fileSize : 0);
+
+        String senderName = message.getSenderName();
+        User sender = UserProfileCache.getInstance().peek(message.getSenderId());
+        FileItem item = new FileItem(message,
+                senderName != null ? senderName : (sender != null ? sender.getName() : "User"),
+                sender != null ? sender.getAvatarUrl() : null);
+        item.setIndexFields(category, doc.getString("url"), doc.getString("domain"),
+                doc.getString("mediaType"), doc.getString("fileType"));
+        return item;
+    }
+
+    /**
+     * Filters that run against the index (search by name is applied by the caller)
+     */
+    public static class Filter {
+        final Set<String> senderIds = new HashSet<>();
+        final Set<String> domains = new HashSet<>();
+        Long startDate;
+        Long endDate;
+        String mediaType;
+        String fileType;
+
+        public Filter senders(@Nullable Set<String> senderIds) {
+            if (senderIds != null) this.senderIds.addAll(senderIds);
+            return this;
+        }
+
+        public Filter domains(@Nullable Set<String> domains) {
+            if (domains != null) this.domains.addAll(domains);
+            return this;
+        }
+
+        public Filter dateRange(@Nullable Long startDate, @Nullable Long endDate) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            return this;
+        }
+
+        /**
+         * @param mediaType "IMAGE", "VIDEO" or null for all media
+         */
+        public Filter mediaType(@Nullable String mediaType) {
+            this.mediaType = mediaType;
+            return this;
+        }
+
+        /**
+         * @param fileType "PDF", "WORD", "EXCEL", "POWERPOINT", "ARCHIVE" or null for all files
+         */
+        public Filter fileType(@Nullable String fileType) {
+            this.fileType = fileType;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.doan_zaloclone.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Journal of video placeholder messages whose video is not uploading yet
+ * An entry is written before the "uploading" placeholder is sent and dropped once the video
+ * upload is handed to ChunkedUploader (which persists it on its own). Entries left over after
+ * the process died mid-transcode point at placeholders nobody will finish; ChatRepository
+ * recalls them at startup so recipients are not left with a spinner forever.
+ */
+public class PendingVideoSends {
+
+    private static final String TAG = "PendingVideoSends";
+    private static final String PREFS_NAME = "pending_video_sends";
+
+    private static PendingVideoSends instance;
+
+    private final Gson gson = new Gson();
+    private SharedPreferences prefs;
+
+    public static synchronized PendingVideoSends getInstance() {
+        if (instance == null) {
+            instance = new PendingVideoSends();
+        }
+        return instance;
+    }
+
+    private PendingVideoSends() {
+    }
+
+    /**
+     * Open the journal (called once from the Application)
+     */
+    public synchronized void init(@NonNull Context context) {
+        if (prefs != null) return;
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Record a placeholder about to be sent
+     *
+     * @return Key for setMessageId()/remove()
+     */
+    @NonNull
+    public String add(@NonNull String conversationId, @NonNull String senderId, @NonNull String sourceUri) {
+        Entry entry = new Entry();
+        entry.key = UUID.randomUUID().toString().replace("-", "");
+        entry.conversationId = conversationId;
+        entry.senderId = senderId;
+        entry.sourceUri = sourceUri;
+        entry.createdAt = System.currentTimeMillis();
+        save(entry);
+        return entry.key;
+    }
+
+    /**
+     * The server accepted the placeholder under this message id
+     */
+    public void setMessageId(@NonNull String key, @NonNull String messageId) {
+        Entry entry = load(key);
+        if (entry == null) return;
+        entry.messageId = messageId;
+        save(entry);
+    }
+
+    public void remove(@NonNull String key) {
+        if (prefs != null) prefs.edit().remove(key).commit();
+    }
+
+    /**
+     * Entries left by a previous process
+     */
+    @NonNull
+    public List<Entry> getAll() {
+        List<Entry> entries = new ArrayList<>();
+        if (prefs == null) return entries;
+        for (Object value : prefs.getAll().values()) {
+            if (!(value instanceof String)) continue;
+            try {
+                Entry entry = gson.fromJson((String) value, Entry.class);
+                if (entry != null && entry.key != null) entries.add(entry);
+            } catch (Exception e) {
+                Log.w(TAG, "Dropping unreadable entry", e);
+            }
+        }
+        return entries;
+    }
+
+    @Nullable
+    private Entry load(String key) {
+        String json = prefs != null ? prefs.getString(key, null) : null;
+        return json != null ? gson.fromJson(json, Entry.class) : null;
+    }
+
+    private void save(Entry entry) {
+        // commit(): the entry must be on disk before the placeholder can reach anyone
+        if (prefs != null) prefs.edit().putString(entry.key, gson.toJson(entry)).commit();
+    }
+
+    public static class Entry {
+        String key;
+        String conversationId;
+        String senderId;
+        String sourceUri;
+        String messageId;   // Null until the server answered
+        long createdAt;
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getConversationId() {
+            return conversationId;
+        }
+
+        public String getSenderId() {
+            return senderId;
+        }
+
+        @Nullable
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
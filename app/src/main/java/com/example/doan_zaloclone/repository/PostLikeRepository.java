@@ -0,0 +1,297 @@
+package com.example.doan_zaloclone.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.doan_zaloclone.models.Post;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Likes for newsfeed posts
+ * The aggregate count lives in sharded counters (posts/{postId}/likeShards/{0..N-1}) so
+ * concurrent likes on a popular post do not contend on one document, and
+ * "did I like this" is answered from a per-user index (users/{uid}/likedPosts/{postId}).
+ * Nothing is added to the post document, so feed payloads no longer grow with likes.
+ * Toggles are applied locally first and reconciled with the server once the write lands.
+ * The index doc and its shard increment go out in one batch, and only when the index state
+ * known locally actually flips, so likes queue up offline and double taps cannot make the
+ * count drift.
+ * Posts liked before this change still carry a legacy likes map, which is counted as a base.
+ */
+public class PostLikeRepository {
+
+    private static final String TAG = "PostLikeRepository";
+    private static final String COLLECTION_POSTS = "posts";
+    private static final String COLLECTION_SHARDS = "likeShards";
+    private static final String COLLECTION_USERS = "users";
+    private static final String COLLECTION_LIKED_POSTS = "likedPosts";
+    private static final int NUM_SHARDS = 10;
+    private static final int WHERE_IN_LIMIT = 10;
+
+    private static PostLikeRepository instance;
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final Random random = new Random();
+
+    // Like state per post (main thread only)
+    private final Map<String, LikeState> states = new HashMap<>();
+    // Emits the ID of a post whose like state changed
+    private final MutableLiveData<String> likeChanges = new MutableLiveData<>();
+
+    public static synchronized PostLikeRepository getInstance() {
+        if (instance == null) {
+            instance = new PostLikeRepository();
+        }
+        return instance;
+    }
+
+    private PostLikeRepository() {
+    }
+
+    public LiveData<String> getLikeChanges() {
+        return likeChanges;
+    }
+
+    /**
+     * Current like state of a post, or null if it has not been loaded yet
+     */
+    @Nullable
+    public LikeState getState(String postId) {
+        return postId != null ? states.get(postId) : null;
+    }
+
+    /**
+     * Load counts and the current user's likes for posts that are not known yet
+     * One whereIn query per 10 posts for the user index and one for the shards.
+     */
+    public void loadLikes(@NonNull List<Post> posts) {
+        String uid = currentUserId();
+        List<String> missing = new ArrayList<>();
+        for (Post post : posts) {
+            String postId = post.getPostId();
+            if (postId == null || states.containsKey(postId)) continue;
+            // Seed from the legacy map so the row never shows an empty count
+            LikeState state = new LikeState();
+            state.legacyCount = post.getLikeCount();
+            state.legacyLiked = post.isLikedBy(uid);
+            state.liked = state.legacyLiked;
+            state.count = state.legacyCount;
+            states.put(postId, state);
+            missing.add(postId);
+        }
+        for (int i = 0; i < missing.size(); i += WHERE_IN_LIMIT) {
+            fetchFromServer(new ArrayList<>(missing.subList(i, Math.min(i + WHERE_IN_LIMIT, missing.size()))));
+        }
+    }
+
+    /**
+     * Like or unlike a post; the UI is updated immediately
+     */
+    public void toggleLike(@NonNull String postId) {
+        String uid = currentUserId();
+        if (uid == null) return;
+
+        LikeState state = states.get(postId);
+        if (state == null) {
+            state = new LikeState();
+            states.put(postId, state);
+        }
+        boolean like = !state.liked;
+        state.liked = like;
+        state.count = Math.max(0, state.count + (like ? 1 : -1));
+        likeChanges.setValue(postId);
+
+        if (!like && state.legacyLiked) {
+            // Likes from before sharding are removed from the post's map instead;
+            // the legacy count is the size of the map, so removing the entry is idempotent
+            state.legacyLiked = false;
+            state.legacyCount = Math.max(0, state.legacyCount - 1);
+            LikeState target = state;
+            track(postId, state, db.collection(COLLECTION_POSTS).document(postId)
+                    .update("likes." + uid, FieldValue.delete()), () -> {
+                target.legacyLiked = true;
+                target.legacyCount++;
+            });
+            return;
+        }
+        if (state.indexed == null) {
+            // Written once fetchFromServer knows whether the index doc exists
+            state.awaitingIndex = true;
+            fetchFromServer(Collections.singletonList(postId));
+            return;
+        }
+        writeIndex(uid, postId, state);
+    }
+
+    /**
+     * Forget loaded states so the next loadLikes reads fresh counts (pull to refresh)
+     */
+    public void clear() {
+        Iterator<Map.Entry<String, LikeState>> it = states.entrySet().iterator();
+        while (it.hasNext()) {
+            LikeState state = it.next().getValue();
+            if (state.pendingWrites == 0 && !state.awaitingIndex) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Bring the user's index doc in line with the liked state, moving a shard by the same step
+     * Both go in one batch, so the write is queued offline and lands together or not at all.
+     */
+    private void writeIndex(String uid, String postId, LikeState state) {
+        boolean like = state.liked && !state.legacyLiked;
+        if (state.indexed == null || like == state.indexed) return;
+        state.indexed = like;
+
+        DocumentReference postRef = db.collection(COLLECTION_POSTS).document(postId);
+        DocumentReference indexRef = db.collection(COLLECTION_USERS).document(uid)
+                .collection(COLLECTION_LIKED_POSTS).document(postId);
+        DocumentReference shardRef = postRef.collection(COLLECTION_SHARDS)
+                .document(String.valueOf(random.nextInt(NUM_SHARDS)));
+
+        WriteBatch batch = db.batch();
+        if (like) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("postId", postId);
+            entry.put("likedAt", FieldValue.serverTimestamp());
+            batch.set(indexRef, entry);
+            batch.set(shardRef, shardIncrement(postId, 1), SetOptions.merge());
+        } else {
+            batch.delete(indexRef);
+            batch.set(shardRef, shardIncrement(postId, -1), SetOptions.merge());
+        }
+        // The local index state may be ahead of the server now; fetchFromServer reads it back
+        track(postId, state, batch.commit(), () -> state.indexed = null);
+    }
+
+    /**
+     * Count a write as pending until it lands, then re-read the post from the server
+     */
+    private void track(String postId, LikeState state, Task<Void> write, Runnable onFailure) {
+        state.pendingWrites++;
+        write.addOnCompleteListener(task -> {
+            state.pendingWrites--;
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Like write failed for " + postId, task.getException());
+                onFailure.run();
+            }
+            if (state.pendingWrites == 0) {
+                // Pick up likes from other users that happened meanwhile, undo failed toggles
+                fetchFromServer(Collections.singletonList(postId));
+            }
+        });
+    }
+
+    private static Map<String, Object> shardIncrement(String postId, long delta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("postId", postId);
+        data.put("count", FieldValue.increment(delta));
+        return data;
+    }
+
+    private void fetchFromServer(List<String> postIds) {
+        String uid = currentUserId();
+
+        // Shards of all posts in the chunk in one collection group query
+        db.collectionGroup(COLLECTION_SHARDS)
+                .whereIn("postId", postIds)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    Map<String, Long> sums = new HashMap<>();
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        String postId = doc.getString("postId");
+                        Long count = doc.getLong("count");
+                        if (postId == null || count == null) continue;
+                        Long sum = sums.get(postId);
+                        sums.put(postId, (sum != null ? sum : 0L) + count);
+                    }
+                    for (String postId : postIds) {
+                        LikeState state = states.get(postId);
+                        if (state == null || state.pendingWrites > 0) continue;
+                        Long sum = sums.get(postId);
+                        int count = (int) Math.max(0, state.legacyCount + (sum != null ? sum : 0L));
+                        if (count != state.count) {
+                            state.count = count;
+                            likeChanges.setValue(postId);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading like counts", e));
+
+        if (uid == null) return;
+        db.collection(COLLECTION_USERS).document(uid).collection(COLLECTION_LIKED_POSTS)
+                .whereIn(FieldPath.documentId(), postIds)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    List<String> likedIds = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        likedIds.add(doc.getId());
+                    }
+                    for (String postId : postIds) {
+                        LikeState state = states.get(postId);
+                        if (state == null || state.pendingWrites > 0) continue;
+                        state.indexed = likedIds.contains(postId);
+                        if (state.awaitingIndex) {
+                            // Toggled before the index was known: keep the user's choice
+                            state.awaitingIndex = false;
+                            writeIndex(uid, postId, state);
+                            continue;
+                        }
+                        boolean liked = state.legacyLiked || state.indexed;
+                        if (liked != state.liked) {
+                            state.liked = liked;
+                            likeChanges.setValue(postId);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading liked posts", e));
+    }
+
+    @Nullable
+    private static String currentUserId() {
+        return FirebaseAuth.getInstance().getUid();
+    }
+
+    /**
+     * Like count and whether the current user liked a post
+     */
+    public static class LikeState {
+        private int count;
+        private boolean liked;
+        private int legacyCount;        // Entries in the old likes map
+        private boolean legacyLiked;    // Current user is in the old likes map
+        private Boolean indexed;        // users/{uid}/likedPosts/{postId} exists; null until loaded
+        private boolean awaitingIndex;  // Toggled while indexed was unknown
+        private int pendingWrites;
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isLiked() {
+            return liked;
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.example.doan_zaloclone.repository;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import com.example.doan_zaloclone.models.Comment;
@@ -7,19 +13,69 @@ import com.example.doan_zaloclone.models.Post;
 import com.example.doan_zaloclone.models.User;
 import com.example.doan_zaloclone.utils.Resource;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PostRepository {
 
+    private static final String TAG = "PostRepository";
+
+    // Feed: cursor pages + live listener for new posts only
+    private static final int FEED_PAGE_SIZE = 15;
+    // In-memory window: at most this many loaded pages, trimmed from the top when scrolling down
+    private static final int FEED_MAX_PAGES = 6;
+    private static final int FEED_CACHE_POSTS = 30;
+    private static final String FEED_CACHE_FILE = "feed_cache.json";
+
     private static PostRepository instance;
     private final FirebaseFirestore db = FirebaseFirestore.getInstance();
-    private final String currentUserId = FirebaseAuth.getInstance().getCurrentUser() != null ? FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
+    private final PostLikeRepository likeRepository = PostLikeRepository.getInstance();
+    private final UserProfileCache profileCache = UserProfileCache.getInstance();
+
+    // Feed state (main thread only)
+    private final MutableLiveData<Resource<List<Post>>> feedData = new MutableLiveData<>();
+    private final ArrayDeque<FeedPage> feedPages = new ArrayDeque<>();
+    private final List<Post> newPosts = new ArrayList<>();
+    private ListenerRegistration newPostsListener;
+    private Date feedAnchor;            // Newest timestamp when page 1 was loaded
+    private boolean feedGapAtTop = false; // Pages above the window were trimmed
+    private boolean hasOlderPosts = true;
+    private boolean loadingOlder = false;
+    private boolean loadingNewer = false;
+    private boolean feedStarted = false;
+    private boolean firstPageLoaded = false;
+    private boolean feedUpdatesWanted = false; // Timeline is visible
+    private int feedGeneration = 0;     // Drops results of requests made before a refresh
+
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+    private File feedCacheFile;
 
     public static PostRepository getInstance() {
         if (instance == null) {
@@ -28,6 +84,13 @@ public class PostRepository {
         return instance;
     }
 
+    /**
+     * Enable the feed disk cache (called once from the Application)
+     */
+    public void init(@NonNull Context context) {
+        feedCacheFile = new File(context.getCacheDir(), FEED_CACHE_FILE);
+    }
+
     public LiveData<Resource<Void>> createPost(Post post) {
         MutableLiveData<Resource<Void>> result = new MutableLiveData<>();
         result.setValue(Resource.loading(null));
@@ -39,91 +102,347 @@ public class PostRepository {
         return result;
     }
 
+    /**
+     * Bảng tin dạng phân trang
+     * Shows the last cached pages immediately, then loads page 1 and listens only for new posts.
+     * Older pages are fetched with cursors as the user scrolls (loadOlderPosts).
+     */
     public LiveData<Resource<List<Post>>> getPosts() {
-        MutableLiveData<Resource<List<Post>>> data = new MutableLiveData<>();
-        db.collection("posts").orderBy("timestamp", Query.Direction.DESCENDING)
-            .addSnapshotListener((snapshots, e) -> {
-                if (e != null) {
-                    data.setValue(Resource.error(e.getMessage(), null));
-                    return;
-                }
-                List<Post> posts = new ArrayList<>();
-                for (QueryDocumentSnapshot doc : snapshots) {
-                    posts.add(doc.toObject(Post.class));
-                }
-                data.setValue(Resource.success(posts));
-            });
-        return data;
+        if (!feedStarted) {
+            feedStarted = true;
+            feedData.setValue(Resource.loading(null));
+            loadFeedCache();
+            loadFirstPage();
+        }
+        return feedData;
     }
 
-    public void toggleLike(String postId) {
-        if (currentUserId == null) return;
-        db.collection("posts").document(postId).get().addOnSuccessListener(documentSnapshot -> {
-            Post post = documentSnapshot.toObject(Post.class);
-            if (post != null && post.getLikes() != null) {
-                if (post.getLikes().containsKey(currentUserId)) {
-                    db.collection("posts").document(postId).update("likes." + currentUserId, FieldValue.delete());
-                } else {
-                    db.collection("posts").document(postId).update("likes." + currentUserId, true);
-                }
+    /**
+     * Reload the feed from page 1 (pull to refresh)
+     */
+    public void refreshPosts() {
+        feedStarted = true;
+        likeRepository.clear();
+        loadFirstPage();
+    }
+
+    /**
+     * Load the next page below the window (call when the list nears its end)
+     */
+    public void loadOlderPosts() {
+        if (loadingOlder || !hasOlderPosts || feedPages.isEmpty()) return;
+        loadingOlder = true;
+        int generation = feedGeneration;
+
+        postsQuery()
+                .startAfter(feedPages.peekLast().last)
+                .limit(FEED_PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    loadingOlder = false;
+                    if (generation != feedGeneration) return;
+                    List<DocumentSnapshot> docs = snapshots.getDocuments();
+                    hasOlderPosts = docs.size() == FEED_PAGE_SIZE;
+                    if (docs.isEmpty()) return;
+
+                    feedPages.addLast(new FeedPage(docs));
+                    if (feedPages.size() > FEED_MAX_PAGES) {
+                        feedPages.removeFirst();
+                        feedGapAtTop = true;
+                    }
+                    publishFeed();
+                })
+                .addOnFailureListener(e -> {
+                    loadingOlder = false;
+                    Log.e(TAG, "Error loading older posts", e);
+                });
+    }
+
+    /**
+     * Reload a page trimmed from the top of the window (call when scrolling back up)
+     */
+    public void loadNewerPosts() {
+        if (loadingNewer || !feedGapAtTop || feedPages.isEmpty()) return;
+        loadingNewer = true;
+        int generation = feedGeneration;
+
+        postsQuery()
+                .endBefore(feedPages.peekFirst().first)
+                .limitToLast(FEED_PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    loadingNewer = false;
+                    if (generation != feedGeneration) return;
+                    List<DocumentSnapshot> docs = snapshots.getDocuments();
+                    // A short page means we are back at the top of the feed
+                    if (docs.size() < FEED_PAGE_SIZE) {
+                        feedGapAtTop = false;
+                    }
+                    if (!docs.isEmpty()) {
+                        feedPages.addFirst(new FeedPage(docs));
+                        if (feedPages.size() > FEED_MAX_PAGES) {
+                            feedPages.removeLast();
+                            hasOlderPosts = true;
+                        }
+                    }
+                    publishFeed();
+                })
+                .addOnFailureListener(e -> {
+                    loadingNewer = false;
+                    Log.e(TAG, "Error loading newer posts", e);
+                });
+    }
+
+    public boolean hasNewerPosts() {
+        return feedGapAtTop;
+    }
+
+    /**
+     * Start listening for new posts (while the timeline is visible)
+     */
+    public void startFeedUpdates() {
+        feedUpdatesWanted = true;
+        // Attached once page 1 has set the anchor
+        if (newPostsListener != null || !firstPageLoaded) return;
+        Query query = db.collection("posts").orderBy("timestamp", Query.Direction.DESCENDING);
+        if (feedAnchor != null) {
+            query = query.whereGreaterThan("timestamp", feedAnchor);
+        }
+        int generation = feedGeneration;
+        newPostsListener = query.addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                Log.e(TAG, "New posts listener failed", e);
+                return;
             }
+            if (snapshots == null || generation != feedGeneration) return;
+            newPosts.clear();
+            for (QueryDocumentSnapshot doc : snapshots) {
+                Post post = toPost(doc);
+                if (post != null) newPosts.add(post);
+            }
+            publishFeed();
         });
     }
 
-    public LiveData<Resource<List<Comment>>> getComments(String postId) {
-        MutableLiveData<Resource<List<Comment>>> data = new MutableLiveData<>();
-        db.collection("posts").document(postId).collection("comments")
-            .orderBy("timestamp", Query.Direction.ASCENDING)
-            .addSnapshotListener((snapshots, e) -> {
-                if (e != null) {
-                    data.setValue(Resource.error(e.getMessage(), null));
-                    return;
-                }
-                List<Comment> comments = new ArrayList<>();
-                for (QueryDocumentSnapshot doc : snapshots) {
-                    comments.add(doc.toObject(Comment.class));
-                }
-                data.setValue(Resource.success(comments));
-            });
-        return data;
-    }
-
-    public LiveData<Resource<Boolean>> sendComment(String postId, String content) {
-        MutableLiveData<Resource<Boolean>> result = new MutableLiveData<>();
-        if (currentUserId == null) {
-            result.setValue(Resource.error("User not logged in", null));
-            return result;
+    /**
+     * Stop listening for new posts; the loaded window stays in memory
+     */
+    public void stopFeedUpdates() {
+        feedUpdatesWanted = false;
+        removeNewPostsListener();
+    }
+
+    private void removeNewPostsListener() {
+        if (newPostsListener != null) {
+            newPostsListener.remove();
+            newPostsListener = null;
         }
+    }
 
-        // Lấy thông tin người dùng hiện tại từ Firestore
-        db.collection("users").document(currentUserId).get().addOnSuccessListener(documentSnapshot -> {
-            String userName = "Người dùng Zalo"; // Tên mặc định
-            String userAvatar = ""; // Avatar mặc định
-
-            if (documentSnapshot.exists()) {
-                User user = documentSnapshot.toObject(User.class);
-                if (user != null) {
-                    userName = user.getName();
-                    userAvatar = user.getAvatarUrl();
-                }
-            }
+    private void loadFirstPage() {
+        int generation = ++feedGeneration;
+        loadingOlder = false;
+        loadingNewer = false;
+        removeNewPostsListener();
 
-            // Tạo đối tượng Comment với thông tin người dùng thực tế
-            String commentId = db.collection("posts").document(postId).collection("comments").document().getId();
-            Comment comment = new Comment(commentId, postId, currentUserId, userName, userAvatar, content);
-            
-            // Lưu comment vào sub-collection
-            db.collection("posts").document(postId).collection("comments").document(commentId).set(comment)
-                .addOnSuccessListener(aVoid -> {
-                    // Tăng số lượng comment trong document Post
-                    db.collection("posts").document(postId).update("commentCount", FieldValue.increment(1));
-                    result.setValue(Resource.success(true));
+        postsQuery()
+                .limit(FEED_PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (generation != feedGeneration) return;
+                    List<DocumentSnapshot> docs = snapshots.getDocuments();
+                    feedPages.clear();
+                    newPosts.clear();
+                    feedGapAtTop = false;
+                    hasOlderPosts = docs.size() == FEED_PAGE_SIZE;
+                    if (!docs.isEmpty()) {
+                        feedPages.add(new FeedPage(docs));
+                    }
+                    feedAnchor = newestTimestamp(docs);
+                    firstPageLoaded = true;
+                    publishFeed();
+                    if (feedUpdatesWanted) {
+                        startFeedUpdates();
+                    }
                 })
-                .addOnFailureListener(e -> result.setValue(Resource.error(e.getMessage(), null)));
-        }).addOnFailureListener(e -> {
-            result.setValue(Resource.error("Không thể lấy thông tin người dùng: " + e.getMessage(), null));
+                .addOnFailureListener(e -> {
+                    if (generation != feedGeneration) return;
+                    Log.e(TAG, "Error loading feed", e);
+                    Resource<List<Post>> current = feedData.getValue();
+                    if (current != null && current.isSuccess()) {
+                        // Keep showing cached posts
+                        feedData.setValue(Resource.success(current.getData()));
+                    } else {
+                        feedData.setValue(Resource.error(e.getMessage(), null));
+                    }
+                });
+    }
+
+    private Query postsQuery() {
+        return db.collection("posts").orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    private void publishFeed() {
+        List<Post> posts = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        // New posts sit above page 1, so they only join once the window reaches the top again
+        if (!feedGapAtTop) {
+            for (Post post : newPosts) {
+                if (post.getPostId() == null || seen.add(post.getPostId())) posts.add(post);
+            }
+        }
+        for (FeedPage page : feedPages) {
+            for (Post post : page.posts) {
+                if (post.getPostId() == null || seen.add(post.getPostId())) posts.add(post);
+            }
+        }
+        feedData.setValue(Resource.success(posts));
+        likeRepository.loadLikes(posts);
+        if (!feedGapAtTop) {
+            saveFeedCache(posts);
+        }
+    }
+
+    private void loadFeedCache() {
+        if (feedCacheFile == null) return;
+        File file = feedCacheFile;
+        diskExecutor.execute(() -> {
+            if (!file.exists()) return;
+            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                List<Post> cached = gson.fromJson(reader, new TypeToken<List<Post>>() {}.getType());
+                if (cached == null) return;
+                // Only if the network has not answered yet
+                mainHandler.post(() -> {
+                    Resource<List<Post>> current = feedData.getValue();
+                    if (feedPages.isEmpty() && (current == null || !current.isSuccess())) {
+                        feedData.setValue(Resource.success(cached));
+                        likeRepository.loadLikes(cached);
+                    }
+                });
+            } catch (Exception e) {
+                Log.w(TAG, "Ignoring corrupt feed cache", e);
+                file.delete();
+            }
+        });
+    }
+
+    private void saveFeedCache(List<Post> posts) {
+        if (feedCacheFile == null) return;
+        File file = feedCacheFile;
+        List<Post> snapshot = new ArrayList<>(posts.subList(0, Math.min(FEED_CACHE_POSTS, posts.size())));
+        diskExecutor.execute(() -> {
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            } catch (Exception e) {
+                Log.w(TAG, "Error writing feed cache", e);
+                temp.delete();
+                return;
+            }
+            temp.renameTo(file);
         });
+    }
+
+    private static Post toPost(DocumentSnapshot doc) {
+        Post post = doc.toObject(Post.class);
+        if (post != null && post.getPostId() == null) {
+            post.setPostId(doc.getId());
+        }
+        return post;
+    }
+
+    private static Date newestTimestamp(List<DocumentSnapshot> docs) {
+        for (DocumentSnapshot doc : docs) {
+            Date date = doc.getDate("timestamp");
+            if (date != null) return date;
+        }
+        return null;
+    }
+
+    /**
+     * One loaded page of the feed with its cursors
+     */
+    private static class FeedPage {
+        final List<Post> posts = new ArrayList<>();
+        final DocumentSnapshot first;
+        final DocumentSnapshot last;
+
+        FeedPage(List<DocumentSnapshot> docs) {
+            for (DocumentSnapshot doc : docs) {
+                Post post = toPost(doc);
+                if (post != null) posts.add(post);
+            }
+            first = docs.get(0);
+            last = docs.get(docs.size() - 1);
+        }
+    }
 
+    /**
+     * Like/unlike with an optimistic local update (see PostLikeRepository)
+     */
+    public void toggleLike(String postId) {
+        if (postId == null) return;
+        likeRepository.toggleLike(postId);
+    }
+
+    public LiveData<String> getLikeChanges() {
+        return likeRepository.getLikeChanges();
+    }
+
+    /**
+     * Open the paged comment thread of a post (newest first, live only for new comments)
+     * The caller owns the thread and must close() it.
+     */
+    public CommentThread openCommentThread(@NonNull String postId) {
+        // Warm the author profile so sending does not wait for a user read
+        String uid = FirebaseAuth.getInstance().getUid();
+        if (uid != null) {
+            profileCache.get(uid, user -> { });
+        }
+        return new CommentThread(postId);
+    }
+
+    public LiveData<Resource<Boolean>> sendComment(@NonNull CommentThread thread, String content) {
+        MutableLiveData<Resource<Boolean>> result = new MutableLiveData<>();
+        String uid = FirebaseAuth.getInstance().getUid();
+        if (uid == null) {
+            result.setValue(Resource.error("User not logged in", null));
+            return result;
+        }
+
+        User cached = profileCache.peek(uid);
+        if (cached != null) {
+            writeComment(thread, uid, cached, content, result);
+        } else {
+            profileCache.get(uid, user -> writeComment(thread, uid, user, content, result));
+        }
         return result;
     }
+
+    private void writeComment(CommentThread thread, String uid, User user, String content,
+                              MutableLiveData<Resource<Boolean>> result) {
+        String userName = "Người dùng Zalo"; // Tên mặc định
+        String userAvatar = ""; // Avatar mặc định
+        if (user != null) {
+            userName = user.getName();
+            userAvatar = user.getAvatarUrl();
+        }
+
+        String postId = thread.getPostId();
+        DocumentReference postRef = db.collection("posts").document(postId);
+        DocumentReference commentRef = postRef.collection("comments").document();
+        Comment comment = new Comment(commentRef.getId(), postId, uid, userName, userAvatar, content);
+        thread.addLocal(comment);
+
+        // Comment và commentCount trong cùng một batch: một lần ghi, không lệch số đếm
+        WriteBatch batch = db.batch();
+        batch.set(commentRef, comment);
+        batch.update(postRef, "commentCount", FieldValue.increment(1));
+        batch.commit()
+                .addOnSuccessListener(aVoid -> result.setValue(Resource.success(true)))
+                .addOnFailureListener(e -> {
+                    thread.removeLocal(commentRef.getId());
+                    result.setValue(Resource.error(e.getMessage(), null));
+                });
+    }
 }
@@ -0,0 +1,369 @@
+package com.example.doan_zaloclone.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.models.Sticker;
+import com.example.doan_zaloclone.models.StickerBundle;
+import com.example.doan_zaloclone.models.StickerPack;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk store for offline sticker pack bundles
+ * Each pack lives in its own folder: a manifest.json (pack, version, stickers) plus the
+ * downloaded sticker files, so the picker can open without network.
+ * Pack lists (official / saved / recent) are cached as small JSON files next to the bundles.
+ * All methods do disk I/O and must be called off the main thread.
+ */
+public class StickerBundleStore {
+
+    private static final String TAG = "StickerBundleStore";
+    private static final String ROOT_DIR_NAME = "sticker_bundles";
+    private static final String LISTS_DIR_NAME = "lists";
+    private static final String MANIFEST_NAME = "manifest.json";
+    private static final String CONTENT_HASH_NAME = "content.sha1";
+
+    private static StickerBundleStore instance;
+
+    private final File rootDir;
+    private final File listsDir;
+    private final Gson gson = new Gson();
+    private final Map<String, StickerBundle> memoryBundles = new HashMap<>();
+
+    public static synchronized StickerBundleStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new StickerBundleStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StickerBundleStore(Context context) {
+        // filesDir, not cacheDir: downloaded packs must survive storage pressure
+        this.rootDir = new File(context.getFilesDir(), ROOT_DIR_NAME);
+        this.listsDir = new File(rootDir, LISTS_DIR_NAME);
+        if (!listsDir.exists()) {
+            listsDir.mkdirs();
+        }
+    }
+
+    // ========== Pack bundles ==========
+
+    /**
+     * Get the stored bundle for a pack
+     *
+     * @return Bundle with local file paths resolved, or null if the pack was never downloaded
+     */
+    @Nullable
+    public synchronized StickerBundle getBundle(@NonNull String packId) {
+        StickerBundle cached = memoryBundles.get(packId);
+        if (cached != null) {
+            return cached;
+        }
+
+        StickerBundle bundle = readJson(new File(packDir(packId), MANIFEST_NAME), StickerBundle.class);
+        if (bundle == null) {
+            return null;
+        }
+        for (Sticker sticker : bundle.getStickers()) {
+            File asset = assetFile(packId, sticker);
+            sticker.setLocalPath(asset != null && asset.exists() ? asset.getAbsolutePath() : null);
+        }
+        memoryBundles.put(packId, bundle);
+        return bundle;
+    }
+
+    /**
+     * Persist a bundle manifest and drop sticker files it no longer references
+     *
+     * @return true if the pack content (anything but the sync time) changed
+     */
+    public synchronized boolean saveBundle(@NonNull StickerBundle bundle) {
+        String packId = bundle.getPackId();
+        File dir = packDir(packId);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        if (writeJson(new File(dir, MANIFEST_NAME), bundle)) {
+            memoryBundles.put(packId, bundle);
+        }
+        pruneAssets(bundle);
+
+        // The content hash is only rewritten when the pack really changed, so a sync that
+        // just bumps syncedAt leaves getBundlesFingerprint() (and the search index) alone
+        String contentHash = contentHash(bundle);
+        File hashFile = new File(dir, CONTENT_HASH_NAME);
+        if (contentHash.equals(readText(hashFile))) {
+            return false;
+        }
+        writeText(hashFile, contentHash);
+        return true;
+    }
+
+    /**
+     * Mark a pack as stale so the next load syncs it (e.g. after adding/removing a sticker)
+     */
+    public synchronized void invalidate(@NonNull String packId) {
+        StickerBundle bundle = getBundle(packId);
+        if (bundle != null) {
+            bundle.setSyncedAt(0);
+            writeJson(new File(packDir(packId), MANIFEST_NAME), bundle);
+        }
+    }
+
+    /**
+     * Download sticker files that are not on disk yet
+     * Already downloaded files are kept, so a delta sync only fetches new stickers.
+     */
+    public void downloadAssets(@NonNull StickerBundle bundle) {
+        for (Sticker sticker : bundle.getStickers()) {
+            File asset = assetFile(bundle.getPackId(), sticker);
+            if (asset == null) continue;
+            if (asset.exists() || download(sticker.getImageUrl(), asset)) {
+                sticker.setLocalPath(asset.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * IDs of all packs that have a stored bundle
+     * Folder names are sanitized, so the real pack id is read from each manifest.
+     */
+    public synchronized List<String> listBundleIds() {
+        List<String> ids = new ArrayList<>();
+        File[] dirs = rootDir.listFiles();
+        if (dirs == null) return ids;
+        for (File dir : dirs) {
+            File manifest = new File(dir, MANIFEST_NAME);
+            if (dir.isDirectory() && manifest.exists()) {
+                StickerBundle bundle = readJson(manifest, StickerBundle.class);
+                if (bundle != null && bundle.getPackId() != null) {
+                    ids.add(bundle.getPackId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Cheap fingerprint of the stored bundle set (changes only when a pack's content changes)
+     */
+    public synchronized String getBundlesFingerprint() {
+        File[] dirs = rootDir.listFiles();
+        if (dirs == null) return "";
+        Arrays.sort(dirs);
+        StringBuilder sb = new StringBuilder();
+        for (File dir : dirs) {
+            if (dir.isDirectory() && new File(dir, MANIFEST_NAME).exists()) {
+                String contentHash = readText(new File(dir, CONTENT_HASH_NAME));
+                sb.append(dir.getName()).append(':').append(contentHash != null ? contentHash : "").append(';');
+            }
+        }
+        return hash(sb.toString());
+    }
+
+    // ========== Cached lists ==========
+
+    @Nullable
+    public List<StickerPack> getPackList(@NonNull String key) {
+        Type type = new TypeToken<List<StickerPack>>() {}.getType();
+        return readJson(new File(listsDir, key + ".json"), type);
+    }
+
+    public void savePackList(@NonNull String key, @NonNull List<StickerPack> packs) {
+        writeJson(new File(listsDir, key + ".json"), packs);
+    }
+
+    @Nullable
+    public List<Sticker> getStickerList(@NonNull String key) {
+        Type type = new TypeToken<List<Sticker>>() {}.getType();
+        return readJson(new File(listsDir, key + ".json"), type);
+    }
+
+    public void saveStickerList(@NonNull String key, @NonNull List<Sticker> stickers) {
+        writeJson(new File(listsDir, key + ".json"), stickers);
+    }
+
+    @Nullable
+    public <T> T getObject(@NonNull String key, @NonNull Class<T> type) {
+        return readJson(new File(listsDir, key + ".json"), type);
+    }
+
+    public void saveObject(@NonNull String key, @NonNull Object value) {
+        writeJson(new File(listsDir, key + ".json"), value);
+    }
+
+    // ========== Helpers ==========
+
+    private File packDir(String packId) {
+        return new File(rootDir, packId.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+
+    /**
+     * Sticker files are named after their URL so a changed image is downloaded again
+     */
+    @Nullable
+    private File assetFile(String packId, Sticker sticker) {
+        String url = sticker.getImageUrl();
+        if (url == null || !url.startsWith("http")) {
+            return null;
+        }
+        return new File(packDir(packId), hash(url));
+    }
+
+    private void pruneAssets(StickerBundle bundle) {
+        File[] files = packDir(bundle.getPackId()).listFiles();
+        if (files == null) return;
+
+        Set<String> referenced = new HashSet<>();
+        referenced.add(MANIFEST_NAME);
+        referenced.add(CONTENT_HASH_NAME);
+        for (Sticker sticker : bundle.getStickers()) {
+            File asset = assetFile(bundle.getPackId(), sticker);
+            if (asset != null) {
+                referenced.add(asset.getName());
+            }
+        }
+        for (File file : files) {
+            if (!referenced.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private boolean download(String fileUrl, File target) {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(fileUrl).openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(15000);
+            connection.connect();
+
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                Log.w(TAG, "Sticker download failed, HTTP " + connection.getResponseCode());
+                return false;
+            }
+
+            try (InputStream input = connection.getInputStream();
+                 FileOutputStream output = new FileOutputStream(temp)) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, count);
+                }
+            }
+            return temp.renameTo(target);
+        } catch (Exception e) {
+            Log.w(TAG, "Sticker download error: " + e.getMessage());
+            return false;
+        } finally {
+            temp.delete();
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @Nullable
+    private <T> T readJson(File file, Type type) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        } catch (Exception e) {
+            Log.w(TAG, "Corrupt sticker cache file " + file.getName() + ", ignoring", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private boolean writeJson(File file, Object value) {
+        // Write to a temp file first so a crash never leaves a half-written manifest
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            gson.toJson(value, writer);
+        } catch (Exception e) {
+            Log.e(TAG, "Error writing " + file.getName(), e);
+            temp.delete();
+            return false;
+        }
+        return temp.renameTo(file);
+    }
+
+    private String contentHash(StickerBundle bundle) {
+        JsonObject json = gson.toJsonTree(bundle).getAsJsonObject();
+        json.remove("syncedAt");
+        return hash(json.toString());
+    }
+
+    @Nullable
+    private String readText(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[256];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, count);
+            }
+            return sb.toString().trim();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void writeText(File file, String value) {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            writer.write(value);
+        } catch (Exception e) {
+            Log.e(TAG, "Error writing " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+        temp.renameTo(file);
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : bytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return String.valueOf(value.hashCode());
+        }
+    }
+}
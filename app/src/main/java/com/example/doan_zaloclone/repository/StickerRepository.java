@@ -2,6 +2,8 @@ package com.example.doan_zaloclone.repository;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -10,27 +12,32 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.doan_zaloclone.models.Sticker;
+import com.example.doan_zaloclone.models.StickerBundle;
 import com.example.doan_zaloclone.models.StickerPack;
+import com.example.doan_zaloclone.utils.FileUtils;
 import com.example.doan_zaloclone.utils.Resource;
+import com.example.doan_zaloclone.utils.UriRequestBody;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -60,12 +67,38 @@ public class StickerRepository {
     private static final String COLLECTION_SAVED_PACKS = "savedStickerPacks";
     private static final String COLLECTION_RECENT_STICKERS = "recentStickers";
     private static final String COLLECTION_USERS = "users";
+
+    // Offline bundles
+    private static final String BUNDLE_URL_FORMAT = VPS_BASE_URL + "/api/stickers/packs/%s/bundle?since=%d";
+    private static final long BUNDLE_SYNC_INTERVAL_MS = 10 * 60 * 1000; // 10 minutes
+    private static final int WHERE_IN_LIMIT = 10; // Firestore whereIn accepts at most 10 values
+    private static final int RECENT_LIMIT = 20;
+    private static final String LIST_OFFICIAL = "official";
+    private static final String LIST_SAVED_PREFIX = "saved_";
+    private static final String LIST_RECENT_PREFIX = "recent_";
+    private static final String KEY_SEARCH_INDEX = "search_index";
+    private static final int SEARCH_LIMIT = 60;
+
     // Singleton instance
     private static StickerRepository instance;
     private final FirebaseFirestore db;
     private final FirebaseAuth auth;
     private final OkHttpClient httpClient;
     private final ExecutorService uploadExecutor;
+    // Disk reads/writes are sequential and never wait behind network syncs
+    private final ExecutorService diskExecutor;
+    private final ExecutorService syncExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+    // Pack ID -> LiveData waiting for the sync already in progress
+    private final Map<String, List<MutableLiveData<Resource<List<Sticker>>>>> pendingSyncs = new HashMap<>();
+    private StickerBundleStore bundleStore;
+    // Local search index, swapped atomically when bundles change
+    private volatile StickerSearchIndex searchIndex;
+    private volatile boolean searchIndexDirty = true;
+    private volatile List<Sticker> recentForRanking = new ArrayList<>();
+    private final AtomicBoolean searchIndexBuilding = new AtomicBoolean(false);
+    private final List<Runnable> searchIndexCallbacks = new ArrayList<>();
 
     private StickerRepository() {
         this.db = FirebaseFirestore.getInstance();
@@ -73,6 +106,8 @@ public class StickerRepository {
         this.httpClient = new OkHttpClient();
         // Single thread executor ensures tasks are executed sequentially (Queue)
         this.uploadExecutor = Executors.newSingleThreadExecutor();
+        this.diskExecutor = Executors.newSingleThreadExecutor();
+        this.syncExecutor = Executors.newFixedThreadPool(2);
     }
 
     public static synchronized StickerRepository getInstance() {
@@ -82,40 +117,42 @@ public class StickerRepository {
         return instance;
     }
 
+    /**
+     * Enable offline sticker bundles (called once from the Application)
+     */
+    public void init(@NonNull Context context) {
+        if (bundleStore == null) {
+            bundleStore = StickerBundleStore.getInstance(context);
+        }
+    }
+
     // ========== Sticker Pack Operations ==========
 
     /**
      * Get all official sticker packs
+     * Emits the cached list from disk first, then the fresh list (one-shot, no snapshot listener)
      */
     public LiveData<Resource<List<StickerPack>>> getOfficialPacks() {
         MutableLiveData<Resource<List<StickerPack>>> result = new MutableLiveData<>();
         result.setValue(Resource.loading());
 
+        AtomicBoolean fresh = new AtomicBoolean(false);
+        emitCached(result, fresh, () -> bundleStore.getPackList(LIST_OFFICIAL));
+
         db.collection(COLLECTION_STICKER_PACKS)
                 .whereEqualTo("type", StickerPack.TYPE_OFFICIAL)
                 .whereEqualTo("isPublished", true)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        if (error != null) {
-                            Log.e(TAG, "Error getting official packs", error);
-                            result.setValue(Resource.error("Không thể tải sticker packs: " + error.getMessage()));
-                            return;
-                        }
-
-                        if (value != null) {
-                            List<StickerPack> packs = new ArrayList<>();
-                            for (DocumentSnapshot doc : value.getDocuments()) {
-                                StickerPack pack = doc.toObject(StickerPack.class);
-                                if (pack != null) {
-                                    pack.setId(doc.getId());  // Set document ID
-                                    packs.add(pack);
-                                }
-                            }
-                            result.setValue(Resource.success(packs));
-                        }
-                    }
+                .get()
+                .addOnSuccessListener(value -> {
+                    List<StickerPack> packs = toPacks(value.getDocuments());
+                    fresh.set(true);
+                    result.setValue(Resource.success(packs));
+                    saveCached(() -> bundleStore.savePackList(LIST_OFFICIAL, packs));
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting official packs", e);
+                    setErrorUnlessCached(result, "Không thể tải sticker packs: " + e.getMessage());
                 });
 
         return result;
@@ -123,56 +160,47 @@ public class StickerRepository {
 
     /**
      * Get user's saved sticker packs
+     * Emits the cached list from disk first, then the fresh list (one-shot, no snapshot listener)
      */
     public LiveData<Resource<List<StickerPack>>> getUserSavedPacks(@NonNull String userId) {
         MutableLiveData<Resource<List<StickerPack>>> result = new MutableLiveData<>();
         result.setValue(Resource.loading());
 
+        String listKey = LIST_SAVED_PREFIX + userId;
+        AtomicBoolean fresh = new AtomicBoolean(false);
+        emitCached(result, fresh, () -> bundleStore.getPackList(listKey));
+
         db.collection(COLLECTION_USERS)
                 .document(userId)
                 .collection(COLLECTION_SAVED_PACKS)
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot savedPacksSnapshot, @Nullable FirebaseFirestoreException error) {
-                        if (error != null) {
-                            Log.e(TAG, "Error getting user saved packs", error);
-                            result.setValue(Resource.error("Không thể tải saved packs: " + error.getMessage()));
-                            return;
-                        }
-
-                        if (savedPacksSnapshot != null) {
-                            List<String> packIds = new ArrayList<>();
-                            for (DocumentSnapshot doc : savedPacksSnapshot.getDocuments()) {
-                                packIds.add(doc.getId());
-                            }
-
-                            if (packIds.isEmpty()) {
-                                result.setValue(Resource.success(new ArrayList<>()));
-                                return;
-                            }
+                .get()
+                .addOnSuccessListener(savedPacksSnapshot -> {
+                    List<String> packIds = new ArrayList<>();
+                    for (DocumentSnapshot doc : savedPacksSnapshot.getDocuments()) {
+                        packIds.add(doc.getId());
+                    }
 
-                            // Fetch pack details using document IDs
-                            // Note: This internal fetch is still one-time, but triggered whenever the saved list changes
-                            db.collection(COLLECTION_STICKER_PACKS)
-                                    .whereIn(com.google.firebase.firestore.FieldPath.documentId(), packIds)
-                                    .get()
-                                    .addOnSuccessListener(packsSnapshot -> {
-                                        List<StickerPack> packs = new ArrayList<>();
-                                        for (DocumentSnapshot doc : packsSnapshot.getDocuments()) {
-                                            StickerPack pack = doc.toObject(StickerPack.class);
-                                            if (pack != null) {
-                                                pack.setId(doc.getId());
-                                                packs.add(pack);
-                                            }
-                                        }
-                                        result.setValue(Resource.success(packs));
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        Log.e(TAG, "Error fetching pack details", e);
-                                        result.setValue(Resource.error("Lỗi tải pack details: " + e.getMessage()));
-                                    });
-                        }
+                    if (packIds.isEmpty()) {
+                        fresh.set(true);
+                        result.setValue(Resource.success(new ArrayList<>()));
+                        saveCached(() -> bundleStore.savePackList(listKey, new ArrayList<>()));
+                        return;
                     }
+
+                    fetchPacksByIds(packIds)
+                            .addOnSuccessListener(packs -> {
+                                fresh.set(true);
+                                result.setValue(Resource.success(packs));
+                                saveCached(() -> bundleStore.savePackList(listKey, packs));
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error fetching pack details", e);
+                                setErrorUnlessCached(result, "Lỗi tải pack details: " + e.getMessage());
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting user saved packs", e);
+                    setErrorUnlessCached(result, "Không thể tải saved packs: " + e.getMessage());
                 });
 
         return result;
@@ -180,53 +208,24 @@ public class StickerRepository {
 
     /**
      * Get stickers in a pack
+     * Served from the offline bundle when present; the bundle is delta-synced in the
+     * background when it is older than BUNDLE_SYNC_INTERVAL_MS or was invalidated
      */
     public LiveData<Resource<List<Sticker>>> getStickersInPack(@NonNull String packId) {
         MutableLiveData<Resource<List<Sticker>>> result = new MutableLiveData<>();
         result.setValue(Resource.loading());
 
-        db.collection(COLLECTION_STICKER_PACKS)
-                .document(packId)
-                .collection(COLLECTION_STICKERS)
-                .orderBy("createdAt", Query.Direction.ASCENDING)
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        if (error != null) {
-                            Log.e(TAG, "Error getting stickers in pack", error);
-                            result.setValue(Resource.error("Không thể tải stickers: " + error.getMessage()));
-                            return;
-                        }
-
-                        if (value != null) {
-                            List<Sticker> stickers = new ArrayList<>();
-                            for (DocumentSnapshot doc : value.getDocuments()) {
-                                Sticker sticker = doc.toObject(Sticker.class);
-                                if (sticker != null) {
-                                    sticker.setId(doc.getId());
-                                    sticker.setPackId(packId);
-
-                                    // Fallback: if imageUrl is null, try 'url' field (old data format)
-                                    if (sticker.getImageUrl() == null || sticker.getImageUrl().isEmpty()) {
-                                        String urlFallback = doc.getString("url");
-                                        if (urlFallback != null && !urlFallback.isEmpty()) {
-                                            sticker.setImageUrl(urlFallback);
-                                            Log.d(TAG, "Using fallback 'url' field: " + urlFallback);
-                                        }
-                                    }
-
-                                    // Filter out invalid stickers (must have ID and URL)
-                                    if (sticker.getId() != null && sticker.getImageUrl() != null && !sticker.getImageUrl().isEmpty()) {
-                                        stickers.add(sticker);
-                                    } else {
-                                        Log.w(TAG, "Skipping invalid sticker in pack: ID=" + sticker.getId() + ", URL=" + sticker.getImageUrl());
-                                    }
-                                }
-                            }
-                            result.setValue(Resource.success(stickers));
-                        }
-                    }
-                });
+        diskExecutor.execute(() -> {
+            StickerBundle local = bundleStore != null ? bundleStore.getBundle(packId) : null;
+            if (local != null) {
+                List<Sticker> cached = new ArrayList<>(local.getStickers());
+                mainHandler.post(() -> result.setValue(Resource.success(cached)));
+                if (System.currentTimeMillis() - local.getSyncedAt() < BUNDLE_SYNC_INTERVAL_MS) {
+                    return;
+                }
+            }
+            requestBundleSync(packId, local, result);
+        });
 
         return result;
     }
@@ -264,47 +263,49 @@ public class StickerRepository {
 
     /**
      * Get recently used stickers
+     * Emits the cached list from disk first, then the fresh list (one-shot, no snapshot listener)
      */
     public LiveData<Resource<List<Sticker>>> getRecentStickers(@NonNull String userId) {
         MutableLiveData<Resource<List<Sticker>>> result = new MutableLiveData<>();
         result.setValue(Resource.loading());
 
+        String listKey = LIST_RECENT_PREFIX + userId;
+        AtomicBoolean fresh = new AtomicBoolean(false);
+        emitCached(result, fresh, () -> bundleStore.getStickerList(listKey));
+
         db.collection(COLLECTION_USERS)
                 .document(userId)
                 .collection(COLLECTION_RECENT_STICKERS)
                 .orderBy("lastUsedAt", Query.Direction.DESCENDING)
-                .limit(20)
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        if (error != null) {
-                            Log.e(TAG, "Error getting recent stickers", error);
-                            result.setValue(Resource.error("Lỗi tải recent stickers: " + error.getMessage()));
-                            return;
-                        }
-
-                        if (value != null) {
-                            List<Sticker> stickers = new ArrayList<>();
-                            for (DocumentSnapshot doc : value.getDocuments()) {
-                                Sticker sticker = doc.toObject(Sticker.class);
-                                if (sticker != null) {
-                                    sticker.setId(doc.getId());
-
-                                    if (sticker.getImageUrl() == null || sticker.getImageUrl().isEmpty()) {
-                                        String urlFallback = doc.getString("url");
-                                        if (urlFallback != null && !urlFallback.isEmpty()) {
-                                            sticker.setImageUrl(urlFallback);
-                                        }
-                                    }
-
-                                    if (sticker.getId() != null && sticker.getImageUrl() != null && !sticker.getImageUrl().isEmpty()) {
-                                        stickers.add(sticker);
-                                    }
+                .limit(RECENT_LIMIT)
+                .get()
+                .addOnSuccessListener(value -> {
+                    List<Sticker> stickers = new ArrayList<>();
+                    for (DocumentSnapshot doc : value.getDocuments()) {
+                        Sticker sticker = doc.toObject(Sticker.class);
+                        if (sticker != null) {
+                            sticker.setId(doc.getId());
+
+                            if (sticker.getImageUrl() == null || sticker.getImageUrl().isEmpty()) {
+                                String urlFallback = doc.getString("url");
+                                if (urlFallback != null && !urlFallback.isEmpty()) {
+                                    sticker.setImageUrl(urlFallback);
                                 }
                             }
-                            result.setValue(Resource.success(stickers));
+
+                            if (sticker.getId() != null && sticker.getImageUrl() != null && !sticker.getImageUrl().isEmpty()) {
+                                stickers.add(sticker);
+                            }
                         }
                     }
+                    fresh.set(true);
+                    result.setValue(Resource.success(stickers));
+                    updateRecentRanking(stickers);
+                    saveCached(() -> bundleStore.saveStickerList(listKey, stickers));
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting recent stickers", e);
+                    setErrorUnlessCached(result, "Lỗi tải recent stickers: " + e.getMessage());
                 });
 
         return result;
@@ -336,20 +337,133 @@ public class StickerRepository {
                 .document(stickerId)
                 .set(data)
                 .addOnFailureListener(e -> Log.e(TAG, "Error adding to recent stickers", e));
+
+        // Keep the offline recent list in step so the next picker opens with it
+        String usedId = stickerId;
+        saveCached(() -> {
+            String listKey = LIST_RECENT_PREFIX + userId;
+            List<Sticker> recent = bundleStore.getStickerList(listKey);
+            List<Sticker> updated = new ArrayList<>();
+            updated.add(sticker);
+            if (recent != null) {
+                for (Sticker s : recent) {
+                    if (updated.size() >= RECENT_LIMIT) break;
+                    if (!usedId.equals(s.getId())) {
+                        updated.add(s);
+                    }
+                }
+            }
+            bundleStore.saveStickerList(listKey, updated);
+            updateRecentRanking(updated);
+        });
     }
 
+
     /**
-     * Search stickers by tag
+     * Search stickers by pack name, tag and creator
+     * Runs against the local index, so it works offline and never calls the server
      */
     public LiveData<Resource<List<Sticker>>> searchStickers(@NonNull String query) {
         MutableLiveData<Resource<List<Sticker>>> result = new MutableLiveData<>();
+        if (searchIndex != null) {
+            result.setValue(Resource.success(searchStickersNow(query)));
+            return result;
+        }
+
         result.setValue(Resource.loading());
+        warmSearchIndex(() -> result.setValue(Resource.success(searchStickersNow(query))));
+        return result;
+    }
 
-        // TODO: Implement search across all sticker packs
-        // For now, return empty list
-        result.setValue(Resource.success(new ArrayList<>()));
+    /**
+     * Search the local index synchronously (safe per keystroke on the main thread)
+     * Prefix and typo-tolerant matching, ranked by recent sticker usage.
+     *
+     * @return Matches, or an empty list while the index is still being built
+     */
+    @NonNull
+    public List<Sticker> searchStickersNow(@NonNull String query) {
+        StickerSearchIndex index = searchIndex;
+        if (index == null || searchIndexDirty) {
+            // Rebuild in the background; the previous index keeps answering meanwhile
+            warmSearchIndex(null);
+        }
+        if (index == null) {
+            return new ArrayList<>();
+        }
+        return index.search(query, SEARCH_LIMIT);
+    }
 
-        return result;
+    /**
+     * Load (or rebuild) the search index from the offline bundles
+     *
+     * @param onReady Called on the main thread once the index is usable, may be null
+     */
+    public void warmSearchIndex(@Nullable Runnable onReady) {
+        if (searchIndex != null && !searchIndexDirty) {
+            if (onReady != null) onReady.run();
+            return;
+        }
+        if (bundleStore == null) return;
+
+        synchronized (searchIndexCallbacks) {
+            if (onReady != null) {
+                searchIndexCallbacks.add(onReady);
+            }
+        }
+        if (!searchIndexBuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        diskExecutor.execute(() -> {
+            // Cleared first so a bundle saved while building marks the index dirty again
+            searchIndexDirty = false;
+            String fingerprint = bundleStore.getBundlesFingerprint();
+            StickerSearchIndex index = bundleStore.getObject(KEY_SEARCH_INDEX, StickerSearchIndex.class);
+            if (index == null || !fingerprint.equals(index.getFingerprint())) {
+                List<StickerBundle> bundles = new ArrayList<>();
+                for (String packId : bundleStore.listBundleIds()) {
+                    StickerBundle bundle = bundleStore.getBundle(packId);
+                    if (bundle != null) {
+                        bundles.add(bundle);
+                    }
+                }
+                index = StickerSearchIndex.build(bundles, fingerprint);
+                bundleStore.saveObject(KEY_SEARCH_INDEX, index);
+                Log.d(TAG, "Sticker search index rebuilt: " + index.size() + " stickers");
+            }
+
+            if (recentForRanking.isEmpty() && auth.getCurrentUser() != null) {
+                List<Sticker> recent = bundleStore.getStickerList(LIST_RECENT_PREFIX + auth.getCurrentUser().getUid());
+                if (recent != null) {
+                    recentForRanking = recent;
+                }
+            }
+            index.setRecentStickers(recentForRanking);
+            searchIndex = index;
+            searchIndexBuilding.set(false);
+
+            List<Runnable> callbacks;
+            synchronized (searchIndexCallbacks) {
+                callbacks = new ArrayList<>(searchIndexCallbacks);
+                searchIndexCallbacks.clear();
+            }
+            if (!callbacks.isEmpty()) {
+                mainHandler.post(() -> {
+                    for (Runnable callback : callbacks) {
+                        callback.run();
+                    }
+                });
+            }
+        });
+    }
+
+    private void updateRecentRanking(List<Sticker> recent) {
+        recentForRanking = new ArrayList<>(recent);
+        StickerSearchIndex index = searchIndex;
+        if (index != null) {
+            index.setRecentStickers(recentForRanking);
+        }
     }
 
     // ========== Custom Sticker Upload ==========
@@ -365,16 +479,12 @@ public class StickerRepository {
 
         uploadExecutor.execute(() -> {
             try {
-                File imageFile = uriToFile(imageUri, context);
-                if (imageFile == null) {
-                    result.postValue(Resource.error("Không thể đọc file ảnh"));
-                    return;
-                }
-
+                // Streamed from the content resolver, no temp copy
                 RequestBody requestBody = new MultipartBody.Builder()
                         .setType(MultipartBody.FORM)
-                        .addFormDataPart("sticker", imageFile.getName(),
-                                RequestBody.create(imageFile, MediaType.parse("image/*")))
+                        .addFormDataPart("sticker", "temp_sticker_" + System.currentTimeMillis() + ".jpg",
+                                new UriRequestBody(context.getContentResolver(), imageUri,
+                                        MediaType.parse("image/*"), null))
                         .addFormDataPart("userId", userId)
                         .build();
 
@@ -584,33 +694,298 @@ public class StickerRepository {
         return result;
     }
 
-    // ========== Helper Methods ==========
+    // ========== Offline Bundle Sync ==========
+
+    /**
+     * Mark a pack bundle as stale so the next getStickersInPack() syncs it
+     */
+    public void invalidatePackBundle(@NonNull String packId) {
+        if (bundleStore == null) return;
+        diskExecutor.execute(() -> bundleStore.invalidate(packId));
+    }
+
+    /**
+     * Sync a pack bundle, joining a sync of the same pack that is already running
+     */
+    private void requestBundleSync(String packId, @Nullable StickerBundle local,
+                                   MutableLiveData<Resource<List<Sticker>>> result) {
+        synchronized (pendingSyncs) {
+            List<MutableLiveData<Resource<List<Sticker>>>> waiting = pendingSyncs.get(packId);
+            if (waiting != null) {
+                waiting.add(result);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(result);
+            pendingSyncs.put(packId, waiting);
+        }
+
+        syncExecutor.execute(() -> {
+            StickerBundle synced = syncBundle(packId, local);
+            List<MutableLiveData<Resource<List<Sticker>>>> waiting;
+            synchronized (pendingSyncs) {
+                waiting = pendingSyncs.remove(packId);
+            }
+            mainHandler.post(() -> {
+                for (MutableLiveData<Resource<List<Sticker>>> target : waiting) {
+                    if (synced != null) {
+                        target.setValue(Resource.success(new ArrayList<>(synced.getStickers())));
+                    } else {
+                        setErrorUnlessCached(target, "Không thể tải stickers");
+                    }
+                }
+            });
+        });
+    }
 
-    private File uriToFile(Uri uri, Context context) {
+    /**
+     * Bring a pack bundle up to date (runs on the sync executor)
+     * Asks the server for a delta since the local version; falls back to a full
+     * Firestore read when the bundle endpoint is unavailable.
+     *
+     * @return Synced bundle, or null if the pack could not be fetched at all
+     */
+    @Nullable
+    private StickerBundle syncBundle(String packId, @Nullable StickerBundle local) {
+        StickerBundle synced;
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-            if (inputStream == null) return null;
+            synced = fetchBundleFromServer(packId, local);
+        } catch (Exception e) {
+            Log.w(TAG, "Bundle endpoint unavailable, reading pack from Firestore: " + e.getMessage());
+            synced = fetchBundleFromFirestore(packId);
+        }
+        if (synced == null) {
+            return null;
+        }
+
+        synced.setSyncedAt(System.currentTimeMillis());
+        if (bundleStore != null) {
+            // Only stickers without a local file are downloaded
+            bundleStore.downloadAssets(synced);
+            if (bundleStore.saveBundle(synced)) {
+                searchIndexDirty = true;
+            }
+        }
+        return synced;
+    }
+
+    private StickerBundle fetchBundleFromServer(String packId, @Nullable StickerBundle local) throws IOException {
+        long since = local != null ? local.getVersion() : 0;
+        BundleResponse body = requestBundle(packId, since);
 
-            File tempFile = new File(context.getCacheDir(), "temp_sticker_" + System.currentTimeMillis() + ".jpg");
-            FileOutputStream outputStream = new FileOutputStream(tempFile);
+        if (body.unchanged && local != null) {
+            return local;
+        }
+
+        Map<String, Sticker> byId = new HashMap<>();
+        if (!body.full && local != null) {
+            for (Sticker sticker : local.getStickers()) {
+                byId.put(sticker.getId(), sticker);
+            }
+        }
+        if (body.stickers != null) {
+            for (JsonObject json : body.stickers) {
+                Sticker sticker = gson.fromJson(json, Sticker.class);
+                if (sticker == null) continue;
+                sticker.setPackId(packId);
+                if ((sticker.getImageUrl() == null || sticker.getImageUrl().isEmpty()) && json.has("url")) {
+                    // Old data format stored the image in 'url'
+                    sticker.setImageUrl(json.get("url").getAsString());
+                }
+                if (sticker.getId() != null && sticker.getImageUrl() != null && !sticker.getImageUrl().isEmpty()) {
+                    byId.put(sticker.getId(), sticker);
+                }
+            }
+        }
 
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+        List<Sticker> merged = new ArrayList<>();
+        if (body.stickerIds != null) {
+            // stickerIds is the full, ordered membership: drops deleted stickers
+            for (String id : body.stickerIds) {
+                Sticker sticker = byId.get(id);
+                if (sticker != null) {
+                    merged.add(sticker);
+                } else if (!body.full && id != null) {
+                    // A sticker slipped past the delta (e.g. device clock skew) - take a full copy
+                    return fetchBundleFromServer(packId, null);
+                }
             }
+        } else {
+            merged.addAll(byId.values());
+        }
 
-            outputStream.close();
-            inputStream.close();
+        StickerBundle bundle = new StickerBundle(packId);
+        bundle.setVersion(body.version);
+        bundle.setPack(body.pack != null ? body.pack : (local != null ? local.getPack() : null));
+        bundle.setStickers(merged);
+        return bundle;
+    }
 
-            return tempFile;
+    private BundleResponse requestBundle(String packId, long since) throws IOException {
+        Request request = new Request.Builder()
+                .url(String.format(Locale.US, BUNDLE_URL_FORMAT, packId, since))
+                .get()
+                .build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            BundleResponse body = gson.fromJson(response.body().charStream(), BundleResponse.class);
+            if (body == null) {
+                throw new IOException("Empty bundle response");
+            }
+            return body;
+        } catch (RuntimeException e) {
+            // Gson reports malformed payloads as runtime exceptions
+            throw new IOException(e.getMessage(), e);
+        }
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error converting URI to File", e);
+    @Nullable
+    private StickerBundle fetchBundleFromFirestore(String packId) {
+        try {
+            DocumentSnapshot packDoc = Tasks.await(db.collection(COLLECTION_STICKER_PACKS)
+                    .document(packId)
+                    .get());
+            QuerySnapshot stickersSnapshot = Tasks.await(db.collection(COLLECTION_STICKER_PACKS)
+                    .document(packId)
+                    .collection(COLLECTION_STICKERS)
+                    .orderBy("createdAt", Query.Direction.ASCENDING)
+                    .get());
+
+            StickerPack pack = packDoc.toObject(StickerPack.class);
+            StickerBundle bundle = new StickerBundle(packId);
+            if (pack != null) {
+                pack.setId(packDoc.getId());
+                // Same field the server uses as the pack version
+                bundle.setVersion(pack.getUpdatedAt() > 0 ? pack.getUpdatedAt() : pack.getCreatedAt());
+            }
+            bundle.setPack(pack);
+            bundle.setStickers(parseStickers(stickersSnapshot.getDocuments(), packId));
+            return bundle;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting stickers in pack", e);
             return null;
         }
     }
 
+    /**
+     * Fetch pack documents by ID in chunks, since whereIn is limited to 10 values per query
+     */
+    private Task<List<StickerPack>> fetchPacksByIds(List<String> packIds) {
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int i = 0; i < packIds.size(); i += WHERE_IN_LIMIT) {
+            List<String> chunk = new ArrayList<>(packIds.subList(i, Math.min(i + WHERE_IN_LIMIT, packIds.size())));
+            chunks.add(db.collection(COLLECTION_STICKER_PACKS)
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get());
+        }
+
+        return Tasks.<QuerySnapshot>whenAllSuccess(chunks).continueWith(task -> {
+            Map<String, StickerPack> byId = new HashMap<>();
+            for (QuerySnapshot snapshot : task.getResult()) {
+                for (StickerPack pack : toPacks(snapshot.getDocuments())) {
+                    byId.put(pack.getId(), pack);
+                }
+            }
+            // Keep the saved order
+            List<StickerPack> packs = new ArrayList<>();
+            for (String packId : packIds) {
+                StickerPack pack = byId.get(packId);
+                if (pack != null) {
+                    packs.add(pack);
+                }
+            }
+            return packs;
+        });
+    }
+
+    private List<StickerPack> toPacks(List<DocumentSnapshot> documents) {
+        List<StickerPack> packs = new ArrayList<>();
+        for (DocumentSnapshot doc : documents) {
+            StickerPack pack = doc.toObject(StickerPack.class);
+            if (pack != null) {
+                pack.setId(doc.getId());  // Set document ID
+                packs.add(pack);
+            }
+        }
+        return packs;
+    }
+
+    private List<Sticker> parseStickers(List<DocumentSnapshot> documents, String packId) {
+        List<Sticker> stickers = new ArrayList<>();
+        for (DocumentSnapshot doc : documents) {
+            Sticker sticker = doc.toObject(Sticker.class);
+            if (sticker != null) {
+                sticker.setId(doc.getId());
+                sticker.setPackId(packId);
+
+                // Fallback: if imageUrl is null, try 'url' field (old data format)
+                if (sticker.getImageUrl() == null || sticker.getImageUrl().isEmpty()) {
+                    String urlFallback = doc.getString("url");
+                    if (urlFallback != null && !urlFallback.isEmpty()) {
+                        sticker.setImageUrl(urlFallback);
+                    }
+                }
+
+                // Filter out invalid stickers (must have ID and URL)
+                if (sticker.getId() != null && sticker.getImageUrl() != null && !sticker.getImageUrl().isEmpty()) {
+                    stickers.add(sticker);
+                } else {
+                    Log.w(TAG, "Skipping invalid sticker in pack: ID=" + sticker.getId() + ", URL=" + sticker.getImageUrl());
+                }
+            }
+        }
+        return stickers;
+    }
+
+    /**
+     * Post a disk-cached value unless fresh data already arrived
+     */
+    private <T> void emitCached(MutableLiveData<Resource<T>> result, AtomicBoolean fresh, Supplier<T> reader) {
+        if (bundleStore == null) return;
+        diskExecutor.execute(() -> {
+            T cached = reader.get();
+            if (cached == null) return;
+            mainHandler.post(() -> {
+                if (!fresh.get()) {
+                    result.setValue(Resource.success(cached));
+                }
+            });
+        });
+    }
+
+    private void saveCached(Runnable write) {
+        if (bundleStore == null) return;
+        diskExecutor.execute(write);
+    }
+
+    /**
+     * Report an error only if nothing usable is shown yet (offline with a cached copy is fine)
+     */
+    private <T> void setErrorUnlessCached(MutableLiveData<Resource<T>> result, String message) {
+        Resource<T> current = result.getValue();
+        if (current != null && current.isSuccess()) {
+            Log.w(TAG, message + " (showing cached data)");
+            return;
+        }
+        result.setValue(Resource.error(message));
+    }
+
+    /**
+     * Bundle manifest returned by GET /api/stickers/packs/{packId}/bundle
+     */
+    private static class BundleResponse {
+        long version;
+        boolean unchanged;
+        boolean full;
+        StickerPack pack;
+        List<JsonObject> stickers;
+        List<String> stickerIds;
+    }
+
+    // ========== Helper Methods ==========
+
     private String generateStickerId() {
         return db.collection(COLLECTION_STICKER_PACKS).document().getId();
     }
@@ -633,27 +1008,28 @@ public class StickerRepository {
                 Log.d(TAG, "userId: " + userId);
                 Log.d(TAG, "Upload URL: " + VPS_UPLOAD_URL);
                 
-                // Convert URI to File using content resolver (handles content:// URIs properly)
-                File imageFile = uriToFile(imageUri, context);
-                
-                if (imageFile == null) {
-                    Log.e(TAG, "Failed to convert URI to file");
-                    callback.onError("Không thể đọc file ảnh");
-                    return;
-                }
-                
-                Log.d(TAG, "File created: " + imageFile.getAbsolutePath());
-                Log.d(TAG, "File size: " + imageFile.length() + " bytes");
-                Log.d(TAG, "File exists: " + imageFile.exists());
-
                 // Detect MIME type from file extension
                 String mimeType = getMimeType(fileName);
                 Log.d(TAG, "MIME type: " + mimeType);
 
+                // Stream straight from the content resolver (no temp copy); the request body
+                // reports real progress, the last 5% is left for the server's response
+                long totalBytes = FileUtils.getFileSize(context, imageUri);
+                Log.d(TAG, "File size: " + totalBytes + " bytes");
+                int[] lastPercent = {-1};
+                UriRequestBody fileBody = new UriRequestBody(context.getContentResolver(), imageUri,
+                        MediaType.parse(mimeType), written -> {
+                    if (totalBytes <= 0) return;
+                    int percent = (int) Math.min(95, written * 95 / totalBytes);
+                    if (percent != lastPercent[0]) {
+                        lastPercent[0] = percent;
+                        callback.onProgress(percent);
+                    }
+                });
+
                 RequestBody requestBody = new MultipartBody.Builder()
                         .setType(MultipartBody.FORM)
-                        .addFormDataPart("sticker", fileName,
-                                RequestBody.create(imageFile, MediaType.parse(mimeType)))
+                        .addFormDataPart("sticker", fileName, fileBody)
                         .addFormDataPart("userId", userId)
                         .build();
 
@@ -663,7 +1039,6 @@ public class StickerRepository {
                         .build();
 
                 Log.d(TAG, "Sending request to server...");
-                callback.onProgress(50); // Simulated progress
 
                 Response response = httpClient.newCall(request).execute();
                 
@@ -808,7 +1183,10 @@ public class StickerRepository {
                             .document(packId)
                             .update("stickerCount", com.google.firebase.firestore.FieldValue.increment(1),
                                     "updatedAt", System.currentTimeMillis())
-                            .addOnSuccessListener(v -> onSuccess.run())
+                            .addOnSuccessListener(v -> {
+                                invalidatePackBundle(packId);
+                                onSuccess.run();
+                            })
                             .addOnFailureListener(e -> Log.e(TAG, "Error updating count", e));
                 })
                 .addOnFailureListener(e -> Log.e(TAG, "Error adding sticker to pack", e));
@@ -831,9 +1209,13 @@ public class StickerRepository {
                             .document(packId)
                             .update("stickerCount", com.google.firebase.firestore.FieldValue.increment(-1),
                                     "updatedAt", System.currentTimeMillis())
-                            .addOnSuccessListener(v -> onSuccess.run())
+                            .addOnSuccessListener(v -> {
+                                invalidatePackBundle(packId);
+                                onSuccess.run();
+                            })
                             .addOnFailureListener(e -> {
                                 Log.e(TAG, "Error updating count", e);
+                                invalidatePackBundle(packId);
                                 onSuccess.run(); // Still call success as sticker was deleted
                             });
                 })
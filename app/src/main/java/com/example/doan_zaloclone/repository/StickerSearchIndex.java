@@ -0,0 +1,288 @@
+package com.example.doan_zaloclone.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.doan_zaloclone.models.Sticker;
+import com.example.doan_zaloclone.models.StickerBundle;
+import com.example.doan_zaloclone.models.StickerPack;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory sticker search index built from the offline pack bundles
+ * Terms come from pack names, sticker tags and the pack creator. Terms are kept sorted
+ * so prefix lookups are a binary search; typos are matched with a bounded edit distance.
+ * Results are ranked by match quality and the user's recent sticker usage.
+ * The index is immutable once built and serialized with Gson next to the bundles.
+ */
+public class StickerSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    // Match quality per query token
+    private static final float SCORE_EXACT = 3f;
+    private static final float SCORE_PREFIX = 2f;
+    private static final float SCORE_FUZZY = 1f;
+    // Usage boosts
+    private static final float BOOST_RECENT_STICKER = 2f;
+    private static final float BOOST_RECENT_PACK = 0.5f;
+    // Typos are only tolerated on tokens at least this long
+    private static final int FUZZY_MIN_LENGTH = 3;
+
+    private String fingerprint;
+    private List<Sticker> stickers = new ArrayList<>();
+    private String[] terms = new String[0];
+    private int[][] postings = new int[0][];
+
+    // Recent usage is applied at query time and never persisted
+    private transient volatile Map<String, Integer> recentRank = Collections.emptyMap();
+    private transient volatile Set<String> recentPackIds = Collections.emptySet();
+
+    // Empty constructor for Gson
+    public StickerSearchIndex() {
+    }
+
+    /**
+     * Build an index from the downloaded pack bundles
+     *
+     * @param fingerprint Identifies the bundle set, used to reuse a stored index
+     */
+    public static StickerSearchIndex build(@NonNull List<StickerBundle> bundles, String fingerprint) {
+        StickerSearchIndex index = new StickerSearchIndex();
+        index.fingerprint = fingerprint;
+
+        Set<String> seenStickers = new HashSet<>();
+        TreeMap<String, List<Integer>> termMap = new TreeMap<>();
+        for (StickerBundle bundle : bundles) {
+            StickerPack pack = bundle.getPack();
+            Set<String> packTerms = new LinkedHashSet<>();
+            if (pack != null) {
+                addTokens(packTerms, pack.getName());
+                addTokens(packTerms, pack.getCreatorName());
+            }
+
+            for (Sticker sticker : bundle.getStickers()) {
+                if (sticker.getId() == null || !seenStickers.add(sticker.getId())) continue;
+
+                Set<String> stickerTerms = new LinkedHashSet<>(packTerms);
+                if (sticker.getTags() != null) {
+                    for (String tag : sticker.getTags()) {
+                        addTokens(stickerTerms, tag);
+                    }
+                }
+                if (stickerTerms.isEmpty()) continue;
+
+                int position = index.stickers.size();
+                index.stickers.add(sticker);
+                for (String term : stickerTerms) {
+                    List<Integer> list = termMap.get(term);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        termMap.put(term, list);
+                    }
+                    list.add(position);
+                }
+            }
+        }
+
+        index.terms = new String[termMap.size()];
+        index.postings = new int[termMap.size()][];
+        int i = 0;
+        for (Map.Entry<String, List<Integer>> entry : termMap.entrySet()) {
+            index.terms[i] = entry.getKey();
+            List<Integer> list = entry.getValue();
+            int[] ids = new int[list.size()];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = list.get(j);
+            }
+            index.postings[i] = ids;
+            i++;
+        }
+        return index;
+    }
+
+    /**
+     * Update the recent stickers used for ranking (most recent first)
+     */
+    public void setRecentStickers(List<Sticker> recent) {
+        Map<String, Integer> rank = new HashMap<>();
+        Set<String> packs = new HashSet<>();
+        if (recent != null) {
+            for (int i = 0; i < recent.size(); i++) {
+                Sticker sticker = recent.get(i);
+                if (sticker.getId() != null && !rank.containsKey(sticker.getId())) {
+                    rank.put(sticker.getId(), i);
+                }
+                if (sticker.getPackId() != null) {
+                    packs.add(sticker.getPackId());
+                }
+            }
+        }
+        recentRank = rank;
+        recentPackIds = packs;
+    }
+
+    /**
+     * Search stickers; every query word must match (by prefix or with a small typo)
+     *
+     * @param limit Maximum number of results
+     */
+    public List<Sticker> search(String query, int limit) {
+        List<Sticker> results = new ArrayList<>();
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || stickers.isEmpty()) {
+            return results;
+        }
+
+        int count = stickers.size();
+        float[] scores = new float[count];
+        int[] matchedTokens = new int[count];
+        float[] tokenBest = new float[count];
+
+        for (String token : tokens) {
+            Arrays.fill(tokenBest, 0f);
+            matchToken(token, tokenBest);
+            for (int i = 0; i < count; i++) {
+                if (tokenBest[i] > 0) {
+                    scores[i] += tokenBest[i];
+                    matchedTokens[i]++;
+                }
+            }
+        }
+
+        Map<String, Integer> rank = recentRank;
+        Set<String> packs = recentPackIds;
+        int recentSize = Math.max(rank.size(), 1);
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (matchedTokens[i] != tokens.length) continue;
+            Sticker sticker = stickers.get(i);
+            Integer position = rank.get(sticker.getId());
+            if (position != null) {
+                scores[i] += BOOST_RECENT_STICKER * (1f - (float) position / recentSize);
+            } else if (packs.contains(sticker.getPackId())) {
+                scores[i] += BOOST_RECENT_PACK;
+            }
+            hits.add(i);
+        }
+
+        Collections.sort(hits, (a, b) -> Float.compare(scores[b], scores[a]));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            results.add(stickers.get(hits.get(i)));
+        }
+        return results;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int size() {
+        return stickers.size();
+    }
+
+    private void matchToken(String token, float[] tokenBest) {
+        // Prefix matches: terms are sorted, so they form one contiguous run
+        int start = lowerBound(token);
+        for (int t = start; t < terms.length && terms[t].startsWith(token); t++) {
+            float score = terms[t].length() == token.length() ? SCORE_EXACT : SCORE_PREFIX;
+            for (int sticker : postings[t]) {
+                if (score > tokenBest[sticker]) tokenBest[sticker] = score;
+            }
+        }
+
+        if (token.length() < FUZZY_MIN_LENGTH) {
+            return;
+        }
+        int maxEdits = token.length() <= 5 ? 1 : 2;
+        for (int t = 0; t < terms.length; t++) {
+            String term = terms[t];
+            if (term.startsWith(token)) continue; // Already scored above
+            if (term.length() < token.length() - maxEdits) continue;
+
+            // Compare against the whole term and against its prefix of the typed length
+            String head = term.length() > token.length() ? term.substring(0, token.length()) : term;
+            if (withinEditDistance(token, head, maxEdits) || withinEditDistance(token, term, maxEdits)) {
+                for (int sticker : postings[t]) {
+                    if (SCORE_FUZZY > tokenBest[sticker]) tokenBest[sticker] = SCORE_FUZZY;
+                }
+            }
+        }
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Levenshtein distance check that gives up as soon as a row exceeds maxEdits
+     */
+    private static boolean withinEditDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) return false;
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) return false;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    private static void addTokens(Set<String> target, String text) {
+        Collections.addAll(target, tokenize(text));
+    }
+
+    /**
+     * Lowercase, strip Vietnamese diacritics and split into words
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("").replace('đ', 'd');
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
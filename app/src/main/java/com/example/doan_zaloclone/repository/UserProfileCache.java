@@ -0,0 +1,122 @@
+package com.example.doan_zaloclone.repository;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.models.User;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared in-memory cache of user profiles (name, avatar)
+ * Screens that only need author info (comments, posts) read from here instead of fetching
+ * users/{uid} every time; concurrent requests for the same user share one read.
+ * Main thread only.
+ */
+public class UserProfileCache {
+
+    private static final String TAG = "UserProfileCache";
+    private static final int MAX_PROFILES = 200;
+    private static final long MAX_AGE_MS = 10 * 60 * 1000; // 10 minutes
+
+    private static UserProfileCache instance;
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final LruCache<String, Entry> profiles = new LruCache<>(MAX_PROFILES);
+    private final Map<String, List<OnProfileListener>> inFlight = new HashMap<>();
+
+    public static synchronized UserProfileCache getInstance() {
+        if (instance == null) {
+            instance = new UserProfileCache();
+        }
+        return instance;
+    }
+
+    private UserProfileCache() {
+    }
+
+    /**
+     * Cached profile, or null if it was never loaded (stale entries are still returned)
+     */
+    @Nullable
+    public User peek(String userId) {
+        Entry entry = userId != null ? profiles.get(userId) : null;
+        return entry != null ? entry.user : null;
+    }
+
+    /**
+     * Get a profile, reading Firestore only when it is missing or stale
+     *
+     * @param listener Called with the profile, or null if it could not be loaded
+     */
+    public void get(@NonNull String userId, @NonNull OnProfileListener listener) {
+        Entry entry = profiles.get(userId);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt < MAX_AGE_MS) {
+            listener.onProfile(entry.user);
+            return;
+        }
+
+        List<OnProfileListener> waiting = inFlight.get(userId);
+        if (waiting != null) {
+            waiting.add(listener);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(listener);
+        inFlight.put(userId, waiting);
+
+        db.collection("users").document(userId).get()
+                .addOnSuccessListener(doc -> {
+                    User user = doc.exists() ? doc.toObject(User.class) : null;
+                    if (user != null) {
+                        put(userId, user);
+                    }
+                    deliver(userId, user != null ? user : peek(userId));
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error loading profile " + userId, e);
+                    // Fall back to a stale copy if we have one
+                    deliver(userId, peek(userId));
+                });
+    }
+
+    /**
+     * Store a profile that was loaded elsewhere (e.g. after editing one's own profile)
+     */
+    public void put(@NonNull String userId, @NonNull User user) {
+        profiles.put(userId, new Entry(user));
+    }
+
+    public void invalidate(@NonNull String userId) {
+        profiles.remove(userId);
+    }
+
+    private void deliver(String userId, @Nullable User user) {
+        List<OnProfileListener> waiting = inFlight.remove(userId);
+        if (waiting == null) return;
+        for (OnProfileListener listener : waiting) {
+            listener.onProfile(user);
+        }
+    }
+
+    private static class Entry {
+        final User user;
+        final long loadedAt;
+
+        Entry(User user) {
+            this.user = user;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    public interface OnProfileListener {
+        void onProfile(@Nullable User user);
+    }
+}
@@ -1,17 +1,18 @@
 package com.example.doan_zaloclone.repository;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.example.doan_zaloclone.utils.AppLog;
+import com.example.doan_zaloclone.utils.CallWarmup;
 import com.example.doan_zaloclone.utils.WebRtcHelper;
 
 import org.webrtc.AudioSource;
 import org.webrtc.AudioTrack;
-import org.webrtc.Camera1Enumerator;
-import org.webrtc.Camera2Enumerator;
-import org.webrtc.CameraEnumerator;
 import org.webrtc.CameraVideoCapturer;
 import org.webrtc.EglBase;
 import org.webrtc.IceCandidate;
@@ -39,14 +40,7 @@ public class WebRtcRepository {
     private static final String AUDIO_TRACK_ID = "audio_track";
     private static final String VIDEO_TRACK_ID = "video_track";
     private static final String STREAM_ID = "stream";
-    // Conservative defaults to prioritize stability on mid/low devices
-    private static final int VIDEO_WIDTH = 540;
-    private static final int VIDEO_HEIGHT = 960;
-    private static final int VIDEO_FPS = 24;
-    private static final int VIDEO_FALLBACK_WIDTH = 480;
-    private static final int VIDEO_FALLBACK_HEIGHT = 640;
-    private static final int VIDEO_FALLBACK_FPS = 15;
-
+    private static final long STATS_INTERVAL_MS = 2000;
     private final Context context;
     private PeerConnectionFactory peerConnectionFactory;
     private PeerConnection peerConnection;
@@ -64,6 +58,21 @@ public class WebRtcRepository {
     private SurfaceTextureHelper surfaceTextureHelper;
     private boolean isFrontCamera = true;
     private SurfaceViewRenderer localRenderer; // Store for later attachment
+    private CallQualityController qualityController; // Adapts outgoing video to the link
+    private volatile CallTelemetry telemetry; // Current (or last) call, kept after close for the call record
+    private final Handler statsHandler = new Handler(Looper.getMainLooper());
+    private final Runnable statsTask = new Runnable() {
+        @Override
+        public void run() {
+            PeerConnection pc = peerConnection;
+            if (pc == null) return;
+            pc.getStats(report -> statsHandler.post(() -> {
+                if (telemetry != null) telemetry.onStats(report);
+                if (qualityController != null) qualityController.onStats(report);
+            }));
+            statsHandler.postDelayed(this, STATS_INTERVAL_MS);
+        }
+    };
 
     private boolean isAudioEnabled = true;
     private boolean isVideoEnabled = true;
@@ -86,7 +95,7 @@ public class WebRtcRepository {
      * @param isVideo Whether this is a video call (for future video support)
      */
     public void initializePeerConnection(@NonNull String callId, boolean isVideo) {
-        Log.d(TAG, "Initializing PeerConnection for call: " + callId + ", isVideo: " + isVideo);
+        if (AppLog.DEBUG) Log.d(TAG, "Initializing PeerConnection for call: " + callId + ", isVideo: " + isVideo);
 
         // CRITICAL: Validate EglBase context is set for video calls
         if (isVideo && eglBaseContext == null) {
@@ -97,42 +106,28 @@ public class WebRtcRepository {
         // Store isVideo flag for later use in SDP creation
         this.isVideoCall = isVideo;
 
-        // Create PeerConnectionFactory
+        // Shared factory from the warm-up (created in the background, normally ready by now)
+        CallWarmup warmup = CallWarmup.getInstance();
         if (peerConnectionFactory == null) {
-            peerConnectionFactory = WebRtcHelper.createPeerConnectionFactory(context);
+            peerConnectionFactory = warmup.getFactory(context);
         }
 
-        // Create PeerConnection
-        List<PeerConnection.IceServer> iceServers = WebRtcHelper.getDefaultIceServers();
+        telemetry = new CallTelemetry(callId, isVideo);
 
-        // DEBUG: Log all ICE servers
-        Log.d(TAG, "===== ICE SERVERS CONFIGURATION =====");
-        Log.d(TAG, "Total ICE servers: " + iceServers.size());
-        for (int i = 0; i < iceServers.size(); i++) {
-            PeerConnection.IceServer server = iceServers.get(i);
-            Log.d(TAG, "ICE Server #" + (i + 1) + ": " + server.urls);
-            if (server.username != null && !server.username.isEmpty()) {
-                Log.d(TAG, "  Username: " + server.username);
-                Log.d(TAG, "  Has Password: " + (server.password != null && !server.password.isEmpty()));
-            }
+        // Incoming calls may already have a connection gathering candidates since ringing.
+        // Telemetry still times gathering from its GATHERING event (after setLocalDescription),
+        // so pre-warmed calls show how much of it the candidate pool saved.
+        peerConnection = warmup.takePrepared(callId, new PeerConnectionObserver());
+        if (peerConnection != null) {
+            if (AppLog.DEBUG) Log.d(TAG, "Using pre-warmed PeerConnection");
+        } else {
+            List<PeerConnection.IceServer> iceServers = warmup.getIceServers(context);
+            if (AppLog.DEBUG) Log.d(TAG, "ICE servers: " + iceServers.size());
+            peerConnection = peerConnectionFactory.createPeerConnection(
+                    WebRtcHelper.createRtcConfiguration(iceServers),
+                    new PeerConnectionObserver()
+            );
         }
-        Log.d(TAG, "====================================");
-
-        PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(iceServers);
-
-        // Set ICE transport policy - ALL uses both STUN (direct) and TURN (relay)
-        rtcConfig.iceTransportsType = PeerConnection.IceTransportsType.ALL;
-        Log.d(TAG, "ICE Transport Type: ALL (STUN + TURN)");
-
-        // CRITICAL: Explicitly set Unified Plan SDP semantics
-        // This is required for addTrack() API to work properly
-        rtcConfig.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
-
-        // Create PeerConnection with observer
-        peerConnection = peerConnectionFactory.createPeerConnection(
-                rtcConfig,
-                new PeerConnectionObserver()
-        );
 
         if (peerConnection == null) {
             Log.e(TAG, "Failed to create PeerConnection");
@@ -147,7 +142,19 @@ public class WebRtcRepository {
             createLocalVideoTrack();
         }
 
-        Log.d(TAG, "PeerConnection initialized successfully");
+        statsHandler.removeCallbacks(statsTask);
+        statsHandler.postDelayed(statsTask, STATS_INTERVAL_MS);
+
+        if (AppLog.DEBUG) Log.d(TAG, "PeerConnection initialized successfully");
+    }
+
+    /**
+     * Telemetry of the current call, or of the last one after it was closed
+     *
+     * @return Null if no call was initialized yet
+     */
+    public CallTelemetry getTelemetry() {
+        return telemetry;
     }
 
     /**
@@ -167,7 +174,7 @@ public class WebRtcRepository {
         if (peerConnection != null) {
             java.util.List<String> streamLabels = List.of(STREAM_ID);
             audioSender = peerConnection.addTrack(localAudioTrack, streamLabels);
-            Log.d(TAG, "Local audio track added to PeerConnection with stream: " + STREAM_ID);
+            if (AppLog.DEBUG) Log.d(TAG, "Local audio track added to PeerConnection with stream: " + STREAM_ID);
         }
     }
 
@@ -185,12 +192,12 @@ public class WebRtcRepository {
         }
 
         MediaConstraints sdpConstraints = WebRtcHelper.createSdpConstraints(isVideoCall);
-        Log.d(TAG, "Creating offer with video=" + isVideoCall);
+        if (AppLog.DEBUG) Log.d(TAG, "Creating offer with video=" + isVideoCall);
 
         peerConnection.createOffer(new SdpObserver() {
             @Override
             public void onCreateSuccess(SessionDescription sessionDescription) {
-                Log.d(TAG, "Offer created successfully");
+                if (AppLog.DEBUG) Log.d(TAG, "Offer created successfully");
 
                 // Set local description
                 peerConnection.setLocalDescription(new SdpObserver() {
@@ -201,7 +208,8 @@ public class WebRtcRepository {
 
                     @Override
                     public void onSetSuccess() {
-                        Log.d(TAG, "Local description set successfully");
+                        if (AppLog.DEBUG) Log.d(TAG, "Local description set successfully");
+                        if (telemetry != null) telemetry.onLocalDescriptionCreated();
                         callback.onOfferCreated(sessionDescription.description);
                     }
 
@@ -265,16 +273,16 @@ public class WebRtcRepository {
 
             @Override
             public void onSetSuccess() {
-                Log.d(TAG, "Remote description set successfully");
+                if (AppLog.DEBUG) Log.d(TAG, "Remote description set successfully");
 
                 // Create answer
                 MediaConstraints sdpConstraints = WebRtcHelper.createSdpConstraints(isVideoCall);
-                Log.d(TAG, "Creating answer with video=" + isVideoCall);
+                if (AppLog.DEBUG) Log.d(TAG, "Creating answer with video=" + isVideoCall);
 
                 peerConnection.createAnswer(new SdpObserver() {
                     @Override
                     public void onCreateSuccess(SessionDescription sessionDescription) {
-                        Log.d(TAG, "Answer created successfully");
+                        if (AppLog.DEBUG) Log.d(TAG, "Answer created successfully");
 
                         // Set local description
                         peerConnection.setLocalDescription(new SdpObserver() {
@@ -285,7 +293,8 @@ public class WebRtcRepository {
 
                             @Override
                             public void onSetSuccess() {
-                                Log.d(TAG, "Local description set successfully");
+                                if (AppLog.DEBUG) Log.d(TAG, "Local description set successfully");
+                                if (telemetry != null) telemetry.onLocalDescriptionCreated();
                                 callback.onAnswerCreated(sessionDescription.description);
                             }
 
@@ -358,7 +367,7 @@ public class WebRtcRepository {
 
             @Override
             public void onSetSuccess() {
-                Log.d(TAG, "Remote description (answer) set successfully");
+                if (AppLog.DEBUG) Log.d(TAG, "Remote description (answer) set successfully");
             }
 
             @Override
@@ -388,7 +397,7 @@ public class WebRtcRepository {
 
         IceCandidate iceCandidate = new IceCandidate(sdpMid, sdpMLineIndex, candidate);
         peerConnection.addIceCandidate(iceCandidate);
-        Log.d(TAG, "ICE candidate added: " + candidate.substring(0, Math.min(50, candidate.length())));
+        if (AppLog.DEBUG) Log.d(TAG, "ICE candidate added: " + candidate.substring(0, Math.min(50, candidate.length())));
     }
 
     /**
@@ -400,7 +409,7 @@ public class WebRtcRepository {
         if (localAudioTrack != null) {
             localAudioTrack.setEnabled(enabled);
             isAudioEnabled = enabled;
-            Log.d(TAG, "Microphone " + (enabled ? "enabled" : "muted"));
+            if (AppLog.DEBUG) Log.d(TAG, "Microphone " + (enabled ? "enabled" : "muted"));
         }
     }
 
@@ -424,7 +433,7 @@ public class WebRtcRepository {
         }
 
         // Create camera capturer
-        videoCapturer = createCameraCapturer(true);  // Start with front camera
+        videoCapturer = WebRtcHelper.createCameraCapturer(context, true);  // Start with front camera
         if (videoCapturer == null) {
             Log.e(TAG, "Failed to create camera capturer");
             return;
@@ -436,7 +445,7 @@ public class WebRtcRepository {
                 eglBaseContext  // Use context from Activity!
         );
 
-        Log.d(TAG, "SurfaceTextureHelper created with shared EglBase context");
+        if (AppLog.DEBUG) Log.d(TAG, "SurfaceTextureHelper created with shared EglBase context");
 
         // Create video source
         videoSource = peerConnectionFactory.createVideoSource(videoCapturer.isScreencast());
@@ -446,13 +455,16 @@ public class WebRtcRepository {
                 videoSource.getCapturerObserver()
         );
 
-        // Start capturing with conservative defaults; fallback to an even lower profile on error
+        // Start at the top quality level; fall back to a lower profile on error.
+        // CallQualityController adapts from there once stats come in.
+        CallQualityController.Level startLevel = CallQualityController.Level.HIGH;
         try {
-            videoCapturer.startCapture(VIDEO_WIDTH, VIDEO_HEIGHT, VIDEO_FPS);
+            videoCapturer.startCapture(startLevel.captureWidth, startLevel.captureHeight, startLevel.fps);
         } catch (RuntimeException captureError) {
             Log.e(TAG, "Primary capture profile failed, applying fallback", captureError);
+            startLevel = CallQualityController.Level.LOW;
             try {
-                videoCapturer.startCapture(VIDEO_FALLBACK_WIDTH, VIDEO_FALLBACK_HEIGHT, VIDEO_FALLBACK_FPS);
+                videoCapturer.startCapture(startLevel.captureWidth, startLevel.captureHeight, startLevel.fps);
             } catch (RuntimeException fallbackError) {
                 Log.e(TAG, "Fallback capture profile failed", fallbackError);
             }
@@ -466,57 +478,23 @@ public class WebRtcRepository {
         if (peerConnection != null) {
             java.util.List<String> streamLabels = List.of(STREAM_ID);
             videoSender = peerConnection.addTrack(localVideoTrack, streamLabels);
-            Log.d(TAG, "Local video track added to PeerConnection with stream: " + STREAM_ID);
+            if (AppLog.DEBUG) Log.d(TAG, "Local video track added to PeerConnection with stream: " + STREAM_ID);
+
+            if (videoSender != null) {
+                qualityController = new CallQualityController(videoSender, videoCapturer, startLevel);
+                qualityController.start();
+            }
         }
 
-        Log.d(TAG, "Local video track created and capturing started");
+        if (AppLog.DEBUG) Log.d(TAG, "Local video track created and capturing started");
 
         // Auto-attach to local renderer if it was set up before track creation
         if (localRenderer != null) {
-            Log.d(TAG, "Auto-attaching local video track to pre-initialized renderer");
+            if (AppLog.DEBUG) Log.d(TAG, "Auto-attaching local video track to pre-initialized renderer");
             localVideoTrack.addSink(localRenderer);
             localRenderer.setMirror(isFrontCamera);
-            Log.d(TAG, "Local video track attached to renderer (mirror=" + isFrontCamera + ")");
-        }
-    }
-
-    /**
-     * Create camera capturer for video
-     *
-     * @param useFrontCamera true to use front camera, false for back camera
-     * @return CameraVideoCapturer or null if failed
-     */
-    private CameraVideoCapturer createCameraCapturer(boolean useFrontCamera) {
-        CameraEnumerator enumerator;
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
-            enumerator = new Camera2Enumerator(context);
-        } else {
-            enumerator = new Camera1Enumerator(false);
-        }
-
-        String[] deviceNames = enumerator.getDeviceNames();
-
-        // First try to find the requested camera
-        for (String deviceName : deviceNames) {
-            if (useFrontCamera == enumerator.isFrontFacing(deviceName)) {
-                CameraVideoCapturer capturer = enumerator.createCapturer(deviceName, null);
-                if (capturer != null) {
-                    Log.d(TAG, "Camera created: " + deviceName);
-                    return capturer;
-                }
-            }
-        }
-
-        // Fallback: try any camera
-        for (String deviceName : deviceNames) {
-            CameraVideoCapturer capturer = enumerator.createCapturer(deviceName, null);
-            if (capturer != null) {
-                Log.d(TAG, "Fallback camera created: " + deviceName);
-                return capturer;
-            }
+            if (AppLog.DEBUG) Log.d(TAG, "Local video track attached to renderer (mirror=" + isFrontCamera + ")");
         }
-
-        return null;
     }
 
     /**
@@ -528,7 +506,7 @@ public class WebRtcRepository {
         if (localVideoTrack != null) {
             localVideoTrack.setEnabled(enabled);
             isVideoEnabled = enabled;
-            Log.d(TAG, "Camera " + (enabled ? "enabled" : "disabled"));
+            if (AppLog.DEBUG) Log.d(TAG, "Camera " + (enabled ? "enabled" : "disabled"));
         }
     }
 
@@ -541,7 +519,7 @@ public class WebRtcRepository {
                 @Override
                 public void onCameraSwitchDone(boolean isFrontCamera) {
                     WebRtcRepository.this.isFrontCamera = isFrontCamera;
-                    Log.d(TAG, "Camera switched to " + (isFrontCamera ? "front" : "back"));
+                    if (AppLog.DEBUG) Log.d(TAG, "Camera switched to " + (isFrontCamera ? "front" : "back"));
                 }
 
                 @Override
@@ -569,7 +547,7 @@ public class WebRtcRepository {
      */
     public void setEglBaseContext(EglBase.Context eglBaseContext) {
         this.eglBaseContext = eglBaseContext;
-        Log.d(TAG, "EglBase context set from Activity");
+        if (AppLog.DEBUG) Log.d(TAG, "EglBase context set from Activity");
     }
 
     /**
@@ -579,7 +557,7 @@ public class WebRtcRepository {
      * @param renderer SurfaceViewRenderer for local video (must already be initialized)
      */
     public void attachLocalRenderer(SurfaceViewRenderer renderer) {
-        Log.d(TAG, "===== ATTACHING LOCAL RENDERER =====");
+        if (AppLog.DEBUG) Log.d(TAG, "===== ATTACHING LOCAL RENDERER =====");
 
         // Store renderer reference
         this.localRenderer = renderer;
@@ -588,14 +566,14 @@ public class WebRtcRepository {
         if (localVideoTrack != null) {
             renderer.setMirror(isFrontCamera);
             localVideoTrack.addSink(renderer);
-            Log.d(TAG, "Local video track attached immediately (mirror=" + isFrontCamera + ")");
+            if (AppLog.DEBUG) Log.d(TAG, "Local video track attached immediately (mirror=" + isFrontCamera + ")");
         } else {
             // localVideoTrack will be created later in initializePeerConnection
             // and will auto-attach to this stored renderer
-            Log.d(TAG, "Renderer stored, will attach when localVideoTrack is created");
+            if (AppLog.DEBUG) Log.d(TAG, "Renderer stored, will attach when localVideoTrack is created");
         }
 
-        Log.d(TAG, "===== LOCAL RENDERER ATTACHED =====");
+        if (AppLog.DEBUG) Log.d(TAG, "===== LOCAL RENDERER ATTACHED =====");
     }
 
     /**
@@ -608,14 +586,21 @@ public class WebRtcRepository {
             localVideoTrack.removeSink(renderer);
         }
         renderer.release();
-        Log.d(TAG, "Local video renderer detached");
+        if (AppLog.DEBUG) Log.d(TAG, "Local video renderer detached");
     }
 
     /**
      * Close PeerConnection and cleanup resources
      */
     public void closePeerConnection() {
-        Log.d(TAG, "Closing PeerConnection");
+        if (AppLog.DEBUG) Log.d(TAG, "Closing PeerConnection");
+
+        statsHandler.removeCallbacks(statsTask);
+
+        if (qualityController != null) {
+            qualityController.stop();
+            qualityController = null;
+        }
 
         // Stop video capturing
         if (videoCapturer != null) {
@@ -666,22 +651,16 @@ public class WebRtcRepository {
         // PeerConnectionFactory should be kept alive for potential future calls
         // Only dispose when app is closing
 
-        Log.d(TAG, "PeerConnection closed and resources cleaned up");
+        if (AppLog.DEBUG) Log.d(TAG, "PeerConnection closed and resources cleaned up");
     }
 
     /**
-     * Dispose PeerConnectionFactory
-     * Call this when app is closing
+     * Release this repository's call resources
+     * The PeerConnectionFactory is process-wide (CallWarmup) and stays alive for the next call.
      */
     public void dispose() {
         closePeerConnection();
-
-        // Note: EglBase is owned by Activity, don't dispose it here
-
-        if (peerConnectionFactory != null) {
-            peerConnectionFactory.dispose();
-            peerConnectionFactory = null;
-        }
+        peerConnectionFactory = null;
     }
 
     /**
@@ -749,12 +728,15 @@ public class WebRtcRepository {
     private class PeerConnectionObserver implements PeerConnection.Observer {
         @Override
         public void onSignalingChange(PeerConnection.SignalingState signalingState) {
-            Log.d(TAG, "Signaling state changed: " + signalingState);
+            if (AppLog.DEBUG) Log.d(TAG, "Signaling state changed: " + signalingState);
         }
 
         @Override
         public void onIceConnectionChange(PeerConnection.IceConnectionState iceConnectionState) {
-            Log.d(TAG, "ICE connection state changed: " + iceConnectionState);
+            if (AppLog.DEBUG) Log.d(TAG, "ICE connection state changed: " + iceConnectionState);
+            if (iceConnectionState == PeerConnection.IceConnectionState.CONNECTED && telemetry != null) {
+                telemetry.onConnected();
+            }
 
             if (connectionStateCallback != null) {
                 switch (iceConnectionState) {
@@ -773,46 +755,23 @@ public class WebRtcRepository {
 
         @Override
         public void onIceConnectionReceivingChange(boolean b) {
-            Log.d(TAG, "ICE connection receiving change: " + b);
+            if (AppLog.DEBUG) Log.d(TAG, "ICE connection receiving change: " + b);
         }
 
         @Override
         public void onIceGatheringChange(PeerConnection.IceGatheringState iceGatheringState) {
-            Log.d(TAG, "===== ICE GATHERING STATE CHANGE =====");
-            Log.d(TAG, "State: " + iceGatheringState);
-
-            switch (iceGatheringState) {
-                case NEW:
-                    Log.d(TAG, "ICE gathering: NEW - Not started yet");
-                    break;
-                case GATHERING:
-                    Log.d(TAG, "ICE gathering: GATHERING - In progress, waiting for candidates");
-                    break;
-                case COMPLETE:
-                    Log.d(TAG, "ICE gathering: COMPLETE - All candidates collected");
-                    Log.d(TAG, "If you don't see RELAY or SRFLX candidates above, TURN/STUN servers failed!");
-                    break;
+            if (AppLog.DEBUG) Log.d(TAG, "ICE gathering state: " + iceGatheringState);
+            if (telemetry == null) return;
+            if (iceGatheringState == PeerConnection.IceGatheringState.GATHERING) {
+                telemetry.onIceGatheringStarted();
+            } else if (iceGatheringState == PeerConnection.IceGatheringState.COMPLETE) {
+                telemetry.onIceGatheringComplete();
             }
-            Log.d(TAG, "======================================");
         }
 
         @Override
         public void onIceCandidate(IceCandidate iceCandidate) {
-            // Log FULL candidate to see type (relay/srflx/host)
-            Log.d(TAG, "===== ICE CANDIDATE GENERATED =====");
-            Log.d(TAG, "Full SDP: " + iceCandidate.sdp);
-
-            // Parse candidate type for debugging
-            String type = "unknown";
-            if (iceCandidate.sdp.contains(" typ relay ")) {
-                type = "RELAY (TURN server)";
-            } else if (iceCandidate.sdp.contains(" typ srflx ")) {
-                type = "SERVER-REFLEXIVE (STUN)";
-            } else if (iceCandidate.sdp.contains(" typ host ")) {
-                type = "HOST (local)";
-            }
-            Log.d(TAG, "Candidate TYPE: " + type);
-            Log.d(TAG, "===================================");
+            if (telemetry != null) telemetry.onLocalCandidate();
 
             if (iceCandidateCallback != null) {
                 iceCandidateCallback.onIceCandidateGenerated(
@@ -825,12 +784,12 @@ public class WebRtcRepository {
 
         @Override
         public void onIceCandidatesRemoved(IceCandidate[] iceCandidates) {
-            Log.d(TAG, "ICE candidates removed: " + iceCandidates.length);
+            if (AppLog.DEBUG) Log.d(TAG, "ICE candidates removed: " + iceCandidates.length);
         }
 
         @Override
         public void onAddStream(MediaStream mediaStream) {
-            Log.d(TAG, "Remote stream added: " + mediaStream.getId());
+            if (AppLog.DEBUG) Log.d(TAG, "Remote stream added: " + mediaStream.getId());
             // Remote audio will automatically play through earpiece/speaker
             // Notify callback for remote video handling
             if (remoteStreamCallback != null) {
@@ -840,22 +799,22 @@ public class WebRtcRepository {
 
         @Override
         public void onRemoveStream(MediaStream mediaStream) {
-            Log.d(TAG, "Remote stream removed: " + mediaStream.getId());
+            if (AppLog.DEBUG) Log.d(TAG, "Remote stream removed: " + mediaStream.getId());
         }
 
         @Override
         public void onDataChannel(org.webrtc.DataChannel dataChannel) {
-            Log.d(TAG, "Data channel: " + dataChannel.label());
+            if (AppLog.DEBUG) Log.d(TAG, "Data channel: " + dataChannel.label());
         }
 
         @Override
         public void onRenegotiationNeeded() {
-            Log.d(TAG, "Renegotiation needed");
+            if (AppLog.DEBUG) Log.d(TAG, "Renegotiation needed");
         }
 
         @Override
         public void onAddTrack(RtpReceiver rtpReceiver, MediaStream[] mediaStreams) {
-            Log.d(TAG, "Track added: " + rtpReceiver.id());
+            if (AppLog.DEBUG) Log.d(TAG, "Track added: " + rtpReceiver.id());
         }
     }
 }
@@ -1,5 +1,6 @@
 package com.example.doan_zaloclone.services;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -8,10 +9,10 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import com.example.doan_zaloclone.utils.FileUtils;
+import com.example.doan_zaloclone.utils.UriRequestBody;
+
 import java.io.IOException;
-import java.io.InputStream;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -35,6 +36,7 @@ public class BackgroundRemovalService {
 
     // VPS rembg fallback
     private static final String VPS_REMBG_URL = "http://163.61.182.20/api/rembg";
+    private static final String IMAGE_PART_NAME = "image.jpg";
 
     private final OkHttpClient client;
 
@@ -54,18 +56,14 @@ public class BackgroundRemovalService {
         callback.onProgress(10);
 
         try {
-            // Convert URI to File
-            File imageFile = uriToFile(imageUri, context);
-
-            if (imageFile == null) {
-                callback.onError("Không thể đọc file ảnh");
-                return;
-            }
+            // The image is streamed from the content resolver for each request (no temp copy)
+            ContentResolver resolver = context.getContentResolver();
+            long totalBytes = FileUtils.getFileSize(context, imageUri);
 
             callback.onProgress(20);
 
             // Try Clipdrop first
-            removeBackgroundWithClipdrop(imageFile, callback);
+            removeBackgroundWithClipdrop(resolver, imageUri, totalBytes, callback);
 
         } catch (Exception e) {
             Log.e(TAG, "Error preparing image for background removal", e);
@@ -76,14 +74,13 @@ public class BackgroundRemovalService {
     /**
      * Remove background using Clipdrop API
      */
-    private void removeBackgroundWithClipdrop(@NonNull File imageFile, @NonNull RemovalCallback callback) {
-        callback.onProgress(30);
-
+    private void removeBackgroundWithClipdrop(@NonNull ContentResolver resolver, @NonNull Uri imageUri,
+                                             long totalBytes, @NonNull RemovalCallback callback) {
         try {
             RequestBody requestBody = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
-                    .addFormDataPart("image_file", imageFile.getName(),
-                            RequestBody.create(imageFile, MediaType.parse("image/*")))
+                    .addFormDataPart("image_file", IMAGE_PART_NAME,
+                            imageBody(resolver, imageUri, totalBytes, 20, 40, callback))
                     .build();
 
             Request request = new Request.Builder()
@@ -92,8 +89,6 @@ public class BackgroundRemovalService {
                     .post(requestBody)
                     .build();
 
-            callback.onProgress(40);
-
             client.newCall(request).enqueue(new Callback() {
                 @Override
                 public void onResponse(@NonNull Call call, @NonNull Response response) {
@@ -116,13 +111,13 @@ public class BackgroundRemovalService {
                             // Payment required - quota exceeded
                             Log.w(TAG, "Clipdrop quota exceeded, falling back to rembg");
                             callback.onProgress(50);
-                            removeBackgroundWithRembg(imageFile, callback);
+                            removeBackgroundWithRembg(resolver, imageUri, totalBytes, callback);
 
                         } else {
                             Log.e(TAG, "Clipdrop API error: " + response.code() + " - " + response.message());
                             // Fallback to rembg
                             callback.onProgress(50);
-                            removeBackgroundWithRembg(imageFile, callback);
+                            removeBackgroundWithRembg(resolver, imageUri, totalBytes, callback);
                         }
                     } catch (IOException e) {
                         Log.e(TAG, "Error processing Clipdrop response", e);
@@ -137,7 +132,7 @@ public class BackgroundRemovalService {
                     Log.e(TAG, "Clipdrop API call failed, falling back to rembg", e);
                     // Fallback to rembg
                     callback.onProgress(50);
-                    removeBackgroundWithRembg(imageFile, callback);
+                    removeBackgroundWithRembg(resolver, imageUri, totalBytes, callback);
                 }
             });
 
@@ -150,14 +145,13 @@ public class BackgroundRemovalService {
     /**
      * Remove background using self-hosted rembg on VPS
      */
-    private void removeBackgroundWithRembg(@NonNull File imageFile, @NonNull RemovalCallback callback) {
-        callback.onProgress(60);
-
+    private void removeBackgroundWithRembg(@NonNull ContentResolver resolver, @NonNull Uri imageUri,
+                                           long totalBytes, @NonNull RemovalCallback callback) {
         try {
             RequestBody requestBody = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
-                    .addFormDataPart("image", imageFile.getName(),
-                            RequestBody.create(imageFile, MediaType.parse("image/*")))
+                    .addFormDataPart("image", IMAGE_PART_NAME,
+                            imageBody(resolver, imageUri, totalBytes, 50, 70, callback))
                     .build();
 
             Request request = new Request.Builder()
@@ -165,8 +159,6 @@ public class BackgroundRemovalService {
                     .post(requestBody)
                     .build();
 
-            callback.onProgress(70);
-
             client.newCall(request).enqueue(new Callback() {
                 @Override
                 public void onResponse(@NonNull Call call, @NonNull Response response) {
@@ -211,31 +203,19 @@ public class BackgroundRemovalService {
     }
 
     /**
-     * Convert URI to File
+     * Image part streamed from the content resolver, reporting upload progress as fromPercent..toPercent
      */
-    private File uriToFile(Uri uri, Context context) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-            if (inputStream == null) return null;
-
-            File tempFile = new File(context.getCacheDir(), "temp_image_" + System.currentTimeMillis() + ".jpg");
-            FileOutputStream outputStream = new FileOutputStream(tempFile);
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+    private static RequestBody imageBody(ContentResolver resolver, Uri imageUri, long totalBytes,
+                                         int fromPercent, int toPercent, RemovalCallback callback) {
+        int[] lastPercent = {-1};
+        return new UriRequestBody(resolver, imageUri, MediaType.parse("image/*"), written -> {
+            if (totalBytes <= 0) return;
+            int percent = fromPercent + (int) (Math.min(written, totalBytes) * (toPercent - fromPercent) / totalBytes);
+            if (percent != lastPercent[0]) {
+                lastPercent[0] = percent;
+                callback.onProgress(percent);
             }
-
-            outputStream.close();
-            inputStream.close();
-
-            return tempFile;
-
-        } catch (IOException e) {
-            Log.e(TAG, "Error converting URI to File", e);
-            return null;
-        }
+        });
     }
 
     /**
@@ -0,0 +1,105 @@
+package com.example.doan_zaloclone.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.doan_zaloclone.models.Message;
+import com.example.doan_zaloclone.repository.UserProfileCache;
+import com.example.doan_zaloclone.utils.MessageNotifier;
+import com.example.doan_zaloclone.utils.NotificationHelper;
+import com.example.doan_zaloclone.websocket.SocketManager;
+
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * Socket notification events → MessageNotifier
+ * Shared by MainActivity (foreground) and NotificationService (persistent socket mode).
+ */
+public class ChatNotificationListener implements SocketManager.OnNotificationListener {
+
+    private static final String TAG = "ChatNotificationListener";
+
+    private final Context context;
+    private final String currentUserId;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public ChatNotificationListener(@NonNull Context context, @NonNull String currentUserId) {
+        this.context = context.getApplicationContext();
+        this.currentUserId = currentUserId;
+    }
+
+    @Override
+    public void onNewMessage(JSONObject messageData) {
+        try {
+            String conversationId = messageData.optString("conversationId");
+            String senderId = messageData.optString("senderId");
+            String senderName = messageData.optString("senderName", "Unknown");
+            String messageText = messageData.optString("content", messageData.optString("text", ""));
+            String messageType = messageData.optString("type", Message.TYPE_TEXT).toUpperCase(Locale.ROOT);
+
+            if (shouldSkip(conversationId, senderId)) return;
+
+            // Skip call-related messages (to avoid "Unknown" notifications)
+            if (Message.TYPE_CALL.equals(messageType) ||
+                    messageText.contains("Cuộc gọi") ||
+                    messageText.contains("Missed call") ||
+                    messageText.contains("Incoming call") ||
+                    messageText.contains("Outgoing call")) {
+                return;
+            }
+
+            MessageNotifier.getInstance().postMessage(context, conversationId,
+                    messageData.optString("id", null), senderId, senderName,
+                    NotificationHelper.getMessagePreview(messageType, messageText),
+                    messageData.optLong("timestamp", System.currentTimeMillis()));
+        } catch (Exception e) {
+            Log.e(TAG, "Error showing message notification", e);
+        }
+    }
+
+    @Override
+    public void onMessageRecalled(JSONObject messageData) {
+        String conversationId = messageData.optString("conversationId");
+        String senderId = messageData.optString("senderId");
+        if (shouldSkip(conversationId, senderId)) return;
+
+        MessageNotifier.getInstance().postRecall(context, conversationId, senderId,
+                messageData.optString("senderName", null));
+    }
+
+    @Override
+    public void onMessageReaction(JSONObject reactionData) {
+        String conversationId = reactionData.optString("conversationId");
+        String userId = reactionData.optString("userId");
+        if (shouldSkip(conversationId, userId)) return;
+
+        MessageNotifier.getInstance().postReaction(context, conversationId, userId,
+                reactionData.optString("reactionType"));
+    }
+
+    @Override
+    public void onFriendRequestReceived(String senderId, String senderName) {
+        NotificationHelper.showFriendRequestNotification(context, senderName, senderId, null);
+    }
+
+    @Override
+    public void onFriendRequestAccepted(String userId) {
+        // UserProfileCache is main-thread only; socket callbacks are not
+        mainHandler.post(() -> UserProfileCache.getInstance().get(userId, user -> {
+            String userName = user != null && user.getName() != null ? user.getName() : "Unknown";
+            NotificationHelper.showFriendAcceptedNotification(context, userName, userId);
+        }));
+    }
+
+    private boolean shouldSkip(String conversationId, String senderId) {
+        // Own events, and the conversation the user is looking at
+        return senderId.equals(currentUserId)
+                || conversationId.equals(PushDelivery.getInstance().getActiveConversationId());
+    }
+}
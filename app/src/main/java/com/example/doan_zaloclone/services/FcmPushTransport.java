@@ -0,0 +1,32 @@
+package com.example.doan_zaloclone.services;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.messaging.FirebaseMessaging;
+
+/**
+ * Firebase Cloud Messaging transport; payloads arrive through PushMessagingService
+ */
+public class FcmPushTransport implements PushTransport {
+
+    private static final String TAG = "FcmPushTransport";
+
+    @Override
+    public void requestToken(@NonNull OnTokenListener listener) {
+        FirebaseMessaging.getInstance().getToken().addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                listener.onToken(task.getResult());
+            } else {
+                Log.w(TAG, "Could not get FCM token", task.getException());
+                listener.onToken(null);
+            }
+        });
+    }
+
+    @Override
+    public void deleteToken() {
+        FirebaseMessaging.getInstance().deleteToken();
+    }
+}
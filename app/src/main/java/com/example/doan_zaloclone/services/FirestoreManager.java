@@ -8,6 +8,7 @@ import com.example.doan_zaloclone.models.Conversation;
 import com.example.doan_zaloclone.models.User;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
@@ -143,14 +144,15 @@ public class FirestoreManager {
      * @param userId      ID của user
      * @param deviceToken Token thiết bị cần xóa
      * @param listener    Callback để xử lý kết quả
+     * @return Task của lệnh cập nhật, để có thể chờ khi đăng xuất
      */
-    public void removeDeviceToken(@NonNull String userId,
-                                  @NonNull String deviceToken,
-                                  @NonNull OnDeviceTokenUpdatedListener listener) {
+    public Task<Void> removeDeviceToken(@NonNull String userId,
+                                        @NonNull String deviceToken,
+                                        @NonNull OnDeviceTokenUpdatedListener listener) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("devices." + deviceToken, com.google.firebase.firestore.FieldValue.delete());
 
-        db.collection(COLLECTION_USERS)
+        return db.collection(COLLECTION_USERS)
                 .document(userId)
                 .update(updates)
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
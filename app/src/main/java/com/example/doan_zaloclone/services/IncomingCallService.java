@@ -15,6 +15,7 @@ import com.example.doan_zaloclone.models.Call;
 import com.example.doan_zaloclone.repository.CallRepository;
 import com.example.doan_zaloclone.ui.call.CallActivity;
 import com.example.doan_zaloclone.utils.CallNotificationHelper;
+import com.example.doan_zaloclone.utils.CallWarmup;
 import com.google.firebase.firestore.ListenerRegistration;
 
 public class IncomingCallService extends Service {
@@ -90,6 +91,11 @@ public class IncomingCallService extends Service {
                     CallNotificationHelper.createIncomingCallNotification(this, call, callerName, null));
         }
 
+        // Warm up WebRTC and start gathering ICE candidates while ringing
+        if (currentCallId != null) {
+            CallWarmup.getInstance().prepareConnection(this, currentCallId);
+        }
+
         // Start ringtone
         playRingtone();
 
@@ -218,6 +224,7 @@ public class IncomingCallService extends Service {
                 if (call.isEnded() ||
                         Call.STATUS_MISSED.equals(call.getStatus()) ||
                         Call.STATUS_ENDED.equals(call.getStatus())) {
+                    CallWarmup.getInstance().discard(call.getId() != null ? call.getId() : currentCallId);
                     stopService();
                 }
             }
@@ -248,6 +255,7 @@ public class IncomingCallService extends Service {
 
     private void rejectCall() {
         if (currentCallId != null) {
+            CallWarmup.getInstance().discard(currentCallId);
             callRepository.updateCallStatus(currentCallId, Call.STATUS_REJECTED,
                     new CallRepository.OnCallUpdatedListener() {
                         @Override
@@ -0,0 +1,150 @@
+package com.example.doan_zaloclone.services;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.doan_zaloclone.models.Message;
+import com.example.doan_zaloclone.utils.MessageNotifier;
+import com.example.doan_zaloclone.utils.NotificationHelper;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short job woken by a message push: fetches the new messages of the pending
+ * conversations and shows the notification, then lets the process sleep again
+ */
+public class MessageSyncJobService extends JobService {
+
+    private static final String TAG = "MessageSyncJob";
+    private static final int JOB_ID = 4101;
+    private static final long DEFAULT_LOOKBACK_MS = 10 * 60 * 1000;
+    private static final long QUERY_TIMEOUT_SECONDS = 15;
+    private static final int FETCH_LIMIT = 20;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private volatile boolean stopped;
+
+    /**
+     * Schedule a sync (no-op while one is already pending)
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, MessageSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // High-priority FCM grants the quota for this
+            builder.setExpedited(true);
+        }
+        scheduler.schedule(builder.build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        stopped = false;
+        executor.execute(() -> {
+            boolean retry = false;
+            try {
+                PushDelivery delivery = PushDelivery.getInstance();
+                Set<String> pending = delivery.takePending();
+                while (!pending.isEmpty() && !stopped) {
+                    for (String conversationId : pending) {
+                        if (!syncConversation(delivery, conversationId)) {
+                            delivery.addPending(conversationId);
+                            retry = true;
+                        }
+                    }
+                    // Pushes that arrived while syncing
+                    pending = retry ? Collections.<String>emptySet() : delivery.takePending();
+                }
+            } finally {
+                jobFinished(params, retry);
+                // A push raced with jobFinished: schedule() skipped it while this job was running
+                if (!retry && PushDelivery.getInstance().hasPending()) {
+                    schedule(getApplicationContext());
+                }
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        stopped = true;
+        return true;
+    }
+
+    @Override
+    public void onDestroy() {
+        executor.shutdown();
+        super.onDestroy();
+    }
+
+    /**
+     * @return false if the fetch failed and should be retried
+     */
+    private boolean syncConversation(PushDelivery delivery, String conversationId) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return true;
+
+        long since = delivery.getSyncedAt(conversationId);
+        if (since == 0) since = System.currentTimeMillis() - DEFAULT_LOOKBACK_MS;
+
+        QuerySnapshot snapshot;
+        try {
+            snapshot = Tasks.await(FirebaseFirestore.getInstance()
+                    .collection("conversations").document(conversationId)
+                    .collection("messages")
+                    .whereGreaterThan("timestamp", since)
+                    .orderBy("timestamp", Query.Direction.DESCENDING)
+                    .limit(FETCH_LIMIT)
+                    .get(), QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Sync failed for " + conversationId, e);
+            return false;
+        }
+        if (snapshot.isEmpty()) return true;
+
+        Long latest = snapshot.getDocuments().get(0).getLong("timestamp");
+        if (latest != null) delivery.setSyncedAt(conversationId, latest);
+
+        boolean viewing = delivery.isForeground()
+                && conversationId.equals(delivery.getActiveConversationId());
+        if (viewing) return true;
+
+        // Oldest first, so the notification reads in order
+        List<DocumentSnapshot> docs = snapshot.getDocuments();
+        for (int i = docs.size() - 1; i >= 0; i--) {
+            Message message = docs.get(i).toObject(Message.class);
+            if (message == null || user.getUid().equals(message.getSenderId())
+                    || message.isRecalled() || Message.TYPE_CALL.equals(message.getType())) {
+                continue;
+            }
+            MessageNotifier.getInstance().postMessage(this, conversationId, docs.get(i).getId(),
+                    message.getSenderId(), message.getSenderName(),
+                    NotificationHelper.getMessagePreview(message.getType(), message.getContent()),
+                    message.getTimestamp());
+        }
+        return true;
+    }
+}
@@ -7,20 +7,22 @@ import android.util.Log;
 
 import androidx.annotation.Nullable;
 
+import com.example.doan_zaloclone.utils.MessageNotifier;
 import com.example.doan_zaloclone.utils.NotificationHelper;
 import com.example.doan_zaloclone.websocket.SocketManager;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import org.json.JSONObject;
-
 /**
  * Foreground service to maintain WebSocket connection and receive notifications
  * when app is in background. This ensures notifications work even when MainActivity
  * is not visible.
  * 
+ * Only used in PushDelivery's PERSISTENT_SOCKET mode (no Google Play services);
+ * in PUSH mode the socket is closed in the background and FCM wakes the app instead.
+ * 
  * Lifecycle:
- * - Started when app launches (from MainActivity)
+ * - Started when app launches (from PushDelivery.start)
  * - Runs in foreground with persistent notification
  * - Stops when user logs out or app is force-killed
  */
@@ -28,9 +30,6 @@ public class NotificationService extends Service {
     private static final String TAG = "NotificationService";
     private static final int NOTIFICATION_ID = 9999;
     
-    // Track active conversation to avoid notifications
-    private String activeConversationId = null;
-    
     // WebSocket manager
     private SocketManager socketManager;
     
@@ -65,20 +64,6 @@ public class NotificationService extends Service {
     
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null) {
-            String action = intent.getAction();
-            
-            if ("SET_ACTIVE_CONVERSATION".equals(action)) {
-                // Update active conversation ID
-                activeConversationId = intent.getStringExtra("conversationId");
-                Log.d(TAG, "Active conversation set to: " + activeConversationId);
-            } else if ("CLEAR_ACTIVE_CONVERSATION".equals(action)) {
-                // Clear active conversation ID
-                activeConversationId = null;
-                Log.d(TAG, "Active conversation cleared");
-            }
-        }
-        
         // Restart service if killed
         return START_STICKY;
     }
@@ -93,178 +78,16 @@ public class NotificationService extends Service {
         
         final String currentUserId = currentUser.getUid();
         
-        socketManager.setNotificationListener(new SocketManager.OnNotificationListener() {
-            @Override
-            public void onNewMessage(JSONObject messageData) {
-                try {
-                    String conversationId = messageData.optString("conversationId");
-                    String senderId = messageData.optString("senderId");
-                    String senderName = messageData.optString("senderName", "Unknown");
-                    String messageText = messageData.optString("text", "");
-                    String messageType = messageData.optString("type", "text");
-                    
-                    // Skip if from current user
-                    if (senderId.equals(currentUserId)) {
-                        return;
-                    }
-                    
-                    // Skip if user is viewing this conversation
-                    if (conversationId.equals(activeConversationId)) {
-                        Log.d(TAG, "Skipping notification - user is in this conversation");
-                        return;
-                    }
-                    
-                    // Skip call-related messages (to avoid "Unknown" notifications)
-                    if ("call".equalsIgnoreCase(messageType) || 
-                        messageText.contains("Cuộc gọi") ||
-                        messageText.contains("Missed call") ||
-                        messageText.contains("Incoming call") ||
-                        messageText.contains("Outgoing call")) {
-                        Log.d(TAG, "Skipping call notification message");
-                        return;
-                    }
-                    
-                    // Format message text based on type
-                    String displayText = messageText;
-                    if ("image".equals(messageType)) {
-                        displayText = "🖼️ Hình ảnh";
-                    } else if ("voice".equals(messageType)) {
-                        displayText = "🎤 Tin nhắn thoại";
-                    } else if ("file".equals(messageType)) {
-                        displayText = "📎 Tệp tin";
-                    } else if ("sticker".equals(messageType)) {
-                        displayText = "😀 Nhãn dán";
-                    } else if ("location".equals(messageType)) {
-                        displayText = "📍 Vị trí";
-                    } else if ("card".equals(messageType)) {
-                        displayText = "💼 Danh thiếp";
-                    }
-                    
-                    // Show notification
-                    NotificationHelper.showMessageNotification(
-                            NotificationService.this,
-                            senderName,
-                            displayText,
-                            conversationId,
-                            null
-                    );
-                    
-                } catch (Exception e) {
-                    Log.e(TAG, "Error showing message notification", e);
-                }
-            }
-            
-            @Override
-            public void onMessageRecalled(JSONObject messageData) {
-                try {
-                    String conversationId = messageData.optString("conversationId");
-                    String senderId = messageData.optString("senderId");
-                    String senderName = messageData.optString("senderName", "Unknown");
-                    
-                    // Skip if from current user
-                    if (senderId.equals(currentUserId)) {
-                        return;
-                    }
-                    
-                    // Skip if user is viewing this conversation
-                    if (conversationId.equals(activeConversationId)) {
-                        return;
-                    }
-                    
-                    NotificationHelper.showMessageRecallNotification(
-                            NotificationService.this,
-                            senderName,
-                            conversationId
-                    );
-                    
-                } catch (Exception e) {
-                    Log.e(TAG, "Error showing recall notification", e);
-                }
-            }
-            
-            @Override
-            public void onMessageReaction(JSONObject reactionData) {
-                try {
-                    String conversationId = reactionData.optString("conversationId");
-                    String userId = reactionData.optString("userId");
-                    String reactionType = reactionData.optString("reactionType");
-                    
-                    // Skip if from current user
-                    if (userId.equals(currentUserId)) {
-                        return;
-                    }
-                    
-                    // Skip if user is viewing this conversation
-                    if (conversationId.equals(activeConversationId)) {
-                        return;
-                    }
-                    
-                    // Fetch user name and show notification
-                    com.google.firebase.firestore.FirebaseFirestore.getInstance()
-                            .collection("users")
-                            .document(userId)
-                            .get()
-                            .addOnSuccessListener(doc -> {
-                                String userName = "Unknown";
-                                if (doc.exists() && doc.contains("name")) {
-                                    userName = doc.getString("name");
-                                }
-                                
-                                NotificationHelper.showMessageReactionNotification(
-                                        NotificationService.this,
-                                        userName,
-                                        reactionType,
-                                        conversationId
-                                );
-                            });
-                    
-                } catch (Exception e) {
-                    Log.e(TAG, "Error showing reaction notification", e);
-                }
-            }
-            
-            @Override
-            public void onFriendRequestReceived(String senderId, String senderName) {
-                NotificationHelper.showFriendRequestNotification(
-                        NotificationService.this,
-                        senderName,
-                        senderId,
-                        null
-                );
-            }
-            
-            @Override
-            public void onFriendRequestAccepted(String userId) {
-                // Fetch user name and show notification
-                com.google.firebase.firestore.FirebaseFirestore.getInstance()
-                        .collection("users")
-                        .document(userId)
-                        .get()
-                        .addOnSuccessListener(doc -> {
-                            String userName = "Unknown";
-                            if (doc.exists() && doc.contains("name")) {
-                                userName = doc.getString("name");
-                            }
-                            
-                            NotificationHelper.showFriendAcceptedNotification(
-                                    NotificationService.this,
-                                    userName,
-                                    userId
-                            );
-                        });
-            }
-        });
+        socketManager.setNotificationListener(new ChatNotificationListener(this, currentUserId));
     }
     
     /**
      * Update the active conversation ID
-     * Called from MainActivity/RoomActivity via Intent
+     * Called from RoomActivity; kept in PushDelivery so both delivery modes see it
      */
     public static void setActiveConversation(android.content.Context context, String conversationId) {
-        Intent intent = new Intent(context, NotificationService.class);
-        intent.setAction("SET_ACTIVE_CONVERSATION");
-        intent.putExtra("conversationId", conversationId);
-        context.startService(intent);
+        PushDelivery.getInstance().setActiveConversation(conversationId);
+        MessageNotifier.getInstance().clear(context, conversationId);
     }
     
     /**
@@ -272,9 +95,7 @@ public class NotificationService extends Service {
      * Called when leaving RoomActivity
      */
     public static void clearActiveConversation(android.content.Context context) {
-        Intent intent = new Intent(context, NotificationService.class);
-        intent.setAction("CLEAR_ACTIVE_CONVERSATION");
-        context.startService(intent);
+        PushDelivery.getInstance().setActiveConversation(null);
     }
     
     /**
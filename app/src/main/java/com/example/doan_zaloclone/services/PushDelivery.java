@@ -0,0 +1,305 @@
+package com.example.doan_zaloclone.services;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.example.doan_zaloclone.models.Call;
+import com.example.doan_zaloclone.utils.NotificationHelper;
+import com.example.doan_zaloclone.websocket.SocketManager;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.GoogleApiAvailability;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How messages, calls and friend requests reach the app while it is in the background
+ * PUSH (default): the socket is closed after a short idle period in the background and
+ * the server sends compact data pushes instead; a message push wakes
+ * MessageSyncJobService, which fetches the new messages and shows the notification.
+ * PERSISTENT_SOCKET: the old always-on foreground NotificationService, kept for
+ * devices without Google Play services.
+ */
+public class PushDelivery implements DefaultLifecycleObserver {
+
+    private static final String TAG = "PushDelivery";
+    private static final String PREFS_NAME = "push_delivery";
+    private static final String PREF_MODE = "mode";
+    private static final String PREF_TOKEN = "token";
+    private static final String PREF_PENDING = "pending_conversations";
+    private static final String PREF_SYNCED_AT = "synced_at_";
+    private static final long SOCKET_IDLE_TIMEOUT_MS = 60 * 1000;
+    private static final long CALL_MAX_AGE_MS = 60 * 1000;
+
+    public enum Mode {
+        PUSH,
+        PERSISTENT_SOCKET
+    }
+
+    private static PushDelivery instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> socketHolds = new HashSet<>(); // Main thread only
+    private final Runnable idleDisconnect = this::disconnectIfIdle;
+    private Context appContext;
+    private SharedPreferences prefs;
+    private PushTransport transport;
+    private volatile boolean foreground = false;
+    private volatile String activeConversationId;
+
+    public static synchronized PushDelivery getInstance() {
+        if (instance == null) {
+            instance = new PushDelivery();
+        }
+        return instance;
+    }
+
+    private PushDelivery() {
+    }
+
+    /**
+     * Called once from the Application
+     */
+    public void init(@NonNull Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(appContext)
+                == ConnectionResult.SUCCESS) {
+            transport = new FcmPushTransport();
+        }
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
+    }
+
+    /**
+     * Effective mode; PUSH needs a transport
+     */
+    public Mode getMode() {
+        Mode preferred = Mode.valueOf(prefs.getString(PREF_MODE, Mode.PUSH.name()));
+        return preferred == Mode.PUSH && transport == null ? Mode.PERSISTENT_SOCKET : preferred;
+    }
+
+    public void setMode(@NonNull Mode mode) {
+        prefs.edit().putString(PREF_MODE, mode.name()).apply();
+        start();
+    }
+
+    /**
+     * Start background delivery for the logged-in user (called from MainActivity)
+     */
+    public void start() {
+        if (getMode() == Mode.PUSH) {
+            appContext.stopService(new Intent(appContext, NotificationService.class));
+            transport.requestToken(token -> {
+                if (token != null) registerToken(token);
+            });
+        } else {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user != null) unregister(user.getUid());
+            Intent serviceIntent = new Intent(appContext, NotificationService.class);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                appContext.startForegroundService(serviceIntent);
+            } else {
+                appContext.startService(serviceIntent);
+            }
+        }
+    }
+
+    /**
+     * Register a push token for the current user (also called when FCM rotates it)
+     */
+    public void registerToken(@NonNull String token) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || getMode() != Mode.PUSH) return;
+
+        String previous = prefs.getString(PREF_TOKEN, null);
+        if (previous != null && !previous.equals(token)) {
+            removeToken(user.getUid(), previous);
+        }
+        prefs.edit().putString(PREF_TOKEN, token).apply();
+        FirestoreManager.getInstance().addDeviceToken(user.getUid(), token,
+                new FirestoreManager.OnDeviceTokenUpdatedListener() {
+                    @Override
+                    public void onSuccess() {
+                        Log.d(TAG, "Push token registered");
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.w(TAG, "Push token registration failed", e);
+                    }
+                });
+    }
+
+    /**
+     * Stop pushes to this device for a user (on logout, before signing out)
+     *
+     * @return Task of the Firestore update, so callers on a background thread can await it
+     */
+    public Task<Void> unregister(@NonNull String userId) {
+        String token = prefs.getString(PREF_TOKEN, null);
+        prefs.edit().remove(PREF_TOKEN).remove(PREF_PENDING).apply();
+        if (transport != null) transport.deleteToken();
+        return token != null ? removeToken(userId, token) : Tasks.forResult(null);
+    }
+
+    private Task<Void> removeToken(String userId, String token) {
+        return FirestoreManager.getInstance().removeDeviceToken(userId, token,
+                new FirestoreManager.OnDeviceTokenUpdatedListener() {
+                    @Override
+                    public void onSuccess() {
+                        Log.d(TAG, "Push token removed");
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.w(TAG, "Could not remove push token", e);
+                    }
+                });
+    }
+
+    // ========== Incoming payloads ==========
+
+    /**
+     * Handle a push payload (any thread)
+     */
+    public void handlePayload(@NonNull Map<String, String> data) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return;
+        String type = data.get("type");
+        Log.d(TAG, "Push received: " + type);
+
+        if ("message".equals(type)) {
+            // The socket service already notifies in the other mode
+            if (getMode() != Mode.PUSH) return;
+            String conversationId = data.get("conversationId");
+            if (conversationId == null || user.getUid().equals(data.get("senderId"))) return;
+            addPending(conversationId);
+            MessageSyncJobService.schedule(appContext);
+        } else if ("call".equals(type)) {
+            // In the foreground MainActivity's Firestore listener already rings
+            if (!foreground) launchIncomingCall(data, user.getUid());
+        } else if ("friend_request".equals(type)) {
+            String senderName = data.get("senderName");
+            NotificationHelper.showFriendRequestNotification(appContext,
+                    senderName != null && !senderName.isEmpty() ? senderName : "Unknown",
+                    data.get("senderId"), null);
+        }
+    }
+
+    private void launchIncomingCall(Map<String, String> data, String receiverId) {
+        long startTime = parseLong(data.get("startTime"));
+        if (System.currentTimeMillis() - startTime > CALL_MAX_AGE_MS) return;
+
+        Intent serviceIntent = new Intent(appContext, IncomingCallService.class);
+        // Same extras as NotificationService.launchIncomingCallService
+        serviceIntent.putExtra("call_id", data.get("callId"));
+        serviceIntent.putExtra("caller_id", data.get("callerId"));
+        serviceIntent.putExtra("caller_name", data.get("callerName"));
+        serviceIntent.putExtra("receiver_id", receiverId);
+        serviceIntent.putExtra("conversation_id", data.get("conversationId"));
+        serviceIntent.putExtra("is_video", Call.TYPE_VIDEO.equals(data.get("callType")));
+        appContext.startForegroundService(serviceIntent);
+    }
+
+    // ========== Sync state (used by MessageSyncJobService) ==========
+
+    synchronized void addPending(@NonNull String conversationId) {
+        Set<String> pending = new HashSet<>(prefs.getStringSet(PREF_PENDING, new HashSet<>()));
+        pending.add(conversationId);
+        prefs.edit().putStringSet(PREF_PENDING, pending).apply();
+    }
+
+    synchronized Set<String> takePending() {
+        Set<String> pending = new HashSet<>(prefs.getStringSet(PREF_PENDING, new HashSet<>()));
+        prefs.edit().remove(PREF_PENDING).apply();
+        return pending;
+    }
+
+    synchronized boolean hasPending() {
+        return !prefs.getStringSet(PREF_PENDING, new HashSet<>()).isEmpty();
+    }
+
+    long getSyncedAt(@NonNull String conversationId) {
+        return prefs.getLong(PREF_SYNCED_AT + conversationId, 0);
+    }
+
+    void setSyncedAt(@NonNull String conversationId, long timestamp) {
+        prefs.edit().putLong(PREF_SYNCED_AT + conversationId, timestamp).apply();
+    }
+
+    // ========== Foreground / active conversation ==========
+
+    public boolean isForeground() {
+        return foreground;
+    }
+
+    public void setActiveConversation(@Nullable String conversationId) {
+        activeConversationId = conversationId;
+    }
+
+    @Nullable
+    public String getActiveConversationId() {
+        return activeConversationId;
+    }
+
+    /**
+     * Keep the socket open in the background while something needs it (e.g. a group call)
+     */
+    public void holdSocket(@NonNull String reason) {
+        socketHolds.add(reason);
+        mainHandler.removeCallbacks(idleDisconnect);
+    }
+
+    public void releaseSocket(@NonNull String reason) {
+        if (socketHolds.remove(reason) && socketHolds.isEmpty() && !foreground) {
+            mainHandler.postDelayed(idleDisconnect, SOCKET_IDLE_TIMEOUT_MS);
+        }
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        foreground = true;
+        mainHandler.removeCallbacks(idleDisconnect);
+        if (FirebaseAuth.getInstance().getCurrentUser() != null) {
+            SocketManager.getInstance().connect(); // No-op if already connected
+        }
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        foreground = false;
+        if (getMode() == Mode.PUSH && socketHolds.isEmpty()) {
+            mainHandler.postDelayed(idleDisconnect, SOCKET_IDLE_TIMEOUT_MS);
+        }
+    }
+
+    private void disconnectIfIdle() {
+        if (foreground || !socketHolds.isEmpty() || getMode() != Mode.PUSH) return;
+        Log.d(TAG, "App idle in background, closing socket until next push or launch");
+        SocketManager.getInstance().disconnect();
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return text != null ? Long.parseLong(text) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.doan_zaloclone.services;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.messaging.FirebaseMessagingService;
+import com.google.firebase.messaging.RemoteMessage;
+
+/**
+ * Receives FCM data pushes and token rotations for PushDelivery
+ */
+public class PushMessagingService extends FirebaseMessagingService {
+
+    @Override
+    public void onNewToken(@NonNull String token) {
+        PushDelivery.getInstance().registerToken(token);
+    }
+
+    @Override
+    public void onMessageReceived(@NonNull RemoteMessage remoteMessage) {
+        PushDelivery.getInstance().handlePayload(remoteMessage.getData());
+    }
+}
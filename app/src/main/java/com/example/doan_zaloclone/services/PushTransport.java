@@ -0,0 +1,26 @@
+package com.example.doan_zaloclone.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Source of push payloads for PushDelivery
+ * FcmPushTransport when Google Play services are available; without them there is no
+ * transport and PushDelivery keeps the persistent socket.
+ */
+public interface PushTransport {
+
+    /**
+     * Token the server should push to (registered in users/{uid}.devices)
+     */
+    void requestToken(@NonNull OnTokenListener listener);
+
+    /**
+     * Invalidate the current token (on logout)
+     */
+    void deleteToken();
+
+    interface OnTokenListener {
+        void onToken(@Nullable String token);
+    }
+}
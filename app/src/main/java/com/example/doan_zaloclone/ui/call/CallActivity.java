@@ -39,6 +39,8 @@ import androidx.lifecycle.ViewModelProvider;
 import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.Call;
 import com.example.doan_zaloclone.services.OngoingCallService;
+import com.example.doan_zaloclone.utils.AppLog;
+import com.example.doan_zaloclone.utils.CallWarmup;
 import com.example.doan_zaloclone.utils.PermissionHelper;
 import com.example.doan_zaloclone.utils.Resource;
 import com.example.doan_zaloclone.viewmodel.CallViewModel;
@@ -201,14 +203,8 @@ public class CallActivity extends AppCompatActivity {
         this.callerId = intent.getStringExtra(EXTRA_CALLER_ID);
         this.receiverId = intent.getStringExtra(EXTRA_RECEIVER_ID);  // Store as instance variable
 
-        // DEBUG: Log call perspective
-        Log.d(TAG, "========================================");
-        Log.d(TAG, "CallActivity created");
-        Log.d(TAG, "isIncoming: " + isIncoming + " (" + (isIncoming ? "RECEIVER" : "CALLER") + ")");
-        Log.d(TAG, "conversationId: " + conversationId);
-        Log.d(TAG, "callerId: " + callerId);
-        Log.d(TAG, "receiverId: " + receiverId);
-        Log.d(TAG, "========================================");
+        if (AppLog.DEBUG) Log.d(TAG, "Created as " + (isIncoming ? "receiver" : "caller")
+                + ", conversationId=" + conversationId);
         String callerNameStr = intent.getStringExtra(EXTRA_CALLER_NAME);
 
         // Initialize ViewModel BEFORE initViews()
@@ -342,15 +338,11 @@ public class CallActivity extends AppCompatActivity {
      * Setup video views for video call
      */
     private void setupVideoViews() {
-        Log.d(TAG, "===== SETTING UP VIDEO VIEWS =====");
-
-        // Create EglBase for video rendering (Activity owns this, not Repository)
-        eglBase = EglBase.create();
-        Log.d(TAG, "EglBase created");
+        // Shared EglBase from the warm-up: the factory codecs, camera and renderers use one context
+        eglBase = CallWarmup.getInstance().getEglBase(this);
 
         // CRITICAL: Share EglBase context with WebRtcRepository IMMEDIATELY
         callViewModel.getWebRtcRepository().setEglBaseContext(eglBase.getEglBaseContext());
-        Log.d(TAG, "EglBase context shared with WebRtcRepository");
 
         // Initialize and setup remote video view FIRST (background, full screen)
         remoteVideoView.init(eglBase.getEglBaseContext(), null);
@@ -362,7 +354,6 @@ public class CallActivity extends AppCompatActivity {
         remoteVideoView.setVisibility(View.VISIBLE);
         remoteVideoView.bringToFront();  // Ensure it renders above white background
         remoteVideoView.requestLayout();
-        Log.d(TAG, "Remote video view initialized and set to VISIBLE (width=" + remoteVideoView.getWidth() + ", height=" + remoteVideoView.getHeight() + ")");
 
         // Initialize and setup local video view (foreground, small preview)
         localVideoView.init(eglBase.getEglBaseContext(), null);
@@ -375,40 +366,22 @@ public class CallActivity extends AppCompatActivity {
         localVideoView.setVisibility(View.VISIBLE);
         localVideoView.bringToFront();  // Ensure it renders on top
         localVideoView.requestLayout();
-        Log.d(TAG, "Local video view initialized and set to VISIBLE (width=" + localVideoView.getWidth() + ", height=" + localVideoView.getHeight() + ")");
-
-        // Force layout pass to ensure views have proper dimensions
-        remoteVideoView.post(() -> {
-            Log.d(TAG, "Post-layout remote view: width=" + remoteVideoView.getWidth() + ", height=" + remoteVideoView.getHeight());
-        });
-        localVideoView.post(() -> {
-            Log.d(TAG, "Post-layout local view: width=" + localVideoView.getWidth() + ", height=" + localVideoView.getHeight());
-        });
 
         // Register renderer - will attach video track when it's created in initializePeerConnection()
         callViewModel.getWebRtcRepository().attachLocalRenderer(localVideoView);
 
         // Setup remote stream callback
         callViewModel.getWebRtcRepository().setRemoteStreamCallback(mediaStream -> {
-            Log.d(TAG, "===== REMOTE STREAM CALLBACK TRIGGERED =====");
-            Log.d(TAG, "Remote stream ID: " + mediaStream.getId());
-            Log.d(TAG, "Audio tracks: " + mediaStream.audioTracks.size());
-            Log.d(TAG, "Video tracks: " + mediaStream.videoTracks.size());
+            if (AppLog.DEBUG) Log.d(TAG, "Remote stream " + mediaStream.getId() + ": "
+                    + mediaStream.audioTracks.size() + " audio, " + mediaStream.videoTracks.size() + " video");
 
             // Get video track from stream
             if (mediaStream.videoTracks.size() > 0) {
                 VideoTrack remoteVideoTrack = mediaStream.videoTracks.get(0);
-                Log.d(TAG, "Remote video track ID: " + remoteVideoTrack.id());
-                Log.d(TAG, "Remote video track enabled: " + remoteVideoTrack.enabled());
-                Log.d(TAG, "Remote video track state: " + remoteVideoTrack.state());
 
                 // Must run on UI thread
                 runOnUiThread(() -> {
                     if (remoteVideoView != null) {
-                        // Double-check visibility and dimensions
-                        Log.d(TAG, "Before attach: remoteVideoView visibility=" + remoteVideoView.getVisibility() +
-                                ", width=" + remoteVideoView.getWidth() + ", height=" + remoteVideoView.getHeight());
-
                         // Ensure view is visible before attaching
                         remoteVideoView.setVisibility(View.VISIBLE);
                         remoteVideoView.bringToFront();
@@ -418,19 +391,15 @@ public class CallActivity extends AppCompatActivity {
                         remoteVideoView.post(() -> {
                             // Attach video track to renderer
                             remoteVideoTrack.addSink(remoteVideoView);
-                            Log.d(TAG, "Remote video track attached to remoteVideoView");
-                            Log.d(TAG, "After attach: width=" + remoteVideoView.getWidth() + ", height=" + remoteVideoView.getHeight());
                         });
                     } else {
-                        Log.e(TAG, "ERROR: remoteVideoView is null!");
+                        Log.e(TAG, "Remote video view is null");
                     }
                 });
             } else {
-                Log.w(TAG, "WARNING: No video tracks in remote stream!");
+                Log.w(TAG, "No video tracks in remote stream");
             }
         });
-
-        Log.d(TAG, "===== VIDEO VIEWS SETUP COMPLETE =====");
     }
 
     private void setupObservers() {
@@ -452,7 +421,8 @@ public class CallActivity extends AppCompatActivity {
 
         // Observe connection state
         callViewModel.getConnectionState().observe(this, state -> {
-            Log.d(TAG, "Connection state: " + state);
+            // Timings and the selected candidate pair are recorded by CallTelemetry
+            if (AppLog.DEBUG) Log.d(TAG, "Connection state: " + state);
             if ("CONNECTED".equals(state)) {
                 onCallConnected();
             } else if ("FAILED".equals(state)) {
@@ -523,10 +493,7 @@ public class CallActivity extends AppCompatActivity {
     }
 
     private void acceptCall() {
-        Log.d(TAG, "===== ACCEPT BUTTON CLICKED =====");
-        Log.d(TAG, "Accepting call: " + callId);
-        Log.d(TAG, "receiverId: " + receiverId);
-        Log.d(TAG, "isVideo: " + isVideo);
+        Log.d(TAG, "Accepting call: " + callId + (isVideo ? " (video)" : ""));
         
         // Cancel incoming call notification and stop service immediately
         com.example.doan_zaloclone.utils.CallNotificationHelper.cancelNotification(
@@ -538,11 +505,9 @@ public class CallActivity extends AppCompatActivity {
         Intent stopServiceIntent = new Intent(this, com.example.doan_zaloclone.services.IncomingCallService.class);
         stopServiceIntent.setAction("ACTION_CANCEL_CALL");
         startService(stopServiceIntent);
-        
-        Log.d(TAG, "✅ Cancelled notification and stopped IncomingCallService on accept");
 
         if (callId == null) {
-            Log.e(TAG, "ERROR: callId is null!");
+            Log.e(TAG, "Cannot accept call: callId is null");
             showError("Invalid call ID");
             navigateToMain();
             return;
@@ -551,25 +516,21 @@ public class CallActivity extends AppCompatActivity {
         // Use receiver ID from Intent, fallback to current user if not available
         String currentUserId = receiverId != null ? receiverId : getCurrentUserId();
         if (currentUserId == null || currentUserId.isEmpty()) {
-            Log.e(TAG, "ERROR: currentUserId is null or empty!");
+            Log.e(TAG, "Cannot accept call: no receiver id");
             showError("Cannot determine receiver ID");
             navigateToMain();
             return;
         }
 
-        Log.d(TAG, "Calling callViewModel.acceptCall()...");
         // Pass isVideo flag to acceptCall so it can initialize WebRTC correctly
         callViewModel.acceptCall(callId, currentUserId, isVideo);
 
-        Log.d(TAG, "Setting UI to connecting...");
         callStatus.setText(R.string.call_connecting);
         showConnectingUI();
-        Log.d(TAG, "===== ACCEPT CALL COMPLETE =====");
     }
 
     private void rejectCall() {
-        Log.d(TAG, "Rejecting call");
-        Log.d(TAG, "conversationId: " + conversationId);
+        Log.d(TAG, "Rejecting call: " + callId);
         
         // Stop IncomingCallService to stop ringtone and vibration
         com.example.doan_zaloclone.utils.CallNotificationHelper.cancelNotification(
@@ -579,20 +540,15 @@ public class CallActivity extends AppCompatActivity {
         Intent stopServiceIntent = new Intent(this, com.example.doan_zaloclone.services.IncomingCallService.class);
         stopServiceIntent.setAction("ACTION_CANCEL_CALL");
         startService(stopServiceIntent);
-        Log.d(TAG, "✅ Stopped IncomingCallService on reject");
 
         if (callId != null) {
             callViewModel.rejectCall(callId);
 
             // Log call history as MISSED from receiver's perspective
             if (conversationId != null) {
-                Log.d(TAG, "========== REJECT CALL - LOGGING ===========");
-                Log.d(TAG, "Logging MISSED call history (rejected by receiver)");
-                Log.d(TAG, "isIncoming (should be TRUE): " + isIncoming);
-                Log.d(TAG, "conversationId: " + conversationId);
                 callViewModel.logCallHistory(conversationId, "MISSED", isVideo, 0, true);
             } else {
-                Log.e(TAG, "Cannot log MISSED call - conversationId is NULL!");
+                Log.e(TAG, "Cannot log missed call: conversationId is null");
             }
         }
         navigateToMain();
@@ -784,10 +740,7 @@ public class CallActivity extends AppCompatActivity {
                 }
 
                 long finalDurationSeconds = durationSeconds;
-                Log.d(TAG, "==========================================");
-                Log.d(TAG, "Call ENDED - Duration: " + durationSeconds + "s, conversationId: " + conversationId);
-                Log.d(TAG, "Call perspective - isIncoming: " + isIncoming);
-                Log.d(TAG, "==========================================");
+                Log.d(TAG, "Call ended after " + durationSeconds + "s");
 
                 if (conversationId != null) {
                     // Prevent duplicate logging
@@ -800,13 +753,11 @@ public class CallActivity extends AppCompatActivity {
                             // Call was not answered
                             callType = isIncoming ? "MISSED" : "OUTGOING";
                         }
-                        Log.d(TAG, "========== ENDED - LOGGING ===========");
-                        Log.d(TAG, "Logging call history on ENDED: type=" + callType + ", isIncoming=" + isIncoming);
                         callViewModel.logCallHistory(conversationId, callType, isVideo, durationSeconds, isIncoming);
                         callHistoryLogged = true;
                     }
                 } else {
-                    Log.e(TAG, "Cannot log call history - conversationId is NULL!");
+                    Log.e(TAG, "Cannot log call history: conversationId is null");
                 }
 
                 stopDurationTimer();
@@ -885,53 +836,14 @@ public class CallActivity extends AppCompatActivity {
     }
 
     private void showOngoingCallUI() {
-        Log.d(TAG, "===== showOngoingCallUI called =====");
-
         incomingCallButtons.setVisibility(View.GONE);
         callControls.setVisibility(View.VISIBLE);
         callDuration.setVisibility(View.VISIBLE);
 
-        Log.d(TAG, "Call controls visibility set to VISIBLE");
-        Log.d(TAG, "Call duration visibility set to VISIBLE");
-
         // For video calls: hide caller info, only show duration
-        if (isVideo) {
-            Log.d(TAG, "Configuring UI for VIDEO call");
-
-            // Ensure call duration is visible (already has high z-order in XML)
-            if (callDuration != null) {
-                callDuration.setVisibility(View.VISIBLE);
-                Log.d(TAG, "Call duration set to VISIBLE");
-            }
-
-            // Hide caller info container for clean video call UI
-            if (callerInfoContainer != null) {
-                callerInfoContainer.setVisibility(View.GONE);
-                Log.d(TAG, "Caller info container hidden for video call");
-            }
-
-            // Verify controls are visible
-            callControls.post(() -> {
-                Log.d(TAG, "Controls check: visibility=" + callControls.getVisibility() +
-                        ", width=" + callControls.getWidth() +
-                        ", height=" + callControls.getHeight());
-            });
-
-            // Video views are already visible from setupVideoViews()
-            // Just verify they're ready
-            if (remoteVideoView != null) {
-                Log.d(TAG, "Remote video: visibility=" + remoteVideoView.getVisibility() +
-                        ", width=" + remoteVideoView.getWidth() +
-                        ", height=" + remoteVideoView.getHeight());
-            }
-
-            if (localVideoView != null) {
-                Log.d(TAG, "Local video: visibility=" + localVideoView.getVisibility() +
-                        ", width=" + localVideoView.getWidth() +
-                        ", height=" + localVideoView.getHeight());
-            }
-
-            Log.d(TAG, "===== Video call UI configured =====");
+        // (video views are already visible from setupVideoViews())
+        if (isVideo && callerInfoContainer != null) {
+            callerInfoContainer.setVisibility(View.GONE);
         }
     }
 
@@ -1015,7 +927,8 @@ public class CallActivity extends AppCompatActivity {
             if (remoteVideoView != null) {
                 remoteVideoView.release();
             }
-            eglBase.release();
+            // eglBase is process-wide (CallWarmup), do not release it
+            eglBase = null;
         }
 
         // Reset audio mode
@@ -1,5 +1,6 @@
 package com.example.doan_zaloclone.ui.file;
 
+import android.content.res.ColorStateList;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,6 +8,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.widget.ImageViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -14,7 +16,9 @@ import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.FileCategory;
 import com.example.doan_zaloclone.models.FileItem;
+import com.example.doan_zaloclone.utils.LinkPreviewService;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -238,6 +242,7 @@ public class FileAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         TextView linkUrlTextView;
         TextView senderNameTextView;
         TextView dateTextView;
+        private final ColorStateList iconTint;
 
         LinkViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -246,16 +251,36 @@ public class FileAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             linkUrlTextView = itemView.findViewById(R.id.linkUrlTextView);
             senderNameTextView = itemView.findViewById(R.id.senderNameTextView);
             dateTextView = itemView.findViewById(R.id.dateTextView);
+            iconTint = ImageViewCompat.getImageTintList(linkIconImageView);
         }
 
         void bind(FileItem item, OnItemClickListener clickListener) {
-            // Link title (domain)
+            // Link title (domain until the page title is known)
             linkTitleTextView.setText(item.getDisplayName());
+            showLinkIcon();
 
             // Full URL
             String url = item.getExtractedUrl();
             linkUrlTextView.setText(url != null ? url : "");
 
+            // Page title and thumbnail from the same cache the chat bubbles use
+            linkIconImageView.setTag(R.id.tag_link_preview, url);
+            LinkPreviewService.getInstance().load(url, preview -> {
+                if (preview == null || url == null || !url.equals(linkIconImageView.getTag(R.id.tag_link_preview))) {
+                    return;
+                }
+                if (preview.getTitle() != null) {
+                    linkTitleTextView.setText(preview.getTitle());
+                }
+                if (preview.getImagePath() != null) {
+                    ImageViewCompat.setImageTintList(linkIconImageView, null);
+                    linkIconImageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
+                    Glide.with(linkIconImageView)
+                            .load(new File(preview.getImagePath()))
+                            .into(linkIconImageView);
+                }
+            });
+
             // Sender name
             String senderName = item.getSenderName();
             senderNameTextView.setText(senderName != null ? senderName : "User");
@@ -270,5 +295,12 @@ public class FileAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
                 }
             });
         }
+
+        private void showLinkIcon() {
+            Glide.with(linkIconImageView).clear(linkIconImageView);
+            ImageViewCompat.setImageTintList(linkIconImageView, iconTint);
+            linkIconImageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
+            linkIconImageView.setImageResource(R.drawable.ic_link);
+        }
     }
 }
@@ -732,6 +732,10 @@ public class HomeFragment extends Fragment {
                 if (conversations != null) {
                     android.util.Log.d("HomeFragment", "Received " + conversations.size() + " filtered conversations");
                     conversationAdapter.updateConversations(conversations);
+                    // Startup "fully drawn" = first conversation list on screen (cached or fresh)
+                    if (getActivity() != null) {
+                        getActivity().reportFullyDrawn();
+                    }
                 }
             } else if (resource.isError()) {
                 // Show error message
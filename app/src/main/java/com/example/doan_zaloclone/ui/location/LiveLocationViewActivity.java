@@ -3,7 +3,6 @@ package com.example.doan_zaloclone.ui.location;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.CountDownTimer;
-import android.preference.PreferenceManager;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
@@ -16,10 +15,11 @@ import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.LiveLocation;
 import com.example.doan_zaloclone.repository.ChatRepository;
 import com.example.doan_zaloclone.services.LocationSharingService;
+import com.example.doan_zaloclone.utils.GeocodingService;
+import com.example.doan_zaloclone.utils.MapTileCache;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 
-import org.osmdroid.config.Configuration;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
@@ -33,6 +33,7 @@ public class LiveLocationViewActivity extends AppCompatActivity {
     private MapView mapView;
     private TextView titleText;
     private TextView statusText;
+    private TextView addressText;
     private Button btnStopSharing;
     private View btnClose;
 
@@ -43,14 +44,14 @@ public class LiveLocationViewActivity extends AppCompatActivity {
     private Marker userMarker;
     private CountDownTimer countDownTimer;
     private ChatRepository chatRepository;
+    private GeocodingService.Lookup addressLookup;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        // Initialize OSMDroid configuration
-        Configuration.getInstance().load(getApplicationContext(), PreferenceManager.getDefaultSharedPreferences(getApplicationContext()));
-        Configuration.getInstance().setUserAgentValue(getPackageName());
+        // Initialize OSMDroid configuration (shared tile cache budget)
+        MapTileCache.getInstance(this).configureOsmdroid();
 
         setContentView(R.layout.activity_live_location_view);
 
@@ -74,6 +75,8 @@ public class LiveLocationViewActivity extends AppCompatActivity {
         mapView = findViewById(R.id.mapView);
         titleText = findViewById(R.id.titleText);
         statusText = findViewById(R.id.statusText);
+        addressText = findViewById(R.id.addressText);
+        addressLookup = GeocodingService.getInstance(this).newLookup();
         btnStopSharing = findViewById(R.id.btnStopSharing);
         btnClose = findViewById(R.id.btnClose);
 
@@ -125,6 +128,14 @@ public class LiveLocationViewActivity extends AppCompatActivity {
         mapView.getController().animateTo(point); // Smooth animate
         mapView.invalidate();
 
+        // Address of the current position (cached per ~150 m, so most updates are free)
+        addressLookup.request(liveLocation.getLatitude(), liveLocation.getLongitude(), address -> {
+            if (address != null) {
+                addressText.setText(address);
+                addressText.setVisibility(View.VISIBLE);
+            }
+        });
+
         // Update Status & Timer
         boolean isActive = liveLocation.isActive();
         long remainingTime = liveLocation.getEndTime() - System.currentTimeMillis();
@@ -187,6 +198,9 @@ public class LiveLocationViewActivity extends AppCompatActivity {
         if (liveLocationListener != null) {
             liveLocationListener.remove();
         }
+        if (addressLookup != null) {
+            addressLookup.cancel();
+        }
         cleanupTimer();
     }
 
@@ -3,10 +3,7 @@ package com.example.doan_zaloclone.ui.location;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.location.Address;
-import android.location.Geocoder;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -17,12 +14,13 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.utils.GeocodingService;
+import com.example.doan_zaloclone.utils.MapTileCache;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import org.osmdroid.api.IMapController;
-import org.osmdroid.config.Configuration;
 import org.osmdroid.events.MapEventsReceiver;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.GeoPoint;
@@ -30,8 +28,6 @@ import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.MapEventsOverlay;
 import org.osmdroid.views.overlay.Marker;
 
-import java.io.IOException;
-import java.util.List;
 import java.util.Locale;
 
 public class LocationPickerActivity extends AppCompatActivity {
@@ -60,19 +56,14 @@ public class LocationPickerActivity extends AppCompatActivity {
     private android.widget.Spinner durationSpinner;
     private boolean isLiveLocation = false;
     private long selectedDuration = 15 * 60 * 1000; // Default: 15 minutes
+    private GeocodingService.Lookup addressLookup;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        // Configure osmdroid with performance optimizations
-        Configuration.getInstance().load(this, PreferenceManager.getDefaultSharedPreferences(this));
-        Configuration.getInstance().setUserAgentValue(getPackageName());
-
-        // Enable tile cache for better performance
-        Configuration.getInstance().setTileFileSystemCacheMaxBytes(50L * 1024 * 1024); // 50MB cache
-        Configuration.getInstance().setTileFileSystemCacheTrimBytes(40L * 1024 * 1024); // Trim to 40MB
-        Configuration.getInstance().setExpirationExtendedDuration(1000L * 60 * 60 * 24 * 7); // 7 days
+        // Configure osmdroid (shared tile cache budget)
+        MapTileCache.getInstance(this).configureOsmdroid();
 
         setContentView(R.layout.activity_location_picker);
 
@@ -97,6 +88,7 @@ public class LocationPickerActivity extends AppCompatActivity {
         durationSpinner = findViewById(R.id.durationSpinner);
 
         // Initialize location client
+        addressLookup = GeocodingService.getInstance(this).newLookup();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
         // Setup map
@@ -285,22 +277,12 @@ public class LocationPickerActivity extends AppCompatActivity {
     }
 
     private void updateLocationInfo(double latitude, double longitude) {
-        // Try to get address from geocoder
-        Geocoder geocoder = new Geocoder(this, Locale.getDefault());
-        try {
-            List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
-            if (addresses != null && !addresses.isEmpty()) {
-                Address address = addresses.get(0);
-                String addressText = address.getAddressLine(0);
-                locationInfo.setText(addressText);
-            } else {
-                locationInfo.setText(String.format(Locale.getDefault(),
-                        "📍 %.4f, %.4f", latitude, longitude));
-            }
-        } catch (IOException e) {
-            locationInfo.setText(String.format(Locale.getDefault(),
-                    "📍 %.4f, %.4f", latitude, longitude));
-        }
+        // Show coordinates right away; the address replaces them once resolved
+        // (debounced, so tapping around quickly only geocodes the last point)
+        String coordinates = String.format(Locale.getDefault(), "📍 %.4f, %.4f", latitude, longitude);
+        locationInfo.setText(coordinates);
+        addressLookup.request(latitude, longitude, address ->
+                locationInfo.setText(address != null ? address : coordinates));
     }
 
     private void sendSelectedLocation() {
@@ -345,6 +327,9 @@ public class LocationPickerActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (addressLookup != null) {
+            addressLookup.cancel();
+        }
         if (mapView != null) {
             mapView.onDetach();
         }
@@ -34,6 +34,9 @@ public class TimelineFragment extends Fragment implements PostAdapter.OnPostInte
     private List<Post> postList;
     private PostViewModel viewModel;
 
+    // Số bài còn lại trước khi tải trang tiếp theo
+    private static final int PREFETCH_DISTANCE = 5;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -46,9 +49,9 @@ public class TimelineFragment extends Fragment implements PostAdapter.OnPostInte
         viewModel = new ViewModelProvider(this).get(PostViewModel.class);
 
         setupRecyclerView();
-        loadPosts();
+        observePosts();
 
-        swipeRefresh.setOnRefreshListener(this::loadPosts);
+        swipeRefresh.setOnRefreshListener(() -> viewModel.refreshPosts());
 
         view.findViewById(R.id.layoutCreatePost).setOnClickListener(v -> {
             Intent intent = new Intent(getActivity(), CreatePostActivity.class);
@@ -59,30 +62,55 @@ public class TimelineFragment extends Fragment implements PostAdapter.OnPostInte
     }
 
     private void setupRecyclerView() {
-        rvTimeline.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        rvTimeline.setLayoutManager(layoutManager);
         postAdapter = new PostAdapter(getContext(), postList, this);
         rvTimeline.setAdapter(postAdapter);
+
+        // Tải thêm trang khi cuộn gần cuối / đầu cửa sổ
+        rvTimeline.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int total = layoutManager.getItemCount();
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= total - PREFETCH_DISTANCE) {
+                    viewModel.loadOlderPosts();
+                } else if (dy < 0 && viewModel.hasNewerPosts()
+                        && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    viewModel.loadNewerPosts();
+                }
+            }
+        });
     }
 
-    private void loadPosts() {
+    private void observePosts() {
         swipeRefresh.setRefreshing(true);
         viewModel.getPosts().observe(getViewLifecycleOwner(), resource -> {
             if (resource.getStatus() == Resource.Status.SUCCESS) {
-                postList.clear();
-                if (resource.getData() != null) {
-                    postList.addAll(resource.getData());
-                }
-                postAdapter.notifyDataSetChanged();
+                // DiffUtil keeps the scroll position when the window is trimmed or extended
+                postAdapter.updatePosts(resource.getData() != null ? resource.getData() : new ArrayList<>());
+                swipeRefresh.setRefreshing(false);
             } else if (resource.getStatus() == Resource.Status.ERROR) {
                 Toast.makeText(getContext(), "Không thể tải bài viết: " + resource.getMessage(), Toast.LENGTH_SHORT).show();
+                swipeRefresh.setRefreshing(false);
             }
-            swipeRefresh.setRefreshing(false);
         });
+
+        // Like được cập nhật ngay trên giao diện, không chờ server
+        viewModel.getLikeChanges().observe(getViewLifecycleOwner(), postId -> {
+            if (postId != null) postAdapter.notifyLikeChanged(postId);
+        });
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        viewModel.startFeedUpdates();
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
+    public void onStop() {
+        super.onStop();
+        viewModel.stopFeedUpdates();
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.example.doan_zaloclone.ui.personal;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,6 +13,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
@@ -19,9 +21,13 @@ import com.bumptech.glide.Glide;
 import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.User;
 import com.example.doan_zaloclone.repository.AuthRepository;
+import com.example.doan_zaloclone.utils.EventTrace;
 import com.example.doan_zaloclone.viewmodel.PersonalViewModel;
 import com.example.doan_zaloclone.websocket.SocketManager;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * PersonalFragment - Main fragment for Personal tab
  * Displays compact user card and menu items
@@ -111,6 +117,11 @@ public class PersonalFragment extends Fragment {
             btnSettings.setOnClickListener(v -> {
                  Toast.makeText(getContext(), "Cài đặt & Quyền riêng tư", Toast.LENGTH_SHORT).show();
             });
+            // Long press: send the event trace along with a bug report
+            btnSettings.setOnLongClickListener(v -> {
+                shareDiagnostics();
+                return true;
+            });
         }
 
         // Logout Button
@@ -120,6 +131,23 @@ public class PersonalFragment extends Fragment {
         }
     }
 
+    private void shareDiagnostics() {
+        try {
+            File file = EventTrace.exportToFile(requireContext());
+            Uri contentUri = FileProvider.getUriForFile(requireContext(),
+                    requireContext().getPackageName() + ".fileprovider", file);
+
+            Intent shareIntent = new Intent(Intent.ACTION_SEND);
+            shareIntent.setType("text/plain");
+            shareIntent.putExtra(Intent.EXTRA_STREAM, contentUri);
+            shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Nhật ký chẩn đoán Zalo Clone");
+            shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            startActivity(Intent.createChooser(shareIntent, "Gửi nhật ký chẩn đoán"));
+        } catch (IOException e) {
+            Toast.makeText(getContext(), "Không thể xuất nhật ký chẩn đoán", Toast.LENGTH_SHORT).show();
+        }
+    }
+
     private void showLogoutConfirmation() {
         new androidx.appcompat.app.AlertDialog.Builder(requireContext())
                 .setTitle("Đăng xuất")
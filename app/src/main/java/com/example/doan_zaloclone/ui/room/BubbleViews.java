@@ -0,0 +1,105 @@
+package com.example.doan_zaloclone.ui.room;
+
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.models.MessageReaction;
+
+/**
+ * Child views shared by every message bubble layout (pin indicator, reaction bar)
+ * Looked up once per item view and kept in a view tag, so a bind no longer walks the
+ * view tree with findViewById for each of them. Any of them may be null for layouts
+ * that don't have it.
+ */
+public final class BubbleViews {
+
+    private static final String[] REACTION_TYPES = {
+            MessageReaction.REACTION_HEART,
+            MessageReaction.REACTION_LIKE,
+            MessageReaction.REACTION_HAHA,
+            MessageReaction.REACTION_SAD,
+            MessageReaction.REACTION_ANGRY,
+            MessageReaction.REACTION_WOW
+    };
+    private static final int[] REACTION_LAYOUT_IDS = {
+            R.id.heartReactionLayout,
+            R.id.likeReactionLayout,
+            R.id.hahaReactionLayout,
+            R.id.sadReactionLayout,
+            R.id.angryReactionLayout,
+            R.id.wowReactionLayout
+    };
+    private static final int[] REACTION_COUNT_IDS = {
+            R.id.heartReactionCount,
+            R.id.likeReactionCount,
+            R.id.hahaReactionCount,
+            R.id.sadReactionCount,
+            R.id.angryReactionCount,
+            R.id.wowReactionCount
+    };
+
+    public final View pinIndicator;
+    public final View reactionContainer;
+    public final View existingReactionsLayout;
+    public final ImageView addReactionButton;
+    private final View[] reactionLayouts = new View[REACTION_TYPES.length];
+    private final TextView[] reactionCounts = new TextView[REACTION_TYPES.length];
+
+    private BubbleViews(View itemView) {
+        pinIndicator = itemView.findViewById(R.id.pinIndicator);
+        reactionContainer = itemView.findViewById(R.id.reactionContainer);
+        existingReactionsLayout = itemView.findViewById(R.id.existingReactionsLayout);
+        addReactionButton = itemView.findViewById(R.id.addReactionButton);
+        for (int i = 0; i < REACTION_TYPES.length; i++) {
+            reactionLayouts[i] = itemView.findViewById(REACTION_LAYOUT_IDS[i]);
+            reactionCounts[i] = itemView.findViewById(REACTION_COUNT_IDS[i]);
+        }
+    }
+
+    @NonNull
+    public static BubbleViews of(@NonNull View itemView) {
+        Object tag = itemView.getTag(R.id.tag_bubble_views);
+        if (tag instanceof BubbleViews) {
+            return (BubbleViews) tag;
+        }
+        BubbleViews views = new BubbleViews(itemView);
+        itemView.setTag(R.id.tag_bubble_views, views);
+        return views;
+    }
+
+    /**
+     * Pill showing one reaction type and its count
+     */
+    @Nullable
+    public View reactionLayout(String reactionType) {
+        int index = indexOf(reactionType);
+        return index >= 0 ? reactionLayouts[index] : null;
+    }
+
+    @Nullable
+    public TextView reactionCount(String reactionType) {
+        int index = indexOf(reactionType);
+        return index >= 0 ? reactionCounts[index] : null;
+    }
+
+    public void hideAllReactions() {
+        for (View layout : reactionLayouts) {
+            if (layout != null) {
+                layout.setVisibility(View.GONE);
+            }
+        }
+    }
+
+    private static int indexOf(String reactionType) {
+        if (reactionType == null) return -1;
+        for (int i = 0; i < REACTION_TYPES.length; i++) {
+            if (REACTION_TYPES[i].equals(reactionType)) return i;
+        }
+        return -1;
+    }
+}
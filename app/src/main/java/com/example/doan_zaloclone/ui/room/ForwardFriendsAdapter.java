@@ -36,6 +36,12 @@ public class ForwardFriendsAdapter extends RecyclerView.Adapter<ForwardFriendsAd
         this.listener = listener;
     }
 
+    @Override
+    public int getItemViewType(int position) {
+        // Layout id as view type: unique within the room's shared MessageViewPool
+        return R.layout.item_selectable_friend;
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -46,7 +52,7 @@ public class ForwardFriendsAdapter extends RecyclerView.Adapter<ForwardFriendsAd
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        holder.bind(filteredFriends.get(position));
+        holder.bind(filteredFriends.get(position), selectedFriendIds, listener);
     }
 
     @Override
@@ -103,7 +109,8 @@ public class ForwardFriendsAdapter extends RecyclerView.Adapter<ForwardFriendsAd
         void onSelectionChanged(int selectedCount);
     }
 
-    class ViewHolder extends RecyclerView.ViewHolder {
+    // Static: holders outlive this adapter in the shared pool, so state comes in through bind()
+    static class ViewHolder extends RecyclerView.ViewHolder {
         private final CheckBox friendCheckBox;
         private final TextView friendNameTextView;
         private final TextView friendEmailTextView;
@@ -115,7 +122,7 @@ public class ForwardFriendsAdapter extends RecyclerView.Adapter<ForwardFriendsAd
             friendEmailTextView = itemView.findViewById(R.id.friendEmailTextView);
         }
 
-        public void bind(User friend) {
+        public void bind(User friend, Set<String> selectedFriendIds, OnSelectionChangedListener listener) {
             friendNameTextView.setText(friend.getName());
             friendEmailTextView.setText(friend.getEmail());
 
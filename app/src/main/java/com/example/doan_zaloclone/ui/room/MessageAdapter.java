@@ -1,6 +1,8 @@
 package com.example.doan_zaloclone.ui.room;
 
+import android.content.ActivityNotFoundException;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.CountDownTimer;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -8,7 +10,9 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
@@ -20,15 +24,15 @@ import com.example.doan_zaloclone.models.Message;
 import com.example.doan_zaloclone.repository.ChatRepository;
 import com.example.doan_zaloclone.services.LocationSharingService;
 import com.example.doan_zaloclone.ui.location.LiveLocationViewActivity;
+import com.example.doan_zaloclone.utils.AppLog;
+import com.example.doan_zaloclone.utils.EventTrace;
+import com.example.doan_zaloclone.utils.LinkPreviewService;
+import com.example.doan_zaloclone.utils.MapTileCache;
+import com.example.doan_zaloclone.utils.MessageTextCache;
+import com.example.doan_zaloclone.utils.VideoTranscoder;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 
-import org.osmdroid.config.Configuration;
-import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
-import org.osmdroid.util.GeoPoint;
-import org.osmdroid.views.MapView;
-import org.osmdroid.views.overlay.Marker;
-
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -62,6 +66,8 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     // Static SimpleDateFormat to avoid recreation in bind()
     private static final SimpleDateFormat TIMESTAMP_FORMAT =
             new SimpleDateFormat("HH:mm", Locale.getDefault());
+    // Location bubbles are at most this wide; thumbnails are rendered at this size
+    private static final int MAP_THUMBNAIL_WIDTH_DP = 260;
     private final String currentUserId;
     private final java.util.Set<String> pinnedMessageIds = new java.util.HashSet<>();
     private List<Message> messages;
@@ -76,6 +82,8 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     private OnMessageEditListener editListener;
     private OnMessageDeleteListener deleteListener;
     private OnPollInteractionListener pollInteractionListener;
+    // Handed from createPreInflatedViewHolder to onCreateViewHolder (main thread)
+    private View preInflatedView;
 
     public MessageAdapter(List<Message> messages, String currentUserId) {
         this.messages = messages;
@@ -171,7 +179,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
      */
     private static void applyPinAndHighlight(View itemView, boolean isPinned, boolean isHighlighted) {
         // Find pin indicator (can be ImageView or CardView)
-        View pinIndicator = itemView.findViewById(R.id.pinIndicator);
+        View pinIndicator = BubbleViews.of(itemView).pinIndicator;
         if (pinIndicator != null) {
             pinIndicator.setVisibility(isPinned ? View.VISIBLE : View.GONE);
         }
@@ -184,6 +192,91 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         }
     }
 
+    /**
+     * Play a video file message in a streaming player instead of downloading it first
+     *
+     * @return false if this is not a video or no app can stream it (caller downloads instead)
+     */
+    private static boolean openVideo(View itemView, Message message) {
+        if (!message.isVideoFile()) return false;
+        if (message.isUploading() || message.getContent() == null || message.getContent().isEmpty()) {
+            Toast.makeText(itemView.getContext(), "Video đang được tải lên, vui lòng đợi", Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        String url = VideoTranscoder.toPlayableUrl(message.getContent(), message.getVideoCodec());
+        intent.setDataAndType(Uri.parse(url), "video/*");
+        try {
+            itemView.getContext().startActivity(intent);
+            return true;
+        } catch (ActivityNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Poster frame, duration and upload spinner on top of a video file bubble
+     * The frame is sized from the video's aspect ratio so the bubble does not jump when the poster loads.
+     */
+    static class VideoPosterViews {
+        private static final int WIDTH_DP = 240;
+        private static final int MIN_HEIGHT_DP = 120;
+        private static final int MAX_HEIGHT_DP = 320;
+
+        private final View container;
+        private final ImageView poster;
+        private final View playIcon;
+        private final View uploadProgress;
+        private final TextView duration;
+
+        VideoPosterViews(View itemView) {
+            container = itemView.findViewById(R.id.videoPosterContainer);
+            poster = itemView.findViewById(R.id.videoPoster);
+            playIcon = itemView.findViewById(R.id.videoPlayIcon);
+            uploadProgress = itemView.findViewById(R.id.videoUploadProgress);
+            duration = itemView.findViewById(R.id.videoDuration);
+        }
+
+        void bind(Message message) {
+            if (container == null) return;
+            if (!message.isVideoFile() || message.getThumbnailUrl() == null) {
+                if (container.getVisibility() != View.GONE) {
+                    Glide.with(poster).clear(poster);
+                    container.setVisibility(View.GONE);
+                }
+                return;
+            }
+            container.setVisibility(View.VISIBLE);
+
+            float density = container.getResources().getDisplayMetrics().density;
+            int width = Math.round(WIDTH_DP * density);
+            int height = width * 9 / 16;
+            if (message.getVideoWidth() > 0 && message.getVideoHeight() > 0) {
+                height = width * message.getVideoHeight() / message.getVideoWidth();
+            }
+            height = Math.max(Math.round(MIN_HEIGHT_DP * density), Math.min(Math.round(MAX_HEIGHT_DP * density), height));
+            ViewGroup.LayoutParams params = container.getLayoutParams();
+            if (params.width != width || params.height != height) {
+                params.width = width;
+                params.height = height;
+                container.setLayoutParams(params);
+            }
+
+            Glide.with(poster).load(message.getThumbnailUrl()).centerCrop().into(poster);
+
+            boolean uploading = message.isUploading();
+            uploadProgress.setVisibility(uploading ? View.VISIBLE : View.GONE);
+            playIcon.setVisibility(uploading ? View.GONE : View.VISIBLE);
+            int seconds = message.getVideoDuration();
+            if (seconds > 0) {
+                duration.setText(String.format(Locale.getDefault(), "%d:%02d", seconds / 60, seconds % 60));
+                duration.setVisibility(View.VISIBLE);
+            } else {
+                duration.setVisibility(View.GONE);
+            }
+        }
+    }
+
     /**
      * Helper method to bind reaction indicator to a message view
      *
@@ -195,10 +288,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     private static void bindReactionIndicator(View itemView, Message message,
                                               String currentUserId,
                                               OnMessageReactionListener reactionListener) {
-        // Find new layout views
-        View reactionContainer = itemView.findViewById(R.id.reactionContainer);
-        View existingReactionsLayout = itemView.findViewById(R.id.existingReactionsLayout);
-        ImageView addReactionButton = itemView.findViewById(R.id.addReactionButton);
+        // Reaction views are looked up once per item view
+        BubbleViews views = BubbleViews.of(itemView);
+        View reactionContainer = views.reactionContainer;
+        View existingReactionsLayout = views.existingReactionsLayout;
+        ImageView addReactionButton = views.addReactionButton;
 
         if (reactionContainer == null || addReactionButton == null) {
             return; // Layout doesn't have reaction views
@@ -240,17 +334,14 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             existingReactionsLayout.setVisibility(View.VISIBLE);
 
             // Hide all reaction layouts first
-            hideAllReactionLayouts(itemView);
+            views.hideAllReactions();
 
             // Only show top 2 reactions with count > 0
             for (String reactionType : topReactions) {
-                int layoutId = getReactionLayoutId(reactionType);
-                int countTextId = getReactionCountTextId(reactionType);
                 Integer count = reactionCounts.get(reactionType);
-                if (layoutId != 0 && countTextId != 0 && count != null && count > 0) {
-                    bindSingleReaction(itemView, layoutId, countTextId,
-                            reactionType, count,
-                            message, reactionListener);
+                if (count != null && count > 0) {
+                    bindSingleReaction(views.reactionLayout(reactionType),
+                            views.reactionCount(reactionType), count);
                 }
             }
 
@@ -284,7 +375,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                         ? currentUserReaction
                         : com.example.doan_zaloclone.models.MessageReaction.REACTION_HEART;
 
-                android.util.Log.d("MessageAdapter", "onClick - messageId: " + message.getId()
+                if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "onClick - messageId: " + message.getId()
                         + ", currentUserReaction: " + currentUserReaction
                         + ", reactionToAdd: " + reactionToAdd
                         + ", reactions: " + (message.getReactions() != null ? message.getReactions().size() : 0)
@@ -329,12 +420,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
      * Bind a single reaction type layout
      * No click listener - whole counter area shows stats, only add button increments count
      */
-    private static void bindSingleReaction(View itemView, int layoutId, int countTextId,
-                                           String reactionType, int count,
-                                           Message message, OnMessageReactionListener listener) {
-        View layout = itemView.findViewById(layoutId);
-        TextView countText = itemView.findViewById(countTextId);
-
+    private static void bindSingleReaction(View layout, TextView countText, int count) {
         if (layout == null) return;
 
         if (count > 0) {
@@ -374,73 +460,6 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         }
     }
 
-    /**
-     * Get layout ID for a reaction type
-     */
-    private static int getReactionLayoutId(String reactionType) {
-        if (reactionType == null) return 0;
-        switch (reactionType) {
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_HEART:
-                return R.id.heartReactionLayout;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_LIKE:
-                return R.id.likeReactionLayout;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_HAHA:
-                return R.id.hahaReactionLayout;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_SAD:
-                return R.id.sadReactionLayout;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_ANGRY:
-                return R.id.angryReactionLayout;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_WOW:
-                return R.id.wowReactionLayout;
-            default:
-                return 0;
-        }
-    }
-
-    /**
-     * Get count TextView ID for a reaction type
-     */
-    private static int getReactionCountTextId(String reactionType) {
-        if (reactionType == null) return 0;
-        switch (reactionType) {
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_HEART:
-                return R.id.heartReactionCount;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_LIKE:
-                return R.id.likeReactionCount;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_HAHA:
-                return R.id.hahaReactionCount;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_SAD:
-                return R.id.sadReactionCount;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_ANGRY:
-                return R.id.angryReactionCount;
-            case com.example.doan_zaloclone.models.MessageReaction.REACTION_WOW:
-                return R.id.wowReactionCount;
-            default:
-                return 0;
-        }
-    }
-
-    /**
-     * Hide all reaction layouts
-     */
-    private static void hideAllReactionLayouts(View itemView) {
-        int[] layoutIds = {
-                R.id.heartReactionLayout,
-                R.id.likeReactionLayout,
-                R.id.hahaReactionLayout,
-                R.id.sadReactionLayout,
-                R.id.angryReactionLayout,
-                R.id.wowReactionLayout
-        };
-
-        for (int layoutId : layoutIds) {
-            View layout = itemView.findViewById(layoutId);
-            if (layout != null) {
-                layout.setVisibility(View.GONE);
-            }
-        }
-    }
-
     public void setGroupChat(boolean isGroupChat) {
         this.isGroupChat = isGroupChat;
         notifyDataSetChanged();
@@ -512,7 +531,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         Message message = messages.get(position);
 
         // Debug log
-        android.util.Log.d("MessageAdapter", "getItemViewType - position: " + position +
+        if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "getItemViewType - position: " + position +
                 ", messageId: " + message.getId() +
                 ", isRecalled: " + message.isRecalled());
 
@@ -576,102 +595,133 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view;
+        View view = preInflatedView;
+        preInflatedView = null;
+        if (view == null) {
+            view = LayoutInflater.from(parent.getContext())
+                    .inflate(getLayoutForViewType(viewType), parent, false);
+        }
         switch (viewType) {
             case VIEW_TYPE_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_sent, parent, false);
                 return new SentMessageViewHolder(view);
             case VIEW_TYPE_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_received, parent, false);
                 return new ReceivedMessageViewHolder(view);
             case VIEW_TYPE_IMAGE_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_image_sent, parent, false);
                 return new ImageSentViewHolder(view);
             case VIEW_TYPE_IMAGE_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_image_received, parent, false);
                 return new ImageReceivedViewHolder(view);
             case VIEW_TYPE_FILE_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_file_sent, parent, false);
                 return new FileMessageSentViewHolder(view);
             case VIEW_TYPE_FILE_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_file_received, parent, false);
                 return new FileMessageReceivedViewHolder(view);
             case VIEW_TYPE_CALL_HISTORY:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_call_history, parent, false);
                 return new CallHistoryViewHolder(view);
             case VIEW_TYPE_RECALLED_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_recalled_sent, parent, false);
                 return new RecalledMessageViewHolder(view);
             case VIEW_TYPE_RECALLED_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_recalled_received, parent, false);
                 return new RecalledMessageViewHolder(view);
             case VIEW_TYPE_POLL_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_poll_sent, parent, false);
                 return new PollMessageViewHolder(view, true);
             case VIEW_TYPE_POLL_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_poll_received, parent, false);
                 return new PollMessageViewHolder(view, false);
             case VIEW_TYPE_CONTACT_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_contact_sent, parent, false);
                 return new ContactMessageViewHolder(view, true);
             case VIEW_TYPE_CONTACT_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_contact_received, parent, false);
                 return new ContactMessageViewHolder(view, false);
             case VIEW_TYPE_LOCATION_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_location_sent, parent, false);
                 return new LocationMessageViewHolder(view);
             case VIEW_TYPE_LOCATION_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_location_received, parent, false);
                 return new LocationMessageViewHolder(view);
             case VIEW_TYPE_LIVE_LOCATION_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_live_location_sent, parent, false);
                 return new LiveLocationMessageViewHolder(view, true);
             case VIEW_TYPE_LIVE_LOCATION_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_live_location_received, parent, false);
                 return new LiveLocationMessageViewHolder(view, false);
             case VIEW_TYPE_STICKER_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_sticker_sent, parent, false);
                 return new StickerMessageViewHolder(view, true);
             case VIEW_TYPE_STICKER_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_sticker_received, parent, false);
                 return new StickerMessageViewHolder(view, false);
             case VIEW_TYPE_VOICE_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_voice_sent, parent, false);
                 return com.example.doan_zaloclone.adapters.VoiceMessageViewHolder.create(view);
             case VIEW_TYPE_VOICE_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_voice_received, parent, false);
                 return com.example.doan_zaloclone.adapters.VoiceMessageViewHolder.create(view);
             default:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_sent, parent, false);
                 return new SentMessageViewHolder(view);
         }
     }
 
+    /**
+     * Layout inflated for a view type
+     */
+    @LayoutRes
+    public static int getLayoutForViewType(int viewType) {
+        switch (viewType) {
+            case VIEW_TYPE_SENT:
+                return R.layout.item_message_sent;
+            case VIEW_TYPE_RECEIVED:
+                return R.layout.item_message_received;
+            case VIEW_TYPE_IMAGE_SENT:
+                return R.layout.item_message_image_sent;
+            case VIEW_TYPE_IMAGE_RECEIVED:
+                return R.layout.item_message_image_received;
+            case VIEW_TYPE_FILE_SENT:
+                return R.layout.item_message_file_sent;
+            case VIEW_TYPE_FILE_RECEIVED:
+                return R.layout.item_message_file_received;
+            case VIEW_TYPE_CALL_HISTORY:
+                return R.layout.item_message_call_history;
+            case VIEW_TYPE_RECALLED_SENT:
+                return R.layout.item_message_recalled_sent;
+            case VIEW_TYPE_RECALLED_RECEIVED:
+                return R.layout.item_message_recalled_received;
+            case VIEW_TYPE_POLL_SENT:
+                return R.layout.item_message_poll_sent;
+            case VIEW_TYPE_POLL_RECEIVED:
+                return R.layout.item_message_poll_received;
+            case VIEW_TYPE_CONTACT_SENT:
+                return R.layout.item_message_contact_sent;
+            case VIEW_TYPE_CONTACT_RECEIVED:
+                return R.layout.item_message_contact_received;
+            case VIEW_TYPE_LOCATION_SENT:
+                return R.layout.item_message_location_sent;
+            case VIEW_TYPE_LOCATION_RECEIVED:
+                return R.layout.item_message_location_received;
+            case VIEW_TYPE_LIVE_LOCATION_SENT:
+                return R.layout.item_message_live_location_sent;
+            case VIEW_TYPE_LIVE_LOCATION_RECEIVED:
+                return R.layout.item_message_live_location_received;
+            case VIEW_TYPE_STICKER_SENT:
+                return R.layout.item_message_sticker_sent;
+            case VIEW_TYPE_STICKER_RECEIVED:
+                return R.layout.item_message_sticker_received;
+            case VIEW_TYPE_VOICE_SENT:
+                return R.layout.item_message_voice_sent;
+            case VIEW_TYPE_VOICE_RECEIVED:
+                return R.layout.item_message_voice_received;
+            default:
+                return R.layout.item_message_sent;
+        }
+    }
+
+    /**
+     * Wrap a bubble inflated off the main thread (see MessageViewPool) in a holder
+     * Goes through createViewHolder so the holder carries its view type into the pool.
+     */
+    RecyclerView.ViewHolder createPreInflatedViewHolder(@NonNull ViewGroup parent, @NonNull View view, int viewType) {
+        preInflatedView = view;
+        return createViewHolder(parent, viewType);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Message message = messages.get(position);
+        long traceStart = EventTrace.begin(EventTrace.BIND);
+        try {
+            bindMessage(holder, messages.get(position));
+        } finally {
+            EventTrace.end(EventTrace.BIND, traceStart);
+        }
+    }
+
+    private void bindMessage(@NonNull RecyclerView.ViewHolder holder, Message message) {
         boolean isPinned = isMessagePinned(message.getId());
         boolean isHighlighted = message.getId() != null && message.getId().equals(highlightedMessageId);
 
@@ -713,6 +763,10 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         if (holder instanceof com.example.doan_zaloclone.adapters.VoiceMessageViewHolder) {
             ((com.example.doan_zaloclone.adapters.VoiceMessageViewHolder) holder).onRecycled();
         }
+        // Detach sticker bubbles from the shared animation clock
+        if (holder instanceof StickerMessageViewHolder) {
+            ((StickerMessageViewHolder) holder).onRecycled();
+        }
     }
 
     @Override
@@ -721,7 +775,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     }
 
     public void updateMessages(List<Message> newMessages) {
-        android.util.Log.d("MessageAdapter", "📥 updateMessages called with " + (newMessages != null ? newMessages.size() : 0) + " messages");
+        if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "📥 updateMessages called with " + (newMessages != null ? newMessages.size() : 0) + " messages");
         
         // Filter out call messages from other users
         // Each user should only see their own call history perspective
@@ -746,7 +800,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             oldMessages.add(new Message(msg)); // Deep copy each message
         }
         
-        android.util.Log.d("MessageAdapter", "📋 Created deep copy of old messages: " + oldMessages.size());
+        if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "📋 Created deep copy of old messages: " + oldMessages.size());
 
         // Check if any message has changed isRecalled status (ViewType change requires full rebind)
         boolean hasRecalledChange = false;
@@ -756,7 +810,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             if (oldMsg.getId() != null && newMsg.getId() != null && oldMsg.getId().equals(newMsg.getId())) {
                 if (oldMsg.isRecalled() != newMsg.isRecalled()) {
                     hasRecalledChange = true;
-                    android.util.Log.d("MessageAdapter", "Detected recall change for message: " + oldMsg.getId());
+                    if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "Detected recall change for message: " + oldMsg.getId());
                     break;
                 }
             }
@@ -772,15 +826,21 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         try {
             if (hasRecalledChange) {
                 // ViewType changed - need full rebind to avoid inconsistency
-                android.util.Log.d("MessageAdapter", "Using notifyDataSetChanged due to recall status change");
+                if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "Using notifyDataSetChanged due to recall status change");
                 notifyDataSetChanged();
             } else {
                 // Normal diff update
-                android.util.Log.d("MessageAdapter", "🔄 Running DiffUtil.calculateDiff with old=" + oldMessages.size() + ", new=" + filteredMessages.size());
-                DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new MessageDiffCallback(oldMessages, filteredMessages));
-                android.util.Log.d("MessageAdapter", "🔄 DiffUtil complete, dispatching updates...");
+                if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "🔄 Running DiffUtil.calculateDiff with old=" + oldMessages.size() + ", new=" + filteredMessages.size());
+                long traceStart = EventTrace.begin(EventTrace.DIFF);
+                DiffUtil.DiffResult diffResult;
+                try {
+                    diffResult = DiffUtil.calculateDiff(new MessageDiffCallback(oldMessages, filteredMessages));
+                } finally {
+                    EventTrace.end(EventTrace.DIFF, traceStart);
+                }
+                if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "🔄 DiffUtil complete, dispatching updates...");
                 diffResult.dispatchUpdatesTo(this);
-                android.util.Log.d("MessageAdapter", "✅ DiffUtil updates dispatched");
+                if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "✅ DiffUtil updates dispatched");
             }
         } catch (Exception e) {
             // Fallback to notifyDataSetChanged if DiffUtil fails
@@ -872,6 +932,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     static class SentMessageViewHolder extends RecyclerView.ViewHolder {
         private final TextView messageTextView;
+        private final View linkPreviewCard;
         private final TextView timestampTextView;
         private final TextView forwardedIndicator;
         private final View replyPreviewContainer;
@@ -885,6 +946,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         public SentMessageViewHolder(@NonNull View itemView) {
             super(itemView);
             messageTextView = itemView.findViewById(R.id.messageTextView);
+            // Links stay clickable alongside the long-press menu
+            messageTextView.setLinksClickable(true);
+            messageTextView.setMovementMethod(android.text.method.LinkMovementMethod.getInstance());
+            MessageTextCache.getInstance().attach(messageTextView);
+            linkPreviewCard = itemView.findViewById(R.id.linkPreviewCard);
             timestampTextView = itemView.findViewById(R.id.timestampTextView);
             forwardedIndicator = itemView.findViewById(R.id.forwardedIndicator);
             replyPreviewContainer = itemView.findViewById(R.id.replyPreviewContainer);
@@ -897,13 +963,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             this.replyListener = replyListener;
             this.recallListener = recallListener;
             this.currentUserId = currentUserId;
-            messageTextView.setText(message.getContent());
-            
-            // Make links, phone numbers, emails clickable
-            // Use autoLink mask and custom movement method to allow both link clicks and long press
-            android.text.util.Linkify.addLinks(messageTextView, android.text.util.Linkify.WEB_URLS | android.text.util.Linkify.PHONE_NUMBERS | android.text.util.Linkify.EMAIL_ADDRESSES);
-            messageTextView.setLinksClickable(true);
-            messageTextView.setMovementMethod(android.text.method.LinkMovementMethod.getInstance());
+            // Links, phone numbers, e-mails and mentions were parsed (and long texts measured)
+            // off the main thread when the message arrived
+            MessageTextCache.getInstance().bind(messageTextView, message);
+            LinkPreviewService.getInstance().bind(linkPreviewCard,
+                    MessageTextCache.getInstance().firstWebUrl(message));
             
             // Set long click on messageTextView to show context menu (works alongside links)
             messageTextView.setOnLongClickListener(v -> {
@@ -914,7 +978,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             timestampTextView.setText(TIMESTAMP_FORMAT.format(new Date(message.getTimestamp())));
 
             // Debug log for reply data
-            android.util.Log.d("MessageAdapter", "bind() - messageId: " + message.getId() +
+            if (AppLog.DEBUG) android.util.Log.d("MessageAdapter", "bind() - messageId: " + message.getId() +
                     ", isReplyMessage: " + message.isReplyMessage() +
                     ", replyToId: " + message.getReplyToId() +
                     ", replyToSenderName: " + message.getReplyToSenderName());
@@ -961,6 +1025,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     static class ReceivedMessageViewHolder extends RecyclerView.ViewHolder {
         private final TextView messageTextView;
+        private final View linkPreviewCard;
         private final TextView timestampTextView;
         private final TextView senderNameTextView;
         private final TextView forwardedIndicator;
@@ -975,6 +1040,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         public ReceivedMessageViewHolder(@NonNull View itemView) {
             super(itemView);
             messageTextView = itemView.findViewById(R.id.messageTextView);
+            // Links stay clickable alongside the long-press menu
+            messageTextView.setLinksClickable(true);
+            messageTextView.setMovementMethod(android.text.method.LinkMovementMethod.getInstance());
+            MessageTextCache.getInstance().attach(messageTextView);
+            linkPreviewCard = itemView.findViewById(R.id.linkPreviewCard);
             timestampTextView = itemView.findViewById(R.id.timestampTextView);
             senderNameTextView = itemView.findViewById(R.id.senderNameTextView);
             forwardedIndicator = itemView.findViewById(R.id.forwardedIndicator);
@@ -988,12 +1058,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             this.replyListener = replyListener;
             this.recallListener = recallListener;
             this.currentUserId = currentUserId;
-            messageTextView.setText(message.getContent());
-            
-            // Make links, phone numbers, emails clickable
-            android.text.util.Linkify.addLinks(messageTextView, android.text.util.Linkify.WEB_URLS | android.text.util.Linkify.PHONE_NUMBERS | android.text.util.Linkify.EMAIL_ADDRESSES);
-            messageTextView.setLinksClickable(true);
-            messageTextView.setMovementMethod(android.text.method.LinkMovementMethod.getInstance());
+            // Links, phone numbers, e-mails and mentions were parsed (and long texts measured)
+            // off the main thread when the message arrived
+            MessageTextCache.getInstance().bind(messageTextView, message);
+            LinkPreviewService.getInstance().bind(linkPreviewCard,
+                    MessageTextCache.getInstance().firstWebUrl(message));
             
             // Set long click on messageTextView to show context menu (works alongside links)
             messageTextView.setOnLongClickListener(v -> {
@@ -1205,6 +1274,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         private final TextView fileSize;
         private final TextView timestampTextView;
         private final TextView forwardedIndicator;
+        private final VideoPosterViews videoPoster;
         private OnMessageLongClickListener listener;
         private OnMessageRecallListener recallListener;
         private String currentUserId;
@@ -1216,6 +1286,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             fileSize = itemView.findViewById(R.id.fileSize);
             timestampTextView = itemView.findViewById(R.id.timestampTextView);
             forwardedIndicator = itemView.findViewById(R.id.forwardedIndicator);
+            videoPoster = new VideoPosterViews(itemView);
         }
 
         public void bind(Message message, OnMessageLongClickListener listener, OnMessageReplyListener replyListener, OnReplyPreviewClickListener previewClickListener, OnMessageRecallListener recallListener, OnMessageForwardListener forwardListener, OnMessageEditListener editListener, OnMessageDeleteListener deleteListener, String currentUserId, boolean isPinned, boolean isHighlighted, OnMessageReactionListener reactionListener) {
@@ -1234,6 +1305,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             // Set appropriate icon based on file type
             int iconResId = com.example.doan_zaloclone.utils.FileUtils.getFileIcon(message.getFileMimeType());
             fileIcon.setImageResource(iconResId);
+            videoPoster.bind(message);
 
             // Bind forwarded indicator
             if (forwardedIndicator != null) {
@@ -1249,8 +1321,10 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             // Bind reaction indicator
             bindReactionIndicator(itemView, message, currentUserId, reactionListener);
 
-            // Add click listener to open file
-            itemView.setOnClickListener(v -> openFile(message));
+            // Add click listener to open file (videos stream instead)
+            itemView.setOnClickListener(v -> {
+                if (!openVideo(itemView, message)) openFile(message);
+            });
 
             itemView.setOnLongClickListener(v -> {
                 showMessageContextMenu(v, message, listener, replyListener, recallListener, forwardListener, null, null, isPinned, currentUserId);
@@ -1329,6 +1403,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         private final TextView fileSize;
         private final TextView timestampTextView;
         private final TextView forwardedIndicator;
+        private final VideoPosterViews videoPoster;
         private OnMessageLongClickListener listener;
         private OnMessageRecallListener recallListener;
         private String currentUserId;
@@ -1340,6 +1415,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             fileSize = itemView.findViewById(R.id.fileSize);
             timestampTextView = itemView.findViewById(R.id.timestampTextView);
             forwardedIndicator = itemView.findViewById(R.id.forwardedIndicator);
+            videoPoster = new VideoPosterViews(itemView);
         }
 
         public void bind(Message message, OnMessageLongClickListener listener, OnMessageReplyListener replyListener, OnReplyPreviewClickListener previewClickListener, OnMessageRecallListener recallListener, OnMessageForwardListener forwardListener, OnMessageEditListener editListener, OnMessageDeleteListener deleteListener, String currentUserId, boolean isPinned, boolean isHighlighted, OnMessageReactionListener reactionListener) {
@@ -1358,6 +1434,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             // Set appropriate icon based on file type
             int iconResId = com.example.doan_zaloclone.utils.FileUtils.getFileIcon(message.getFileMimeType());
             fileIcon.setImageResource(iconResId);
+            videoPoster.bind(message);
 
             // Bind forwarded indicator
             if (forwardedIndicator != null) {
@@ -1373,8 +1450,10 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             // Bind reaction indicator
             bindReactionIndicator(itemView, message, currentUserId, reactionListener);
 
-            // Add click listener to open file
-            itemView.setOnClickListener(v -> openFile(message));
+            // Add click listener to open file (videos stream instead)
+            itemView.setOnClickListener(v -> {
+                if (!openVideo(itemView, message)) openFile(message);
+            });
 
             itemView.setOnLongClickListener(v -> {
                 showMessageContextMenu(v, message, listener, replyListener, recallListener, forwardListener, editListener, deleteListener, isPinned, currentUserId);
@@ -1522,7 +1601,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             java.util.Map<String, String> oldR = oldMessage.getReactions();
             java.util.Map<String, String> newR = newMessage.getReactions();
             if ((oldR != null && !oldR.isEmpty()) || (newR != null && !newR.isEmpty())) {
-                android.util.Log.d("DiffCallback", "🔍 Comparing msg " + oldMessage.getId() + 
+                if (AppLog.DEBUG) android.util.Log.d("DiffCallback", "🔍 Comparing msg " + oldMessage.getId() + 
                     " | oldReactions=" + (oldR != null ? oldR.toString() : "null") +
                     " | newReactions=" + (newR != null ? newR.toString() : "null"));
             }
@@ -1532,6 +1611,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 return false;
             }
 
+            // Video sent ahead of its upload: the spinner goes once the file is attached
+            if (oldMessage.isUploading() != newMessage.isUploading()) {
+                return false;
+            }
+
             // Safe null comparison for content (poll messages may have null content)
             String oldContent = oldMessage.getContent();
             String newContent = newMessage.getContent();
@@ -1563,19 +1647,19 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 reactionsMatch = true;
             } else if (oldReactions == null || newReactions == null) {
                 reactionsMatch = false;
-                android.util.Log.d("DiffCallback", "❤️ Reaction null mismatch for " + oldMessage.getId() + 
+                if (AppLog.DEBUG) android.util.Log.d("DiffCallback", "❤️ Reaction null mismatch for " + oldMessage.getId() + 
                     ": old=" + (oldReactions != null ? oldReactions.size() : "null") + 
                     ", new=" + (newReactions != null ? newReactions.size() : "null"));
             } else {
                 reactionsMatch = oldReactions.equals(newReactions);
                 if (!reactionsMatch) {
-                    android.util.Log.d("DiffCallback", "❤️ Reaction content mismatch for " + oldMessage.getId() + 
+                    if (AppLog.DEBUG) android.util.Log.d("DiffCallback", "❤️ Reaction content mismatch for " + oldMessage.getId() + 
                         ": old=" + oldReactions + ", new=" + newReactions);
                 }
             }
 
             if (!reactionsMatch) {
-                android.util.Log.d("DiffCallback", "❤️ areContentsTheSame returning FALSE for reaction change: " + oldMessage.getId());
+                if (AppLog.DEBUG) android.util.Log.d("DiffCallback", "❤️ areContentsTheSame returning FALSE for reaction change: " + oldMessage.getId());
                 return false;
             }
 
@@ -1863,10 +1947,10 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             }
 
             // Debug logs
-            android.util.Log.d("ContactMessageViewHolder", "Binding contact message");
-            android.util.Log.d("ContactMessageViewHolder", "Message ID: " + message.getId());
-            android.util.Log.d("ContactMessageViewHolder", "Message Type: " + message.getType());
-            android.util.Log.d("ContactMessageViewHolder", "Contact User ID: " + message.getContactUserId());
+            if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Binding contact message");
+            if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Message ID: " + message.getId());
+            if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Message Type: " + message.getType());
+            if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Contact User ID: " + message.getContactUserId());
 
             // Get contact user ID from message
             String contactUserId = message.getContactUserId();
@@ -1881,12 +1965,12 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             
             // CRITICAL: If contact is current user (self), hide friend request button
             if (contactUserId.equals(currentUserId)) {
-                android.util.Log.d("ContactMessageViewHolder", "Contact is self - hiding friend request button");
+                if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Contact is self - hiding friend request button");
                 btnAddFriendFromCard.setVisibility(View.GONE);
                 friendRequestDivider.setVisibility(View.GONE);
             }
 
-            android.util.Log.d("ContactMessageViewHolder", "Fetching user info for: " + contactUserId);
+            if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Fetching user info for: " + contactUserId);
 
             // Fetch contact user info from Firestore
             com.google.firebase.firestore.FirebaseFirestore.getInstance()
@@ -2037,7 +2121,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             // Check cache first
             FriendshipStatus cachedStatus = friendshipCache.get(cacheKey);
             if (cachedStatus != null && !cachedStatus.isExpired()) {
-                android.util.Log.d("ContactMessageViewHolder", "Using cached status for: " + cacheKey);
+                if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Using cached status for: " + cacheKey);
                 updateUIFromCache(cachedStatus);
                 // Still setup listeners for real-time updates, but don't show loading
                 setupListenersWithRetry(contactUserId, currentUserId, cacheKey, false);
@@ -2091,7 +2175,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 if (areFriends) {
                     btnAddFriendFromCard.setVisibility(View.GONE);
                     friendRequestDivider.setVisibility(View.GONE);
-                    android.util.Log.d("ContactMessageViewHolder", "Already friends - hiding button");
+                    if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Already friends - hiding button");
                 } else if (hasPendingRequest) {
                     btnAddFriendFromCard.setVisibility(View.VISIBLE);
                     friendRequestDivider.setVisibility(View.VISIBLE);
@@ -2099,7 +2183,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                     btnAddFriendFromCard.setEnabled(false);
                     btnAddFriendFromCard.setAlpha(0.6f);
                     btnAddFriendFromCard.setOnClickListener(null);
-                    android.util.Log.d("ContactMessageViewHolder", "Pending request - showing disabled button");
+                    if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Pending request - showing disabled button");
                 } else if (hasIncomingRequest) {
                     btnAddFriendFromCard.setVisibility(View.VISIBLE);
                     friendRequestDivider.setVisibility(View.VISIBLE);
@@ -2107,7 +2191,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                     btnAddFriendFromCard.setEnabled(false);
                     btnAddFriendFromCard.setAlpha(0.6f);
                     btnAddFriendFromCard.setOnClickListener(null);
-                    android.util.Log.d("ContactMessageViewHolder", "Incoming request - showing waiting button");
+                    if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Incoming request - showing waiting button");
                 } else {
                     btnAddFriendFromCard.setVisibility(View.VISIBLE);
                     friendRequestDivider.setVisibility(View.VISIBLE);
@@ -2115,7 +2199,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                     btnAddFriendFromCard.setEnabled(true);
                     btnAddFriendFromCard.setAlpha(1.0f);
                     btnAddFriendFromCard.setOnClickListener(v -> sendFriendRequest(contactUserId, currentUserId));
-                    android.util.Log.d("ContactMessageViewHolder", "No relationship - showing send button");
+                    if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "No relationship - showing send button");
                 }
             };
 
@@ -2127,7 +2211,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                     listenerRetryCount++;
                     long retryDelay = (long) Math.pow(2, listenerRetryCount) * 1000; // Exponential backoff
 
-                    android.util.Log.d("ContactMessageViewHolder", "Retrying in " + retryDelay + "ms");
+                    if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Retrying in " + retryDelay + "ms");
                     retryHandler.postDelayed(() -> {
                         if (contactUserId.equals(this.currentContactUserId)) {
                             setupListenersWithRetry(contactUserId, currentUserId, cacheKey, isInitialLoad);
@@ -2159,7 +2243,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                             if (snapshots != null && !snapshots.isEmpty()) {
                                 String bestStatus = findBestStatus(snapshots.getDocuments());
                                 requestStatusFromMe[0] = bestStatus;
-                                android.util.Log.d("ContactMessageViewHolder", "Outgoing status: " + bestStatus);
+                                if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Outgoing status: " + bestStatus);
                             } else {
                                 requestStatusFromMe[0] = null;
                             }
@@ -2186,7 +2270,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                             if (snapshots != null && !snapshots.isEmpty()) {
                                 String bestStatus = findBestStatus(snapshots.getDocuments());
                                 requestStatusToMe[0] = bestStatus;
-                                android.util.Log.d("ContactMessageViewHolder", "Incoming status: " + bestStatus);
+                                if (AppLog.DEBUG) android.util.Log.d("ContactMessageViewHolder", "Incoming status: " + bestStatus);
                             } else {
                                 requestStatusToMe[0] = null;
                             }
@@ -2464,9 +2548,13 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         private final TextView coordinatesText;
         private final TextView timestampTextView;
         private final View messageCard;
+        private final ImageView mapThumbnail;
+        // Address lookup for messages sent without one
+        private com.example.doan_zaloclone.utils.GeocodingService.Request addressRequest;
 
         public LocationMessageViewHolder(@NonNull View itemView) {
             super(itemView);
+            mapThumbnail = itemView.findViewById(R.id.mapThumbnail);
             locationNameText = itemView.findViewById(R.id.locationNameText);
             locationAddressText = itemView.findViewById(R.id.locationAddressText);
             coordinatesText = itemView.findViewById(R.id.coordinatesText);
@@ -2504,21 +2592,44 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 locationNameText.setText("Vị trí");
             }
 
-            // Set address
+            // Set coordinates
+            double lat = message.getLatitude();
+            double lng = message.getLongitude();
+
+            // Set address (resolved through the shared cache if the sender had none)
+            if (addressRequest != null) {
+                addressRequest.cancel();
+                addressRequest = null;
+            }
             String address = message.getLocationAddress();
-            if (address != null && !address.isEmpty()) {
+            if (address != null && !address.isEmpty() && !address.startsWith("📍")) {
                 locationAddressText.setText(address);
                 locationAddressText.setVisibility(View.VISIBLE);
             } else {
                 locationAddressText.setVisibility(View.GONE);
+                addressRequest = com.example.doan_zaloclone.utils.GeocodingService
+                        .getInstance(itemView.getContext())
+                        .resolve(lat, lng, resolved -> {
+                            addressRequest = null;
+                            if (resolved != null) {
+                                locationAddressText.setText(resolved);
+                                locationAddressText.setVisibility(View.VISIBLE);
+                            }
+                        });
             }
 
-            // Set coordinates
-            double lat = message.getLatitude();
-            double lng = message.getLongitude();
             coordinatesText.setText(String.format(java.util.Locale.getDefault(),
                     "📍 %.4f, %.4f", lat, lng));
 
+            // Static map preview; tiles around the point are fetched so the map opens offline
+            if (mapThumbnail != null) {
+                MapTileCache mapCache = MapTileCache.getInstance(itemView.getContext());
+                mapCache.prefetchAround(lat, lng);
+                float density = itemView.getResources().getDisplayMetrics().density;
+                mapCache.loadThumbnail(mapThumbnail, lat, lng,
+                        Math.round(MAP_THUMBNAIL_WIDTH_DP * density), Math.round(120 * density));
+            }
+
             // Set timestamp
             timestampTextView.setText(TIMESTAMP_FORMAT.format(new Date(message.getTimestamp())));
 
@@ -2565,7 +2676,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     // ================ LIVE LOCATION MESSAGE VIEW HOLDER ================
 
     static class LiveLocationMessageViewHolder extends RecyclerView.ViewHolder {
-        private final MapView mapView;
+        private final ImageView mapThumbnail;
         private final TextView statusText;
         private final TextView timestampTextView;
         private final TextView btnStopSharing;
@@ -2574,12 +2685,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         private final boolean isSender;
         private ListenerRegistration liveLocationListener;
         private CountDownTimer countDownTimer;
-        private Marker userMarker;
 
         public LiveLocationMessageViewHolder(@NonNull View itemView, boolean isSender) {
             super(itemView);
             this.isSender = isSender;
-            mapView = itemView.findViewById(R.id.mapView);
+            mapThumbnail = itemView.findViewById(R.id.mapThumbnail);
             statusText = itemView.findViewById(R.id.statusText);
             timestampTextView = itemView.findViewById(R.id.timestampTextView);
             btnStopSharing = itemView.findViewById(R.id.btnStopSharing); // Only present in sent layout
@@ -2590,24 +2700,6 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             if (mapOverlay != null) {
                 mapOverlay.setVisibility(View.VISIBLE);
             }
-
-            // Basic Map Setup
-            setupMap();
-        }
-
-        private void setupMap() {
-            Configuration.getInstance().setUserAgentValue(itemView.getContext().getPackageName());
-            mapView.setTileSource(TileSourceFactory.MAPNIK);
-
-            // Disable interaction for preview (User wanted separate full screen view)
-            mapView.setMultiTouchControls(false);
-            mapView.setClickable(false);
-
-            mapView.getController().setZoom(15.0);
-            mapView.setOnTouchListener(null);
-
-            // Performance settings
-            mapView.setUseDataConnection(true);
         }
 
         /**
@@ -2705,16 +2797,11 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         }
 
         private void updateUI(LiveLocation liveLocation, Message message, String currentUserId) {
-            // Update Map Marker
-            GeoPoint point = new GeoPoint(liveLocation.getLatitude(), liveLocation.getLongitude());
-            if (userMarker == null) {
-                userMarker = new Marker(mapView);
-                userMarker.setTitle("Vị trí trực tiếp");
-                mapView.getOverlays().add(userMarker);
-            }
-            userMarker.setPosition(point);
-            mapView.getController().setCenter(point);
-            mapView.invalidate();
+            // Update map preview (rendered from cached tiles, again only once the sharer really moved)
+            float density = itemView.getResources().getDisplayMetrics().density;
+            MapTileCache.getInstance(itemView.getContext()).loadLiveThumbnail(mapThumbnail,
+                    liveLocation.getSessionId(), liveLocation.getLatitude(), liveLocation.getLongitude(),
+                    Math.round(MAP_THUMBNAIL_WIDTH_DP * density), Math.round(150 * density));
 
             // Define click action for Map/View Button -> Open Activity
             View.OnClickListener openMapAction = v -> {
@@ -2815,6 +2902,13 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             senderNameTextView = itemView.findViewById(R.id.senderNameTextView);
         }
 
+        void onRecycled() {
+            if (stickerImageView != null) {
+                com.example.doan_zaloclone.ui.sticker.StickerAnimationEngine.getInstance(itemView.getContext())
+                        .unbind(stickerImageView);
+            }
+        }
+
         public void bind(Message message, boolean isGroupChat,
                          OnMessageLongClickListener longClickListener,
                          OnMessageReplyListener replyListener,
@@ -2846,21 +2940,9 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
             // Load sticker image
             if (stickerImageView != null) {
-                String stickerUrl = message.getStickerUrl();
-                android.util.Log.d("StickerMessage", "Binding sticker - messageId: " + message.getId()
-                        + ", stickerUrl: " + stickerUrl
-                        + ", stickerId: " + message.getStickerId());
-
-                if (stickerUrl != null && !stickerUrl.isEmpty()) {
-                    Glide.with(itemView.getContext())
-                            .load(stickerUrl)
-                            .placeholder(R.drawable.ic_sticker)
-                            .error(R.drawable.ic_sticker)
-                            .fitCenter()
-                            .into(stickerImageView);
-                } else {
-                    stickerImageView.setImageResource(R.drawable.ic_sticker);
-                }
+                // Animated stickers are decoded once and shared by every bubble showing them
+                com.example.doan_zaloclone.ui.sticker.StickerAnimationEngine.getInstance(itemView.getContext())
+                        .bind(stickerImageView, message.getStickerUrl(), message.isStickerAnimated());
             }
 
             // Apply pin and highlight effects
@@ -0,0 +1,84 @@
+package com.example.doan_zaloclone.ui.room;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * RecycledViewPool for the conversation screen
+ * Sized per bubble type, since text and image bubbles dominate a fling. It is shared with the
+ * pinned list and the forward dialog, whose view types are layout ids and so never collide
+ * with MessageAdapter's. While the first page of messages loads, the common bubbles are
+ * inflated off the main thread and parked here.
+ */
+public class MessageViewPool extends RecyclerView.RecycledViewPool {
+
+    // {view type, max pooled, pre-inflated}
+    // Only layouts without AppCompat-only attributes are pre-inflated: AsyncLayoutInflater
+    // does not go through the AppCompat view factory.
+    private static final int[][] BUDGET = {
+            {MessageAdapter.VIEW_TYPE_SENT, 15, 4},
+            {MessageAdapter.VIEW_TYPE_RECEIVED, 15, 4},
+            {MessageAdapter.VIEW_TYPE_IMAGE_SENT, 10, 1},
+            {MessageAdapter.VIEW_TYPE_IMAGE_RECEIVED, 10, 1},
+            {MessageAdapter.VIEW_TYPE_STICKER_SENT, 8, 0},
+            {MessageAdapter.VIEW_TYPE_STICKER_RECEIVED, 8, 0},
+            {MessageAdapter.VIEW_TYPE_VOICE_SENT, 6, 0},
+            {MessageAdapter.VIEW_TYPE_VOICE_RECEIVED, 6, 0},
+            {MessageAdapter.VIEW_TYPE_FILE_SENT, 6, 0},
+            {MessageAdapter.VIEW_TYPE_FILE_RECEIVED, 6, 0}
+    };
+
+    public MessageViewPool() {
+        for (int[] entry : BUDGET) {
+            setMaxRecycledViews(entry[0], entry[1]);
+        }
+    }
+
+    /**
+     * Inflate the common bubbles on a background thread, one at a time, into this pool
+     * Call after the adapter is set: setting it on an unattached pool clears the pool.
+     */
+    public void preInflate(@NonNull RecyclerView recyclerView, @NonNull MessageAdapter adapter) {
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int[] entry : BUDGET) {
+            for (int i = 0; i < entry[2]; i++) {
+                pending.add(entry[0]);
+            }
+        }
+        inflateNext(new AsyncLayoutInflater(recyclerView.getContext()), recyclerView, adapter, pending);
+    }
+
+    private void inflateNext(AsyncLayoutInflater inflater, RecyclerView recyclerView,
+                             MessageAdapter adapter, Deque<Integer> pending) {
+        Integer viewType = pending.poll();
+        if (viewType == null) return;
+
+        inflater.inflate(MessageAdapter.getLayoutForViewType(viewType), recyclerView, (view, resid, parent) -> {
+            if (isGone(recyclerView.getContext()) || recyclerView.getAdapter() != adapter) return;
+            // Types the list has already filled by now keep what they have
+            if (getRecycledViewCount(viewType) < maxFor(viewType)) {
+                putRecycledView(adapter.createPreInflatedViewHolder(recyclerView, view, viewType));
+            }
+            inflateNext(inflater, recyclerView, adapter, pending);
+        });
+    }
+
+    private static int maxFor(int viewType) {
+        for (int[] entry : BUDGET) {
+            if (entry[0] == viewType) return entry[1];
+        }
+        return 0;
+    }
+
+    private static boolean isGone(Context context) {
+        return context instanceof Activity
+                && (((Activity) context).isFinishing() || ((Activity) context).isDestroyed());
+    }
+}
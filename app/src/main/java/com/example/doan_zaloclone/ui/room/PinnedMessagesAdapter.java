@@ -32,6 +32,12 @@ public class PinnedMessagesAdapter extends RecyclerView.Adapter<PinnedMessagesAd
         notifyDataSetChanged();
     }
 
+    @Override
+    public int getItemViewType(int position) {
+        // Layout id as view type: unique within the room's shared MessageViewPool
+        return R.layout.item_pinned_message;
+    }
+
     @NonNull
     @Override
     public PinnedMessageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
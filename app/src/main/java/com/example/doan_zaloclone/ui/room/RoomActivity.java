@@ -32,15 +32,24 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.ZaloApplication;
 import com.example.doan_zaloclone.models.Conversation;
 import com.example.doan_zaloclone.models.Message;
 import com.example.doan_zaloclone.repository.ChatRepository;
 import com.example.doan_zaloclone.ui.call.CallActivity;
 import com.example.doan_zaloclone.utils.ImageUtils;
 import com.example.doan_zaloclone.utils.MediaStoreHelper;
+import com.example.doan_zaloclone.utils.FileUtils;
 import com.example.doan_zaloclone.utils.PermissionHelper;
+import com.example.doan_zaloclone.utils.StartupOrchestrator;
+import com.example.doan_zaloclone.utils.VoiceMessageCache;
+import com.example.doan_zaloclone.utils.VoicePlaybackManager;
+import com.example.doan_zaloclone.utils.VoiceRecordingProfile;
+import com.example.doan_zaloclone.utils.VoiceTrimmer;
+import com.example.doan_zaloclone.utils.VoiceWaveformUtils;
 import com.example.doan_zaloclone.viewmodel.ContactViewModel;
 import com.example.doan_zaloclone.viewmodel.RoomViewModel;
+import com.google.android.material.snackbar.Snackbar;
 import com.google.firebase.auth.FirebaseAuth;
 
 import com.cloudinary.android.MediaManager;
@@ -66,6 +75,8 @@ public class RoomActivity extends AppCompatActivity {
     private EditText messageEditText;
     private ImageButton sendButton;
     private MessageAdapter messageAdapter;
+    // Shared by the message list, the pinned list and the forward dialog
+    private final MessageViewPool messageViewPool = new MessageViewPool();
     private String conversationId;
     private String conversationName;
     private RoomViewModel roomViewModel;
@@ -106,6 +117,10 @@ public class RoomActivity extends AppCompatActivity {
     private String selectedFileName;
     private long selectedFileSize;
     private String selectedFileMimeType;
+    // Progress of the running file upload, dismissed with the screen
+    private Snackbar fileUploadSnackbar;
+    // Sends whose callbacks point at this screen, detached in onDestroy
+    private final List<String> fileUploadSends = new ArrayList<>();
     // File preview (for multiple files)
     private FrameLayout filePickerBottomSheet;
     private FilePreviewAdapter filePreviewAdapter;
@@ -676,7 +691,9 @@ public class RoomActivity extends AppCompatActivity {
     private static final int RECORD_AUDIO_PERMISSION_CODE = 1001;
     private boolean isRecording = false;
     private android.media.MediaRecorder mediaRecorder;
+    private VoiceRecordingProfile recordingProfile;
     private String audioFilePath;
+    private static final long RECORDING_SAMPLE_INTERVAL_MS = 100;
     private long recordingStartTime = 0;
     private Handler recordingTimerHandler = new Handler(Looper.getMainLooper());
     private Runnable recordingTimerRunnable;
@@ -689,6 +706,9 @@ public class RoomActivity extends AppCompatActivity {
     
     // Phase 4D-2: Waveform visualization
     private WaveformView waveformView;
+    // Raw amplitude samples of the current recording, reduced to peaks on send
+    private final List<Integer> recordedAmplitudes = new ArrayList<>();
+    private byte[] recordedPeaks;
     
     // Phase 4D-3a: Editor UI views
     private LinearLayout editorInputLayout;
@@ -808,17 +828,17 @@ public class RoomActivity extends AppCompatActivity {
             // Phase 4D-1: Switch UI to recording mode
             showRecordingUI();
             
+            // Speech profile (Opus/OGG or AAC) with bitrate adapted to the current network
+            recordingProfile = VoiceRecordingProfile.select(this);
+            
             // Create audio file in cache directory
-            String fileName = "voice_" + System.currentTimeMillis() + ".m4a";
+            String fileName = "voice_" + System.currentTimeMillis() + recordingProfile.getFileExtension();
             audioFilePath = new java.io.File(getCacheDir(), fileName).getAbsolutePath();
             
             // Setup MediaRecorder
             mediaRecorder = new android.media.MediaRecorder();
             mediaRecorder.setAudioSource(android.media.MediaRecorder.AudioSource.MIC);
-            mediaRecorder.setOutputFormat(android.media.MediaRecorder.OutputFormat.MPEG_4);
-            mediaRecorder.setAudioEncoder(android.media.MediaRecorder.AudioEncoder.AAC);
-            mediaRecorder.setAudioEncodingBitRate(128000);
-            mediaRecorder.setAudioSamplingRate(44100);
+            recordingProfile.applyTo(mediaRecorder);
             mediaRecorder.setOutputFile(audioFilePath);
             
             mediaRecorder.prepare();
@@ -869,7 +889,7 @@ public class RoomActivity extends AppCompatActivity {
             
             // Phase 4D-3a: Show editor instead of sending immediately
             recordedDurationSeconds = (int) (duration / 1000);
-            showEditorUI();
+            trimSilenceAndShowEditor();
             
         } catch (Exception e) {
             android.util.Log.e("RoomActivity", "Error stopping recording", e);
@@ -879,6 +899,45 @@ public class RoomActivity extends AppCompatActivity {
         }
     }
     
+    // Trim leading/trailing silence off the main thread, then open the editor
+    private void trimSilenceAndShowEditor() {
+        final String inputPath = audioFilePath;
+        final VoiceRecordingProfile profile = recordingProfile;
+        final List<Integer> samples = new ArrayList<>(recordedAmplitudes);
+        
+        new Thread(() -> {
+            VoiceTrimmer.Range range = VoiceTrimmer.findSpeechRange(samples, RECORDING_SAMPLE_INTERVAL_MS);
+            String trimmedPath = null;
+            if (range != null && range.getDurationMs() >= 1000 && inputPath != null && profile != null) {
+                File trimmed = new File(getCacheDir(),
+                        "voice_trim_" + System.currentTimeMillis() + profile.getFileExtension());
+                if (VoiceTrimmer.trim(new File(inputPath), trimmed,
+                        range.startMs, range.endMs, profile.getMuxerFormat())) {
+                    trimmedPath = trimmed.getAbsolutePath();
+                }
+            }
+            
+            final String finalTrimmedPath = trimmedPath;
+            runOnUiThread(() -> {
+                if (inputPath == null || !inputPath.equals(audioFilePath)) {
+                    // Recording was discarded or replaced while trimming: nobody owns either file now
+                    if (inputPath != null) new File(inputPath).delete();
+                    if (finalTrimmedPath != null) new File(finalTrimmedPath).delete();
+                    return;
+                }
+                if (finalTrimmedPath != null) {
+                    new File(inputPath).delete();
+                    audioFilePath = finalTrimmedPath;
+                    recordedDurationSeconds = (int) Math.max(1, range.getDurationMs() / 1000);
+                    List<Integer> kept = new ArrayList<>(samples.subList(range.startSample, range.endSample));
+                    recordedAmplitudes.clear();
+                    recordedAmplitudes.addAll(kept);
+                }
+                showEditorUI();
+            });
+        }).start();
+    }
+    
     // Phase 4D-3a: Show editor UI
     private void showEditorUI() {
         // Hide recording UI
@@ -896,13 +955,19 @@ public class RoomActivity extends AppCompatActivity {
             int minutes = recordedDurationSeconds / 60;
             int seconds = recordedDurationSeconds % 60;
             String durationStr = String.format("%02d:%02d", minutes, seconds);
+            // Show the upload size so the user knows what the note will cost to send
+            long fileSize = audioFilePath != null ? new File(audioFilePath).length() : 0;
+            if (fileSize > 0) {
+                durationStr += " · " + FileUtils.formatFileSize(fileSize);
+            }
             editorDurationText.setText(durationStr);
         }
         
-        // Copy waveform from recording to editor (simplified - just clear for now)
+        // Reduce the recording to compact peaks and preview them in the editor
+        recordedPeaks = VoiceWaveformUtils.computePeaks(recordedAmplitudes);
         if (editorWaveformView != null) {
             editorWaveformView.clear();
-            // TODO: Could copy amplitude data from waveformView if needed
+            editorWaveformView.setPeaks(recordedPeaks, recordedDurationSeconds);
         }
         
         // Phase 4D-3c: Initialize speed buttons
@@ -1088,11 +1153,17 @@ public class RoomActivity extends AppCompatActivity {
             android.util.Log.e("RoomActivity", "uploadVoiceMessage: filePath is null");
             return;
         }
+        if (!StartupOrchestrator.getInstance().isDone(ZaloApplication.TASK_CLOUDINARY)) {
+            StartupOrchestrator.getInstance().whenReady(ZaloApplication.TASK_CLOUDINARY,
+                    () -> uploadVoiceMessage(filePath, durationSeconds));
+            return;
+        }
         
         android.util.Log.d("RoomActivity", "Starting voice upload: " + filePath + ", duration: " + durationSeconds);
         Toast.makeText(this, "Đang gửi tin nhắn thoại...", Toast.LENGTH_SHORT).show();
 
         Uri fileUri = Uri.fromFile(new File(filePath));
+        String voicePeaks = VoiceWaveformUtils.encodePeaks(recordedPeaks);
         
         MediaManager.get().upload(fileUri)
                 .option("resource_type", "video") // Audio is treated as video
@@ -1113,12 +1184,16 @@ public class RoomActivity extends AppCompatActivity {
                         String voiceUrl = (String) resultData.get("secure_url");
                         android.util.Log.d("RoomActivity", "Voice upload success: " + voiceUrl);
                         
-                        // Delete local file to clean up cache
+                        // Keep the local file as the cached copy so replays never hit the network;
+                        // delete it only if it could not be moved into the voice cache
                         try {
-                            new File(filePath).delete();
-                            android.util.Log.d("RoomActivity", "Local voice file deleted after upload");
+                            File localFile = new File(filePath);
+                            if (!VoiceMessageCache.getInstance(RoomActivity.this).put(voiceUrl, localFile)) {
+                                localFile.delete();
+                                android.util.Log.d("RoomActivity", "Local voice file deleted after upload");
+                            }
                         } catch (Exception e) {
-                            android.util.Log.e("RoomActivity", "Error deleting local voice file", e);
+                            android.util.Log.e("RoomActivity", "Error caching local voice file", e);
                         }
                         
                         runOnUiThread(() -> {
@@ -1134,6 +1209,7 @@ public class RoomActivity extends AppCompatActivity {
                             // Ensure duration is valid (at least 1 second)
                             int finalDuration = (int) Math.max(durationSeconds, 1);
                             message.setVoiceDuration(finalDuration);
+                            message.setVoicePeaks(voicePeaks);
                             
                             // Send via ViewModel
                             roomViewModel.sendMessage(conversationId, message);
@@ -1256,6 +1332,8 @@ public class RoomActivity extends AppCompatActivity {
         if (waveformView != null) {
             waveformView.clear();
         }
+        recordedAmplitudes.clear();
+        recordedPeaks = null;
     }
     
     // Phase 4D-1: Hide recording UI, show normal input
@@ -1283,6 +1361,9 @@ public class RoomActivity extends AppCompatActivity {
             return;
         }
         
+        // Capture peaks now - a new recording may start before the upload finishes
+        String voicePeaks = VoiceWaveformUtils.encodePeaks(recordedPeaks);
+        
         // Upload to Cloudinary in background
         new Thread(() -> {
             try {
@@ -1307,9 +1388,11 @@ public class RoomActivity extends AppCompatActivity {
                 
                 // Send voice message on main thread
                 runOnUiThread(() -> {
-                    sendVoiceMessage(voiceUrl, durationSeconds);
-                    // Delete temp file after upload
-                    audioFile.delete();
+                    sendVoiceMessage(voiceUrl, durationSeconds, voicePeaks);
+                    // Keep the recording as the cached copy for instant replay, else delete it
+                    if (!VoiceMessageCache.getInstance(this).put(voiceUrl, audioFile)) {
+                        audioFile.delete();
+                    }
                     Toast.makeText(this, "✅ Đã gửi tin nhắn thoại", Toast.LENGTH_SHORT).show();
                 });
                 
@@ -1322,7 +1405,7 @@ public class RoomActivity extends AppCompatActivity {
         }).start();
     }
     
-    private void sendVoiceMessage(String voiceUrl, int durationSeconds) {
+    private void sendVoiceMessage(String voiceUrl, int durationSeconds, String voicePeaks) {
         String currentUserId = firebaseAuth.getCurrentUser() != null
                 ? firebaseAuth.getCurrentUser().getUid()
                 : "";
@@ -1340,6 +1423,7 @@ public class RoomActivity extends AppCompatActivity {
         voiceMessage.setContent("🎤 Tin nhắn thoại (" + durationSeconds + "s)");
         voiceMessage.setVoiceUrl(voiceUrl);
         voiceMessage.setVoiceDuration(durationSeconds);
+        voiceMessage.setVoicePeaks(voicePeaks);
         voiceMessage.setTimestamp(System.currentTimeMillis());
         
         // Set sender name for group chats
@@ -1381,6 +1465,7 @@ public class RoomActivity extends AppCompatActivity {
                         try {
                             // Get max amplitude (0-32767 for 16-bit audio)
                             int maxAmplitude = mediaRecorder.getMaxAmplitude();
+                            recordedAmplitudes.add(maxAmplitude);
                             
                             // Normalize to 0-100 range
                             float normalizedAmplitude = (maxAmplitude / 32767f) * 100f;
@@ -1393,7 +1478,7 @@ public class RoomActivity extends AppCompatActivity {
                     }
                     
                     // Schedule next update (faster for waveform smoothness)
-                    recordingTimerHandler.postDelayed(this, 100); // Update every 100ms
+                    recordingTimerHandler.postDelayed(this, RECORDING_SAMPLE_INTERVAL_MS);
                 }
             }
         };
@@ -1557,6 +1642,7 @@ public class RoomActivity extends AppCompatActivity {
 
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         pinnedMessagesRecyclerView.setLayoutManager(layoutManager);
+        pinnedMessagesRecyclerView.setRecycledViewPool(messageViewPool);
         pinnedMessagesRecyclerView.setAdapter(pinnedMessagesAdapter);
     }
 
@@ -1866,7 +1952,11 @@ public class RoomActivity extends AppCompatActivity {
         layoutManager.setStackFromEnd(true);
         messagesRecyclerView.setLayoutManager(layoutManager);
         // Note: Not using setHasFixedSize(true) because messages have variable heights (text vs images)
+        // Keep a few more bound bubbles around so reversing a fling doesn't rebind them
+        messagesRecyclerView.setItemViewCacheSize(6);
+        messagesRecyclerView.setRecycledViewPool(messageViewPool);
         messagesRecyclerView.setAdapter(messageAdapter);
+        messageViewPool.preInflate(messagesRecyclerView, messageAdapter);
 
         // Disable change animation to prevent flicker when reactions update
         // Keep add/remove animations for smooth list updates
@@ -2779,9 +2869,12 @@ public class RoomActivity extends AppCompatActivity {
         }
 
         String currentUserId = firebaseAuth.getCurrentUser().getUid();
-        Toast.makeText(this, "Đang gửi file...", Toast.LENGTH_SHORT).show();
+        Snackbar progressBar = Snackbar.make(findViewById(android.R.id.content), "Đang gửi file...",
+                Snackbar.LENGTH_INDEFINITE);
+        progressBar.show();
+        fileUploadSnackbar = progressBar;
 
-        chatRepository.uploadFileAndSendMessage(
+        String sendId = chatRepository.uploadFileAndSendMessage(
                 conversationId,
                 selectedFileUri,
                 currentUserId,
@@ -2789,9 +2882,15 @@ public class RoomActivity extends AppCompatActivity {
                 selectedFileSize,
                 selectedFileMimeType,
                 new ChatRepository.SendMessageCallback() {
+                    @Override
+                    public void onProgress(int percent) {
+                        progressBar.setText("Đang gửi file... " + percent + "%");
+                    }
+
                     @Override
                     public void onSuccess() {
                         runOnUiThread(() -> {
+                            progressBar.dismiss();
                             Toast.makeText(RoomActivity.this, "Đã gửi file!", Toast.LENGTH_SHORT).show();
                             // Clear selection
                             selectedFileUri = null;
@@ -2804,11 +2903,13 @@ public class RoomActivity extends AppCompatActivity {
                     @Override
                     public void onError(String error) {
                         runOnUiThread(() -> {
+                            progressBar.dismiss();
                             Toast.makeText(RoomActivity.this, "Lỗi gửi file: " + error, Toast.LENGTH_LONG).show();
                         });
                     }
                 }
         );
+        fileUploadSends.add(sendId);
     }
 
     private void handleMultipleFilesSelected(List<Uri> uris) {
@@ -2904,7 +3005,7 @@ public class RoomActivity extends AppCompatActivity {
         FilePreviewAdapter.FileItem file = files.get(currentIndex);
         int fileNumber = currentIndex + 1;
 
-        chatRepository.uploadFileAndSendMessage(
+        String sendId = chatRepository.uploadFileAndSendMessage(
                 conversationId,
                 file.uri,
                 userId,
@@ -2935,6 +3036,7 @@ public class RoomActivity extends AppCompatActivity {
                     }
                 }
         );
+        fileUploadSends.add(sendId);
     }
 
 
@@ -3167,6 +3269,8 @@ public class RoomActivity extends AppCompatActivity {
         });
 
         friendsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Rows from the previous forward dialog are reused
+        friendsRecyclerView.setRecycledViewPool(messageViewPool);
         friendsRecyclerView.setAdapter(adapter);
 
         // Create dialog
@@ -3753,6 +3857,17 @@ public class RoomActivity extends AppCompatActivity {
         deleteAudioFile();
         // Phase 4D-3b: Release MediaPlayer
         releaseMediaPlayer();
+        // The upload keeps running in ChunkedUploader; only its progress bar and callbacks go away
+        if (fileUploadSnackbar != null) {
+            fileUploadSnackbar.dismiss();
+            fileUploadSnackbar = null;
+        }
+        for (String sendId : fileUploadSends) {
+            chatRepository.detachUploadCallback(sendId);
+        }
+        fileUploadSends.clear();
+        // Stop voice messages from this screen; another chat screen may still be playing
+        VoicePlaybackManager.getInstance().release(this);
         // ViewModel will automatically clean up listeners
     }
     
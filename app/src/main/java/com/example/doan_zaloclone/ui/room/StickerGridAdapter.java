@@ -13,6 +13,7 @@ import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.Sticker;
+import com.example.doan_zaloclone.ui.sticker.StickerAnimationEngine;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -72,6 +73,12 @@ public class StickerGridAdapter extends RecyclerView.Adapter<StickerGridAdapter.
         });
     }
 
+    @Override
+    public void onViewRecycled(@NonNull StickerViewHolder holder) {
+        super.onViewRecycled(holder);
+        StickerAnimationEngine.getInstance(holder.itemView.getContext()).unbind(holder.stickerImage);
+    }
+
     @Override
     public int getItemCount() {
         return stickers.size();
@@ -92,16 +99,23 @@ public class StickerGridAdapter extends RecyclerView.Adapter<StickerGridAdapter.
         }
 
         public void bind(Sticker sticker) {
-            String imageUrl = sticker.getThumbnailUrl();
+            // Animated stickers share decoded frames and one frame clock
+            if (sticker.isAnimated()) {
+                StickerAnimationEngine.getInstance(itemView.getContext())
+                        .bind(stickerImage, sticker.getDisplayUrl(), true);
+                return;
+            }
+            StickerAnimationEngine.getInstance(itemView.getContext()).unbind(stickerImage);
+
+            // Offline bundle file first, then thumbnail, then full image
+            String imageUrl = sticker.getLocalPath();
+            if (imageUrl == null || imageUrl.isEmpty()) {
+                imageUrl = sticker.getThumbnailUrl();
+            }
             if (imageUrl == null || imageUrl.isEmpty()) {
                 imageUrl = sticker.getImageUrl();
             }
 
-            // Debug log
-            android.util.Log.d("StickerGridAdapter", "Loading sticker - ID: " + sticker.getId()
-                    + ", imageUrl: " + imageUrl
-                    + ", thumbnailUrl: " + sticker.getThumbnailUrl());
-
             if (imageUrl != null && !imageUrl.isEmpty()) {
                 Glide.with(itemView.getContext())
                         .load(imageUrl)
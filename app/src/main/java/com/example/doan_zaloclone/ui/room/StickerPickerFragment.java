@@ -3,6 +3,8 @@ package com.example.doan_zaloclone.ui.room;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -10,6 +12,7 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.TextView;
@@ -17,6 +20,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.widget.ViewPager2;
@@ -25,13 +29,16 @@ import com.example.doan_zaloclone.R;
 import com.example.doan_zaloclone.models.Sticker;
 import com.example.doan_zaloclone.models.StickerPack;
 import com.example.doan_zaloclone.repository.StickerRepository;
+import com.example.doan_zaloclone.ui.sticker.StickerAnimationEngine;
 import com.example.doan_zaloclone.ui.sticker.MyStickerActivity;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.firebase.auth.FirebaseAuth;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Bottom sheet fragment for picking stickers
@@ -47,15 +54,23 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
     private View btnAddSticker;
     private View btnStickerStore;
     private TextView btnMyStickers;
+    private EditText searchInput;
+    private RecyclerView searchResultsRecycler;
+    private TextView searchEmptyView;
 
     // Adapters
     private StickerPackTabAdapter packTabAdapter;
     private StickerPagerAdapter stickerPagerAdapter;
+    private StickerGridAdapter searchResultsAdapter;
 
     // Data
     private StickerRepository stickerRepository;
     private String currentUserId;
     private List<StickerPack> stickerPacks = new ArrayList<>();
+    private String myPackId;
+    // Packs whose stickers were already requested: each pack is loaded once per picker
+    private final Set<String> loadedPackIds = new HashSet<>();
+    private boolean resumedOnce = false;
 
     // Callback
     private OnStickerSelectedListener stickerSelectedListener;
@@ -120,6 +135,9 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
         btnAddSticker = view.findViewById(R.id.btnAddSticker);
         btnStickerStore = view.findViewById(R.id.btnStickerStore);
         btnMyStickers = view.findViewById(R.id.btnMyStickers);
+        searchInput = view.findViewById(R.id.stickerSearchInput);
+        searchResultsRecycler = view.findViewById(R.id.stickerSearchResults);
+        searchEmptyView = view.findViewById(R.id.stickerSearchEmpty);
     }
 
     private void setupAdapters() {
@@ -134,7 +152,7 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
         stickerPager.setAdapter(stickerPagerAdapter);
 
         // Set sticker click listener
-        stickerPagerAdapter.setOnStickerClickListener(new StickerGridAdapter.OnStickerClickListener() {
+        StickerGridAdapter.OnStickerClickListener clickListener = new StickerGridAdapter.OnStickerClickListener() {
             @Override
             public void onStickerClick(Sticker sticker) {
                 onStickerSelected(sticker);
@@ -145,7 +163,14 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
                 // TODO: Show sticker preview
                 Toast.makeText(requireContext(), "Preview: " + sticker.getId(), Toast.LENGTH_SHORT).show();
             }
-        });
+        };
+        stickerPagerAdapter.setOnStickerClickListener(clickListener);
+
+        // Search results grid
+        searchResultsAdapter = new StickerGridAdapter();
+        searchResultsAdapter.setOnStickerClickListener(clickListener);
+        searchResultsRecycler.setLayoutManager(new GridLayoutManager(requireContext(), 4));
+        searchResultsRecycler.setAdapter(searchResultsAdapter);
     }
 
     private void setupListeners() {
@@ -177,6 +202,22 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
             }
         });
 
+        // Search per keystroke against the local index
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                runSearch(s.toString());
+            }
+        });
+
         // Recent tab click
         tabRecent.setOnClickListener(v -> {
             stickerPager.setCurrentItem(0, true);
@@ -205,6 +246,22 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
         });
     }
 
+    private void runSearch(String query) {
+        String trimmed = query.trim();
+        if (trimmed.isEmpty()) {
+            searchResultsRecycler.setVisibility(View.GONE);
+            searchEmptyView.setVisibility(View.GONE);
+            stickerPager.setVisibility(View.VISIBLE);
+            return;
+        }
+
+        List<Sticker> results = stickerRepository.searchStickersNow(trimmed);
+        searchResultsAdapter.setStickers(results);
+        stickerPager.setVisibility(View.GONE);
+        searchResultsRecycler.setVisibility(results.isEmpty() ? View.GONE : View.VISIBLE);
+        searchEmptyView.setVisibility(results.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
     private void highlightRecentTab(boolean highlight) {
         // Change background of recent tab based on selection
         tabRecent.setBackgroundColor(highlight ?
@@ -214,6 +271,13 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
 
 
     private void loadData() {
+        // Load the search index from disk while the packs load
+        stickerRepository.warmSearchIndex(() -> {
+            if (searchInput != null && isAdded() && searchInput.length() > 0) {
+                runSearch(searchInput.getText().toString());
+            }
+        });
+
         if (currentUserId != null) {
             // Đảm bảo pack cá nhân luôn có
             stickerRepository.getOrCreateUserStickerPack(currentUserId, new StickerRepository.PackCallback() {
@@ -239,78 +303,37 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
 
     // Thay thế cho loadUserSavedPacks, đảm bảo pack cá nhân luôn ở đầu
     private void loadUserSavedPacksWithMyPack(String myPackId) {
+        this.myPackId = myPackId;
         stickerRepository.getUserSavedPacks(currentUserId).observe(getViewLifecycleOwner(), resource -> {
             if (resource.isSuccess() && resource.getData() != null) {
                 List<StickerPack> allPacks = new ArrayList<>();
                 // Nếu có pack cá nhân, thêm vào đầu
                 if (myPackId != null) {
-                    stickerRepository.getStickersInPack(myPackId).observe(getViewLifecycleOwner(), stickersRes -> {
-                        // Tạo StickerPack tạm nếu chưa có trong saved
-                        boolean found = false;
-                        for (StickerPack p : resource.getData()) {
-                            if (p.getId().equals(myPackId)) {
-                                allPacks.add(p);
-                                found = true;
-                                break;
-                            }
-                        }
-                        if (!found) {
-                            // Nếu chưa có, tạo StickerPack tạm
-                            StickerPack myPack = new StickerPack();
-                            myPack.setId(myPackId);
-                            myPack.setName("Sticker của tôi");
-                            myPack.setType(StickerPack.TYPE_USER);
-                            allPacks.add(myPack);
-                        }
-                        // Thêm các pack còn lại
-                        for (StickerPack p : resource.getData()) {
-                            if (!p.getId().equals(myPackId)) {
-                                allPacks.add(p);
-                            }
-                        }
-                        // Merge với official packs
-                        for (StickerPack pack : stickerPacks) {
-                            boolean exists = false;
-                            for (StickerPack savedPack : allPacks) {
-                                if (savedPack.getId().equals(pack.getId())) {
-                                    exists = true;
-                                    break;
-                                }
-                            }
-                            if (!exists) {
-                                allPacks.add(pack);
-                            }
-                        }
-                        updatePacksUI(allPacks);
-                    });
-                } else {
-                    // Không có pack cá nhân, giữ nguyên logic cũ
-                    allPacks.addAll(resource.getData());
-                    for (StickerPack pack : stickerPacks) {
-                        boolean exists = false;
-                        for (StickerPack savedPack : allPacks) {
-                            if (savedPack.getId().equals(pack.getId())) {
-                                exists = true;
-                                break;
-                            }
-                        }
-                        if (!exists) {
-                            allPacks.add(pack);
+                    // Tạo StickerPack tạm nếu chưa có trong saved
+                    boolean found = false;
+                    for (StickerPack p : resource.getData()) {
+                        if (p.getId().equals(myPackId)) {
+                            allPacks.add(p);
+                            found = true;
+                            break;
                         }
                     }
-                    updatePacksUI(allPacks);
+                    if (!found) {
+                        // Nếu chưa có, tạo StickerPack tạm
+                        StickerPack myPack = new StickerPack();
+                        myPack.setId(myPackId);
+                        myPack.setName("Sticker của tôi");
+                        myPack.setType(StickerPack.TYPE_USER);
+                        allPacks.add(myPack);
+                    }
                 }
-            }
-        });
-    }
-
-    private void loadUserSavedPacks() {
-        stickerRepository.getUserSavedPacks(currentUserId).observe(getViewLifecycleOwner(), resource -> {
-            if (resource.isSuccess() && resource.getData() != null) {
-                // Add user packs to the beginning
-                List<StickerPack> allPacks = new ArrayList<>(resource.getData());
-
-                // Merge with official packs
+                // Thêm các pack còn lại
+                for (StickerPack p : resource.getData()) {
+                    if (!p.getId().equals(myPackId)) {
+                        allPacks.add(p);
+                    }
+                }
+                // Merge với official packs
                 for (StickerPack pack : stickerPacks) {
                     boolean exists = false;
                     for (StickerPack savedPack : allPacks) {
@@ -323,7 +346,6 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
                         allPacks.add(pack);
                     }
                 }
-
                 updatePacksUI(allPacks);
             }
         });
@@ -349,14 +371,22 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
         stickerRepository.getRecentStickers(currentUserId).observe(getViewLifecycleOwner(), resource -> {
             if (resource.isSuccess() && resource.getData() != null) {
                 stickerPagerAdapter.setRecentStickers(resource.getData());
+                // Recent tab is the first page shown - decode its animations right away
+                StickerAnimationEngine.getInstance(requireContext()).prewarm(resource.getData());
             }
         });
     }
 
     private void loadStickersForPack(String packId) {
+        // Stickers come from the offline bundle; repeated pack list updates must not re-request them
+        if (!loadedPackIds.add(packId)) {
+            return;
+        }
         stickerRepository.getStickersInPack(packId).observe(getViewLifecycleOwner(), resource -> {
             if (resource.isSuccess() && resource.getData() != null) {
                 stickerPagerAdapter.setPackStickers(packId, resource.getData());
+                // Pre-warm pack frames so swiping to a pack animates immediately
+                StickerAnimationEngine.getInstance(requireContext()).prewarm(resource.getData());
             } else if (resource.isError()) {
                 Log.e(TAG, "Error loading stickers for pack " + packId + ": " + resource.getMessage());
             }
@@ -407,10 +437,11 @@ public class StickerPickerFragment extends BottomSheetDialogFragment {
     @Override
     public void onResume() {
         super.onResume();
-        // Reload saved packs when returning from store
-        if (currentUserId != null) {
-            loadUserSavedPacks();
+        // Reload saved packs when returning from store (the first resume is covered by loadData)
+        if (currentUserId != null && resumedOnce) {
+            loadUserSavedPacksWithMyPack(myPackId);
         }
+        resumedOnce = true;
     }
 
     public interface OnStickerSelectedListener {
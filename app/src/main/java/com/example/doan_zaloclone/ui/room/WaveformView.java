@@ -111,6 +111,32 @@ public class WaveformView extends View {
         });
     }
     
+    /**
+     * Set a real waveform from peaks computed at record time, resampled to fill the width
+     * Falls back to the static waveform when no peaks were sent with the message
+     */
+    public void setPeaks(byte[] peaks, int durationSeconds) {
+        if (peaks == null || peaks.length == 0) {
+            setStaticWaveform(durationSeconds);
+            return;
+        }
+        amplitudes.clear();
+
+        post(() -> {
+            int width = getWidth();
+            if (width == 0) return;
+
+            int barCount = width / (barWidth + barSpacing);
+            amplitudes.clear();
+            for (int i = 0; i < barCount; i++) {
+                int peakIndex = (int) ((long) i * peaks.length / barCount);
+                float amplitude = com.example.doan_zaloclone.utils.VoiceWaveformUtils.toAmplitude(peaks[peakIndex]);
+                amplitudes.add(Math.max(5, amplitude));
+            }
+            invalidate();
+        });
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
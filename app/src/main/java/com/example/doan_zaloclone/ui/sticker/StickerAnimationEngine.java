@@ -0,0 +1,455 @@
+package com.example.doan_zaloclone.ui.sticker;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.gifdecoder.GifHeader;
+import com.bumptech.glide.gifdecoder.GifHeaderParser;
+import com.bumptech.glide.gifdecoder.StandardGifDecoder;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.models.Sticker;
+import com.example.doan_zaloclone.utils.EventTrace;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared rendering engine for animated stickers
+ * Each animated sticker is decoded once into a memory-budgeted frame cache, and every visible
+ * ImageView showing it is driven by a single Choreographer frame clock. Views that are detached
+ * or hidden are skipped and the clock stops when nothing is on screen.
+ * Static stickers keep going through Glide as before.
+ */
+public class StickerAnimationEngine {
+
+    private static final String TAG = "StickerAnimationEngine";
+
+    // Frames are decoded small: stickers are shown at ~120dp
+    private static final int TARGET_FRAME_SIZE_PX = 256;
+    private static final int MAX_FRAMES = 48;
+    private static final int MIN_FRAME_DELAY_MS = 20;
+    private static final int DEFAULT_FRAME_DELAY_MS = 100;
+    private static final int MAX_CACHE_BYTES = 24 * 1024 * 1024;
+    private static final int PREWARM_LIMIT_PER_PACK = 12;
+
+    private static StickerAnimationEngine instance;
+
+    private final Context appContext;
+    private final LruCache<String, StickerFrames> frameCache;
+    private final Map<String, List<Runnable>> pendingDecodes = new HashMap<>();
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Views currently showing an animated sticker -> URL being shown
+    private final Map<ImageView, String> targets = new WeakHashMap<>();
+    private final Map<ImageView, Integer> shownFrame = new WeakHashMap<>();
+    private boolean clockRunning = false;
+
+    private final Choreographer.FrameCallback frameClock = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            clockRunning = false;
+            if (renderFrame(frameTimeNanos / 1_000_000L)) {
+                scheduleClock();
+            }
+        }
+    };
+
+    public static synchronized StickerAnimationEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new StickerAnimationEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StickerAnimationEngine(Context context) {
+        this.appContext = context;
+        int budget = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 16);
+        this.frameCache = new LruCache<String, StickerFrames>(budget) {
+            @Override
+            protected int sizeOf(String key, StickerFrames value) {
+                return value.byteSize;
+            }
+        };
+    }
+
+    /**
+     * Show a sticker in an ImageView
+     * Animated stickers are attached to the shared frame clock; static ones go through Glide
+     */
+    public void bind(@NonNull ImageView view, String url, boolean animated) {
+        unbind(view);
+
+        if (url == null || url.isEmpty()) {
+            view.setImageResource(R.drawable.ic_sticker);
+            return;
+        }
+
+        if (!animated) {
+            loadStatic(view, url);
+            return;
+        }
+
+        view.setTag(R.id.tag_sticker_url, url);
+        StickerFrames frames = frameCache.get(url);
+        if (frames != null) {
+            attach(view, url, frames);
+            return;
+        }
+
+        // Show the first frame through Glide while the shared frames are decoded
+        Glide.with(view.getContext())
+                .asBitmap()
+                .load(url)
+                .placeholder(R.drawable.ic_sticker)
+                .error(R.drawable.ic_sticker)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(view);
+
+        requestDecode(url, () -> {
+            StickerFrames decoded = frameCache.get(url);
+            if (decoded != null && url.equals(view.getTag(R.id.tag_sticker_url))) {
+                attach(view, url, decoded);
+            }
+        });
+    }
+
+    /**
+     * Detach a view from the frame clock (call when the view is recycled)
+     */
+    public void unbind(@NonNull ImageView view) {
+        targets.remove(view);
+        shownFrame.remove(view);
+        view.setTag(R.id.tag_sticker_url, null);
+    }
+
+    /**
+     * Decode animated stickers of a pack ahead of time so the picker animates immediately
+     */
+    public void prewarm(List<Sticker> stickers) {
+        if (stickers == null) return;
+        int warmed = 0;
+        for (Sticker sticker : stickers) {
+            if (warmed >= PREWARM_LIMIT_PER_PACK) break;
+            // Same source the picker binds, so pre-warmed frames are reused
+            String url = sticker.getDisplayUrl();
+            if (url == null || url.isEmpty()) continue;
+
+            if (sticker.isAnimated()) {
+                if (frameCache.get(url) == null) {
+                    requestDecode(url, null);
+                }
+            } else if (sticker.getLocalPath() == null) {
+                String thumb = sticker.getThumbnailUrl() != null && !sticker.getThumbnailUrl().isEmpty()
+                        ? sticker.getThumbnailUrl() : url;
+                Glide.with(appContext).load(thumb).diskCacheStrategy(DiskCacheStrategy.ALL).preload();
+            }
+            warmed++;
+        }
+    }
+
+    /**
+     * Drop all decoded frames (e.g. on low memory)
+     */
+    public void trimMemory() {
+        frameCache.evictAll();
+    }
+
+    private void loadStatic(ImageView view, String url) {
+        Glide.with(view.getContext())
+                .load(url)
+                .placeholder(R.drawable.ic_sticker)
+                .error(R.drawable.ic_sticker)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(view);
+    }
+
+    private void attach(ImageView view, String url, StickerFrames frames) {
+        // Make sure a pending Glide load cannot overwrite the shared frames
+        Glide.with(appContext).clear(view);
+        view.setTag(R.id.tag_sticker_url, url);
+        targets.put(view, url);
+        shownFrame.remove(view);
+        view.setImageBitmap(frames.frames[0]);
+        scheduleClock();
+    }
+
+    private void scheduleClock() {
+        if (!clockRunning && !targets.isEmpty()) {
+            clockRunning = true;
+            Choreographer.getInstance().postFrameCallback(frameClock);
+        }
+    }
+
+    /**
+     * Advance every visible target to the frame for the current time
+     *
+     * @return true if at least one target is still visible and the clock should keep running
+     */
+    private boolean renderFrame(long nowMs) {
+        boolean anyVisible = false;
+        List<ImageView> stale = null;
+
+        for (Map.Entry<ImageView, String> entry : targets.entrySet()) {
+            ImageView view = entry.getKey();
+            StickerFrames frames = frameCache.get(entry.getValue());
+            if (view == null || frames == null || !entry.getValue().equals(view.getTag(R.id.tag_sticker_url))) {
+                if (stale == null) stale = new ArrayList<>();
+                stale.add(view);
+                continue;
+            }
+            // Off-screen or hidden views do not advance
+            if (!view.isAttachedToWindow() || !view.isShown()) {
+                continue;
+            }
+            anyVisible = true;
+
+            int index = frames.frameAt(nowMs);
+            Integer current = shownFrame.get(view);
+            if (current == null || current != index) {
+                view.setImageBitmap(frames.frames[index]);
+                shownFrame.put(view, index);
+            }
+        }
+
+        if (stale != null) {
+            for (ImageView view : stale) {
+                targets.remove(view);
+                shownFrame.remove(view);
+            }
+        }
+
+        if (!anyVisible && !targets.isEmpty()) {
+            // Resume when one of the paused views is attached again
+            for (ImageView view : targets.keySet()) {
+                if (view != null) {
+                    view.removeOnAttachStateChangeListener(resumeOnAttach);
+                    view.addOnAttachStateChangeListener(resumeOnAttach);
+                }
+            }
+        }
+        return anyVisible;
+    }
+
+    private final View.OnAttachStateChangeListener resumeOnAttach = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            v.removeOnAttachStateChangeListener(this);
+            scheduleClock();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+        }
+    };
+
+    private void requestDecode(String url, Runnable onReady) {
+        synchronized (pendingDecodes) {
+            List<Runnable> waiting = pendingDecodes.get(url);
+            if (waiting != null) {
+                // Already decoding - just wait for the same result
+                if (onReady != null) waiting.add(onReady);
+                return;
+            }
+            waiting = new ArrayList<>();
+            if (onReady != null) waiting.add(onReady);
+            pendingDecodes.put(url, waiting);
+        }
+
+        decodeExecutor.execute(() -> {
+            long traceStart = EventTrace.begin(EventTrace.DECODE);
+            StickerFrames frames;
+            try {
+                frames = decode(url);
+            } finally {
+                EventTrace.end(EventTrace.DECODE, traceStart);
+            }
+            mainHandler.post(() -> {
+                List<Runnable> callbacks;
+                synchronized (pendingDecodes) {
+                    callbacks = pendingDecodes.remove(url);
+                }
+                if (frames != null) {
+                    frameCache.put(url, frames);
+                }
+                if (callbacks != null && frames != null) {
+                    for (Runnable callback : callbacks) {
+                        callback.run();
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Decode all frames of an animated GIF sticker (runs on the decode executor)
+     */
+    private StickerFrames decode(String url) {
+        try {
+            // Reuse Glide's disk cache for the raw bytes
+            File file = Glide.with(appContext).downloadOnly().load(url).submit().get();
+            byte[] data = readFile(file);
+            if (data.length < 6 || data[0] != 'G' || data[1] != 'I' || data[2] != 'F') {
+                // Not a GIF: leave it to Glide
+                return null;
+            }
+
+            GifHeaderParser parser = new GifHeaderParser();
+            parser.setData(data);
+            GifHeader header = parser.parseHeader();
+            if (header.getNumFrames() <= 1 || header.getStatus() != GifDecoder.STATUS_OK) {
+                return null;
+            }
+
+            int sampleSize = 1;
+            int largest = Math.max(header.getWidth(), header.getHeight());
+            while (largest / (sampleSize * 2) >= TARGET_FRAME_SIZE_PX) {
+                sampleSize *= 2;
+            }
+
+            StandardGifDecoder decoder = new StandardGifDecoder(
+                    new SimpleBitmapProvider(), header, ByteBuffer.wrap(data), sampleSize);
+            decoder.setDefaultBitmapConfig(Bitmap.Config.ARGB_8888);
+
+            int frameCount = decoder.getFrameCount();
+            // Keep every n-th frame for very long animations, merging the skipped delays
+            int step = (int) Math.ceil(frameCount / (double) MAX_FRAMES);
+            List<Bitmap> frames = new ArrayList<>();
+            List<Integer> delays = new ArrayList<>();
+            int byteSize = 0;
+
+            for (int i = 0; i < frameCount; i++) {
+                decoder.advance();
+                Bitmap frame = decoder.getNextFrame();
+                int delay = Math.max(MIN_FRAME_DELAY_MS,
+                        decoder.getNextDelay() > 0 ? decoder.getNextDelay() : DEFAULT_FRAME_DELAY_MS);
+                if (frame == null) continue;
+
+                if (i % step == 0) {
+                    // Decoder reuses its output bitmap, keep an immutable copy
+                    Bitmap copy = frame.copy(Bitmap.Config.ARGB_8888, false);
+                    frames.add(copy);
+                    delays.add(delay);
+                    byteSize += copy.getByteCount();
+                } else if (!delays.isEmpty()) {
+                    delays.set(delays.size() - 1, delays.get(delays.size() - 1) + delay);
+                }
+            }
+            decoder.clear();
+
+            if (frames.isEmpty()) return null;
+            return new StickerFrames(frames.toArray(new Bitmap[0]), toArray(delays), byteSize);
+        } catch (Exception e) {
+            Log.w(TAG, "Decode failed for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] readFile(File file) throws Exception {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream input = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = input.read(data, offset, data.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Decoded frames of one animated sticker, shared by every view that shows it
+     */
+    static class StickerFrames {
+        final Bitmap[] frames;
+        final int[] endTimes; // cumulative end time of each frame in ms
+        final int totalDuration;
+        final int byteSize;
+
+        StickerFrames(Bitmap[] frames, int[] delays, int byteSize) {
+            this.frames = frames;
+            this.byteSize = byteSize;
+            this.endTimes = new int[delays.length];
+            int total = 0;
+            for (int i = 0; i < delays.length; i++) {
+                total += delays[i];
+                endTimes[i] = total;
+            }
+            this.totalDuration = Math.max(1, total);
+        }
+
+        int frameAt(long nowMs) {
+            int position = (int) (nowMs % totalDuration);
+            for (int i = 0; i < endTimes.length; i++) {
+                if (position < endTimes[i]) return i;
+            }
+            return endTimes.length - 1;
+        }
+    }
+
+    /**
+     * Plain allocation provider: frames are copied out, so pooling buys nothing here
+     */
+    private static class SimpleBitmapProvider implements GifDecoder.BitmapProvider {
+        @NonNull
+        @Override
+        public Bitmap obtain(int width, int height, @NonNull Bitmap.Config config) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+
+        @Override
+        public void release(@NonNull Bitmap bitmap) {
+        }
+
+        @NonNull
+        @Override
+        public byte[] obtainByteArray(int size) {
+            return new byte[size];
+        }
+
+        @Override
+        public void release(@NonNull byte[] bytes) {
+        }
+
+        @NonNull
+        @Override
+        public int[] obtainIntArray(int size) {
+            return new int[size];
+        }
+
+        @Override
+        public void release(@NonNull int[] array) {
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.doan_zaloclone.utils;
+
+import com.example.doan_zaloclone.BuildConfig;
+
+/**
+ * Compile-time gates for hot-path logging
+ * Write per-event logs as {@code if (AppLog.DEBUG) Log.d(TAG, "..." + value);} - in release the
+ * constant is false, so the message is never built (R8 only strips the Log call, not its arguments).
+ * VERBOSE guards payload dumps and stays off even in debug builds; flip it locally when needed.
+ */
+public final class AppLog {
+
+    public static final boolean DEBUG = BuildConfig.DEBUG;
+    public static final boolean VERBOSE = false;
+
+    private AppLog() {
+    }
+}
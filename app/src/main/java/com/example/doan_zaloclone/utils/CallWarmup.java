@@ -0,0 +1,296 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.BuildConfig;
+
+import org.webrtc.DataChannel;
+import org.webrtc.EglBase;
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaStream;
+import org.webrtc.PeerConnection;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RtpReceiver;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide WebRTC warm-up
+ * Initializes WebRTC, the shared EGL context and the PeerConnectionFactory once on a
+ * background thread, resolves the ICE/TURN servers ahead of time, and can pre-create the
+ * PeerConnection for an incoming call so ICE candidates are gathered (iceCandidatePoolSize)
+ * while the phone is still ringing. WebRtcRepository then only picks the prepared objects up.
+ */
+public class CallWarmup {
+
+    private static final String TAG = "CallWarmup";
+    // A prepared connection that is never answered is dropped after the call expiry time
+    private static final long PREPARED_TTL_MS = 60_000;
+    // Callers run on the main thread: past this, the objects are created on the caller instead
+    private static final long WARM_UP_WAIT_MS = 300;
+
+    private static CallWarmup instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Context appContext;
+    private Future<?> warmUpTask;
+    private final Object coreLock = new Object();
+    private final CountDownLatch coreReady = new CountDownLatch(1);
+    private volatile EglBase eglBase;
+    private volatile PeerConnectionFactory factory;
+    private volatile List<PeerConnection.IceServer> iceServers;
+
+    // At most one prepared connection (one incoming call rings at a time)
+    private PreparedConnection prepared;
+
+    public static synchronized CallWarmup getInstance() {
+        if (instance == null) {
+            instance = new CallWarmup();
+        }
+        return instance;
+    }
+
+    private CallWarmup() {
+    }
+
+    /**
+     * Start warming up in the background; cheap to call repeatedly
+     */
+    public synchronized void warmUp(@NonNull Context context) {
+        if (appContext == null) {
+            appContext = context.getApplicationContext();
+        }
+        if (warmUpTask == null) {
+            warmUpTask = executor.submit(this::doWarmUp);
+        }
+    }
+
+    /**
+     * Shared factory; waits briefly for the warm-up, then creates it on the calling thread
+     */
+    @NonNull
+    public PeerConnectionFactory getFactory(@NonNull Context context) {
+        awaitWarmUp(context);
+        return factory;
+    }
+
+    /**
+     * Shared EGL context used by the factory codecs, camera capture and renderers
+     * Never released: it lives as long as the process.
+     */
+    @NonNull
+    public EglBase getEglBase(@NonNull Context context) {
+        awaitWarmUp(context);
+        return eglBase;
+    }
+
+    @NonNull
+    public List<PeerConnection.IceServer> getIceServers(@NonNull Context context) {
+        awaitWarmUp(context);
+        return iceServers;
+    }
+
+    /**
+     * Pre-create the PeerConnection for a ringing call so ICE gathering starts now
+     */
+    public void prepareConnection(@NonNull Context context, @NonNull String callId) {
+        warmUp(context);
+        executor.execute(() -> {
+            synchronized (this) {
+                if (prepared != null && callId.equals(prepared.callId)) return;
+                releasePrepared();
+                if (factory == null) {
+                    // The warm-up ahead of this task failed; the call creates its connection itself
+                    Log.w(TAG, "WebRTC not initialized, not preparing call " + callId);
+                    return;
+                }
+
+                PreparedConnection connection = new PreparedConnection(callId);
+                connection.peerConnection = factory.createPeerConnection(
+                        WebRtcHelper.createRtcConfiguration(iceServers), connection.observer);
+                if (connection.peerConnection == null) {
+                    Log.w(TAG, "Could not pre-create PeerConnection");
+                    return;
+                }
+                prepared = connection;
+                if (AppLog.DEBUG) Log.d(TAG, "PeerConnection prepared for call " + callId);
+            }
+            mainHandler.postDelayed(() -> discard(callId), PREPARED_TTL_MS);
+        });
+    }
+
+    /**
+     * Take the prepared connection for this call, attaching the real observer
+     *
+     * @return Null if nothing was prepared for this call
+     */
+    @Nullable
+    public synchronized PeerConnection takePrepared(@NonNull String callId, @NonNull PeerConnection.Observer observer) {
+        if (prepared == null || !callId.equals(prepared.callId)) {
+            return null;
+        }
+        PreparedConnection connection = prepared;
+        prepared = null;
+        connection.observer.delegate = observer;
+        return connection.peerConnection;
+    }
+
+    /**
+     * Drop the prepared connection (call rejected, cancelled or missed)
+     */
+    public synchronized void discard(@NonNull String callId) {
+        if (prepared != null && callId.equals(prepared.callId)) {
+            releasePrepared();
+        }
+    }
+
+    private void releasePrepared() {
+        if (prepared != null) {
+            PeerConnection pc = prepared.peerConnection;
+            prepared = null;
+            if (pc != null) {
+                executor.execute(pc::dispose);
+            }
+        }
+    }
+
+    /**
+     * Never waits on the TURN lookup or on work queued ahead of the warm-up for longer
+     * than WARM_UP_WAIT_MS
+     */
+    private void awaitWarmUp(Context context) {
+        warmUp(context);
+        try {
+            if (coreReady.await(WARM_UP_WAIT_MS, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.w(TAG, "WebRTC warm-up still pending, creating the factory now");
+        createCore();
+    }
+
+    /**
+     * Initialize WebRTC and create the EGL context, factory and ICE servers once
+     */
+    private void createCore() {
+        synchronized (coreLock) {
+            if (factory == null) {
+                PeerConnectionFactory.initialize(
+                        PeerConnectionFactory.InitializationOptions.builder(appContext)
+                                // The internal tracer is a debugging aid with a runtime cost
+                                .setEnableInternalTracer(BuildConfig.DEBUG)
+                                .createInitializationOptions());
+
+                eglBase = EglBase.create();
+                iceServers = WebRtcHelper.getDefaultIceServers();
+                // Assigned last: a non-null factory means everything above is ready
+                factory = WebRtcHelper.createPeerConnectionFactory(eglBase.getEglBaseContext());
+            }
+        }
+        coreReady.countDown();
+    }
+
+    private void doWarmUp() {
+        long start = System.currentTimeMillis();
+        try {
+            createCore();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "WebRTC warm-up failed", e);
+            return;
+        }
+
+        // Resolve the TURN host now so the first allocation does not wait for DNS
+        try {
+            InetAddress.getAllByName(BuildConfig.TURN_SERVER_HOST);
+        } catch (Exception e) {
+            Log.w(TAG, "TURN host lookup failed: " + e.getMessage());
+        }
+        if (AppLog.DEBUG) Log.d(TAG, "WebRTC warmed up in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private static class PreparedConnection {
+        final String callId;
+        final DelegatingObserver observer = new DelegatingObserver();
+        PeerConnection peerConnection;
+
+        PreparedConnection(String callId) {
+            this.callId = callId;
+        }
+    }
+
+    /**
+     * Forwards events to the repository observer once the connection has been taken
+     */
+    private static class DelegatingObserver implements PeerConnection.Observer {
+        volatile PeerConnection.Observer delegate;
+
+        @Override
+        public void onSignalingChange(PeerConnection.SignalingState state) {
+            if (delegate != null) delegate.onSignalingChange(state);
+        }
+
+        @Override
+        public void onIceConnectionChange(PeerConnection.IceConnectionState state) {
+            if (delegate != null) delegate.onIceConnectionChange(state);
+        }
+
+        @Override
+        public void onIceConnectionReceivingChange(boolean receiving) {
+            if (delegate != null) delegate.onIceConnectionReceivingChange(receiving);
+        }
+
+        @Override
+        public void onIceGatheringChange(PeerConnection.IceGatheringState state) {
+            if (delegate != null) delegate.onIceGatheringChange(state);
+        }
+
+        @Override
+        public void onIceCandidate(IceCandidate candidate) {
+            if (delegate != null) delegate.onIceCandidate(candidate);
+        }
+
+        @Override
+        public void onIceCandidatesRemoved(IceCandidate[] candidates) {
+            if (delegate != null) delegate.onIceCandidatesRemoved(candidates);
+        }
+
+        @Override
+        public void onAddStream(MediaStream stream) {
+            if (delegate != null) delegate.onAddStream(stream);
+        }
+
+        @Override
+        public void onRemoveStream(MediaStream stream) {
+            if (delegate != null) delegate.onRemoveStream(stream);
+        }
+
+        @Override
+        public void onDataChannel(DataChannel channel) {
+            if (delegate != null) delegate.onDataChannel(channel);
+        }
+
+        @Override
+        public void onRenegotiationNeeded() {
+            if (delegate != null) delegate.onRenegotiationNeeded();
+        }
+
+        @Override
+        public void onAddTrack(RtpReceiver receiver, MediaStream[] streams) {
+            if (delegate != null) delegate.onAddTrack(receiver, streams);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.BuildConfig;
+import com.google.gson.Gson;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Resumable chunked uploads to Cloudinary, streamed from the content resolver
+ * Files go up in fixed-size chunks (Cloudinary's chunked upload API: one X-Unique-Upload-Id,
+ * a Content-Range per chunk). Each chunk is retried with backoff; the offset of the last
+ * acknowledged chunk is persisted, so an upload that lost the network waits for connectivity
+ * and one interrupted by process death continues from that chunk once resumed. When the device
+ * is online but Cloudinary keeps failing (5xx/429, timeouts), the chunk is tried again later with
+ * a growing delay, and the upload fails after MAX_SERVER_RETRIES such rounds.
+ */
+public class ChunkedUploader {
+
+    private static final String TAG = "ChunkedUploader";
+    private static final String PREFS_NAME = "chunked_uploads";
+    private static final String UPLOAD_URL = "https://api.cloudinary.com/v1_1/%s/%s/upload";
+    // Cloudinary requires every chunk but the last to be at least 5 MB
+    private static final int CHUNK_SIZE = 6 * 1024 * 1024;
+    private static final int MAX_CHUNK_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    // Server outage: rounds of MAX_CHUNK_ATTEMPTS, 30 s apart at first, doubling up to 10 min
+    private static final int MAX_SERVER_RETRIES = 8;
+    private static final long SERVER_RETRY_BASE_MS = 30_000;
+    private static final long SERVER_RETRY_MAX_MS = 10 * 60_000;
+    private static final int UPLOAD_THREADS = 2;
+
+    private static ChunkedUploader instance;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(UPLOAD_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Set<String> waitingForNetwork = ConcurrentHashMap.newKeySet();
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+    private final Gson gson = new Gson();
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(15, TimeUnit.SECONDS)
+            .writeTimeout(60, TimeUnit.SECONDS)
+            .readTimeout(60, TimeUnit.SECONDS)
+            .build();
+    private Context appContext;
+    private SharedPreferences prefs;
+
+    public static synchronized ChunkedUploader getInstance() {
+        if (instance == null) {
+            instance = new ChunkedUploader();
+        }
+        return instance;
+    }
+
+    private ChunkedUploader() {
+    }
+
+    /**
+     * Load persisted uploads and watch connectivity (called once from the Application)
+     */
+    public synchronized void init(@NonNull Context context) {
+        if (appContext != null) return;
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        ConnectivityManager connectivity = appContext.getSystemService(ConnectivityManager.class);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    for (String id : new ArrayList<>(waitingForNetwork)) {
+                        if (AppLog.DEBUG) Log.d(TAG, "Network back, resuming upload " + id);
+                        run(id);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Start uploading a file
+     *
+     * @param resourceType Cloudinary resource type (image, video, raw)
+     * @param extras       Caller data kept with the upload, to finish the job after a restart
+     * @param listener     Called on the main thread
+     * @return Upload id for resume()/cancel()
+     */
+    @NonNull
+    public String start(@NonNull Uri uri, @NonNull String fileName, long size, @NonNull String mimeType,
+                        @NonNull String folder, @NonNull String resourceType,
+                        @Nullable Map<String, String> extras, @NonNull Listener listener) {
+        Upload upload = new Upload();
+        upload.id = UUID.randomUUID().toString().replace("-", "");
+        upload.sessionId = upload.id;
+        upload.uri = uri.toString();
+        upload.fileName = fileName;
+        upload.size = size > 0 ? size : sizeOf(uri);
+        upload.mimeType = mimeType;
+        upload.folder = folder;
+        upload.resourceType = resourceType;
+        upload.extras = extras != null ? new HashMap<>(extras) : new HashMap<>();
+        upload.createdAt = System.currentTimeMillis();
+
+        // Keep read access across restarts where the provider allows it (document URIs)
+        try {
+            appContext.getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            if (AppLog.DEBUG) Log.d(TAG, "No persistable permission for " + uri);
+        }
+
+        save(upload);
+        listeners.put(upload.id, listener);
+        run(upload.id);
+        return upload.id;
+    }
+
+    /**
+     * Uploads that have not finished (e.g. interrupted by the process being killed)
+     */
+    @NonNull
+    public List<Upload> getPending() {
+        List<Upload> pending = new ArrayList<>();
+        if (prefs == null) return pending;
+        for (Object value : prefs.getAll().values()) {
+            if (!(value instanceof String)) continue;
+            try {
+                Upload upload = gson.fromJson((String) value, Upload.class);
+                if (upload != null && upload.id != null) pending.add(upload);
+            } catch (Exception e) {
+                Log.w(TAG, "Dropping unreadable upload state", e);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Continue a pending upload from its last acknowledged chunk
+     */
+    public void resume(@NonNull String id, @NonNull Listener listener) {
+        listeners.put(id, listener);
+        run(id);
+    }
+
+    public void cancel(@NonNull String id) {
+        cancelled.add(id);
+        waitingForNetwork.remove(id);
+        listeners.remove(id);
+        prefs.edit().remove(id).apply();
+    }
+
+    private void run(String id) {
+        if (!running.add(id)) return;
+        waitingForNetwork.remove(id);
+        executor.execute(() -> {
+            long traceStart = EventTrace.begin(EventTrace.UPLOAD);
+            try {
+                upload(id);
+            } finally {
+                running.remove(id);
+                EventTrace.end(EventTrace.UPLOAD, traceStart, id);
+            }
+        });
+    }
+
+    private void upload(String id) {
+        Upload upload = load(id);
+        if (upload == null) return;
+
+        long currentSize = sizeOf(Uri.parse(upload.uri));
+        if (upload.size <= 0 || (currentSize > 0 && currentSize != upload.size)) {
+            fail(upload, "File không còn khả dụng hoặc đã thay đổi");
+            return;
+        }
+
+        boolean restarted = false;
+        while (upload.offset < upload.size) {
+            if (cancelled.remove(id)) return;
+            long length = Math.min(CHUNK_SIZE, upload.size - upload.offset);
+            boolean last = upload.offset + length >= upload.size;
+
+            JSONObject result;
+            try {
+                result = sendChunkWithRetry(upload, length);
+            } catch (FileNotFoundException | SecurityException e) {
+                // Read permission did not survive the restart, or the file was deleted
+                fail(upload, "Không thể đọc file: " + e.getMessage());
+                return;
+            } catch (IOException e) {
+                if (isOnline()) {
+                    // Connected, yet the server cannot be reached: no network callback will come
+                    retryLater(upload, e.getMessage(), 0);
+                    return;
+                }
+                Log.w(TAG, "Upload " + id + " paused at " + upload.offset + ": " + e.getMessage());
+                waitingForNetwork.add(id);
+                dispatch(id, Listener::onWaitingForNetwork);
+                return;
+            } catch (ServerUnavailableException e) {
+                retryLater(upload, e.getMessage(), e.retryAfterMs);
+                return;
+            } catch (UploadRejectedException e) {
+                if (upload.offset > 0 && !restarted) {
+                    // The server no longer knows this session (expired); start over once
+                    Log.w(TAG, "Upload " + id + " session rejected, restarting: " + e.getMessage());
+                    restarted = true;
+                    upload.offset = 0;
+                    upload.sessionId = UUID.randomUUID().toString().replace("-", "");
+                    save(upload);
+                    continue;
+                }
+                fail(upload, "Tải lên thất bại: " + e.getMessage());
+                return;
+            }
+
+            upload.offset += length;
+            upload.serverRetries = 0;
+            if (last) {
+                String url = result.optString("secure_url", null);
+                prefs.edit().remove(id).apply();
+                if (url == null) {
+                    fail(upload, "Máy chủ không trả về đường dẫn file");
+                    return;
+                }
+                dispatch(id, listener -> listener.onSuccess(url));
+                listeners.remove(id);
+                return;
+            }
+            save(upload);
+        }
+    }
+
+    /**
+     * Send one chunk, retrying network errors and 5xx/429 with exponential backoff
+     */
+    private JSONObject sendChunkWithRetry(Upload upload, long length)
+            throws IOException, UploadRejectedException, ServerUnavailableException {
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return sendChunk(upload, length);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException | ServerUnavailableException e) {
+                if (attempt >= MAX_CHUNK_ATTEMPTS) throw e;
+                if (AppLog.DEBUG) Log.d(TAG, "Chunk at " + upload.offset + " failed (attempt " + attempt + "): " + e.getMessage());
+            }
+            SystemClock.sleep(backoff);
+            backoff *= 2;
+        }
+    }
+
+    /**
+     * Run the upload again after a server-side failure, or fail it once the retries are used up
+     * The round count is persisted, so restarts do not reset the cap.
+     */
+    private void retryLater(Upload upload, String reason, long retryAfterMs) {
+        upload.serverRetries++;
+        if (upload.serverRetries > MAX_SERVER_RETRIES) {
+            fail(upload, "Máy chủ không phản hồi, vui lòng thử lại sau");
+            return;
+        }
+        save(upload);
+        long backoff = SERVER_RETRY_BASE_MS << (upload.serverRetries - 1);
+        long delay = Math.min(SERVER_RETRY_MAX_MS, Math.max(backoff, retryAfterMs));
+        Log.w(TAG, "Upload " + upload.id + " retrying in " + delay / 1000 + " s: " + reason);
+        String id = upload.id;
+        mainHandler.postDelayed(() -> {
+            if (!cancelled.remove(id)) run(id);
+        }, delay);
+    }
+
+    private boolean isOnline() {
+        ConnectivityManager connectivity = appContext.getSystemService(ConnectivityManager.class);
+        return connectivity != null && connectivity.getActiveNetwork() != null;
+    }
+
+    private JSONObject sendChunk(Upload upload, long length)
+            throws IOException, UploadRejectedException, ServerUnavailableException {
+        long offset = upload.offset;
+        long total = upload.size;
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String signature = sign("folder=" + upload.folder + "&timestamp=" + timestamp);
+
+        ProgressThrottle progress = new ProgressThrottle(upload.id, offset, total);
+        UriRequestBody chunk = new UriRequestBody(appContext.getContentResolver(), Uri.parse(upload.uri),
+                MediaType.parse(upload.mimeType), offset, length, progress::onChunkProgress);
+        MultipartBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("api_key", BuildConfig.CLOUDINARY_API_KEY)
+                .addFormDataPart("timestamp", timestamp)
+                .addFormDataPart("folder", upload.folder)
+                .addFormDataPart("signature", signature)
+                .addFormDataPart("file", upload.fileName, chunk)
+                .build();
+        Request request = new Request.Builder()
+                .url(String.format(Locale.US, UPLOAD_URL, BuildConfig.CLOUDINARY_CLOUD_NAME, upload.resourceType))
+                .header("X-Unique-Upload-Id", upload.sessionId)
+                .header("Content-Range", "bytes " + offset + "-" + (offset + length - 1) + "/" + total)
+                .post(body)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String text = response.body() != null ? response.body().string() : "";
+            if (response.isSuccessful()) {
+                try {
+                    return new JSONObject(text);
+                } catch (Exception e) {
+                    throw new IOException("Unreadable response");
+                }
+            }
+            if (response.code() >= 500 || response.code() == 429) {
+                throw new ServerUnavailableException("HTTP " + response.code(), retryAfterMs(response));
+            }
+            throw new UploadRejectedException("HTTP " + response.code() + " " + text);
+        }
+    }
+
+    // Retry-After in seconds; the HTTP-date form is ignored
+    private static long retryAfterMs(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private long sizeOf(Uri uri) {
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return new File(uri.getPath()).length();
+        }
+        return FileUtils.getFileSize(appContext, uri);
+    }
+
+    private static String sign(String params) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest((params + BuildConfig.CLOUDINARY_API_SECRET).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format(Locale.US, "%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-1 unavailable", e);
+        }
+    }
+
+    private void fail(Upload upload, String error) {
+        Log.e(TAG, "Upload " + upload.id + " failed: " + error);
+        prefs.edit().remove(upload.id).apply();
+        dispatch(upload.id, listener -> listener.onError(error));
+        listeners.remove(upload.id);
+    }
+
+    private void dispatch(String id, ListenerCall call) {
+        Listener listener = listeners.get(id);
+        if (listener != null) {
+            mainHandler.post(() -> call.invoke(listener));
+        }
+    }
+
+    @Nullable
+    private Upload load(String id) {
+        String json = prefs.getString(id, null);
+        if (json == null) return null;
+        try {
+            return gson.fromJson(json, Upload.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable upload state " + id, e);
+            prefs.edit().remove(id).apply();
+            return null;
+        }
+    }
+
+    private void save(Upload upload) {
+        prefs.edit().putString(upload.id, gson.toJson(upload)).apply();
+    }
+
+    /**
+     * Posts whole-percent changes only; chunk bodies report every 64 KB buffer
+     */
+    private class ProgressThrottle {
+        private final String id;
+        private final long base;
+        private final long total;
+        private int lastPercent = -1;
+
+        ProgressThrottle(String id, long base, long total) {
+            this.id = id;
+            this.base = base;
+            this.total = total;
+        }
+
+        void onChunkProgress(long written) {
+            long sent = base + written;
+            int percent = (int) (sent * 100 / total);
+            if (percent == lastPercent) return;
+            lastPercent = percent;
+            dispatch(id, listener -> listener.onProgress(sent, total));
+        }
+    }
+
+    private static class UploadRejectedException extends Exception {
+        UploadRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class ServerUnavailableException extends Exception {
+        final long retryAfterMs;
+
+        ServerUnavailableException(String message, long retryAfterMs) {
+            super(message);
+            this.retryAfterMs = retryAfterMs;
+        }
+    }
+
+    private interface ListenerCall {
+        void invoke(Listener listener);
+    }
+
+    /**
+     * Persisted state of one upload
+     */
+    public static class Upload {
+        String id;
+        String sessionId; // X-Unique-Upload-Id; replaced if the server forgets the session
+        String uri;
+        String fileName;
+        long size;
+        String mimeType;
+        String folder;
+        String resourceType;
+        long offset; // Bytes acknowledged by the server
+        int serverRetries; // Rounds in a row that ended on a server-side failure
+        long createdAt;
+        Map<String, String> extras;
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        @Nullable
+        public String getExtra(@NonNull String key) {
+            return extras != null ? extras.get(key) : null;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(long bytesSent, long totalBytes);
+
+        void onSuccess(@NonNull String secureUrl);
+
+        void onError(@NonNull String error);
+
+        /**
+         * Retries ran out while offline; the upload continues when connectivity returns
+         */
+        default void onWaitingForNetwork() {
+        }
+    }
+}
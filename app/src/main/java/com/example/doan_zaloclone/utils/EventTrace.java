@@ -0,0 +1,165 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.doan_zaloclone.BuildConfig;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Always-on trace of the chat hot paths (send, receive, diff, bind, decode)
+ * Spans are also systrace sections. The last CAPACITY events live in a ring buffer of
+ * preallocated arrays, so recording builds no strings; export() renders it for bug reports.
+ * Pass only existing strings (ids, types) as details - never concatenate at the call site.
+ *
+ * <pre>
+ * long start = EventTrace.begin(EventTrace.SEND);
+ * try { ... } finally { EventTrace.end(EventTrace.SEND, start, messageId); }
+ * </pre>
+ */
+public final class EventTrace {
+
+    public static final String SEND = "send";
+    public static final String RECEIVE = "receive";
+    public static final String DIFF = "diff";
+    public static final String BIND = "bind";
+    public static final String DECODE = "decode";
+    public static final String UPLOAD = "upload";
+
+    /** Compile-time switch; when false every call below compiles to nothing */
+    private static final boolean ENABLED = true;
+    private static final int CAPACITY = 512;
+    private static final String EXPORT_DIR = "diagnostics";
+
+    private static final Object lock = new Object();
+    private static final String[] names = new String[CAPACITY];
+    private static final String[] details = new String[CAPACITY];
+    private static final String[] threads = new String[CAPACITY];
+    private static final long[] wallTimes = new long[CAPACITY];
+    private static final long[] durations = new long[CAPACITY]; // Nanos, -1 for instant events
+    private static int next = 0;
+    private static int size = 0;
+
+    private EventTrace() {
+    }
+
+    /**
+     * Start a span (end it on the same thread)
+     *
+     * @return Start time to pass to end()
+     */
+    public static long begin(@NonNull String name) {
+        if (!ENABLED) return 0;
+        Trace.beginSection(name);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public static void end(@NonNull String name, long startNanos) {
+        end(name, startNanos, null);
+    }
+
+    public static void end(@NonNull String name, long startNanos, @Nullable String detail) {
+        if (!ENABLED) return;
+        Trace.endSection();
+        record(name, SystemClock.elapsedRealtimeNanos() - startNanos, detail);
+    }
+
+    /**
+     * Record a point event (no duration)
+     */
+    public static void event(@NonNull String name, @Nullable String detail) {
+        if (!ENABLED) return;
+        record(name, -1, detail);
+    }
+
+    private static void record(String name, long durationNanos, String detail) {
+        String thread = Thread.currentThread().getName();
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            names[next] = name;
+            details[next] = detail;
+            threads[next] = thread;
+            wallTimes[next] = now;
+            durations[next] = durationNanos;
+            next = (next + 1) % CAPACITY;
+            if (size < CAPACITY) size++;
+        }
+    }
+
+    /**
+     * Render the buffered events, oldest first
+     */
+    @NonNull
+    public static String export() {
+        String[] nameCopy = new String[CAPACITY];
+        String[] detailCopy = new String[CAPACITY];
+        String[] threadCopy = new String[CAPACITY];
+        long[] wallCopy = new long[CAPACITY];
+        long[] durationCopy = new long[CAPACITY];
+        int count;
+        int first;
+        synchronized (lock) {
+            count = size;
+            first = (next - size + CAPACITY) % CAPACITY;
+            System.arraycopy(names, 0, nameCopy, 0, CAPACITY);
+            System.arraycopy(details, 0, detailCopy, 0, CAPACITY);
+            System.arraycopy(threads, 0, threadCopy, 0, CAPACITY);
+            System.arraycopy(wallTimes, 0, wallCopy, 0, CAPACITY);
+            System.arraycopy(durations, 0, durationCopy, 0, CAPACITY);
+        }
+
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        StringBuilder out = new StringBuilder();
+        out.append("App ").append(BuildConfig.VERSION_NAME).append(" (").append(BuildConfig.VERSION_CODE)
+                .append("), ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append(", Android ").append(Build.VERSION.RELEASE)
+                .append(" (API ").append(Build.VERSION.SDK_INT).append(")\n")
+                .append(count).append(" events\n\n");
+        for (int i = 0; i < count; i++) {
+            int index = (first + i) % CAPACITY;
+            out.append(timeFormat.format(new Date(wallCopy[index]))).append("  ")
+                    .append(String.format(Locale.US, "%-8s", nameCopy[index]));
+            if (durationCopy[index] >= 0) {
+                out.append(String.format(Locale.US, " %9.2f ms", durationCopy[index] / 1_000_000.0));
+            } else {
+                out.append("             ");
+            }
+            out.append("  ").append(threadCopy[index]);
+            if (detailCopy[index] != null) {
+                out.append("  ").append(detailCopy[index]);
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write export() to the cache so it can be shared through the FileProvider
+     */
+    @NonNull
+    public static File exportToFile(@NonNull Context context) throws IOException {
+        File dir = new File(context.getCacheDir(), EXPORT_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File file = new File(dir, "event_trace.txt");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(export());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cached, rate-limited reverse geocoding
+ * Addresses are cached per geohash cell (precision 7, about 150 m) in memory and in
+ * SharedPreferences, so nearby points and repeated lookups never reach the Geocoder.
+ * Misses run on one background thread with a minimum interval between Geocoder calls;
+ * a Lookup handle debounces and cancels requests from one screen (e.g. a pin being dragged).
+ */
+public class GeocodingService {
+
+    private static final String TAG = "GeocodingService";
+    private static final String PREFS_NAME = "geocode_cache";
+    private static final int GEOHASH_PRECISION = 7;
+    private static final int MEMORY_ENTRIES = 300;
+    private static final int DISK_ENTRIES = 1000;
+    private static final long MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000; // 30 days
+    // The platform geocoder is a shared network service; stay well under its limits
+    private static final long MIN_REQUEST_INTERVAL_MS = 1000;
+    public static final long DEFAULT_DEBOUNCE_MS = 400;
+    // Longest wait for a GeocodeListener answer before the worker moves on
+    private static final long GEOCODE_TIMEOUT_MS = 10_000;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private static GeocodingService instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final LruCache<String, String> memory = new LruCache<>(MEMORY_ENTRIES);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private long lastRequestAt = 0; // Worker thread only
+
+    public static synchronized GeocodingService getInstance(Context context) {
+        if (instance == null) {
+            instance = new GeocodingService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GeocodingService(Context context) {
+        this.appContext = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Address already known for this point, without any I/O beyond the memory cache
+     */
+    @Nullable
+    public String peek(double latitude, double longitude) {
+        return memory.get(geohash(latitude, longitude, GEOHASH_PRECISION));
+    }
+
+    /**
+     * Resolve an address; cache hits are delivered immediately on the calling (main) thread
+     *
+     * @param listener Called on the main thread with the address, or null if none was found
+     * @return Handle to cancel the request
+     */
+    @NonNull
+    public Request resolve(double latitude, double longitude, @NonNull OnAddressListener listener) {
+        Request request = new Request(latitude, longitude, listener);
+        String cached = peek(latitude, longitude);
+        if (cached != null) {
+            request.deliver(cached);
+        } else {
+            executor.execute(() -> runRequest(request));
+        }
+        return request;
+    }
+
+    /**
+     * New debounced lookup for one screen or view
+     */
+    @NonNull
+    public Lookup newLookup() {
+        return new Lookup(DEFAULT_DEBOUNCE_MS);
+    }
+
+    private void runRequest(Request request) {
+        if (request.cancelled) return;
+        String key = geohash(request.latitude, request.longitude, GEOHASH_PRECISION);
+
+        // Another request for the same cell may have finished while this one waited
+        String address = memory.get(key);
+        if (address == null) {
+            address = readDisk(key);
+        }
+        if (address == null) {
+            long wait = lastRequestAt + MIN_REQUEST_INTERVAL_MS - SystemClock.elapsedRealtime();
+            if (wait > 0) {
+                SystemClock.sleep(wait);
+            }
+            // Dragging the pin cancels most requests while they wait their turn
+            if (request.cancelled) return;
+            lastRequestAt = SystemClock.elapsedRealtime();
+            address = geocode(request.latitude, request.longitude);
+            if (address != null) {
+                writeDisk(key, address);
+            }
+        }
+        if (address != null) {
+            memory.put(key, address);
+        }
+        String result = address;
+        mainHandler.post(() -> request.deliver(result));
+    }
+
+    @Nullable
+    private String geocode(double latitude, double longitude) {
+        if (!Geocoder.isPresent()) return null;
+        Geocoder geocoder = new Geocoder(appContext, Locale.getDefault());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return geocodeWithListener(geocoder, latitude, longitude);
+        }
+        try {
+            return firstAddressLine(geocoder.getFromLocation(latitude, longitude, 1));
+        } catch (Exception e) {
+            Log.w(TAG, "Reverse geocoding failed: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Android 13+: asynchronous lookup; the worker waits for the answer so requests stay
+     * serialized and rate limited
+     */
+    @RequiresApi(Build.VERSION_CODES.TIRAMISU)
+    @Nullable
+    private String geocodeWithListener(Geocoder geocoder, double latitude, double longitude) {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> result = new AtomicReference<>();
+        try {
+            geocoder.getFromLocation(latitude, longitude, 1, new Geocoder.GeocodeListener() {
+                @Override
+                public void onGeocode(@NonNull List<Address> addresses) {
+                    result.set(firstAddressLine(addresses));
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(@Nullable String errorMessage) {
+                    Log.w(TAG, "Reverse geocoding failed: " + errorMessage);
+                    done.countDown();
+                }
+            });
+            if (!done.await(GEOCODE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Reverse geocoding timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.w(TAG, "Reverse geocoding failed: " + e.getMessage());
+        }
+        return result.get();
+    }
+
+    @Nullable
+    private static String firstAddressLine(@Nullable List<Address> addresses) {
+        if (addresses != null && !addresses.isEmpty()) {
+            return addresses.get(0).getAddressLine(0);
+        }
+        return null;
+    }
+
+    // ========== Disk cache ("savedAt|address" per geohash) ==========
+
+    @Nullable
+    private String readDisk(String key) {
+        String value = prefs.getString(key, null);
+        if (value == null) return null;
+        int separator = value.indexOf('|');
+        long savedAt = separator > 0 ? parseLong(value.substring(0, separator)) : 0;
+        if (System.currentTimeMillis() - savedAt > MAX_AGE_MS) {
+            prefs.edit().remove(key).apply();
+            return null;
+        }
+        return value.substring(separator + 1);
+    }
+
+    private void writeDisk(String key, String address) {
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putString(key, System.currentTimeMillis() + "|" + address);
+
+        Map<String, ?> all = prefs.getAll();
+        if (all.size() >= DISK_ENTRIES) {
+            // Drop the oldest tenth in one go rather than one entry per write
+            List<Map.Entry<String, ?>> entries = new ArrayList<>(all.entrySet());
+            Collections.sort(entries, (a, b) -> Long.compare(savedAt(a.getValue()), savedAt(b.getValue())));
+            for (int i = 0; i < DISK_ENTRIES / 10 && i < entries.size(); i++) {
+                editor.remove(entries.get(i).getKey());
+            }
+        }
+        editor.apply();
+    }
+
+    private static long savedAt(Object value) {
+        String text = String.valueOf(value);
+        int separator = text.indexOf('|');
+        return separator > 0 ? parseLong(text.substring(0, separator)) : 0;
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Standard base32 geohash
+     */
+    static String geohash(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0, index = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    index = index * 2 + 1;
+                    minLng = mid;
+                } else {
+                    index = index * 2;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    index = index * 2 + 1;
+                    minLat = mid;
+                } else {
+                    index = index * 2;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(index));
+                bit = 0;
+                index = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * One pending reverse geocoding request
+     */
+    public static class Request {
+        final double latitude;
+        final double longitude;
+        private final OnAddressListener listener;
+        volatile boolean cancelled = false;
+
+        Request(double latitude, double longitude, OnAddressListener listener) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void deliver(@Nullable String address) {
+            if (!cancelled) {
+                listener.onAddress(address);
+            }
+        }
+    }
+
+    /**
+     * Debounced lookups from one screen: each call replaces the previous one, and only
+     * the last position after the debounce delay is geocoded. Main thread only.
+     */
+    public class Lookup {
+        private final long debounceMs;
+        private Request current;
+        private Runnable pending;
+
+        Lookup(long debounceMs) {
+            this.debounceMs = debounceMs;
+        }
+
+        /**
+         * Look up a position; a cached address is delivered immediately
+         */
+        public void request(double latitude, double longitude, @NonNull OnAddressListener listener) {
+            cancel();
+            String cached = peek(latitude, longitude);
+            if (cached != null) {
+                listener.onAddress(cached);
+                return;
+            }
+            pending = () -> {
+                pending = null;
+                current = resolve(latitude, longitude, listener);
+            };
+            mainHandler.postDelayed(pending, debounceMs);
+        }
+
+        public void cancel() {
+            if (pending != null) {
+                mainHandler.removeCallbacks(pending);
+                pending = null;
+            }
+            if (current != null) {
+                current.cancel();
+                current = null;
+            }
+        }
+    }
+
+    public interface OnAddressListener {
+        void onAddress(@Nullable String address);
+    }
+}
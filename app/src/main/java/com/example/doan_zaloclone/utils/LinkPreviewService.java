@@ -0,0 +1,634 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Html;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.ZaloApplication;
+import com.example.doan_zaloclone.models.LinkPreview;
+import com.example.doan_zaloclone.models.Message;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Open Graph previews for links in text messages, shared by the chat bubbles and the links tab
+ * Previews are keyed by normalized URL (lowercase host, no fragment, no tracking parameters)
+ * and kept in memory and on disk with a TTL; thumbnails are stored downscaled next to them.
+ * Fetches run on a small fixed pool, and concurrent requests for one URL share a single fetch,
+ * so a link forwarded into ten conversations is downloaded once. Links are fetched when a bubble
+ * shows them, or right after the user sends one; never just because a message arrived. Hosts
+ * resolving to loopback, private or link-local addresses are refused.
+ */
+public class LinkPreviewService {
+
+    private static final String TAG = "LinkPreviewService";
+    private static final String CACHE_DIR_NAME = "link_previews";
+    private static final int FETCH_THREADS = 3;
+    private static final int MEMORY_ENTRIES = 200;
+    private static final long TTL_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
+    // Pages without a title or image are retried sooner; they may have been down
+    private static final long EMPTY_TTL_MS = 6L * 60 * 60 * 1000; // 6 hours
+    private static final long DISK_BUDGET_BYTES = 16L * 1024 * 1024; // 16 MB
+    // Open Graph tags live in <head>: reading stops at </head>, or after this much
+    private static final int MAX_HTML_BYTES = 128 * 1024;
+    private static final byte[] HEAD_END = "</head>".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_IMAGE_BYTES = 8 * 1024 * 1024;
+    private static final int THUMBNAIL_MAX_PX = 480;
+    private static final int MAX_TEXT_CHARS = 300;
+    private static final Set<String> TRACKING_PARAMS = new HashSet<>(Arrays.asList(
+            "fbclid", "gclid", "igshid", "si", "zarsrc", "ref_src"));
+
+    private static final Pattern META_PATTERN = Pattern.compile("<meta\\s[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile(
+            "([a-zA-Z:_-]+)\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s>]+)");
+    private static final Pattern TITLE_PATTERN = Pattern.compile(
+            "<title[^>]*>(.*?)</title>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static LinkPreviewService instance;
+
+    private final LruCache<String, LinkPreview> memory = new LruCache<>(MEMORY_ENTRIES);
+    private final ExecutorService executor = Executors.newFixedThreadPool(FETCH_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, List<OnPreviewListener>> inFlight = new HashMap<>(); // Guarded by itself
+    private final Gson gson = new Gson();
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(8, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .dns(LinkPreviewService::lookupPublic)
+            // IP literals skip Dns; check the address actually connected to (redirects included)
+            .addNetworkInterceptor(chain -> {
+                InetAddress address = chain.connection() != null
+                        ? chain.connection().route().socketAddress().getAddress() : null;
+                if (address != null && !isPublic(address)) {
+                    throw new UnknownHostException("Non-public address for " + chain.request().url().host());
+                }
+                return chain.proceed(chain.request());
+            })
+            .build();
+    private File cacheDir;
+
+    public static synchronized LinkPreviewService getInstance() {
+        if (instance == null) {
+            instance = new LinkPreviewService();
+        }
+        return instance;
+    }
+
+    private LinkPreviewService() {
+    }
+
+    /**
+     * Enable the disk cache (called once from the Application)
+     */
+    public void init(@NonNull Context context) {
+        File dir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        cacheDir = dir;
+    }
+
+    /**
+     * Cache key for a link, or null if it is not an http(s) URL
+     */
+    @Nullable
+    public static String normalize(@Nullable String url) {
+        if (url == null || url.trim().isEmpty()) return null;
+        String trimmed = url.trim();
+        if (!trimmed.matches("(?i)^[a-z][a-z0-9+.-]*://.*")) {
+            trimmed = "https://" + trimmed;
+        }
+        // HttpUrl already lowercases scheme and host and drops default ports
+        HttpUrl parsed = HttpUrl.parse(trimmed);
+        if (parsed == null) return null;
+        HttpUrl.Builder builder = parsed.newBuilder().fragment(null);
+        for (String name : parsed.queryParameterNames()) {
+            if (name.startsWith("utm_") || TRACKING_PARAMS.contains(name)) {
+                builder.removeAllQueryParameters(name);
+            }
+        }
+        return builder.build().toString();
+    }
+
+    /**
+     * Get a preview; memory hits are delivered immediately on the calling (main) thread
+     *
+     * @param listener Called on the main thread with the preview, or null if the link could not
+     *                 be fetched (offline, not a web page)
+     */
+    public void load(@Nullable String url, @NonNull OnPreviewListener listener) {
+        String key = normalize(url);
+        if (key == null) {
+            listener.onPreview(null);
+            return;
+        }
+        LinkPreview cached = peekKey(key);
+        if (cached != null) {
+            listener.onPreview(cached);
+        } else {
+            enqueue(key, listener);
+        }
+    }
+
+    /**
+     * Start fetching the preview of the first link in a message the user just sent (any thread)
+     */
+    public void prefetch(@Nullable Message message) {
+        String key = normalize(MessageTextCache.getInstance().firstWebUrl(message));
+        if (key != null && peekKey(key) == null) {
+            enqueue(key, null);
+        }
+    }
+
+    /**
+     * Show a link's preview in a card inflated from view_link_preview
+     * The card stays hidden until a non-empty preview arrives; rebinding the card to another
+     * link before then drops the stale result.
+     */
+    public void bind(@NonNull View card, @Nullable String url) {
+        String key = normalize(url);
+        card.setTag(R.id.tag_link_preview, key);
+        if (key == null) {
+            card.setVisibility(View.GONE);
+            return;
+        }
+        LinkPreview cached = peekKey(key);
+        if (cached != null) {
+            show(card, cached);
+            return;
+        }
+        card.setVisibility(View.GONE);
+        enqueue(key, preview -> {
+            if (key.equals(card.getTag(R.id.tag_link_preview))) {
+                show(card, preview);
+            }
+        });
+    }
+
+    private void show(View card, @Nullable LinkPreview preview) {
+        if (preview == null || preview.isEmpty()) {
+            card.setVisibility(View.GONE);
+            return;
+        }
+        card.setVisibility(View.VISIBLE);
+        ImageView image = card.findViewById(R.id.linkPreviewImage);
+        TextView title = card.findViewById(R.id.linkPreviewTitle);
+        TextView description = card.findViewById(R.id.linkPreviewDescription);
+        TextView site = card.findViewById(R.id.linkPreviewSite);
+
+        setOptionalText(title, preview.getTitle());
+        setOptionalText(description, preview.getDescription());
+        setOptionalText(site, preview.getSiteName());
+        if (preview.getImagePath() != null) {
+            image.setVisibility(View.VISIBLE);
+            Glide.with(image).load(new File(preview.getImagePath())).centerCrop().into(image);
+        } else {
+            Glide.with(image).clear(image);
+            image.setVisibility(View.GONE);
+        }
+        card.setOnClickListener(v -> {
+            try {
+                v.getContext().startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(preview.getUrl())));
+            } catch (Exception e) {
+                Log.w(TAG, "No app to open " + preview.getUrl());
+            }
+        });
+    }
+
+    private static void setOptionalText(TextView view, @Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            view.setVisibility(View.GONE);
+        } else {
+            view.setVisibility(View.VISIBLE);
+            view.setText(text);
+        }
+    }
+
+    @Nullable
+    private LinkPreview peekKey(String key) {
+        LinkPreview preview = memory.get(key);
+        if (preview != null && !isFresh(preview)) {
+            memory.remove(key);
+            return null;
+        }
+        return preview;
+    }
+
+    private void enqueue(String key, @Nullable OnPreviewListener listener) {
+        synchronized (inFlight) {
+            List<OnPreviewListener> waiting = inFlight.get(key);
+            if (waiting != null) {
+                // Already being fetched (e.g. the same link in another conversation)
+                if (listener != null) waiting.add(listener);
+                return;
+            }
+            waiting = new ArrayList<>();
+            if (listener != null) waiting.add(listener);
+            inFlight.put(key, waiting);
+        }
+        executor.execute(() -> {
+            // A chat can bind before the BACKGROUND startup task has set up the disk cache
+            StartupOrchestrator.getInstance().ensure(ZaloApplication.TASK_LINK_PREVIEWS);
+            LinkPreview preview = readDisk(key);
+            if (preview == null) {
+                preview = fetch(key);
+                if (preview != null) writeDisk(key, preview);
+            }
+            if (preview != null) memory.put(key, preview);
+
+            List<OnPreviewListener> waiting;
+            synchronized (inFlight) {
+                waiting = inFlight.remove(key);
+            }
+            if (waiting != null && !waiting.isEmpty()) {
+                LinkPreview result = preview;
+                mainHandler.post(() -> {
+                    for (OnPreviewListener waiter : waiting) {
+                        waiter.onPreview(result);
+                    }
+                });
+            }
+        });
+    }
+
+    private static boolean isFresh(LinkPreview preview) {
+        long ttl = preview.isEmpty() ? EMPTY_TTL_MS : TTL_MS;
+        return System.currentTimeMillis() - preview.getFetchedAt() < ttl;
+    }
+
+    // ========== Fetching ==========
+
+    /**
+     * Download and parse a page (blocking; worker threads only)
+     *
+     * @return Null on network errors, so they are retried on the next bind instead of cached
+     */
+    @Nullable
+    private LinkPreview fetch(String url) {
+        long now = System.currentTimeMillis();
+        String name = fileName(url);
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        String host = httpUrl != null ? httpUrl.host() : null;
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Accept", "text/html,application/xhtml+xml,image/*;q=0.8")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return new LinkPreview(url, null, null, host, null, now);
+            }
+            MediaType type = body.contentType();
+            if (type != null && "image".equals(type.type())) {
+                // The link is the picture itself
+                byte[] bytes = readLimited(body.byteStream(), MAX_IMAGE_BYTES);
+                String imagePath = bytes != null ? saveThumbnail(bytes, name) : null;
+                return new LinkPreview(url, null, null, host, imagePath, now);
+            }
+            if (type != null && !type.subtype().contains("html")) {
+                return new LinkPreview(url, null, null, host, null, now);
+            }
+
+            byte[] head = readHead(body.byteStream());
+            Charset charset = type != null ? type.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+            String html = new String(head, charset);
+            int headEnd = html.toLowerCase(Locale.ROOT).indexOf("</head>");
+            if (headEnd > 0) html = html.substring(0, headEnd);
+
+            Map<String, String> meta = parseMeta(html);
+            String title = first(meta.get("og:title"), meta.get("twitter:title"), parseTitle(html));
+            String description = first(meta.get("og:description"), meta.get("twitter:description"),
+                    meta.get("description"));
+            String siteName = first(meta.get("og:site_name"), host);
+            String image = first(meta.get("og:image:secure_url"), meta.get("og:image"),
+                    meta.get("twitter:image"));
+
+            String imagePath = null;
+            if (image != null) {
+                // Relative image URLs resolve against the page after redirects
+                HttpUrl imageUrl = response.request().url().resolve(clean(image));
+                if (imageUrl != null) imagePath = downloadThumbnail(imageUrl, name);
+            }
+            return new LinkPreview(url, clean(title), clean(description), clean(siteName), imagePath, now);
+        } catch (Exception e) {
+            Log.w(TAG, "Preview fetch failed for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private String downloadThumbnail(HttpUrl url, String name) {
+        Request request = new Request.Builder().url(url).build();
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) return null;
+            byte[] bytes = readLimited(body.byteStream(), MAX_IMAGE_BYTES);
+            return bytes != null ? saveThumbnail(bytes, name) : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Preview image download failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decode at the smallest power-of-two size that still covers THUMBNAIL_MAX_PX, scale the
+     * rest of the way and store it as JPEG
+     */
+    @Nullable
+    private String saveThumbnail(byte[] bytes, String name) {
+        if (cacheDir == null) return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        int sampleSize = 1;
+        while (Math.max(options.outWidth, options.outHeight) / (sampleSize * 2) >= THUMBNAIL_MAX_PX) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (bitmap == null) return null;
+
+        float scale = (float) THUMBNAIL_MAX_PX / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (scale < 1f) {
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                    Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                    Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+            bitmap.recycle();
+            bitmap = scaled;
+        }
+
+        File file = new File(cacheDir, name + ".jpg");
+        File temp = new File(cacheDir, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 80, output);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not save preview image: " + e.getMessage());
+            temp.delete();
+            return null;
+        } finally {
+            bitmap.recycle();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return null;
+        }
+        return file.getPath();
+    }
+
+    /**
+     * @return Null past the limit
+     */
+    @Nullable
+    private static byte[] readLimited(InputStream input, int limit) throws java.io.IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            if (count > limit - output.size()) return null;
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Read a page up to and including </head> (at most MAX_HTML_BYTES); the body is never downloaded
+     */
+    private static byte[] readHead(InputStream input) throws java.io.IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int matched = 0;
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            int length = Math.min(count, MAX_HTML_BYTES - output.size());
+            for (int i = 0; i < length; i++) {
+                int c = buffer[i] & 0xff;
+                if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+                // '<' only starts the pattern, so a mismatch restarts at it or at zero
+                matched = c == HEAD_END[matched] ? matched + 1 : (c == '<' ? 1 : 0);
+                if (matched == HEAD_END.length) {
+                    output.write(buffer, 0, i + 1);
+                    return output.toByteArray();
+                }
+            }
+            output.write(buffer, 0, length);
+            if (output.size() >= MAX_HTML_BYTES) break;
+        }
+        return output.toByteArray();
+    }
+
+    private static List<InetAddress> lookupPublic(String hostname) throws UnknownHostException {
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new UnknownHostException("Non-public address for " + hostname);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * False for addresses inside the device's own networks: loopback, private, link-local,
+     * carrier-grade NAT, IPv6 unique local, multicast
+     */
+    private static boolean isPublic(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isAnyLocalAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            int second = bytes[1] & 0xff;
+            return !((bytes[0] & 0xff) == 100 && second >= 64 && second < 128); // 100.64.0.0/10
+        }
+        return (bytes[0] & 0xfe) != 0xfc; // fc00::/7
+    }
+
+    private static Map<String, String> parseMeta(String html) {
+        Map<String, String> meta = new HashMap<>();
+        Matcher tag = META_PATTERN.matcher(html);
+        while (tag.find()) {
+            String key = null;
+            String content = null;
+            Matcher attribute = ATTRIBUTE_PATTERN.matcher(tag.group());
+            while (attribute.find()) {
+                String name = attribute.group(1).toLowerCase(Locale.ROOT);
+                String value = unquote(attribute.group(2));
+                if (name.equals("property") || name.equals("name")) {
+                    key = value.toLowerCase(Locale.ROOT);
+                } else if (name.equals("content")) {
+                    content = value;
+                }
+            }
+            // First occurrence wins, as with Open Graph consumers generally
+            if (key != null && content != null && !content.trim().isEmpty() && !meta.containsKey(key)) {
+                meta.put(key, content);
+            }
+        }
+        return meta;
+    }
+
+    @Nullable
+    private static String parseTitle(String html) {
+        Matcher matcher = TITLE_PATTERN.matcher(html);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    @Nullable
+    private static String first(String... values) {
+        for (String value : values) {
+            if (value != null && !value.trim().isEmpty()) return value;
+        }
+        return null;
+    }
+
+    /**
+     * Decode HTML entities, collapse whitespace and cap the length
+     */
+    @Nullable
+    private static String clean(@Nullable String text) {
+        if (text == null) return null;
+        String plain = Html.fromHtml(text, Html.FROM_HTML_MODE_LEGACY).toString()
+                .replaceAll("\\s+", " ").trim();
+        if (plain.isEmpty()) return null;
+        return plain.length() > MAX_TEXT_CHARS ? plain.substring(0, MAX_TEXT_CHARS - 1) + "…" : plain;
+    }
+
+    // ========== Disk cache ==========
+
+    @Nullable
+    private LinkPreview readDisk(String key) {
+        if (cacheDir == null) return null;
+        File file = new File(cacheDir, fileName(key) + ".json");
+        if (!file.exists()) return null;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            LinkPreview preview = gson.fromJson(reader, LinkPreview.class);
+            if (preview == null || !isFresh(preview)) return null;
+            // The thumbnail may have been trimmed on its own
+            if (preview.getImagePath() != null && !new File(preview.getImagePath()).exists()) return null;
+            file.setLastModified(System.currentTimeMillis());
+            return preview;
+        } catch (Exception e) {
+            Log.w(TAG, "Ignoring corrupt preview cache entry", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, LinkPreview preview) {
+        if (cacheDir == null) return;
+        File file = new File(cacheDir, fileName(key) + ".json");
+        File temp = new File(cacheDir, file.getName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            gson.toJson(preview, writer);
+        } catch (Exception e) {
+            Log.w(TAG, "Error writing preview cache", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        trimToBudget();
+    }
+
+    private synchronized void trimToBudget() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= DISK_BUDGET_BYTES) return;
+
+        // Oldest access first; trim a bit below the budget so we don't trim on every write
+        long target = DISK_BUDGET_BYTES * 9 / 10;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= target) break;
+            if (file.getName().endsWith(".tmp")) continue;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format(Locale.US, "%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    public interface OnPreviewListener {
+        void onPreview(@Nullable LinkPreview preview);
+    }
+}
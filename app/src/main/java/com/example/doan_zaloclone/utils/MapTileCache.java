@@ -0,0 +1,443 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk cache for OpenStreetMap tiles and static map thumbnails
+ * Location bubbles show a thumbnail bitmap rendered from cached tiles (cached per
+ * lat/lng/zoom/size) instead of a live MapView per row. Thumbnails and their tiles live in
+ * one directory, trimmed least-recently-used first.
+ * The first time a location binds, the tiles around it are prefetched into osmdroid's own
+ * cache (configured here) so the full-screen map screens open without network. One configurable
+ * budget covers both: osmdroid gets OSMDROID_BUDGET_PERCENT of it, the thumbnails the rest.
+ */
+public class MapTileCache {
+
+    private static final String TAG = "MapTileCache";
+    private static final String CACHE_DIR_NAME = "map_tiles";
+    private static final String OSMDROID_DIR_NAME = "osmdroid";
+    private static final String PREF_BUDGET = "map_tile_cache_budget";
+    private static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024; // 64 MB
+    private static final int OSMDROID_BUDGET_PERCENT = 75;
+    private static final String TILE_URL = "https://tile.openstreetmap.org/%d/%d/%d.png";
+    private static final int TILE_SIZE = 256;
+    // OSM tile usage policy: at most 2 concurrent connections
+    private static final int DOWNLOAD_THREADS = 2;
+    // Prefetch a 3x3 block around the point at the zooms the map screens open with
+    // (LocationPickerActivity 15, LiveLocationViewActivity 18)
+    private static final int[] PREFETCH_ZOOMS = {15, 18};
+    private static final int PREFETCH_RADIUS = 1;
+    public static final int THUMBNAIL_ZOOM = 16;
+    private static final int MEMORY_THUMBNAIL_BYTES = 8 * 1024 * 1024;
+    // A live location is re-rendered (and prefetched) once it moved this far, or after this long
+    private static final float LIVE_MIN_MOVE_METERS = 25f;
+    private static final long LIVE_MIN_INTERVAL_MS = 2 * 60_000;
+
+    private static MapTileCache instance;
+
+    private final Context appContext;
+    private final File cacheDir;
+    private final SharedPreferences prefs;
+    private final ExecutorService executor = Executors.newFixedThreadPool(DOWNLOAD_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentHashMap<String, Object> tileLocks = new ConcurrentHashMap<>();
+    private final Set<String> prefetched = new HashSet<>();
+    private final LruCache<String, Bitmap> thumbnails = new LruCache<String, Bitmap>(MEMORY_THUMBNAIL_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+    // Last position rendered per live location session (main thread only)
+    private final Map<String, LiveAnchor> liveAnchors = new HashMap<>();
+    private boolean osmdroidConfigured = false;
+    private SqlTileWriter osmdroidCache;
+
+    public static synchronized MapTileCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new MapTileCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MapTileCache(Context context) {
+        this.appContext = context;
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        this.prefs = context.getSharedPreferences(TAG, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Total disk budget of osmdroid's tile cache and the thumbnail directory
+     */
+    public long getDiskBudget() {
+        return prefs.getLong(PREF_BUDGET, DEFAULT_BUDGET_BYTES);
+    }
+
+    public void setDiskBudget(long bytes) {
+        prefs.edit().putLong(PREF_BUDGET, bytes).apply();
+        osmdroidConfigured = false;
+        executor.execute(this::trimToBudget);
+    }
+
+    /**
+     * Configure osmdroid once per process; call before inflating a MapView
+     */
+    public synchronized void configureOsmdroid() {
+        if (osmdroidConfigured) return;
+        osmdroidConfigured = true;
+        Configuration config = Configuration.getInstance();
+        config.load(appContext, PreferenceManager.getDefaultSharedPreferences(appContext));
+        config.setUserAgentValue(appContext.getPackageName());
+
+        File base = new File(appContext.getCacheDir(), OSMDROID_DIR_NAME);
+        config.setOsmdroidBasePath(base);
+        config.setOsmdroidTileCache(new File(base, "tiles"));
+
+        long budget = getDiskBudget() * OSMDROID_BUDGET_PERCENT / 100;
+        config.setTileFileSystemCacheMaxBytes(budget);
+        config.setTileFileSystemCacheTrimBytes(budget * 4 / 5);
+        config.setExpirationExtendedDuration(1000L * 60 * 60 * 24 * 7); // 7 days
+    }
+
+    /**
+     * Download the tiles around a shared location in the background, once per location
+     */
+    public void prefetchAround(double latitude, double longitude) {
+        String key = String.format(Locale.US, "%.4f,%.4f", latitude, longitude);
+        synchronized (prefetched) {
+            if (!prefetched.add(key)) return;
+        }
+        executor.execute(() -> {
+            for (int zoom : PREFETCH_ZOOMS) {
+                int n = 1 << zoom;
+                int centerX = (int) Math.floor(tileX(longitude, zoom));
+                int centerY = (int) Math.floor(tileY(latitude, zoom));
+                for (int dx = -PREFETCH_RADIUS; dx <= PREFETCH_RADIUS; dx++) {
+                    for (int dy = -PREFETCH_RADIUS; dy <= PREFETCH_RADIUS; dy++) {
+                        int y = centerY + dy;
+                        if (y < 0 || y >= n) continue;
+                        prefetchTile(zoom, Math.floorMod(centerX + dx, n), y);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * loadThumbnail() for a live location that keeps moving
+     * Updates within LIVE_MIN_MOVE_METERS of the last rendered position reuse its thumbnail
+     * until LIVE_MIN_INTERVAL_MS passed, so GPS jitter doesn't render, store and prefetch anew.
+     */
+    public void loadLiveThumbnail(@NonNull ImageView target, @NonNull String sessionId,
+                                  double latitude, double longitude, int widthPx, int heightPx) {
+        LiveAnchor anchor = liveAnchors.get(sessionId);
+        long now = SystemClock.elapsedRealtime();
+        if (anchor == null || now - anchor.renderedAt >= LIVE_MIN_INTERVAL_MS
+                || distanceMeters(anchor, latitude, longitude) >= LIVE_MIN_MOVE_METERS) {
+            anchor = new LiveAnchor(latitude, longitude, now);
+            liveAnchors.put(sessionId, anchor);
+            prefetchAround(latitude, longitude);
+        }
+        loadThumbnail(target, anchor.latitude, anchor.longitude, widthPx, heightPx);
+    }
+
+    private static float distanceMeters(LiveAnchor anchor, double latitude, double longitude) {
+        float[] result = new float[1];
+        Location.distanceBetween(anchor.latitude, anchor.longitude, latitude, longitude, result);
+        return result[0];
+    }
+
+    /**
+     * Show a static map of the point in an ImageView (memory, then disk, then rendered from tiles)
+     * The view keeps its placeholder until the bitmap is ready; rebinding to another point
+     * before then drops the stale result.
+     */
+    public void loadThumbnail(@NonNull ImageView target, double latitude, double longitude,
+                              int widthPx, int heightPx) {
+        String key = String.format(Locale.US, "thumb_%d_%.5f_%.5f_%dx%d",
+                THUMBNAIL_ZOOM, latitude, longitude, widthPx, heightPx);
+        target.setTag(key);
+        Bitmap cached = thumbnails.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+        target.setImageDrawable(null);
+
+        executor.execute(() -> {
+            Bitmap bitmap = loadOrRenderThumbnail(key, latitude, longitude, widthPx, heightPx);
+            if (bitmap == null) return;
+            thumbnails.put(key, bitmap);
+            mainHandler.post(() -> {
+                if (key.equals(target.getTag())) {
+                    target.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    @Nullable
+    private Bitmap loadOrRenderThumbnail(String key, double latitude, double longitude, int width, int height) {
+        File file = new File(cacheDir, key.replace('.', '_').replace(',', '_') + ".png");
+        if (file.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+            if (bitmap != null) {
+                file.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        }
+
+        Bitmap bitmap = renderThumbnail(latitude, longitude, width, height);
+        if (bitmap == null) return null;
+        File temp = new File(cacheDir, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, output);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not save thumbnail: " + e.getMessage());
+            temp.delete();
+            return bitmap;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+        trimToBudget();
+        return bitmap;
+    }
+
+    @Nullable
+    private Bitmap renderThumbnail(double latitude, double longitude, int width, int height) {
+        int zoom = THUMBNAIL_ZOOM;
+        int n = 1 << zoom;
+        double centerX = tileX(longitude, zoom) * TILE_SIZE;
+        double centerY = tileY(latitude, zoom) * TILE_SIZE;
+        double left = centerX - width / 2.0;
+        double top = centerY - height / 2.0;
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.rgb(0xE8, 0xE8, 0xE8));
+
+        boolean anyTile = false;
+        int firstX = (int) Math.floor(left / TILE_SIZE);
+        int lastX = (int) Math.floor((left + width - 1) / TILE_SIZE);
+        int firstY = (int) Math.floor(top / TILE_SIZE);
+        int lastY = (int) Math.floor((top + height - 1) / TILE_SIZE);
+        for (int x = firstX; x <= lastX; x++) {
+            for (int y = firstY; y <= lastY; y++) {
+                if (y < 0 || y >= n) continue;
+                File tile = getTileFile(zoom, Math.floorMod(x, n), y);
+                Bitmap tileBitmap = tile != null ? BitmapFactory.decodeFile(tile.getPath()) : null;
+                if (tileBitmap == null) continue;
+                canvas.drawBitmap(tileBitmap, (float) (x * TILE_SIZE - left), (float) (y * TILE_SIZE - top), null);
+                tileBitmap.recycle();
+                anyTile = true;
+            }
+        }
+        if (!anyTile) {
+            // Offline with nothing cached: don't persist an empty map
+            bitmap.recycle();
+            return null;
+        }
+        drawPin(canvas, width / 2f, height / 2f);
+        return bitmap;
+    }
+
+    private void drawPin(Canvas canvas, float x, float y) {
+        float density = appContext.getResources().getDisplayMetrics().density;
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.WHITE);
+        canvas.drawCircle(x, y, 9 * density, paint);
+        paint.setColor(Color.rgb(0xF4, 0x43, 0x36));
+        canvas.drawCircle(x, y, 7 * density, paint);
+    }
+
+    private synchronized SqlTileWriter getOsmdroidCache() {
+        if (osmdroidCache == null) {
+            configureOsmdroid();
+            osmdroidCache = new SqlTileWriter();
+        }
+        return osmdroidCache;
+    }
+
+    /**
+     * Put one tile in osmdroid's cache unless it is already there
+     */
+    private void prefetchTile(int zoom, int x, int y) {
+        try {
+            SqlTileWriter cache = getOsmdroidCache();
+            long index = MapTileIndex.getTileIndex(zoom, x, y);
+            if (cache.exists(TileSourceFactory.MAPNIK, index)) return;
+            byte[] bytes = fetch(String.format(Locale.US, TILE_URL, zoom, x, y));
+            if (bytes != null) {
+                long expires = System.currentTimeMillis() + Configuration.getInstance().getExpirationExtendedDuration();
+                cache.saveFile(TileSourceFactory.MAPNIK, index, new ByteArrayInputStream(bytes), expires);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Tile prefetch error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cached tile file, downloading it if needed (blocking; background threads only)
+     *
+     * @return Null if the tile is not cached and could not be downloaded
+     */
+    @Nullable
+    private File getTileFile(int zoom, int x, int y) {
+        String name = "tile_" + zoom + "_" + x + "_" + y + ".png";
+        File file = new File(cacheDir, name);
+        Object lock = tileLocks.computeIfAbsent(name, k -> new Object());
+        try {
+            synchronized (lock) {
+                if (file.exists() && file.length() > 0) {
+                    file.setLastModified(System.currentTimeMillis());
+                    return file;
+                }
+                byte[] bytes = fetch(String.format(Locale.US, TILE_URL, zoom, x, y));
+                return bytes != null && write(bytes, file) ? file : null;
+            }
+        } finally {
+            tileLocks.remove(name);
+        }
+    }
+
+    @Nullable
+    private byte[] fetch(String tileUrl) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(tileUrl).openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(15000);
+            // Required by the OSM tile usage policy
+            connection.setRequestProperty("User-Agent", appContext.getPackageName());
+            connection.connect();
+
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                Log.w(TAG, "Tile download failed, HTTP " + connection.getResponseCode());
+                return null;
+            }
+
+            try (InputStream input = connection.getInputStream()) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, count);
+                }
+                return output.toByteArray();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Tile download error: " + e.getMessage());
+            return null;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private boolean write(byte[] bytes, File target) {
+        File temp = new File(cacheDir, target.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(bytes);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not save tile: " + e.getMessage());
+            temp.delete();
+            return false;
+        }
+        // Publish atomically so readers never see a partial file
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            return false;
+        }
+        trimToBudget();
+        return true;
+    }
+
+    private synchronized void trimToBudget() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        long budget = getDiskBudget() * (100 - OSMDROID_BUDGET_PERCENT) / 100;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= budget) return;
+
+        // Oldest access first; trim a bit below the budget so we don't trim on every write
+        long target = budget * 9 / 10;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= target) break;
+            if (file.getName().endsWith(".tmp")) continue;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private static class LiveAnchor {
+        final double latitude;
+        final double longitude;
+        final long renderedAt;
+
+        LiveAnchor(double latitude, double longitude, long renderedAt) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.renderedAt = renderedAt;
+        }
+    }
+
+    private static double tileX(double longitude, int zoom) {
+        return (longitude + 180.0) / 360.0 * (1 << zoom);
+    }
+
+    private static double tileY(double latitude, int zoom) {
+        double latRad = Math.toRadians(Math.max(-85.0511, Math.min(85.0511, latitude)));
+        return (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * (1 << zoom);
+    }
+}
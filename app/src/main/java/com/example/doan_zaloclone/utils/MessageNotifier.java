@@ -0,0 +1,399 @@
+package com.example.doan_zaloclone.utils;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.notification.StatusBarNotification;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.Person;
+import androidx.core.graphics.drawable.IconCompat;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.transition.Transition;
+import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.models.Conversation;
+import com.example.doan_zaloclone.models.User;
+import com.example.doan_zaloclone.repository.UserProfileCache;
+import com.example.doan_zaloclone.ui.room.RoomActivity;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesced chat notifications
+ * Events are buffered per conversation for a short window, then shown as one
+ * MessagingStyle notification per conversation (last few lines) grouped under a summary.
+ * System notify() calls go through one queue spaced MIN_NOTIFY_INTERVAL_MS apart, so a busy
+ * group cannot trip Android's notification rate limit. Sender names and avatars come from
+ * UserProfileCache. Public methods may be called from any thread.
+ */
+public class MessageNotifier {
+
+    private static final String TAG = "MessageNotifier";
+    private static final String GROUP_KEY_MESSAGES = "com.example.doan_zaloclone.MESSAGES";
+    private static final long COALESCE_WINDOW_MS = 800;
+    private static final long MIN_NOTIFY_INTERVAL_MS = 250; // At most 4 notify() calls per second
+    private static final int MAX_LINES = 7;
+    private static final int MAX_SEEN_IDS = 50;
+    private static final int AVATAR_SIZE_PX = 128;
+
+    private static MessageNotifier instance;
+
+    // All state below is touched on the main thread only
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, ConversationState> conversations = new LinkedHashMap<>();
+    private final LinkedHashSet<String> dirty = new LinkedHashSet<>();
+    private final Map<String, ConversationInfo> conversationInfo = new HashMap<>();
+    private final Set<String> infoLoading = new HashSet<>();
+    private final LruCache<String, Bitmap> avatars = new LruCache<>(50);
+    private final Set<String> avatarsLoading = new HashSet<>();
+    private final Runnable drainTask = this::drain;
+    private Context appContext;
+    private long lastNotifyAt;
+    private boolean drainScheduled;
+    private boolean summaryStale;
+
+    public static synchronized MessageNotifier getInstance() {
+        if (instance == null) {
+            instance = new MessageNotifier();
+        }
+        return instance;
+    }
+
+    private MessageNotifier() {
+    }
+
+    /**
+     * Queue a new message
+     *
+     * @param messageId Used to drop duplicates (the server emits new_message to both the
+     *                  conversation room and each member's room); may be null
+     */
+    public void postMessage(@NonNull Context context, @NonNull String conversationId,
+                            @Nullable String messageId, @NonNull String senderId,
+                            @Nullable String senderName, @NonNull String text, long timestamp) {
+        Line line = new Line(messageId, senderId, senderName, text, timestamp);
+        mainHandler.post(() -> add(context, conversationId, line));
+    }
+
+    public void postRecall(@NonNull Context context, @NonNull String conversationId,
+                           @NonNull String senderId, @Nullable String senderName) {
+        Line line = new Line(null, senderId, senderName, "đã thu hồi một tin nhắn",
+                System.currentTimeMillis());
+        mainHandler.post(() -> add(context, conversationId, line));
+    }
+
+    public void postReaction(@NonNull Context context, @NonNull String conversationId,
+                             @NonNull String userId, @NonNull String reaction) {
+        Line line = new Line(null, userId, null,
+                "đã thả cảm xúc " + reaction + " vào tin nhắn của bạn", System.currentTimeMillis());
+        mainHandler.post(() -> add(context, conversationId, line));
+    }
+
+    /**
+     * Drop a conversation's notification (e.g. when the user opens it)
+     */
+    public void clear(@NonNull Context context, @NonNull String conversationId) {
+        mainHandler.post(() -> {
+            appContext = context.getApplicationContext();
+            dirty.remove(conversationId);
+            if (conversations.remove(conversationId) != null) {
+                NotificationManager manager = appContext.getSystemService(NotificationManager.class);
+                if (manager != null) {
+                    manager.cancel(conversationId, NotificationHelper.NOTIFICATION_ID_NEW_MESSAGE);
+                }
+                summaryStale = true;
+                scheduleDrain();
+            }
+        });
+    }
+
+    // ========== Buffering ==========
+
+    private void add(Context context, String conversationId, Line line) {
+        appContext = context.getApplicationContext();
+        ConversationState state = conversations.get(conversationId);
+        if (state == null) {
+            state = new ConversationState();
+            conversations.put(conversationId, state);
+        }
+        if (line.messageId != null && !state.rememberId(line.messageId)) return;
+
+        state.lines.addLast(line);
+        while (state.lines.size() > MAX_LINES) {
+            state.lines.removeFirst();
+        }
+        resolveSender(line.senderId);
+        resolveConversation(conversationId);
+
+        // First event of a burst opens the window; later ones just join it
+        if (!state.windowOpen) {
+            state.windowOpen = true;
+            final ConversationState opened = state;
+            mainHandler.postDelayed(() -> {
+                opened.windowOpen = false;
+                if (conversations.get(conversationId) == opened) {
+                    dirty.add(conversationId);
+                    scheduleDrain();
+                }
+            }, COALESCE_WINDOW_MS);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled) return;
+        drainScheduled = true;
+        long wait = Math.max(0, lastNotifyAt + MIN_NOTIFY_INTERVAL_MS - System.currentTimeMillis());
+        mainHandler.postDelayed(drainTask, wait);
+    }
+
+    /**
+     * One system notify() per run; reschedules itself while work remains
+     */
+    private void drain() {
+        drainScheduled = false;
+        NotificationManager manager = appContext.getSystemService(NotificationManager.class);
+        if (manager == null) return;
+
+        if (!dirty.isEmpty()) {
+            Iterator<String> it = dirty.iterator();
+            String conversationId = it.next();
+            it.remove();
+            ConversationState state = conversations.get(conversationId);
+            if (state != null) render(manager, conversationId, state);
+        } else if (summaryStale) {
+            summaryStale = false;
+            renderSummary(manager);
+        }
+        lastNotifyAt = System.currentTimeMillis();
+
+        if (!dirty.isEmpty() || summaryStale) scheduleDrain();
+    }
+
+    // ========== Rendering ==========
+
+    private void render(NotificationManager manager, String conversationId, ConversationState state) {
+        boolean showing = isShowing(manager, conversationId);
+        if (state.posted && !showing) {
+            // Dismissed by the user: keep only what arrived since
+            state.lines.removeIf(line -> line.shown);
+        }
+        if (state.lines.isEmpty()) {
+            conversations.remove(conversationId);
+            return;
+        }
+
+        Person me = new Person.Builder().setName("Bạn").build();
+        NotificationCompat.MessagingStyle style = new NotificationCompat.MessagingStyle(me);
+        ConversationInfo info = conversationInfo.get(conversationId);
+        if (info != null && info.group) {
+            style.setConversationTitle(info.name);
+            style.setGroupConversation(true);
+        }
+        Line last = null;
+        for (Line line : state.lines) {
+            style.addMessage(line.text, line.timestamp, person(line.senderId, line.senderName));
+            line.shown = true;
+            last = line;
+        }
+
+        Intent intent = new Intent(appContext, RoomActivity.class);
+        intent.putExtra("CONVERSATION_ID", conversationId);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                appContext, conversationId.hashCode(), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(appContext,
+                NotificationHelper.CHANNEL_ID_MESSAGES)
+                .setSmallIcon(R.drawable.ic_message)
+                .setStyle(style)
+                .setWhen(last.timestamp)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
+                .setGroup(GROUP_KEY_MESSAGES)
+                .setContentIntent(pendingIntent)
+                .setAutoCancel(true);
+        Bitmap avatar = avatars.get(last.senderId);
+        if (avatar != null && (info == null || !info.group)) {
+            builder.setLargeIcon(avatar);
+        }
+
+        manager.notify(conversationId, NotificationHelper.NOTIFICATION_ID_NEW_MESSAGE, builder.build());
+        if (!state.posted || !showing) summaryStale = true;
+        state.posted = true;
+    }
+
+    private void renderSummary(NotificationManager manager) {
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        int count = 0;
+        for (Map.Entry<String, ConversationState> entry : conversations.entrySet()) {
+            ConversationState state = entry.getValue();
+            if (!state.posted || state.lines.isEmpty()) continue;
+            Line last = state.lines.getLast();
+            ConversationInfo info = conversationInfo.get(entry.getKey());
+            String title = info != null && info.group ? info.name : displayName(last.senderId, last.senderName);
+            style.addLine(title + ": " + last.text);
+            count++;
+        }
+        if (count == 0) {
+            manager.cancel(NotificationHelper.NOTIFICATION_ID_MESSAGE_SUMMARY);
+            return;
+        }
+        style.setSummaryText(count + " cuộc trò chuyện");
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(appContext,
+                NotificationHelper.CHANNEL_ID_MESSAGES)
+                .setSmallIcon(R.drawable.ic_message)
+                .setStyle(style)
+                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
+                .setGroup(GROUP_KEY_MESSAGES)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+                .setAutoCancel(true);
+        manager.notify(NotificationHelper.NOTIFICATION_ID_MESSAGE_SUMMARY, builder.build());
+    }
+
+    private boolean isShowing(NotificationManager manager, String conversationId) {
+        for (StatusBarNotification notification : manager.getActiveNotifications()) {
+            if (conversationId.equals(notification.getTag())
+                    && notification.getId() == NotificationHelper.NOTIFICATION_ID_NEW_MESSAGE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Person person(String userId, @Nullable String fallbackName) {
+        Person.Builder builder = new Person.Builder()
+                .setKey(userId)
+                .setName(displayName(userId, fallbackName));
+        Bitmap avatar = avatars.get(userId);
+        if (avatar != null) {
+            builder.setIcon(IconCompat.createWithBitmap(avatar));
+        }
+        return builder.build();
+    }
+
+    private String displayName(String userId, @Nullable String fallbackName) {
+        User user = UserProfileCache.getInstance().peek(userId);
+        if (user != null && user.getName() != null && !user.getName().isEmpty()) {
+            return user.getName();
+        }
+        return fallbackName != null && !fallbackName.isEmpty() ? fallbackName : "Unknown";
+    }
+
+    // ========== Name / avatar resolution ==========
+
+    /**
+     * Usually finishes inside the coalescing window; late results show on the next update
+     */
+    private void resolveSender(String userId) {
+        UserProfileCache.getInstance().get(userId, user -> {
+            if (user == null || avatars.get(userId) != null || avatarsLoading.contains(userId)) return;
+            String url = user.getAvatarUrl();
+            if (url == null || url.isEmpty()) return;
+
+            avatarsLoading.add(userId);
+            Glide.with(appContext)
+                    .asBitmap()
+                    .load(url)
+                    .circleCrop()
+                    .into(new CustomTarget<Bitmap>(AVATAR_SIZE_PX, AVATAR_SIZE_PX) {
+                        @Override
+                        public void onResourceReady(@NonNull Bitmap resource,
+                                                    @Nullable Transition<? super Bitmap> transition) {
+                            avatarsLoading.remove(userId);
+                            avatars.put(userId, resource);
+                        }
+
+                        @Override
+                        public void onLoadFailed(@Nullable Drawable errorDrawable) {
+                            avatarsLoading.remove(userId);
+                        }
+
+                        @Override
+                        public void onLoadCleared(@Nullable Drawable placeholder) {
+                        }
+                    });
+        });
+    }
+
+    private void resolveConversation(String conversationId) {
+        if (conversationInfo.containsKey(conversationId) || !infoLoading.add(conversationId)) return;
+        FirebaseFirestore.getInstance().collection("conversations").document(conversationId).get()
+                .addOnSuccessListener(doc -> {
+                    infoLoading.remove(conversationId);
+                    conversationInfo.put(conversationId, new ConversationInfo(doc.getString("name"),
+                            Conversation.TYPE_GROUP.equals(doc.getString("type"))));
+                })
+                .addOnFailureListener(e -> infoLoading.remove(conversationId));
+    }
+
+    // ========== State ==========
+
+    private static class Line {
+        final String messageId;
+        final String senderId;
+        final String senderName;
+        final String text;
+        final long timestamp;
+        boolean shown;
+
+        Line(String messageId, String senderId, String senderName, String text, long timestamp) {
+            this.messageId = messageId;
+            this.senderId = senderId;
+            this.senderName = senderName;
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class ConversationState {
+        final ArrayDeque<Line> lines = new ArrayDeque<>();
+        final LinkedHashSet<String> seenIds = new LinkedHashSet<>();
+        boolean windowOpen;
+        boolean posted;
+
+        /**
+         * @return false if the message was already queued
+         */
+        boolean rememberId(String messageId) {
+            if (!seenIds.add(messageId)) return false;
+            if (seenIds.size() > MAX_SEEN_IDS) {
+                Iterator<String> it = seenIds.iterator();
+                it.next();
+                it.remove();
+            }
+            return true;
+        }
+    }
+
+    private static class ConversationInfo {
+        final String name;
+        final boolean group;
+
+        ConversationInfo(String name, boolean group) {
+            this.name = name != null ? name : "";
+            this.group = group;
+        }
+    }
+}
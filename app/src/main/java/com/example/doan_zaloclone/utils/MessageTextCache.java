@@ -0,0 +1,288 @@
+package com.example.doan_zaloclone.utils;
+
+import android.graphics.Typeface;
+import android.icu.lang.UCharacter;
+import android.icu.lang.UProperty;
+import android.icu.text.BreakIterator;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.PrecomputedText;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.text.style.URLSpan;
+import android.text.util.Linkify;
+import android.util.LruCache;
+import android.util.TypedValue;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.models.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Text messages parsed once: link/phone/email spans, @mentions, big-emoji detection, and a
+ * PrecomputedText for long texts, cached by message id + content (edits change the content).
+ * Repositories warm it off the main thread as messages arrive; the chat bubbles and the
+ * link gallery read the same results.
+ */
+public class MessageTextCache {
+
+    private static final int MAX_ENTRIES = 300;
+    // Shorter texts measure fast enough on bind; precomputing them only costs memory
+    private static final int PRECOMPUTE_MIN_CHARS = 40;
+    private static final int BIG_EMOJI_MAX = 3;
+    private static final float BIG_EMOJI_SCALE = 2.5f;
+    // Newest messages are the ones on screen when a conversation opens
+    private static final int FIRST_SCREEN = 20;
+    private static final int LINK_MASK = Linkify.WEB_URLS | Linkify.PHONE_NUMBERS | Linkify.EMAIL_ADDRESSES;
+    private static final Pattern MENTION_PATTERN = Pattern.compile("(?<![\\p{L}\\p{N}_.])@[\\p{L}\\p{N}_.]{2,}");
+
+    private static MessageTextCache instance;
+
+    private final LruCache<String, ProcessedText> cache = new LruCache<>(MAX_ENTRIES);
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "message-text");
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> pendingPrecompute = Collections.synchronizedSet(new HashSet<>());
+    // Taken from the first text bubble created; until then nothing is precomputed
+    private volatile PrecomputedText.Params textParams;
+    private volatile float baseTextSizePx;
+    private volatile int mentionColor;
+
+    public static synchronized MessageTextCache getInstance() {
+        if (instance == null) {
+            instance = new MessageTextCache();
+        }
+        return instance;
+    }
+
+    private MessageTextCache() {
+    }
+
+    /**
+     * Register the text bubble style (call from the bubble's ViewHolder constructor)
+     */
+    public void attach(@NonNull TextView textView) {
+        if (textParams != null) return;
+        baseTextSizePx = textView.getTextSize();
+        mentionColor = ContextCompat.getColor(textView.getContext(), R.color.primary_blue);
+        textParams = textView.getTextMetricsParams();
+    }
+
+    /**
+     * Process one message on the calling thread (use from worker/socket threads)
+     */
+    public void warm(@Nullable Message message) {
+        if (isText(message)) get(message);
+    }
+
+    /**
+     * Process a page of messages on the worker, newest first
+     *
+     * @param onFirstScreenReady Posted to the main thread once the newest messages are done
+     */
+    public void prefetch(@NonNull List<Message> messages, @Nullable Runnable onFirstScreenReady) {
+        List<Message> snapshot = new ArrayList<>(messages);
+        worker.execute(() -> {
+            int processed = 0;
+            boolean notified = onFirstScreenReady == null;
+            for (int i = snapshot.size() - 1; i >= 0; i--) {
+                Message message = snapshot.get(i);
+                if (!isText(message)) continue;
+                get(message);
+                if (!notified && ++processed >= FIRST_SCREEN) {
+                    mainHandler.post(onFirstScreenReady);
+                    notified = true;
+                }
+            }
+            if (!notified) mainHandler.post(onFirstScreenReady);
+        });
+    }
+
+    /**
+     * Cached result, or processed now (without precomputing) if it isn't ready yet
+     * Entries missing their PrecomputedText are measured on the worker and replaced in the cache.
+     */
+    @NonNull
+    public ProcessedText get(@NonNull Message message) {
+        String content = message.getContent() != null ? message.getContent() : "";
+        String key = message.getId() != null ? message.getId() + "#" + content.hashCode() : null;
+        if (key != null) {
+            ProcessedText cached = cache.get(key);
+            if (cached != null && cached.source.equals(content)) {
+                precomputeLater(key, cached);
+                return cached;
+            }
+        }
+        boolean onMain = Looper.myLooper() == Looper.getMainLooper();
+        ProcessedText processed = process(content, onMain ? null : textParams);
+        if (key != null) {
+            cache.put(key, processed);
+            precomputeLater(key, processed);
+        }
+        return processed;
+    }
+
+    /**
+     * First http(s) link in a text message (the one that gets a preview card), or null
+     */
+    @Nullable
+    public String firstWebUrl(@Nullable Message message) {
+        if (!isText(message)) return null;
+        List<String> urls = get(message).getWebUrls();
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    /**
+     * Show a text message in a bubble's TextView
+     */
+    public void bind(@NonNull TextView textView, @NonNull Message message) {
+        ProcessedText text = get(message);
+        if (baseTextSizePx > 0) {
+            float size = text.bigEmoji ? baseTextSizePx * BIG_EMOJI_SCALE : baseTextSizePx;
+            if (textView.getTextSize() != size) {
+                textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, size);
+            }
+        }
+        // A TextView rejects PrecomputedText measured with other params (e.g. font scale changed)
+        if (text.precomputed != null && text.precomputed.getParams().equals(textView.getTextMetricsParams())) {
+            textView.setText(text.precomputed);
+        } else {
+            textView.setText(text.spanned);
+        }
+    }
+
+    private ProcessedText process(String content, @Nullable PrecomputedText.Params params) {
+        boolean bigEmoji = isBigEmoji(content);
+        SpannableString spanned = new SpannableString(content);
+        List<String> webUrls = Collections.emptyList();
+        if (!bigEmoji) {
+            Linkify.addLinks(spanned, LINK_MASK);
+            URLSpan[] urlSpans = spanned.getSpans(0, spanned.length(), URLSpan.class);
+            for (URLSpan span : urlSpans) {
+                if (span.getURL().startsWith("http")) {
+                    if (webUrls.isEmpty()) webUrls = new ArrayList<>();
+                    webUrls.add(span.getURL());
+                }
+            }
+            addMentions(spanned);
+        }
+
+        PrecomputedText precomputed = null;
+        if (params != null && !bigEmoji && content.length() >= PRECOMPUTE_MIN_CHARS) {
+            precomputed = PrecomputedText.create(spanned, params);
+        }
+        return new ProcessedText(content, spanned, precomputed, bigEmoji, webUrls);
+    }
+
+    // Main-thread fallbacks (and entries warmed before a bubble was attached) skip the measuring;
+    // do it on the worker so the next bind of the message gets the PrecomputedText
+    private void precomputeLater(String key, ProcessedText text) {
+        PrecomputedText.Params params = textParams;
+        if (params == null || text.precomputed != null || text.bigEmoji
+                || text.source.length() < PRECOMPUTE_MIN_CHARS) {
+            return;
+        }
+        if (!pendingPrecompute.add(key)) return;
+        worker.execute(() -> {
+            try {
+                PrecomputedText precomputed = PrecomputedText.create(text.spanned, params);
+                synchronized (cache) {
+                    // Only replace the entry it was computed for (not an edit or eviction since)
+                    if (cache.get(key) == text) {
+                        cache.put(key, new ProcessedText(text.source, text.spanned, precomputed,
+                                text.bigEmoji, text.webUrls));
+                    }
+                }
+            } finally {
+                pendingPrecompute.remove(key);
+            }
+        });
+    }
+
+    private void addMentions(SpannableString spanned) {
+        if (spanned.toString().indexOf('@') < 0) return;
+        Matcher matcher = MENTION_PATTERN.matcher(spanned);
+        while (matcher.find()) {
+            // Skip the local part of e-mail addresses Linkify already marked
+            if (spanned.getSpans(matcher.start(), matcher.end(), URLSpan.class).length > 0) continue;
+            spanned.setSpan(new ForegroundColorSpan(mentionColor != 0 ? mentionColor : 0xFF0068FF),
+                    matcher.start(), matcher.end(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            spanned.setSpan(new StyleSpan(Typeface.BOLD),
+                    matcher.start(), matcher.end(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+
+    /**
+     * 1-3 emoji and nothing else (whitespace allowed) are shown large, without links
+     */
+    private static boolean isBigEmoji(String content) {
+        String trimmed = content.trim();
+        if (trimmed.isEmpty() || trimmed.length() > 40) return false;
+        BreakIterator graphemes = BreakIterator.getCharacterInstance();
+        graphemes.setText(trimmed);
+        int count = 0;
+        int start = graphemes.first();
+        for (int end = graphemes.next(); end != BreakIterator.DONE; start = end, end = graphemes.next()) {
+            int codePoint = trimmed.codePointAt(start);
+            if (Character.isWhitespace(codePoint)) continue;
+            // ASCII digits, '#' and '*' carry the emoji property too (keycap bases)
+            if (codePoint < 0x80 || !UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI)) return false;
+            if (++count > BIG_EMOJI_MAX) return false;
+        }
+        return count > 0;
+    }
+
+    private static boolean isText(@Nullable Message message) {
+        if (message == null || message.getContent() == null || message.isRecalled()) return false;
+        String type = message.getType();
+        return type == null || type.isEmpty() || Message.TYPE_TEXT.equals(type);
+    }
+
+    public static final class ProcessedText {
+        final String source;
+        final Spannable spanned;
+        final PrecomputedText precomputed; // Null for short texts or before a bubble was attached
+        public final boolean bigEmoji;
+        private final List<String> webUrls;
+
+        ProcessedText(String source, Spannable spanned, PrecomputedText precomputed,
+                      boolean bigEmoji, List<String> webUrls) {
+            this.source = source;
+            this.spanned = spanned;
+            this.precomputed = precomputed;
+            this.bigEmoji = bigEmoji;
+            this.webUrls = webUrls;
+        }
+
+        /**
+         * http(s) links in the text, in order (what the link gallery shows)
+         */
+        @NonNull
+        public List<String> getWebUrls() {
+            return webUrls;
+        }
+    }
+}
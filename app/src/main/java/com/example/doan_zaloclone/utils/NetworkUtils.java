@@ -94,4 +94,30 @@ public class NetworkUtils {
             return activeNetworkInfo.getTypeName();
         }
     }
+
+    /**
+     * Check if the active network is cellular (or otherwise metered)
+     * Used to pick smaller media profiles when data is expensive or slow
+     */
+    public static boolean isCellularOrMetered(Context context) {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (connectivityManager == null) {
+            return false;
+        }
+
+        android.net.Network network = connectivityManager.getActiveNetwork();
+        if (network == null) {
+            return false;
+        }
+
+        NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+        if (capabilities == null) {
+            return connectivityManager.isActiveNetworkMetered();
+        }
+
+        return capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)
+                || !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
 }
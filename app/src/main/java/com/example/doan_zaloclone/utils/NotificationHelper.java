@@ -13,13 +13,13 @@ import androidx.core.app.NotificationCompat;
 import androidx.core.app.Person;
 
 import com.example.doan_zaloclone.R;
+import com.example.doan_zaloclone.models.Message;
 import com.example.doan_zaloclone.ui.contact.FriendRequestActivity;
-import com.example.doan_zaloclone.ui.room.RoomActivity;
 
 /**
  * Centralized notification helper for all app notifications
  * Manages notification channels and displays notifications for:
- * - Chat messages (new, recalled, reactions)
+ * - Chat messages (channel only; posting is done by MessageNotifier)
  * - Friend requests (received, accepted)
  * - Calls (handled separately by CallNotificationHelper)
  */
@@ -32,9 +32,8 @@ public class NotificationHelper {
     public static final String CHANNEL_ID_SERVICE = "notification_service_channel";
 
     // ========== Notification IDs ==========
-    public static final int NOTIFICATION_ID_NEW_MESSAGE = 2001;
-    public static final int NOTIFICATION_ID_MESSAGE_RECALLED = 2002;
-    public static final int NOTIFICATION_ID_MESSAGE_REACTION = 2003;
+    public static final int NOTIFICATION_ID_MESSAGE_SUMMARY = 2000;
+    public static final int NOTIFICATION_ID_NEW_MESSAGE = 2001; // Tagged with the conversation ID
     public static final int NOTIFICATION_ID_FRIEND_REQUEST = 3001;
     public static final int NOTIFICATION_ID_FRIEND_ACCEPTED = 3002;
     public static final int NOTIFICATION_ID_SERVICE = 9999;
@@ -86,116 +85,7 @@ public class NotificationHelper {
 
     // ==================== Chat Notifications ====================
 
-    /**
-     * Show notification for new message
-     *
-     * @param context        Context
-     * @param senderName     Name of the sender
-     * @param messageText    Message content
-     * @param conversationId Conversation ID (to open RoomActivity)
-     * @param senderAvatar   Sender avatar bitmap (optional, can be null)
-     */
-    public static void showMessageNotification(Context context, String senderName,
-                                                String messageText, String conversationId,
-                                                Bitmap senderAvatar) {
-        // Intent to open RoomActivity when notification is clicked
-        Intent intent = new Intent(context, RoomActivity.class);
-        intent.putExtra("CONVERSATION_ID", conversationId);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                context, 0, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        // Build notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID_MESSAGES)
-                .setSmallIcon(R.drawable.ic_message)
-                .setContentTitle(senderName)
-                .setContentText(messageText)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
-                .setContentIntent(pendingIntent)
-                .setAutoCancel(true);
-
-        // Add large icon if avatar is provided
-        if (senderAvatar != null) {
-            builder.setLargeIcon(senderAvatar);
-        }
-
-        // Show notification
-        NotificationManager manager = context.getSystemService(NotificationManager.class);
-        if (manager != null) {
-            manager.notify(NOTIFICATION_ID_NEW_MESSAGE, builder.build());
-        }
-    }
-
-    /**
-     * Show notification for recalled message
-     *
-     * @param context        Context
-     * @param senderName     Name of the sender who recalled the message
-     * @param conversationId Conversation ID
-     */
-    public static void showMessageRecallNotification(Context context, String senderName,
-                                                      String conversationId) {
-        Intent intent = new Intent(context, RoomActivity.class);
-        intent.putExtra("CONVERSATION_ID", conversationId);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                context, 0, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID_MESSAGES)
-                .setSmallIcon(R.drawable.ic_message)
-                .setContentTitle(senderName)
-                .setContentText("đã thu hồi một tin nhắn")
-                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
-                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
-                .setContentIntent(pendingIntent)
-                .setAutoCancel(true);
-
-        NotificationManager manager = context.getSystemService(NotificationManager.class);
-        if (manager != null) {
-            manager.notify(NOTIFICATION_ID_MESSAGE_RECALLED, builder.build());
-        }
-    }
-
-    /**
-     * Show notification for message reaction
-     *
-     * @param context        Context
-     * @param senderName     Name of the person who reacted
-     * @param reaction       Reaction emoji
-     * @param conversationId Conversation ID
-     */
-    public static void showMessageReactionNotification(Context context, String senderName,
-                                                        String reaction, String conversationId) {
-        Intent intent = new Intent(context, RoomActivity.class);
-        intent.putExtra("CONVERSATION_ID", conversationId);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                context, 0, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID_MESSAGES)
-                .setSmallIcon(R.drawable.ic_message)
-                .setContentTitle(senderName)
-                .setContentText("đã thả cảm xúc " + reaction + " vào tin nhắn của bạn")
-                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
-                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
-                .setContentIntent(pendingIntent)
-                .setAutoCancel(true);
-
-        NotificationManager manager = context.getSystemService(NotificationManager.class);
-        if (manager != null) {
-            manager.notify(NOTIFICATION_ID_MESSAGE_REACTION, builder.build());
-        }
-    }
+    // New messages, recalls and reactions are coalesced per conversation by MessageNotifier
 
     // ==================== Friend Request Notifications ====================
 
@@ -270,6 +160,30 @@ public class NotificationHelper {
 
     // ==================== Utility Methods ====================
 
+    /**
+     * Notification text for a message
+     *
+     * @param type    Message type (Message.TYPE_*)
+     * @param content Message content (used for text messages)
+     * @return Short preview text
+     */
+    public static String getMessagePreview(String type, String content) {
+        if (Message.TYPE_IMAGE.equals(type)) {
+            return "🖼️ Hình ảnh";
+        } else if (Message.TYPE_VOICE.equals(type)) {
+            return "🎤 Tin nhắn thoại";
+        } else if (Message.TYPE_FILE.equals(type)) {
+            return "📎 Tệp tin";
+        } else if (Message.TYPE_STICKER.equals(type)) {
+            return "😀 Nhãn dán";
+        } else if (Message.TYPE_LOCATION.equals(type) || Message.TYPE_LIVE_LOCATION.equals(type)) {
+            return "📍 Vị trí";
+        } else if (Message.TYPE_CONTACT.equals(type)) {
+            return "💼 Danh thiếp";
+        }
+        return content != null ? content : "";
+    }
+
     /**
      * Cancel a notification by ID
      *
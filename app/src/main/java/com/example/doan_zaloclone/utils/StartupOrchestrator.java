@@ -0,0 +1,227 @@
+package com.example.doan_zaloclone.utils;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+
+import com.example.doan_zaloclone.BuildConfig;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * App initialization as named tasks with dependencies
+ * IMMEDIATE: main thread, inside Application.onCreate (keep this list short)
+ * BACKGROUND: worker thread, started right away
+ * AFTER_FIRST_FRAME: worker thread, once the first activity has drawn
+ * LAZY: only when something calls ensure()
+ * Any task can be forced early with ensure(); it runs inline if it has not started yet,
+ * otherwise waits for it. The main thread uses whenReady() instead, which never blocks.
+ * Every run is timed into StartupTrace.
+ */
+public class StartupOrchestrator {
+
+    public enum Phase {
+        IMMEDIATE,
+        BACKGROUND,
+        AFTER_FIRST_FRAME,
+        LAZY
+    }
+
+    private static StartupOrchestrator instance;
+
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "startup");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean firstFrameSeen = new AtomicBoolean(false);
+    private final AtomicInteger eagerRemaining = new AtomicInteger();
+    private boolean started = false;
+
+    public static synchronized StartupOrchestrator getInstance() {
+        if (instance == null) {
+            instance = new StartupOrchestrator();
+        }
+        return instance;
+    }
+
+    private StartupOrchestrator() {
+    }
+
+    /**
+     * Declare a task (before start())
+     */
+    public StartupOrchestrator add(@NonNull String name, @NonNull Phase phase,
+                                   @NonNull Runnable body, @NonNull String... dependsOn) {
+        if (started) throw new IllegalStateException("Add tasks before start()");
+        if (tasks.containsKey(name)) throw new IllegalArgumentException("Duplicate startup task " + name);
+        tasks.put(name, new Task(name, phase, body, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Validate the graph, run IMMEDIATE tasks and kick off BACKGROUND ones (main thread)
+     */
+    public void start() {
+        if (started) return;
+        started = true;
+        validate();
+
+        for (Task task : tasks.values()) {
+            if (task.phase != Phase.LAZY) eagerRemaining.incrementAndGet();
+        }
+        for (Task task : tasks.values()) {
+            if (task.phase == Phase.IMMEDIATE) ensure(task.name);
+        }
+        for (Task task : tasks.values()) {
+            if (task.phase == Phase.BACKGROUND) executor.execute(() -> ensure(task.name));
+        }
+    }
+
+    /**
+     * Make sure a task has run (any thread)
+     */
+    public void ensure(@NonNull String name) {
+        Task task = tasks.get(name);
+        if (task == null) throw new IllegalArgumentException("Unknown startup task " + name);
+        if (task.claimed.compareAndSet(false, true)) {
+            for (String dependency : task.dependsOn) {
+                ensure(dependency);
+            }
+            try {
+                StartupTrace.getInstance().section(name, task.body);
+            } finally {
+                task.done.countDown();
+                if (task.phase != Phase.LAZY && eagerRemaining.decrementAndGet() == 0) {
+                    dumpIfSettled();
+                }
+            }
+        } else {
+            try {
+                task.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isDone(@NonNull String name) {
+        Task task = tasks.get(name);
+        if (task == null) throw new IllegalArgumentException("Unknown startup task " + name);
+        return task.done.getCount() == 0;
+    }
+
+    /**
+     * Run an action on the main thread once a task has run, without blocking the caller
+     * A task that has not started yet is run on a worker thread first.
+     */
+    public void whenReady(@NonNull String name, @NonNull Runnable action) {
+        if (isDone(name)) {
+            mainHandler.post(action);
+            return;
+        }
+        executor.execute(() -> {
+            ensure(name);
+            mainHandler.post(action);
+        });
+    }
+
+    /**
+     * Run an activity's deferred setup once its window has drawn its first frame
+     * The first call also releases the AFTER_FIRST_FRAME tasks.
+     */
+    public void runAfterFirstFrame(@NonNull Activity activity, @NonNull Runnable action) {
+        View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean fired = false;
+
+            @Override
+            public void onDraw() {
+                if (fired) return;
+                fired = true;
+                // Listeners cannot be removed during dispatch; the frame is out once this runs
+                mainHandler.postAtFrontOfQueue(() -> {
+                    decorView.getViewTreeObserver().removeOnDrawListener(this);
+                    onFirstFrame();
+                    action.run();
+                });
+            }
+        });
+    }
+
+    private void onFirstFrame() {
+        if (!firstFrameSeen.compareAndSet(false, true)) return;
+        StartupTrace.getInstance().mark("first_frame");
+        for (Task task : tasks.values()) {
+            if (task.phase == Phase.AFTER_FIRST_FRAME) executor.execute(() -> ensure(task.name));
+        }
+        dumpIfSettled();
+    }
+
+    private void dumpIfSettled() {
+        if (BuildConfig.DEBUG && firstFrameSeen.get() && eagerRemaining.get() == 0) {
+            // Let the activity's own deferred sections land in the report too
+            mainHandler.postDelayed(() -> StartupTrace.getInstance().dump(), 1000);
+        }
+    }
+
+    /**
+     * Unknown dependencies, cycles, and main-thread tasks waiting on worker tasks are bugs
+     */
+    private void validate() {
+        Set<String> done = new HashSet<>();
+        for (Task task : tasks.values()) {
+            visit(task, done, new HashSet<>());
+        }
+    }
+
+    private void visit(Task task, Set<String> done, Set<String> path) {
+        if (done.contains(task.name)) return;
+        if (!path.add(task.name)) throw new IllegalStateException("Startup task cycle at " + task.name);
+        for (String name : task.dependsOn) {
+            Task dependency = tasks.get(name);
+            if (dependency == null) {
+                throw new IllegalStateException(task.name + " depends on unknown task " + name);
+            }
+            if (task.phase == Phase.IMMEDIATE
+                    && (dependency.phase == Phase.BACKGROUND || dependency.phase == Phase.AFTER_FIRST_FRAME)) {
+                throw new IllegalStateException(task.name + " would block the main thread on " + name);
+            }
+            visit(dependency, done, path);
+        }
+        path.remove(task.name);
+        done.add(task.name);
+    }
+
+    private static class Task {
+        final String name;
+        final Phase phase;
+        final Runnable body;
+        final List<String> dependsOn;
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Task(String name, Phase phase, Runnable body, List<String> dependsOn) {
+            this.name = name;
+            this.phase = phase;
+            this.body = body;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.doan_zaloclone.utils;
+
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timings of startup work, measured from process start
+ * Every section is also a systrace section ("startup:<name>"), so it shows up in Perfetto and
+ * in the traces the :benchmark module records. Debug builds log the table once startup settles.
+ */
+public class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    private static StartupTrace instance;
+
+    private final List<Entry> entries = new ArrayList<>(); // Guarded by itself
+    private boolean dumped = false;
+
+    public static synchronized StartupTrace getInstance() {
+        if (instance == null) {
+            instance = new StartupTrace();
+        }
+        return instance;
+    }
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Run and time a piece of startup work
+     */
+    public void section(@NonNull String name, @NonNull Runnable work) {
+        long start = SystemClock.uptimeMillis();
+        Trace.beginSection("startup:" + name);
+        try {
+            work.run();
+        } finally {
+            Trace.endSection();
+            record(name, start, SystemClock.uptimeMillis() - start);
+        }
+    }
+
+    /**
+     * Record a point in time (e.g. first frame)
+     */
+    public void mark(@NonNull String name) {
+        record(name, SystemClock.uptimeMillis(), -1);
+    }
+
+    /**
+     * Log the collected timings (once)
+     */
+    public void dump() {
+        List<Entry> snapshot;
+        synchronized (entries) {
+            if (dumped) return;
+            dumped = true;
+            snapshot = new ArrayList<>(entries);
+        }
+        StringBuilder report = new StringBuilder("Startup trace (ms since process start)\n");
+        for (Entry entry : snapshot) {
+            report.append(entry.duration >= 0
+                    ? String.format(Locale.US, "%6d +%4d  %-24s %s%n",
+                    entry.offset, entry.duration, entry.name, entry.thread)
+                    : String.format(Locale.US, "%6d        ── %s%n", entry.offset, entry.name));
+        }
+        Log.i(TAG, report.toString());
+    }
+
+    private void record(String name, long start, long duration) {
+        String thread = Looper.myLooper() == Looper.getMainLooper() ? "main" : Thread.currentThread().getName();
+        Entry entry = new Entry(name, start - Process.getStartUptimeMillis(), duration, thread);
+        synchronized (entries) {
+            entries.add(entry);
+        }
+    }
+
+    private static class Entry {
+        final String name;
+        final long offset;
+        final long duration; // -1 for marks
+        final String thread;
+
+        Entry(String name, long offset, long duration, String thread) {
+            this.name = name;
+            this.offset = offset;
+            this.duration = duration;
+            this.thread = thread;
+        }
+    }
+}
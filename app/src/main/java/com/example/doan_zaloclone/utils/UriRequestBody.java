@@ -0,0 +1,108 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Request body that streams (a byte range of) a content URI straight from the content resolver
+ * No temp copy is made, and the body can be written again for retries and fallbacks.
+ */
+public class UriRequestBody extends RequestBody {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final MediaType contentType;
+    private final long offset;
+    private final long length; // -1 = to the end, size unknown
+    private final ProgressListener listener;
+
+    /**
+     * Whole content
+     */
+    public UriRequestBody(@NonNull ContentResolver resolver, @NonNull Uri uri,
+                          @Nullable MediaType contentType, @Nullable ProgressListener listener) {
+        this(resolver, uri, contentType, 0, -1, listener);
+    }
+
+    /**
+     * length bytes starting at offset
+     */
+    public UriRequestBody(@NonNull ContentResolver resolver, @NonNull Uri uri,
+                          @Nullable MediaType contentType, long offset, long length,
+                          @Nullable ProgressListener listener) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.contentType = contentType;
+        this.offset = offset;
+        this.length = length;
+        this.listener = listener;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        try (InputStream input = resolver.openInputStream(uri)) {
+            if (input == null) throw new FileNotFoundException("Cannot open " + uri);
+            skipFully(input, offset);
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            while (length < 0 || written < length) {
+                int want = length < 0 ? buffer.length : (int) Math.min(buffer.length, length - written);
+                int count = input.read(buffer, 0, want);
+                if (count == -1) {
+                    // The file shrank since its size was read
+                    if (length >= 0) throw new EOFException("Content ended at " + (offset + written));
+                    break;
+                }
+                sink.write(buffer, 0, count);
+                written += count;
+                if (listener != null) listener.onProgress(written);
+            }
+        }
+    }
+
+    private static void skipFully(InputStream input, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                // Some providers' streams don't skip; read through instead
+                if (input.read() == -1) throw new EOFException("Content shorter than offset " + count);
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    public interface ProgressListener {
+        /**
+         * Called on the uploading thread with the bytes of this body written so far
+         */
+        void onProgress(long bytesWritten);
+    }
+}
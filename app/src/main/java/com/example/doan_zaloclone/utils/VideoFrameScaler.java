@@ -0,0 +1,276 @@
+package com.example.doan_zaloclone.utils;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * GL pass between the video decoder and encoder
+ * Decoded frames land on a SurfaceTexture and are drawn as a textured quad into the encoder's
+ * input surface at the encoder size; a codec surface alone does not resize frames.
+ * Create, draw and release on the same (transcode) thread: the EGL context is current there.
+ */
+class VideoFrameScaler {
+
+    private static final int EGL_RECORDABLE_ANDROID = 0x3142;
+    private static final long FRAME_TIMEOUT_MS = 2500;
+
+    private static final String VERTEX_SHADER =
+            "uniform mat4 uTexMatrix;\n"
+                    + "attribute vec4 aPosition;\n"
+                    + "attribute vec4 aTexCoord;\n"
+                    + "varying vec2 vTexCoord;\n"
+                    + "void main() {\n"
+                    + "    gl_Position = aPosition;\n"
+                    + "    vTexCoord = (uTexMatrix * aTexCoord).xy;\n"
+                    + "}\n";
+    private static final String FRAGMENT_SHADER =
+            "#extension GL_OES_EGL_image_external : require\n"
+                    + "precision mediump float;\n"
+                    + "varying vec2 vTexCoord;\n"
+                    + "uniform samplerExternalOES sTexture;\n"
+                    + "void main() {\n"
+                    + "    gl_FragColor = texture2D(sTexture, vTexCoord);\n"
+                    + "}\n";
+    // Full-screen triangle strip
+    private static final float[] POSITIONS = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+    private static final float[] TEX_COORDS = {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f};
+
+    private final int width;
+    private final int height;
+    private final float[] texMatrix = new float[16];
+    private final FloatBuffer positions = floatBuffer(POSITIONS);
+    private final FloatBuffer texCoords = floatBuffer(TEX_COORDS);
+    private final Object frameLock = new Object();
+    private boolean frameAvailable; // Guarded by frameLock
+
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+    private EGLContext eglContext = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+    private HandlerThread frameThread;
+    private SurfaceTexture surfaceTexture;
+    private Surface decoderSurface;
+    private int program;
+    private int textureId;
+    private int texMatrixLocation;
+    private int positionLocation;
+    private int texCoordLocation;
+
+    /**
+     * @param encoderSurface the encoder's createInputSurface()
+     * @param width          encoder width
+     * @param height         encoder height
+     */
+    VideoFrameScaler(@NonNull Surface encoderSurface, int width, int height) {
+        this.width = width;
+        this.height = height;
+        try {
+            setUpEgl(encoderSurface);
+            setUpGl();
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Surface to configure the decoder with
+     */
+    @NonNull
+    Surface getDecoderSurface() {
+        return decoderSurface;
+    }
+
+    /**
+     * Wait for the frame the decoder just rendered, then draw it into the encoder surface
+     */
+    void drawFrame(long presentationTimeUs) {
+        synchronized (frameLock) {
+            long deadline = System.currentTimeMillis() + FRAME_TIMEOUT_MS;
+            while (!frameAvailable) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) throw new IllegalStateException("Decoded frame never arrived");
+                try {
+                    frameLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for a frame", e);
+                }
+            }
+            frameAvailable = false;
+        }
+
+        surfaceTexture.updateTexImage();
+        surfaceTexture.getTransformMatrix(texMatrix);
+
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glUseProgram(program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glUniformMatrix4fv(texMatrixLocation, 1, false, texMatrix, 0);
+        GLES20.glEnableVertexAttribArray(positionLocation);
+        GLES20.glVertexAttribPointer(positionLocation, 2, GLES20.GL_FLOAT, false, 0, positions);
+        GLES20.glEnableVertexAttribArray(texCoordLocation);
+        GLES20.glVertexAttribPointer(texCoordLocation, 2, GLES20.GL_FLOAT, false, 0, texCoords);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        checkGl("draw");
+
+        EGLExt.eglPresentationTimeANDROID(display, eglSurface, presentationTimeUs * 1000);
+        if (!EGL14.eglSwapBuffers(display, eglSurface)) {
+            throw new IllegalStateException("eglSwapBuffers failed: " + EGL14.eglGetError());
+        }
+    }
+
+    void release() {
+        if (decoderSurface != null) decoderSurface.release();
+        if (surfaceTexture != null) surfaceTexture.release();
+        if (frameThread != null) frameThread.quitSafely();
+        if (display != EGL14.EGL_NO_DISPLAY) {
+            if (program != 0) GLES20.glDeleteProgram(program);
+            EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            if (eglSurface != EGL14.EGL_NO_SURFACE) EGL14.eglDestroySurface(display, eglSurface);
+            if (eglContext != EGL14.EGL_NO_CONTEXT) EGL14.eglDestroyContext(display, eglContext);
+            EGL14.eglReleaseThread();
+            EGL14.eglTerminate(display);
+        }
+        decoderSurface = null;
+        surfaceTexture = null;
+        frameThread = null;
+        display = EGL14.EGL_NO_DISPLAY;
+        eglContext = EGL14.EGL_NO_CONTEXT;
+        eglSurface = EGL14.EGL_NO_SURFACE;
+    }
+
+    private void setUpEgl(Surface encoderSurface) {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        if (display == EGL14.EGL_NO_DISPLAY) throw new IllegalStateException("No EGL display");
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(display, version, 0, version, 1)) {
+            display = EGL14.EGL_NO_DISPLAY;
+            throw new IllegalStateException("eglInitialize failed");
+        }
+
+        // Recordable: the config must be usable with a MediaCodec input surface
+        int[] configAttributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL_RECORDABLE_ANDROID, 1,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(display, configAttributes, 0, configs, 0, 1, count, 0) || count[0] == 0) {
+            throw new IllegalStateException("No recordable EGL config");
+        }
+
+        int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+        eglContext = EGL14.eglCreateContext(display, configs[0], EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+        if (eglContext == null || eglContext == EGL14.EGL_NO_CONTEXT) {
+            eglContext = EGL14.EGL_NO_CONTEXT;
+            throw new IllegalStateException("eglCreateContext failed: " + EGL14.eglGetError());
+        }
+        eglSurface = EGL14.eglCreateWindowSurface(display, configs[0], encoderSurface,
+                new int[]{EGL14.EGL_NONE}, 0);
+        if (eglSurface == null || eglSurface == EGL14.EGL_NO_SURFACE) {
+            eglSurface = EGL14.EGL_NO_SURFACE;
+            throw new IllegalStateException("eglCreateWindowSurface failed: " + EGL14.eglGetError());
+        }
+        if (!EGL14.eglMakeCurrent(display, eglSurface, eglSurface, eglContext)) {
+            throw new IllegalStateException("eglMakeCurrent failed: " + EGL14.eglGetError());
+        }
+    }
+
+    private void setUpGl() {
+        program = createProgram();
+        texMatrixLocation = GLES20.glGetUniformLocation(program, "uTexMatrix");
+        positionLocation = GLES20.glGetAttribLocation(program, "aPosition");
+        texCoordLocation = GLES20.glGetAttribLocation(program, "aTexCoord");
+
+        int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
+        textureId = textures[0];
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        checkGl("texture setup");
+
+        // Frame callbacks need a looper; the transcode thread has none and must not be the main one
+        frameThread = new HandlerThread("video-frames");
+        frameThread.start();
+        surfaceTexture = new SurfaceTexture(textureId);
+        surfaceTexture.setOnFrameAvailableListener(texture -> {
+            synchronized (frameLock) {
+                frameAvailable = true;
+                frameLock.notifyAll();
+            }
+        }, new Handler(frameThread.getLooper()));
+        decoderSurface = new Surface(surfaceTexture);
+    }
+
+    private static int createProgram() {
+        int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new IllegalStateException("Program link failed: " + log);
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("Shader compile failed: " + log);
+        }
+        return shader;
+    }
+
+    private static void checkGl(String step) {
+        int error = GLES20.glGetError();
+        if (error != GLES20.GL_NO_ERROR) {
+            throw new IllegalStateException(step + ": GL error 0x" + Integer.toHexString(error));
+        }
+    }
+
+    private static FloatBuffer floatBuffer(float[] values) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        buffer.put(values).position(0);
+        return buffer;
+    }
+}
@@ -0,0 +1,607 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaMuxer;
+import android.net.ConnectivityManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Surface;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shrinks picked videos before they are sent
+ * A poster frame and the metadata come out first (so the bubble can go out ahead of the video),
+ * then the video is re-encoded at a Preset with a Codec. HEVC is only picked when this phone has
+ * a hardware HEVC encoder; the codec travels with the message (videoCodec) and a recipient that
+ * cannot decode it plays an AVC rendition instead (toPlayableUrl). Decoded frames are resized
+ * by a GL pass (VideoFrameScaler) into the encoder's input surface; rotation is kept as a
+ * container hint and AAC audio is copied as-is.
+ * Anything the pipeline can't handle falls back to sending the original file.
+ */
+public class VideoTranscoder {
+
+    private static final String TAG = "VideoTranscoder";
+    private static final String CACHE_DIR_NAME = "video_transcode";
+    public static final String OUTPUT_MIME = "video/mp4";
+    private static final String AAC = MediaFormat.MIMETYPE_AUDIO_AAC;
+    private static final int POSTER_MAX_PX = 480;
+    private static final int POSTER_QUALITY = 80;
+    private static final int FRAME_RATE = 30;
+    private static final int I_FRAME_INTERVAL_S = 2;
+    private static final long CODEC_TIMEOUT_US = 10_000;
+    // Re-encoding a file that is already close to the target only loses quality
+    private static final float SKIP_BITRATE_RATIO = 1.3f;
+    // Leftovers of uploads that never finished
+    private static final long STALE_FILE_MS = 3L * 24 * 60 * 60 * 1000; // 3 days
+
+    /**
+     * Output size and bitrate per codec (HEVC needs about 60% of AVC's for the same quality)
+     */
+    public enum Preset {
+        STANDARD(1280, 720, 2_500_000, 1_500_000),
+        DATA_SAVER(854, 480, 1_200_000, 700_000);
+
+        final int maxLongEdge;
+        final int maxShortEdge;
+        final int avcBitrate;
+        final int hevcBitrate;
+
+        Preset(int maxLongEdge, int maxShortEdge, int avcBitrate, int hevcBitrate) {
+            this.maxLongEdge = maxLongEdge;
+            this.maxShortEdge = maxShortEdge;
+            this.avcBitrate = avcBitrate;
+            this.hevcBitrate = hevcBitrate;
+        }
+
+        int bitrate(Codec codec) {
+            return codec == Codec.HEVC ? hevcBitrate : avcBitrate;
+        }
+    }
+
+    /**
+     * Output codec; the name is what Message.videoCodec carries
+     */
+    public enum Codec {
+        AVC(MediaFormat.MIMETYPE_VIDEO_AVC, "avc"),
+        HEVC(MediaFormat.MIMETYPE_VIDEO_HEVC, "hevc");
+
+        final String mime;
+        final String label;
+
+        Codec(String mime, String label) {
+            this.mime = mime;
+            this.label = label;
+        }
+
+        @NonNull
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Cached MediaCodecList lookups
+    private static Boolean hevcEncoder;
+    private static Boolean hevcDecoder;
+
+    private static VideoTranscoder instance;
+
+    // One encode at a time; hardware encoder instances are scarce
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "video-transcode");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Context context;
+    private File cacheDir;
+
+    public static synchronized VideoTranscoder getInstance() {
+        if (instance == null) {
+            instance = new VideoTranscoder();
+        }
+        return instance;
+    }
+
+    private VideoTranscoder() {
+    }
+
+    /**
+     * Set up the output directory and drop stale outputs (called once from the Application)
+     */
+    public void init(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        File dir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            long cutoff = System.currentTimeMillis() - STALE_FILE_MS;
+            for (File file : files) {
+                if (file.lastModified() < cutoff) file.delete();
+            }
+        }
+        cacheDir = dir;
+    }
+
+    /**
+     * 480p on metered networks, 720p otherwise
+     */
+    @NonNull
+    public Preset defaultPreset() {
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        return connectivity != null && connectivity.isActiveNetworkMetered() ? Preset.DATA_SAVER : Preset.STANDARD;
+    }
+
+    /**
+     * HEVC when this phone can encode it in hardware (software HEVC encoders are too slow),
+     * AVC otherwise
+     */
+    @NonNull
+    public Codec defaultCodec() {
+        if (hevcEncoder == null) {
+            hevcEncoder = hasCodec(MediaFormat.MIMETYPE_VIDEO_HEVC, true, true);
+        }
+        return hevcEncoder ? Codec.HEVC : Codec.AVC;
+    }
+
+    /**
+     * URL this phone can play for a video message
+     * HEVC uploads are swapped for the AVC rendition Cloudinary derives on request (vc_h264).
+     *
+     * @param codec Message.videoCodec, null when unknown (played as-is)
+     */
+    @Nullable
+    public static String toPlayableUrl(@Nullable String videoUrl, @Nullable String codec) {
+        if (videoUrl == null || !Codec.HEVC.label.equals(codec)) return videoUrl;
+        if (hevcDecoder == null) {
+            hevcDecoder = hasCodec(MediaFormat.MIMETYPE_VIDEO_HEVC, false, false);
+        }
+        if (hevcDecoder || !videoUrl.contains("res.cloudinary.com")) return videoUrl;
+        return videoUrl.replace("/video/upload/", "/video/upload/vc_h264/");
+    }
+
+    private static boolean hasCodec(String mime, boolean encoder, boolean hardwareOnly) {
+        for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+            if (info.isEncoder() != encoder) continue;
+            if (hardwareOnly && !isHardware(info)) continue;
+            for (String type : info.getSupportedTypes()) {
+                if (type.equalsIgnoreCase(mime)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHardware(MediaCodecInfo info) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return info.isHardwareAccelerated();
+        }
+        String name = info.getName().toLowerCase(Locale.US);
+        return !name.startsWith("omx.google.") && !name.startsWith("c2.android.");
+    }
+
+    /**
+     * Probe, then transcode, on the transcode thread; listener calls come on the main thread
+     */
+    public void prepare(@NonNull Uri source, long sourceSize, @NonNull String sourceMime,
+                        @NonNull Preset preset, @NonNull Codec codec, @NonNull Listener listener) {
+        executor.execute(() -> {
+            VideoInfo info = probe(source, sourceSize);
+            mainHandler.post(() -> listener.onProbed(info));
+
+            Uri resultUri = source;
+            long resultSize = sourceSize;
+            String resultMime = sourceMime;
+            String resultCodec = null;
+            try {
+                File output = transcode(source, info, preset, codec, new ProgressThrottle(listener));
+                if (output != null && (sourceSize <= 0 || output.length() < sourceSize)) {
+                    resultUri = Uri.fromFile(output);
+                    resultSize = output.length();
+                    resultMime = OUTPUT_MIME;
+                    resultCodec = codec.label;
+                } else if (output != null) {
+                    output.delete();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Transcode failed, sending the original", e);
+            }
+
+            if (AppLog.DEBUG) Log.d(TAG, "Video ready: " + sourceSize + " -> " + resultSize + " bytes");
+            Uri finalUri = resultUri;
+            long finalSize = resultSize;
+            String finalMime = resultMime;
+            String finalCodec = resultCodec;
+            mainHandler.post(() -> listener.onReady(finalUri, finalSize, finalMime, finalCodec));
+        });
+    }
+
+    /**
+     * Delete a transcode output or poster once it has been uploaded (no-op for anything else)
+     */
+    public void discard(@Nullable Uri uri) {
+        if (uri == null || !"file".equals(uri.getScheme()) || uri.getPath() == null || cacheDir == null) return;
+        File file = new File(uri.getPath());
+        if (cacheDir.equals(file.getParentFile())) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Duration, display size and a downscaled poster frame
+     */
+    @WorkerThread
+    @NonNull
+    private VideoInfo probe(@NonNull Uri source, long sourceSize) {
+        VideoInfo info = new VideoInfo();
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, source);
+            info.durationMs = parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+            info.codedWidth = (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            info.codedHeight = (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+            info.rotation = (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+            info.bitrate = parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_BITRATE));
+            if (info.bitrate <= 0 && sourceSize > 0 && info.durationMs > 0) {
+                info.bitrate = sourceSize * 8 * 1000 / info.durationMs;
+            }
+
+            // A second in skips black fade-ins; the retriever applies the rotation itself
+            long frameTimeUs = Math.min(1_000_000L, info.durationMs * 1000 / 2);
+            Bitmap frame = retriever.getScaledFrameAtTime(frameTimeUs,
+                    MediaMetadataRetriever.OPTION_CLOSEST_SYNC, POSTER_MAX_PX, POSTER_MAX_PX);
+            if (frame != null) {
+                File poster = new File(cacheDir, UUID.randomUUID() + ".jpg");
+                try (FileOutputStream out = new FileOutputStream(poster)) {
+                    frame.compress(Bitmap.CompressFormat.JPEG, POSTER_QUALITY, out);
+                    info.poster = poster;
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot write poster", e);
+                    poster.delete();
+                } finally {
+                    frame.recycle();
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot read video metadata", e);
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception ignored) {
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Re-encode into the cache directory
+     *
+     * @return the output file, or null when the source already fits the preset
+     */
+    @WorkerThread
+    @Nullable
+    private File transcode(@NonNull Uri source, @NonNull VideoInfo info, @NonNull Preset preset,
+                           @NonNull Codec codec, @Nullable ProgressThrottle progress) throws IOException {
+        if (info.codedWidth <= 0 || info.codedHeight <= 0) {
+            throw new IOException("Unknown video size");
+        }
+        String mime = codec.mime;
+        int bitrate = preset.bitrate(codec);
+        int longEdge = Math.max(info.codedWidth, info.codedHeight);
+        int shortEdge = Math.min(info.codedWidth, info.codedHeight);
+        float scale = Math.min(1f, Math.min(preset.maxLongEdge / (float) longEdge,
+                preset.maxShortEdge / (float) shortEdge));
+        if (scale >= 1f && info.bitrate > 0 && info.bitrate <= bitrate * SKIP_BITRATE_RATIO) {
+            return null;
+        }
+        // Width is macroblock-aligned; the height follows from it so the aspect ratio is kept
+        int width = align16(info.codedWidth * scale);
+        int height = alignEven(width * info.codedHeight / (float) info.codedWidth);
+
+        File output = new File(cacheDir, UUID.randomUUID() + ".mp4");
+        MediaExtractor videoExtractor = new MediaExtractor();
+        MediaExtractor audioExtractor = null;
+        MediaCodec decoder = null;
+        MediaCodec encoder = null;
+        Surface surface = null;
+        VideoFrameScaler scaler = null;
+        MediaMuxer muxer = null;
+        boolean success = false;
+        try {
+            videoExtractor.setDataSource(context, source, null);
+            int videoTrack = findTrack(videoExtractor, "video/");
+            if (videoTrack < 0) throw new IOException("No video track");
+            MediaFormat inputFormat = videoExtractor.getTrackFormat(videoTrack);
+            videoExtractor.selectTrack(videoTrack);
+
+            MediaFormat audioFormat = null;
+            audioExtractor = new MediaExtractor();
+            audioExtractor.setDataSource(context, source, null);
+            int audioTrack = findTrack(audioExtractor, "audio/");
+            if (audioTrack >= 0) {
+                audioFormat = audioExtractor.getTrackFormat(audioTrack);
+                // MP4 only takes AAC without re-encoding; dropping the sound is not acceptable
+                if (!AAC.equals(audioFormat.getString(MediaFormat.KEY_MIME))) {
+                    throw new IOException("Unsupported audio " + audioFormat.getString(MediaFormat.KEY_MIME));
+                }
+                audioExtractor.selectTrack(audioTrack);
+            }
+
+            MediaFormat outputFormat = MediaFormat.createVideoFormat(mime, width, height);
+            outputFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                    MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+            outputFormat.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+            outputFormat.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+            outputFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_S);
+            encoder = MediaCodec.createEncoderByType(mime);
+            MediaCodecInfo.VideoCapabilities capabilities = encoder.getCodecInfo()
+                    .getCapabilitiesForType(mime).getVideoCapabilities();
+            if (capabilities != null && !capabilities.isSizeSupported(width, height)) {
+                // Some encoders only take macroblock-aligned heights; the distortion is under 8 px
+                height = align16(height);
+                outputFormat.setInteger(MediaFormat.KEY_HEIGHT, height);
+            }
+            encoder.configure(outputFormat, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            surface = encoder.createInputSurface();
+            scaler = new VideoFrameScaler(surface, width, height);
+            encoder.start();
+
+            decoder = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+            decoder.configure(inputFormat, scaler.getDecoderSurface(), null, 0);
+            decoder.start();
+
+            muxer = new MediaMuxer(output.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            muxer.setOrientationHint(info.rotation);
+            int muxerAudioTrack = encodeVideo(videoExtractor, decoder, scaler, encoder, muxer, audioFormat,
+                    info.durationMs * 1000, progress);
+            if (audioFormat != null) {
+                copyAudio(audioExtractor, audioFormat, muxer, muxerAudioTrack);
+            }
+            muxer.stop();
+            success = true;
+            if (AppLog.DEBUG) {
+                Log.d(TAG, String.format(Locale.US, "%dx%d -> %dx%d %s @%d kbps", info.codedWidth,
+                        info.codedHeight, width, height, mime, bitrate / 1000));
+            }
+            return output;
+        } catch (RuntimeException e) {
+            // Codec and muxer failures surface as IllegalStateException / CodecException
+            throw new IOException("Transcode failed", e);
+        } finally {
+            if (decoder != null) releaseQuietly(decoder);
+            if (scaler != null) scaler.release();
+            if (encoder != null) releaseQuietly(encoder);
+            if (surface != null) surface.release();
+            if (muxer != null) {
+                try {
+                    muxer.release();
+                } catch (RuntimeException ignored) {
+                    // stop() failed; the output is deleted below
+                }
+            }
+            videoExtractor.release();
+            if (audioExtractor != null) audioExtractor.release();
+            if (!success) output.delete();
+        }
+    }
+
+    /**
+     * Decoder -> GL scale -> encoder -> muxer until the encoder signals end of stream
+     * The muxer is started at the encoder's first output format, with the audio track added alongside.
+     * The encoder is drained fully every pass so a frame swap into its input never waits on output.
+     *
+     * @return the muxer's audio track index, -1 without audio
+     */
+    private int encodeVideo(MediaExtractor extractor, MediaCodec decoder, VideoFrameScaler scaler,
+                            MediaCodec encoder, MediaMuxer muxer, @Nullable MediaFormat audioFormat, long durationUs,
+                            @Nullable ProgressThrottle progress) {
+        MediaCodec.BufferInfo decoded = new MediaCodec.BufferInfo();
+        MediaCodec.BufferInfo encoded = new MediaCodec.BufferInfo();
+        boolean inputDone = false;
+        boolean decoderDone = false;
+        boolean encoderDone = false;
+        int muxerVideoTrack = -1;
+        int muxerAudioTrack = -1;
+
+        while (!encoderDone) {
+            if (!inputDone) {
+                int index = decoder.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                if (index >= 0) {
+                    ByteBuffer buffer = decoder.getInputBuffer(index);
+                    int size = buffer != null ? extractor.readSampleData(buffer, 0) : -1;
+                    if (size < 0) {
+                        decoder.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        decoder.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            if (!decoderDone) {
+                int index = decoder.dequeueOutputBuffer(decoded, CODEC_TIMEOUT_US);
+                if (index >= 0) {
+                    boolean render = decoded.size > 0;
+                    decoder.releaseOutputBuffer(index, render);
+                    if (render) {
+                        scaler.drawFrame(decoded.presentationTimeUs);
+                    }
+                    if ((decoded.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        encoder.signalEndOfInputStream();
+                        decoderDone = true;
+                    } else if (progress != null && durationUs > 0) {
+                        progress.update(decoded.presentationTimeUs / (float) durationUs);
+                    }
+                }
+            }
+
+            while (!encoderDone) {
+                // Only block once the input side is finished and the encoder is all that is left
+                int index = encoder.dequeueOutputBuffer(encoded, decoderDone ? CODEC_TIMEOUT_US : 0);
+                if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                    break;
+                } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    if (muxerVideoTrack >= 0) throw new IllegalStateException("Encoder format changed twice");
+                    muxerVideoTrack = muxer.addTrack(encoder.getOutputFormat());
+                    if (audioFormat != null) muxerAudioTrack = muxer.addTrack(audioFormat);
+                    muxer.start();
+                } else if (index >= 0) {
+                    ByteBuffer buffer = encoder.getOutputBuffer(index);
+                    boolean config = (encoded.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                    if (!config && encoded.size > 0 && buffer != null) {
+                        if (muxerVideoTrack < 0) throw new IllegalStateException("Encoder output before format");
+                        muxer.writeSampleData(muxerVideoTrack, buffer, encoded);
+                    }
+                    encoder.releaseOutputBuffer(index, false);
+                    encoderDone = (encoded.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                }
+            }
+        }
+        if (muxerVideoTrack < 0) throw new IllegalStateException("Encoder produced no frames");
+        return muxerAudioTrack;
+    }
+
+    private void copyAudio(MediaExtractor extractor, MediaFormat format, MediaMuxer muxer, int track) {
+        int capacity = format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)
+                ? format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : 256 * 1024;
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        int size;
+        while ((size = extractor.readSampleData(buffer, 0)) >= 0) {
+            int flags = (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                    ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0;
+            info.set(0, size, extractor.getSampleTime(), flags);
+            muxer.writeSampleData(track, buffer, info);
+            extractor.advance();
+        }
+    }
+
+    private static int findTrack(MediaExtractor extractor, String prefix) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith(prefix)) return i;
+        }
+        return -1;
+    }
+
+    private static int align16(float size) {
+        return Math.max(16, Math.round(size / 16f) * 16);
+    }
+
+    private static int alignEven(float size) {
+        return Math.max(16, Math.round(size / 2f) * 2);
+    }
+
+    private static long parseLong(@Nullable String value) {
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void releaseQuietly(MediaCodec codec) {
+        try {
+            codec.stop();
+        } catch (RuntimeException ignored) {
+            // Never started, or already failed
+        }
+        codec.release();
+    }
+
+    /**
+     * Posts encode progress to the main thread at most once per percent
+     */
+    private class ProgressThrottle {
+        private final Listener listener;
+        private int lastPercent = -1;
+
+        ProgressThrottle(Listener listener) {
+            this.listener = listener;
+        }
+
+        void update(float fraction) {
+            int percent = Math.max(0, Math.min(100, (int) (fraction * 100)));
+            if (percent == lastPercent) return;
+            lastPercent = percent;
+            mainHandler.post(() -> listener.onProgress(percent));
+        }
+    }
+
+    /**
+     * What the probe found; poster is null when no frame could be read
+     */
+    public static class VideoInfo {
+        long durationMs;
+        int codedWidth;
+        int codedHeight;
+        int rotation;
+        long bitrate;
+        File poster;
+
+        @Nullable
+        public File getPoster() {
+            return poster;
+        }
+
+        public int getDurationSeconds() {
+            return (int) ((durationMs + 999) / 1000);
+        }
+
+        /**
+         * Width as displayed, after rotation
+         */
+        public int getDisplayWidth() {
+            return rotation % 180 == 0 ? codedWidth : codedHeight;
+        }
+
+        public int getDisplayHeight() {
+            return rotation % 180 == 0 ? codedHeight : codedWidth;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Metadata and poster, before any encoding starts
+         */
+        void onProbed(@NonNull VideoInfo info);
+
+        /**
+         * Encode progress, 0-100
+         */
+        default void onProgress(int percent) {
+        }
+
+        /**
+         * The file to upload: the transcode output, or the original if it was already small
+         * enough or could not be transcoded
+         *
+         * @param codec Codec label of the transcode output, null for the original
+         */
+        void onReady(@NonNull Uri video, long size, @NonNull String mimeType, @Nullable String codec);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk cache for voice message audio files
+ * Voice files are prefetched when their bubbles are bound so playback starts instantly and offline.
+ * Files are keyed by URL hash and trimmed least-recently-used first once the budget is exceeded.
+ */
+public class VoiceMessageCache {
+
+    private static final String TAG = "VoiceMessageCache";
+    private static final String CACHE_DIR_NAME = "voice_cache";
+    private static final long MAX_CACHE_BYTES = 30L * 1024 * 1024; // 30 MB
+    private static final int DOWNLOAD_THREADS = 2;
+
+    private static VoiceMessageCache instance;
+
+    private final File cacheDir;
+    private final ExecutorService downloadExecutor;
+    private final Set<String> inFlightUrls = new HashSet<>();
+
+    public static synchronized VoiceMessageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new VoiceMessageCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private VoiceMessageCache(Context context) {
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        this.downloadExecutor = Executors.newFixedThreadPool(DOWNLOAD_THREADS);
+    }
+
+    /**
+     * Get the cached file for a voice URL
+     *
+     * @return Cached file, or null if it has not been downloaded yet
+     */
+    public File getCachedFile(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        File file = fileFor(url);
+        if (file.exists() && file.length() > 0) {
+            // Touch so LRU trimming keeps recently played notes
+            file.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+        return null;
+    }
+
+    /**
+     * Download a voice file in the background if it is not cached yet
+     * Concurrent requests for the same URL are collapsed into one download
+     */
+    public void prefetch(String url) {
+        if (url == null || url.isEmpty() || !url.startsWith("http")) {
+            return;
+        }
+        if (fileFor(url).exists()) {
+            return;
+        }
+        synchronized (inFlightUrls) {
+            if (!inFlightUrls.add(url)) {
+                return;
+            }
+        }
+        downloadExecutor.execute(() -> {
+            try {
+                download(url);
+            } finally {
+                synchronized (inFlightUrls) {
+                    inFlightUrls.remove(url);
+                }
+            }
+        });
+    }
+
+    /**
+     * Move a freshly recorded local file into the cache under its uploaded URL
+     * so the sender can replay the note without downloading it again
+     *
+     * @return true if the file was adopted, false if the caller should delete it
+     */
+    public boolean put(String url, File localFile) {
+        if (url == null || localFile == null || !localFile.exists()) {
+            return false;
+        }
+        File target = fileFor(url);
+        boolean moved = localFile.renameTo(target);
+        if (moved) {
+            trimToBudget();
+        }
+        return moved;
+    }
+
+    private void download(String fileUrl) {
+        File target = fileFor(fileUrl);
+        File temp = new File(cacheDir, target.getName() + ".tmp");
+        HttpURLConnection connection = null;
+        try {
+            // Older devices cannot decode OGG/Opus, fetch a converted copy instead
+            String downloadUrl = VoiceRecordingProfile.toPlayableUrl(fileUrl);
+            connection = (HttpURLConnection) new URL(downloadUrl).openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(15000);
+            connection.connect();
+
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                Log.w(TAG, "Prefetch failed, HTTP " + connection.getResponseCode());
+                return;
+            }
+
+            try (InputStream input = connection.getInputStream();
+                 FileOutputStream output = new FileOutputStream(temp)) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, count);
+                }
+            }
+
+            // Publish atomically so readers never see a partial file
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                return;
+            }
+            trimToBudget();
+        } catch (Exception e) {
+            Log.w(TAG, "Prefetch error: " + e.getMessage());
+            temp.delete();
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private synchronized void trimToBudget() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_CACHE_BYTES) return;
+
+        // Oldest access first
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= MAX_CACHE_BYTES) break;
+            if (file.getName().endsWith(".tmp")) continue;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private File fileFor(String url) {
+        return new File(cacheDir, hash(url));
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(value.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : bytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return String.valueOf(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.media.PlaybackParams;
+import android.util.Log;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+
+/**
+ * Shared voice message player for the whole message list
+ * A single MediaPlayer is reused (reset instead of re-created) for every voice bubble.
+ * Cached files from VoiceMessageCache are played locally; other URLs are streamed and prefetched.
+ */
+public class VoicePlaybackManager {
+
+    private static final String TAG = "VoicePlaybackManager";
+
+    private static VoicePlaybackManager instance;
+
+    private MediaPlayer mediaPlayer;
+    private String activeMessageId;
+    // Screen that started the active playback (the context passed to play)
+    private WeakReference<Context> activeOwner;
+    private PlaybackListener listener;
+    private boolean isPrepared = false;
+    private boolean isPlaying = false;
+    private float playbackSpeed = 1.0f;
+
+    public static synchronized VoicePlaybackManager getInstance() {
+        if (instance == null) {
+            instance = new VoicePlaybackManager();
+        }
+        return instance;
+    }
+
+    private VoicePlaybackManager() {
+    }
+
+    /**
+     * Start playback of a voice message, stopping whichever message was playing before
+     *
+     * @param context   Context used to resolve the voice cache
+     * @param messageId ID of the message being played
+     * @param voiceUrl  Remote URL of the audio file
+     * @param speed     Playback speed
+     * @param listener  Listener for the bubble that started playback
+     */
+    public void play(Context context, String messageId, String voiceUrl, float speed, PlaybackListener listener) {
+        // Resume if the same message was only paused
+        if (messageId != null && messageId.equals(activeMessageId) && isPrepared && !isPlaying) {
+            this.listener = listener;
+            setSpeed(speed);
+            mediaPlayer.start();
+            isPlaying = true;
+            listener.onPlaybackStarted();
+            return;
+        }
+
+        stop();
+
+        activeMessageId = messageId;
+        activeOwner = new WeakReference<>(context);
+        this.listener = listener;
+        this.playbackSpeed = speed;
+
+        VoiceMessageCache cache = VoiceMessageCache.getInstance(context);
+        File cachedFile = cache.getCachedFile(voiceUrl);
+
+        try {
+            MediaPlayer player = getPlayer();
+            if (cachedFile != null) {
+                player.setDataSource(cachedFile.getAbsolutePath());
+            } else {
+                // Stream this time and keep a copy for the next replay
+                player.setDataSource(VoiceRecordingProfile.toPlayableUrl(voiceUrl));
+                cache.prefetch(voiceUrl);
+            }
+            player.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting playback", e);
+            notifyError();
+        }
+    }
+
+    public void pause() {
+        if (mediaPlayer != null && isPlaying) {
+            mediaPlayer.pause();
+            isPlaying = false;
+            if (listener != null) {
+                listener.onPlaybackPaused();
+            }
+        }
+    }
+
+    /**
+     * Stop playback and reset the shared player for the next message
+     */
+    public void stop() {
+        PlaybackListener previous = listener;
+        if (mediaPlayer != null) {
+            try {
+                mediaPlayer.reset();
+            } catch (Exception e) {
+                // Ignore
+            }
+        }
+        isPrepared = false;
+        isPlaying = false;
+        activeMessageId = null;
+        activeOwner = null;
+        listener = null;
+        if (previous != null) {
+            previous.onPlaybackStopped();
+        }
+    }
+
+    public void setSpeed(float speed) {
+        playbackSpeed = speed;
+        if (mediaPlayer != null && isPrepared) {
+            try {
+                PlaybackParams params = mediaPlayer.getPlaybackParams();
+                params.setSpeed(speed);
+                mediaPlayer.setPlaybackParams(params);
+                if (!isPlaying) {
+                    // setPlaybackParams starts playback as a side effect
+                    mediaPlayer.pause();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating speed", e);
+            }
+        }
+    }
+
+    public boolean isActive(String messageId) {
+        return messageId != null && messageId.equals(activeMessageId);
+    }
+
+    public boolean isPlaying(String messageId) {
+        return isActive(messageId) && isPlaying;
+    }
+
+    /**
+     * Current position in milliseconds, or 0 when nothing is prepared
+     */
+    public int getCurrentPosition() {
+        if (mediaPlayer != null && isPrepared) {
+            try {
+                return mediaPlayer.getCurrentPosition();
+            } catch (IllegalStateException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Re-attach a bubble to the message that is still playing after it scrolled back on screen
+     */
+    public void attachListener(String messageId, PlaybackListener listener) {
+        if (isActive(messageId)) {
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Detach a recycled bubble without interrupting audio
+     */
+    public void detachListener(PlaybackListener listener) {
+        if (this.listener == listener) {
+            this.listener = null;
+        }
+    }
+
+    /**
+     * Called when a chat screen is destroyed: stops playback only if that screen started it,
+     * and frees the player only once nothing else is playing
+     */
+    public void release(Context owner) {
+        if (activeOwner != null && activeOwner.get() == owner) {
+            stop();
+        }
+        if (activeMessageId == null && mediaPlayer != null) {
+            mediaPlayer.release();
+            mediaPlayer = null;
+        }
+    }
+
+    private MediaPlayer getPlayer() {
+        if (mediaPlayer == null) {
+            mediaPlayer = new MediaPlayer();
+            mediaPlayer.setOnPreparedListener(mp -> {
+                isPrepared = true;
+                setSpeed(playbackSpeed);
+                mp.start();
+                isPlaying = true;
+                if (listener != null) {
+                    listener.onPlaybackStarted();
+                }
+            });
+            mediaPlayer.setOnCompletionListener(mp -> {
+                PlaybackListener completed = listener;
+                isPlaying = false;
+                isPrepared = false;
+                activeMessageId = null;
+                activeOwner = null;
+                listener = null;
+                mp.reset();
+                if (completed != null) {
+                    completed.onPlaybackCompleted();
+                }
+            });
+            mediaPlayer.setOnErrorListener((mp, what, extra) -> {
+                Log.e(TAG, "Playback error: " + what + "/" + extra);
+                notifyError();
+                return true;
+            });
+        }
+        return mediaPlayer;
+    }
+
+    private void notifyError() {
+        PlaybackListener failed = listener;
+        listener = null;
+        stop();
+        if (failed != null) {
+            failed.onPlaybackError();
+        }
+    }
+
+    /**
+     * Callbacks for the bubble that owns playback
+     */
+    public interface PlaybackListener {
+        void onPlaybackStarted();
+
+        void onPlaybackPaused();
+
+        void onPlaybackCompleted();
+
+        /**
+         * Another message took over the shared player
+         */
+        void onPlaybackStopped();
+
+        void onPlaybackError();
+    }
+}
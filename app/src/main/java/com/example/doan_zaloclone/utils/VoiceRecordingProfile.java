@@ -0,0 +1,157 @@
+package com.example.doan_zaloclone.utils;
+
+import android.content.Context;
+import android.media.MediaMuxer;
+import android.media.MediaRecorder;
+import android.os.Build;
+
+/**
+ * Recording profiles for voice messages
+ * Speech does not need music-grade bitrates: Opus in OGG (Android 10+) or AAC at
+ * 24 kbps keeps a 60 second note under 200 KB. The bitrate adapts to the current network.
+ */
+public class VoiceRecordingProfile {
+
+    // Opus speech profiles (Android 10+)
+    public static final VoiceRecordingProfile OPUS_SPEECH = new VoiceRecordingProfile(
+            "opus_speech", MediaRecorder.OutputFormat.OGG, MediaRecorder.AudioEncoder.OPUS,
+            24000, 16000, ".ogg", MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG);
+    public static final VoiceRecordingProfile OPUS_SPEECH_LOW = new VoiceRecordingProfile(
+            "opus_speech_low", MediaRecorder.OutputFormat.OGG, MediaRecorder.AudioEncoder.OPUS,
+            16000, 16000, ".ogg", MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG);
+
+    // AAC speech profiles (all supported API levels)
+    // HE-AAC halves the core sampling rate (SBR), so it needs at least 24 kHz input;
+    // the 16 kHz low profile uses plain AAC-LC instead
+    public static final VoiceRecordingProfile AAC_SPEECH = new VoiceRecordingProfile(
+            "aac_speech", MediaRecorder.OutputFormat.MPEG_4, MediaRecorder.AudioEncoder.HE_AAC,
+            32000, 24000, ".m4a", MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+    public static final VoiceRecordingProfile AAC_SPEECH_LOW = new VoiceRecordingProfile(
+            "aac_speech_low", MediaRecorder.OutputFormat.MPEG_4, MediaRecorder.AudioEncoder.AAC,
+            24000, 16000, ".m4a", MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+
+    // Previous fixed profile, kept for users who prefer quality over size
+    public static final VoiceRecordingProfile AAC_HIGH = new VoiceRecordingProfile(
+            "aac_high", MediaRecorder.OutputFormat.MPEG_4, MediaRecorder.AudioEncoder.AAC,
+            128000, 44100, ".m4a", MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+
+    private static final String PREFS_NAME = "voice_recording_prefs";
+    private static final String KEY_PROFILE = "profile";
+    private static final String PROFILE_AUTO = "auto";
+
+    private final String name;
+    private final int outputFormat;
+    private final int audioEncoder;
+    private final int bitRate;
+    private final int samplingRate;
+    private final String fileExtension;
+    private final int muxerFormat;
+
+    private VoiceRecordingProfile(String name, int outputFormat, int audioEncoder, int bitRate,
+                                  int samplingRate, String fileExtension, int muxerFormat) {
+        this.name = name;
+        this.outputFormat = outputFormat;
+        this.audioEncoder = audioEncoder;
+        this.bitRate = bitRate;
+        this.samplingRate = samplingRate;
+        this.fileExtension = fileExtension;
+        this.muxerFormat = muxerFormat;
+    }
+
+    /**
+     * Select the profile for the next recording
+     * Uses the user's saved choice, otherwise adapts to the current network:
+     * cellular/metered links get the low bitrate Opus variant; before Android 10 it is always
+     * the low bitrate AAC-LC profile
+     */
+    public static VoiceRecordingProfile select(Context context) {
+        String saved = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_PROFILE, PROFILE_AUTO);
+        VoiceRecordingProfile chosen = fromName(saved);
+        if (chosen != null && chosen.isSupported()) {
+            return chosen;
+        }
+
+        if (!OPUS_SPEECH.isSupported()) {
+            // 32 kbps AAC would put a 60 second note at 240 KB; 24 kbps stays under 200 KB
+            return AAC_SPEECH_LOW;
+        }
+        boolean constrained = NetworkUtils.isCellularOrMetered(context);
+        return constrained ? OPUS_SPEECH_LOW : OPUS_SPEECH;
+    }
+
+    /**
+     * Save the user's preferred profile ("auto" to adapt to the network)
+     */
+    public static void setPreferredProfile(Context context, String profileName) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(KEY_PROFILE, profileName != null ? profileName : PROFILE_AUTO)
+                .apply();
+    }
+
+    public static VoiceRecordingProfile fromName(String name) {
+        if (name == null) return null;
+        switch (name) {
+            case "opus_speech": return OPUS_SPEECH;
+            case "opus_speech_low": return OPUS_SPEECH_LOW;
+            case "aac_speech": return AAC_SPEECH;
+            case "aac_speech_low": return AAC_SPEECH_LOW;
+            case "aac_high": return AAC_HIGH;
+            default: return null;
+        }
+    }
+
+    /**
+     * Map a voice URL to one this device can decode
+     * OGG/Opus playback needs Android 10+; Cloudinary converts the file when the extension changes
+     */
+    public static String toPlayableUrl(String voiceUrl) {
+        if (voiceUrl == null || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return voiceUrl;
+        }
+        if (voiceUrl.contains("res.cloudinary.com") && voiceUrl.endsWith(".ogg")) {
+            return voiceUrl.substring(0, voiceUrl.length() - ".ogg".length()) + ".m4a";
+        }
+        return voiceUrl;
+    }
+
+    /**
+     * Apply encoder settings to a MediaRecorder (audio source must already be set)
+     */
+    public void applyTo(MediaRecorder recorder) {
+        recorder.setOutputFormat(outputFormat);
+        recorder.setAudioEncoder(audioEncoder);
+        recorder.setAudioEncodingBitRate(bitRate);
+        recorder.setAudioSamplingRate(samplingRate);
+        recorder.setAudioChannels(1);
+    }
+
+    public boolean isSupported() {
+        return outputFormat != MediaRecorder.OutputFormat.OGG
+                || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    /**
+     * Rough size of a recording with this profile, used before the file exists
+     */
+    public long estimateSizeBytes(int durationSeconds) {
+        return (long) bitRate / 8 * durationSeconds;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public int getMuxerFormat() {
+        return muxerFormat;
+    }
+}
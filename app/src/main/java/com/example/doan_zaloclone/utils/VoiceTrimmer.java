@@ -0,0 +1,162 @@
+package com.example.doan_zaloclone.utils;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Trims leading and trailing silence from recorded voice messages
+ * Silence is detected from the amplitude samples collected while recording, and the audio
+ * is cut by copying encoded frames (no re-encoding), so trimming is fast and lossless.
+ */
+public class VoiceTrimmer {
+
+    private static final String TAG = "VoiceTrimmer";
+
+    // Amplitudes below this (out of 32767) count as silence
+    private static final int SILENCE_THRESHOLD = 800;
+    // Keep a little audio around speech so words are not clipped
+    private static final int PADDING_SAMPLES = 2;
+    // Do not bother trimming less than this
+    private static final long MIN_TRIM_MS = 300;
+
+    /**
+     * Result of a trim: kept range in amplitude samples and in milliseconds
+     */
+    public static class Range {
+        public final int startSample;
+        public final int endSample; // exclusive
+        public final long startMs;
+        public final long endMs;
+
+        Range(int startSample, int endSample, long sampleIntervalMs) {
+            this.startSample = startSample;
+            this.endSample = endSample;
+            this.startMs = startSample * sampleIntervalMs;
+            this.endMs = endSample * sampleIntervalMs;
+        }
+
+        public long getDurationMs() {
+            return endMs - startMs;
+        }
+    }
+
+    /**
+     * Find the range of samples that contains speech
+     *
+     * @param samples          Amplitude samples in recording order
+     * @param sampleIntervalMs Interval between samples
+     * @return Speech range, or null if nothing worth trimming was found
+     */
+    public static Range findSpeechRange(List<Integer> samples, long sampleIntervalMs) {
+        if (samples == null || samples.isEmpty()) return null;
+
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < samples.size(); i++) {
+            if (samples.get(i) >= SILENCE_THRESHOLD) {
+                if (first < 0) first = i;
+                last = i;
+            }
+        }
+        if (first < 0) {
+            // All silence - keep as recorded and let the user decide
+            return null;
+        }
+
+        int start = Math.max(0, first - PADDING_SAMPLES);
+        int end = Math.min(samples.size(), last + 1 + PADDING_SAMPLES);
+        long trimmedMs = (start + (samples.size() - end)) * sampleIntervalMs;
+        if (trimmedMs < MIN_TRIM_MS) {
+            return null;
+        }
+        return new Range(start, end, sampleIntervalMs);
+    }
+
+    /**
+     * Copy the [startMs, endMs) range of an audio file into a new file without re-encoding
+     *
+     * @param input       Recorded file
+     * @param output      Destination file
+     * @param muxerFormat MediaMuxer output format matching the input container
+     * @return true on success; on failure the caller should keep the original file
+     */
+    public static boolean trim(File input, File output, long startMs, long endMs, int muxerFormat) {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaMuxer muxer = null;
+        boolean muxerStarted = false;
+        try {
+            extractor.setDataSource(input.getAbsolutePath());
+
+            int audioTrack = -1;
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    audioTrack = i;
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (audioTrack < 0) {
+                return false;
+            }
+
+            extractor.selectTrack(audioTrack);
+            muxer = new MediaMuxer(output.getAbsolutePath(), muxerFormat);
+            int outTrack = muxer.addTrack(format);
+            muxer.start();
+            muxerStarted = true;
+
+            int maxInputSize = format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)
+                    ? format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : 64 * 1024;
+            ByteBuffer buffer = ByteBuffer.allocate(maxInputSize);
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+            long startUs = startMs * 1000;
+            long endUs = endMs * 1000;
+            // Audio frames are all sync frames, so seeking lands exactly where we want
+            extractor.seekTo(startUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+
+            while (true) {
+                int size = extractor.readSampleData(buffer, 0);
+                if (size < 0) break;
+                long timeUs = extractor.getSampleTime();
+                if (timeUs > endUs) break;
+                if (timeUs >= startUs) {
+                    info.offset = 0;
+                    info.size = size;
+                    info.presentationTimeUs = timeUs - startUs;
+                    info.flags = MediaCodec.BUFFER_FLAG_KEY_FRAME;
+                    muxer.writeSampleData(outTrack, buffer, info);
+                }
+                extractor.advance();
+            }
+            // Stop here so a failed finalize is reported instead of leaving a broken file
+            muxerStarted = false;
+            muxer.stop();
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Trim failed, keeping original recording: " + e.getMessage());
+            output.delete();
+            return false;
+        } finally {
+            extractor.release();
+            if (muxer != null) {
+                try {
+                    if (muxerStarted) muxer.stop();
+                    muxer.release();
+                } catch (Exception e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
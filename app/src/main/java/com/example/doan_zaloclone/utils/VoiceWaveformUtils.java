@@ -0,0 +1,86 @@
+package com.example.doan_zaloclone.utils;
+
+import android.util.Base64;
+
+import java.util.List;
+
+/**
+ * Utility for compact voice message waveforms
+ * Amplitude samples collected while recording are reduced to a fixed number of peaks
+ * (one unsigned byte each) so they can travel with the message as a short Base64 string
+ */
+public class VoiceWaveformUtils {
+
+    public static final int PEAK_COUNT = 64;
+    private static final int MAX_RAW_AMPLITUDE = 32767; // MediaRecorder.getMaxAmplitude() range
+
+    /**
+     * Reduce raw MediaRecorder amplitudes to PEAK_COUNT peaks
+     *
+     * @param samples Raw amplitude samples (0-32767) in recording order
+     * @return PEAK_COUNT bytes (0-255 unsigned), or null if there are no samples
+     */
+    public static byte[] computePeaks(List<Integer> samples) {
+        if (samples == null || samples.isEmpty()) {
+            return null;
+        }
+
+        byte[] peaks = new byte[PEAK_COUNT];
+        int sampleCount = samples.size();
+
+        for (int i = 0; i < PEAK_COUNT; i++) {
+            // Each peak covers a slice of the samples; short recordings repeat samples
+            int start = (int) ((long) i * sampleCount / PEAK_COUNT);
+            int end = (int) ((long) (i + 1) * sampleCount / PEAK_COUNT);
+            if (end <= start) {
+                end = start + 1;
+            }
+
+            int max = 0;
+            for (int j = start; j < end && j < sampleCount; j++) {
+                Integer value = samples.get(j);
+                if (value != null && value > max) {
+                    max = value;
+                }
+            }
+
+            // Square-root scale so quiet speech still shows visible bars
+            double normalized = Math.sqrt(Math.min(max, MAX_RAW_AMPLITUDE) / (double) MAX_RAW_AMPLITUDE);
+            peaks[i] = (byte) Math.round(normalized * 255);
+        }
+        return peaks;
+    }
+
+    /**
+     * Encode peaks for sending with the message
+     */
+    public static String encodePeaks(byte[] peaks) {
+        if (peaks == null || peaks.length == 0) {
+            return null;
+        }
+        return Base64.encodeToString(peaks, Base64.NO_WRAP);
+    }
+
+    /**
+     * Decode peaks received with a message
+     *
+     * @return Peak bytes, or null if the value is missing or malformed
+     */
+    public static byte[] decodePeaks(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        try {
+            return Base64.decode(encoded, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Convert a single peak byte to the 0-100 amplitude scale used by WaveformView
+     */
+    public static float toAmplitude(byte peak) {
+        return (peak & 0xFF) * 100f / 255f;
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.doan_zaloclone.utils;
 
 import android.content.Context;
+import android.util.Log;
 
 import com.example.doan_zaloclone.BuildConfig;
 
+import org.webrtc.Camera1Enumerator;
+import org.webrtc.Camera2Enumerator;
+import org.webrtc.CameraEnumerator;
+import org.webrtc.CameraVideoCapturer;
 import org.webrtc.DefaultVideoDecoderFactory;
 import org.webrtc.DefaultVideoEncoderFactory;
 import org.webrtc.EglBase;
@@ -26,6 +31,7 @@ public class WebRtcHelper {
     private static final String STUN_SERVER_1 = "stun:stun.l.google.com:19302";
     private static final String STUN_SERVER_2 = "stun:stun1.l.google.com:19302";
     private static final String STUN_SERVER_3 = "stun:stun2.l.google.com:19302";
+    private static final int ICE_CANDIDATE_POOL_SIZE = 1;
 
     /**
      * Get default ICE servers for WebRTC connection
@@ -69,37 +75,89 @@ public class WebRtcHelper {
     }
 
     /**
-     * Create PeerConnectionFactory for WebRTC
-     * Must be called before creating any PeerConnection
+     * Build a PeerConnectionFactory whose codecs share the given EGL context
+     * WebRTC must already be initialized; use CallWarmup.getFactory() instead of calling this directly.
      *
-     * @param context Application context
+     * @param eglContext Shared EGL context (CallWarmup.getEglBase())
      * @return Configured PeerConnectionFactory
      */
-    public static PeerConnectionFactory createPeerConnectionFactory(Context context) {
-        // Initialize PeerConnectionFactory
-        PeerConnectionFactory.InitializationOptions initOptions =
-                PeerConnectionFactory.InitializationOptions.builder(context)
-                        .setEnableInternalTracer(true)
-                        .createInitializationOptions();
-        PeerConnectionFactory.initialize(initOptions);
-
-        // Create EglBase for video rendering
-        EglBase rootEglBase = EglBase.create();
-
-        // Build PeerConnectionFactory
+    public static PeerConnectionFactory createPeerConnectionFactory(EglBase.Context eglContext) {
         PeerConnectionFactory.Options options = new PeerConnectionFactory.Options();
 
         return PeerConnectionFactory.builder()
                 .setOptions(options)
-                .setVideoDecoderFactory(new DefaultVideoDecoderFactory(rootEglBase.getEglBaseContext()))
+                .setVideoDecoderFactory(new DefaultVideoDecoderFactory(eglContext))
                 .setVideoEncoderFactory(new DefaultVideoEncoderFactory(
-                        rootEglBase.getEglBaseContext(),
+                        eglContext,
                         true,  // enableIntelVp8Encoder
                         true   // enableH264HighProfile
                 ))
                 .createPeerConnectionFactory();
     }
 
+    /**
+     * RTC configuration shared by pre-warmed and on-demand connections
+     *
+     * @param iceServers ICE servers (CallWarmup.getIceServers())
+     * @return Configuration with Unified Plan and candidate pre-gathering
+     */
+    public static PeerConnection.RTCConfiguration createRtcConfiguration(List<PeerConnection.IceServer> iceServers) {
+        PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(iceServers);
+
+        // ALL uses both STUN (direct) and TURN (relay)
+        rtcConfig.iceTransportsType = PeerConnection.IceTransportsType.ALL;
+
+        // CRITICAL: Unified Plan is required for the addTrack() API
+        rtcConfig.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
+
+        // Audio and video share one transport, so one pooled transport is enough;
+        // its candidates are gathered as soon as the connection exists, before the offer/answer
+        rtcConfig.bundlePolicy = PeerConnection.BundlePolicy.MAXBUNDLE;
+        rtcConfig.iceCandidatePoolSize = ICE_CANDIDATE_POOL_SIZE;
+
+        return rtcConfig;
+    }
+
+    /**
+     * Create camera capturer for video
+     *
+     * @param context        Context for the camera enumerator
+     * @param useFrontCamera true to use front camera, false for back camera
+     * @return CameraVideoCapturer or null if failed
+     */
+    public static CameraVideoCapturer createCameraCapturer(Context context, boolean useFrontCamera) {
+        CameraEnumerator enumerator;
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
+            enumerator = new Camera2Enumerator(context);
+        } else {
+            enumerator = new Camera1Enumerator(false);
+        }
+
+        String[] deviceNames = enumerator.getDeviceNames();
+
+        // First try to find the requested camera
+        for (String deviceName : deviceNames) {
+            if (useFrontCamera == enumerator.isFrontFacing(deviceName)) {
+                CameraVideoCapturer capturer = enumerator.createCapturer(deviceName, null);
+                if (capturer != null) {
+                    Log.d(TAG, "Camera created: " + deviceName);
+                    return capturer;
+                }
+            }
+        }
+
+        // Fallback: try any camera
+        for (String deviceName : deviceNames) {
+            CameraVideoCapturer capturer = enumerator.createCapturer(deviceName, null);
+            if (capturer != null) {
+                Log.d(TAG, "Fallback camera created: " + deviceName);
+                return capturer;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Create media constraints for audio-only call
      *
@@ -17,12 +17,15 @@ import com.example.doan_zaloclone.models.Call;
 import com.example.doan_zaloclone.models.CallSignal;
 import com.example.doan_zaloclone.models.Message;
 import com.example.doan_zaloclone.repository.CallRepository;
+import com.example.doan_zaloclone.repository.CallTelemetry;
 import com.example.doan_zaloclone.repository.ChatRepository;
 import com.example.doan_zaloclone.repository.WebRtcRepository;
+import com.example.doan_zaloclone.utils.CallWarmup;
 import com.example.doan_zaloclone.utils.Resource;
 import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * ViewModel for managing voice and video calls
@@ -58,6 +61,7 @@ public class CallViewModel extends AndroidViewModel {
     private boolean currentCallIsVideo = false;  // Fix #6: Store video flag
     private long callInitiatedTimestamp = 0;  // Track when call started
     private Runnable disconnectRunnable;
+    private String lastCallId;  // Kept after cleanup so logCallHistory can attach telemetry
 
     public CallViewModel(@NonNull Application application) {
         super(application);
@@ -71,6 +75,9 @@ public class CallViewModel extends AndroidViewModel {
         this.isCameraEnabled = new MutableLiveData<>(true);
         this.error = new MutableLiveData<>();
 
+        // Start building the shared WebRTC factory before the call is placed/answered
+        CallWarmup.getInstance().warmUp(application);
+
         // Setup WebRTC callbacks
         setupWebRtcCallbacks();
     }
@@ -724,6 +731,7 @@ public class CallViewModel extends AndroidViewModel {
 
         // Reset state
         String oldCallId = currentCallId;
+        if (oldCallId != null) lastCallId = oldCallId;
         currentCallId = null;
         currentUserId = null;
         isInitiator = false;
@@ -775,6 +783,7 @@ public class CallViewModel extends AndroidViewModel {
             }
 
             // Reset ALL state
+            if (currentCallId != null) lastCallId = currentCallId;
             currentCallId = null;
             currentUserId = null;
             isInitiator = false;
@@ -857,6 +866,8 @@ public class CallViewModel extends AndroidViewModel {
                 System.currentTimeMillis()
         );
 
+        attachCallTelemetry(currentUserId);
+
         // Save to Firestore
         chatRepository.sendMessage(conversationId, callMessage, new ChatRepository.SendMessageCallback() {
             @Override
@@ -872,6 +883,20 @@ public class CallViewModel extends AndroidViewModel {
     }
 
 
+    /**
+     * Write this side's setup timings and quality summary onto the call record
+     */
+    private void attachCallTelemetry(String userId) {
+        CallTelemetry telemetry = webRtcRepository.getTelemetry();
+        String callId = currentCallId != null ? currentCallId : lastCallId;
+        if (telemetry == null || callId == null || !callId.equals(telemetry.getCallId())) {
+            return;  // WebRTC never started for this call (e.g. missed call)
+        }
+        Map<String, Object> summary = telemetry.getSummary();
+        Log.d(TAG, "Call telemetry: " + summary);
+        callRepository.attachTelemetry(callId, userId, summary);
+    }
+
     /**
      * Format duration in seconds to MM:SS
      */
@@ -9,9 +9,11 @@ import androidx.lifecycle.ViewModel;
 import com.cloudinary.android.MediaManager;
 import com.cloudinary.android.callback.ErrorInfo;
 import com.cloudinary.android.callback.UploadCallback;
+import com.example.doan_zaloclone.ZaloApplication;
 import com.example.doan_zaloclone.models.User;
 import com.example.doan_zaloclone.repository.UserRepository;
 import com.example.doan_zaloclone.utils.Resource;
+import com.example.doan_zaloclone.utils.StartupOrchestrator;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
@@ -149,6 +151,10 @@ public class PersonalViewModel extends ViewModel {
      * Upload avatar image to Cloudinary and update user profile
      */
     public void uploadAvatar(Uri imageUri) {
+        if (!StartupOrchestrator.getInstance().isDone(ZaloApplication.TASK_CLOUDINARY)) {
+            StartupOrchestrator.getInstance().whenReady(ZaloApplication.TASK_CLOUDINARY, () -> uploadAvatar(imageUri));
+            return;
+        }
         FirebaseUser firebaseUser = FirebaseAuth.getInstance().getCurrentUser();
         if (firebaseUser == null) {
             uploadImageState.setValue(Resource.error("User not logged in"));
@@ -218,6 +224,10 @@ public class PersonalViewModel extends ViewModel {
      * Upload cover image to Cloudinary and update user profile
      */
     public void uploadCover(Uri imageUri) {
+        if (!StartupOrchestrator.getInstance().isDone(ZaloApplication.TASK_CLOUDINARY)) {
+            StartupOrchestrator.getInstance().whenReady(ZaloApplication.TASK_CLOUDINARY, () -> uploadCover(imageUri));
+            return;
+        }
         FirebaseUser firebaseUser = FirebaseAuth.getInstance().getCurrentUser();
         if (firebaseUser == null) {
             uploadImageState.setValue(Resource.error("User not logged in"));
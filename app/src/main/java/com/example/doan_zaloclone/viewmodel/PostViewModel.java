@@ -5,6 +5,7 @@ import androidx.lifecycle.ViewModel;
 
 import com.example.doan_zaloclone.models.Comment;
 import com.example.doan_zaloclone.models.Post;
+import com.example.doan_zaloclone.repository.CommentThread;
 import com.example.doan_zaloclone.repository.PostRepository;
 import com.example.doan_zaloclone.utils.Resource;
 
@@ -23,23 +24,74 @@ public class PostViewModel extends ViewModel {
         return repository.createPost(post);
     }
 
-    // Lấy danh sách bài đăng
+    // Lấy danh sách bài đăng (phân trang, có cache)
     public LiveData<Resource<List<Post>>> getPosts() {
         return repository.getPosts();
     }
 
+    public void refreshPosts() {
+        repository.refreshPosts();
+    }
+
+    public void loadOlderPosts() {
+        repository.loadOlderPosts();
+    }
+
+    public void loadNewerPosts() {
+        repository.loadNewerPosts();
+    }
+
+    public boolean hasNewerPosts() {
+        return repository.hasNewerPosts();
+    }
+
+    // Chỉ lắng nghe bài mới khi bảng tin đang hiển thị
+    public void startFeedUpdates() {
+        repository.startFeedUpdates();
+    }
+
+    public void stopFeedUpdates() {
+        repository.stopFeedUpdates();
+    }
+
     // Xử lý like
     public void toggleLike(String postId) {
         repository.toggleLike(postId);
     }
 
+    // ID của bài viết vừa đổi trạng thái like
+    public LiveData<String> getLikeChanges() {
+        return repository.getLikeChanges();
+    }
+
+    // Luồng bình luận đang mở (phân trang, chỉ lắng nghe bình luận mới)
+    private CommentThread commentThread;
+
+    // Lấy danh sách comment, mới nhất trước
+    public LiveData<Resource<List<Comment>>> getComments(String postId) {
+        if (commentThread == null || !commentThread.getPostId().equals(postId)) {
+            if (commentThread != null) commentThread.close();
+            commentThread = repository.openCommentThread(postId);
+        }
+        return commentThread.getComments();
+    }
+
+    public void loadOlderComments() {
+        if (commentThread != null) commentThread.loadOlder();
+    }
+
     // Gửi comment
     public LiveData<Resource<Boolean>> sendComment(String postId, String content) {
-        return repository.sendComment(postId, content);
+        getComments(postId);
+        return repository.sendComment(commentThread, content);
     }
 
-    // Lấy danh sách comment
-    public LiveData<Resource<List<Comment>>> getComments(String postId) {
-        return repository.getComments(postId);
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (commentThread != null) {
+            commentThread.close();
+            commentThread = null;
+        }
     }
 }
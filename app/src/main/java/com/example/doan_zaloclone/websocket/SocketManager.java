@@ -2,6 +2,8 @@ package com.example.doan_zaloclone.websocket;
 
 import android.util.Log;
 
+import com.example.doan_zaloclone.utils.AppLog;
+import com.example.doan_zaloclone.utils.EventTrace;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
@@ -58,17 +60,17 @@ public class SocketManager {
     public void connect() {
         // Prevent duplicate connections
         if (isConnected) {
-            Log.d(TAG, "Already connected");
+            if (AppLog.DEBUG) Log.d(TAG, "Already connected");
             return;
         }
         
         if (isConnecting) {
-            Log.d(TAG, "Connection already in progress, skipping");
+            if (AppLog.DEBUG) Log.d(TAG, "Connection already in progress, skipping");
             return;
         }
         
         if (socket != null && socket.connected()) {
-            Log.d(TAG, "Socket already connected");
+            if (AppLog.DEBUG) Log.d(TAG, "Socket already connected");
             isConnected = true;
             return;
         }
@@ -113,7 +115,7 @@ public class SocketManager {
 
                 // Connect
                 socket.connect();
-                Log.d(TAG, "Connecting to " + SOCKET_URL);
+                if (AppLog.DEBUG) Log.d(TAG, "Connecting to " + SOCKET_URL);
 
             } catch (URISyntaxException e) {
                 Log.e(TAG, "Invalid socket URL", e);
@@ -132,7 +134,7 @@ public class SocketManager {
         socket.on(Socket.EVENT_CONNECT, args -> {
             isConnected = true;
             isConnecting = false; // Connection complete
-            Log.d(TAG, "✅ WebSocket connected");
+            if (AppLog.DEBUG) Log.d(TAG, "✅ WebSocket connected");
             
             // Join any pending conversation rooms
             onSocketConnected();
@@ -145,7 +147,7 @@ public class SocketManager {
         socket.on(Socket.EVENT_DISCONNECT, args -> {
             isConnected = false;
             isConnecting = false; // Reset on disconnect
-            Log.d(TAG, "❌ WebSocket disconnected");
+            if (AppLog.DEBUG) Log.d(TAG, "❌ WebSocket disconnected");
             if (connectionListener != null) {
                 connectionListener.onDisconnected();
             }
@@ -166,7 +168,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String convId = data.optString("conversationId");
                     boolean success = data.optBoolean("success", false);
-                    Log.d(TAG, "✅ Room joined confirmed: " + convId + ", success=" + success);
+                    if (AppLog.DEBUG) Log.d(TAG, "✅ Room joined confirmed: " + convId + ", success=" + success);
                 } catch (Exception e) {
                     Log.e(TAG, "Error parsing room_joined", e);
                 }
@@ -179,7 +181,7 @@ public class SocketManager {
                 try {
                     JSONObject data = (JSONObject) args[0];
                     String convId = data.optString("conversationId");
-                    Log.d(TAG, "📤 Room left confirmed: " + convId);
+                    if (AppLog.DEBUG) Log.d(TAG, "📤 Room left confirmed: " + convId);
                 } catch (Exception e) {
                     Log.e(TAG, "Error parsing room_left", e);
                 }
@@ -191,20 +193,25 @@ public class SocketManager {
             if (args.length > 0) {
                 try {
                     JSONObject messageData = (JSONObject) args[0];
-                    Log.d(TAG, "📨 New message received: " + messageData.toString());
-                    
-                    // Notify all listeners
-                    for (OnMessageListener listener : messageListeners) {
-                        try {
-                            listener.onMessageReceived(messageData);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error in listener", e);
+                    if (AppLog.VERBOSE) Log.d(TAG, "📨 New message received: " + messageData.toString());
+
+                    long traceStart = EventTrace.begin(EventTrace.RECEIVE);
+                    try {
+                        // Notify all listeners
+                        for (OnMessageListener listener : messageListeners) {
+                            try {
+                                listener.onMessageReceived(messageData);
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error in listener", e);
+                            }
                         }
-                    }
-                    
-                    // Trigger notification if listener is set
-                    if (notificationListener != null) {
-                        notificationListener.onNewMessage(messageData);
+
+                        // Trigger notification if listener is set
+                        if (notificationListener != null) {
+                            notificationListener.onNewMessage(messageData);
+                        }
+                    } finally {
+                        EventTrace.end(EventTrace.RECEIVE, traceStart, messageData.optString("id", null));
                     }
                 } catch (Exception e) {
                     Log.e(TAG, "Error parsing new message", e);
@@ -217,7 +224,7 @@ public class SocketManager {
             if (args.length > 0) {
                 try {
                     JSONObject messageData = (JSONObject) args[0];
-                    Log.d(TAG, "✏️ Message updated: " + messageData.toString());
+                    if (AppLog.VERBOSE) Log.d(TAG, "✏️ Message updated: " + messageData.toString());
 
                     for (OnMessageListener listener : messageListeners) {
                          try {
@@ -245,7 +252,7 @@ public class SocketManager {
             if (args.length > 0) {
                 try {
                     JSONObject messageData = (JSONObject) args[0];
-                    Log.d(TAG, "🗑️ Message deleted: " + messageData.toString());
+                    if (AppLog.VERBOSE) Log.d(TAG, "🗑️ Message deleted: " + messageData.toString());
 
                     if (messageListener != null) {
                         messageListener.onMessageDeleted(messageData);
@@ -258,14 +265,14 @@ public class SocketManager {
 
         // Reaction updated event
         socket.on("reaction_updated", args -> {
-            Log.d(TAG, "📩 reaction_updated event received! Args length: " + args.length);
+            if (AppLog.DEBUG) Log.d(TAG, "📩 reaction_updated event received! Args length: " + args.length);
             if (args.length > 0) {
                 try {
                     JSONObject reactionData = (JSONObject) args[0];
-                    Log.d(TAG, "❤️ Reaction updated: " + reactionData.toString());
+                    if (AppLog.VERBOSE) Log.d(TAG, "❤️ Reaction updated: " + reactionData.toString());
 
                     if (reactionListener != null) {
-                        Log.d(TAG, "✅ reactionListener is set, processing...");
+                        if (AppLog.DEBUG) Log.d(TAG, "✅ reactionListener is set, processing...");
                         String conversationId = reactionData.optString("conversationId");
                         String messageId = reactionData.optString("messageId");
                         String userId = reactionData.optString("userId");
@@ -313,7 +320,7 @@ public class SocketManager {
                             }
                         }
 
-                        Log.d(TAG, "📤 Calling reactionListener.onReactionUpdated()");
+                        if (AppLog.DEBUG) Log.d(TAG, "📤 Calling reactionListener.onReactionUpdated()");
                         reactionListener.onReactionUpdated(conversationId, messageId, userId, reactionType, 
                                 reactions, reactionsDetailed, reactionCounts);
                     } else {
@@ -338,7 +345,7 @@ public class SocketManager {
             if (args.length > 0) {
                 try {
                     JSONObject readData = (JSONObject) args[0];
-                    Log.d(TAG, "👁️ Message read: " + readData.toString());
+                    if (AppLog.VERBOSE) Log.d(TAG, "👁️ Message read: " + readData.toString());
 
                     if (seenListener != null) {
                         String conversationId = readData.optString("conversationId");
@@ -361,7 +368,7 @@ public class SocketManager {
                     String userId = typingData.getString("userId");
                     boolean isTyping = typingData.getBoolean("isTyping");
 
-                    Log.d(TAG, "⌨️ User typing: " + userId + " = " + isTyping);
+                    if (AppLog.DEBUG) Log.d(TAG, "⌨️ User typing: " + userId + " = " + isTyping);
 
                     if (typingListener != null) {
                         typingListener.onUserTyping(userId, isTyping);
@@ -379,7 +386,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String conversationId = data.getString("conversationId");
 
-                    Log.d(TAG, "🚪 Group left event for conversation " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "🚪 Group left event for conversation " + conversationId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onGroupLeft(conversationId);
@@ -399,7 +406,7 @@ public class SocketManager {
                     String userId = data.getString("userId");
                     String userName = data.optString("userName", "Unknown");
 
-                    Log.d(TAG, "👥 Member " + userName + " left conversation " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "👥 Member " + userName + " left conversation " + conversationId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onMemberLeft(conversationId, userId, userName);
@@ -417,7 +424,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String conversationId = data.getString("conversationId");
 
-                    Log.d(TAG, "➕ New conversation created: " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "➕ New conversation created: " + conversationId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onConversationCreated(conversationId);
@@ -435,7 +442,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String conversationId = data.getString("conversationId");
 
-                    Log.d(TAG, "🔄 Conversation updated: " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "🔄 Conversation updated: " + conversationId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onConversationUpdated(conversationId);
@@ -453,7 +460,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String conversationId = data.getString("conversationId");
 
-                    Log.d(TAG, "🗑️ Conversation deleted: " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "🗑️ Conversation deleted: " + conversationId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onConversationDeleted(conversationId);
@@ -496,7 +503,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String userId = data.getString("userId");
 
-                    Log.d(TAG, "✅ Friend request accepted by: " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "✅ Friend request accepted by: " + userId);
 
                     for (OnFriendEventListener listener : friendEventListeners) {
                         listener.onFriendRequestAccepted(userId);
@@ -540,7 +547,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String userId = data.getString("userId");
 
-                    Log.d(TAG, "👥 New friend added: " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "👥 New friend added: " + userId);
 
                     for (OnFriendEventListener listener : friendEventListeners) {
                         listener.onFriendAdded(userId);
@@ -558,7 +565,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String userId = data.getString("userId");
 
-                    Log.d(TAG, "👋 Friend removed: " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "👋 Friend removed: " + userId);
 
                     for (OnFriendEventListener listener : friendEventListeners) {
                         listener.onFriendRemoved(userId);
@@ -576,7 +583,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String senderId = data.getString("senderId");
 
-                    Log.d(TAG, "🔔 Friend request cancelled by sender: " + senderId);
+                    if (AppLog.DEBUG) Log.d(TAG, "🔔 Friend request cancelled by sender: " + senderId);
 
                     for (OnFriendEventListener listener : friendEventListeners) {
                         listener.onFriendRequestCancelled(senderId);
@@ -595,7 +602,7 @@ public class SocketManager {
                     String friendId = data.getString("friendId");
                     boolean isOnline = data.getBoolean("isOnline");
 
-                    Log.d(TAG, "🟢 Friend status changed: " + friendId + " isOnline: " + isOnline);
+                    if (AppLog.DEBUG) Log.d(TAG, "🟢 Friend status changed: " + friendId + " isOnline: " + isOnline);
 
                     for (OnFriendEventListener listener : friendEventListeners) {
                         listener.onFriendStatusChanged(friendId, isOnline);
@@ -615,7 +622,7 @@ public class SocketManager {
                     JSONObject data = (JSONObject) args[0];
                     String conversationId = data.getString("conversationId");
 
-                    Log.d(TAG, "🔄 Conversation updated: " + conversationId);
+                    if (AppLog.DEBUG) Log.d(TAG, "🔄 Conversation updated: " + conversationId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onConversationUpdated(conversationId);
@@ -635,7 +642,7 @@ public class SocketManager {
                     String userId = data.getString("userId");
                     String addedBy = data.getString("addedBy");
 
-                    Log.d(TAG, "➕ Member added to " + conversationId + ": " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "➕ Member added to " + conversationId + ": " + userId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onMemberAdded(conversationId, userId, addedBy);
@@ -655,7 +662,7 @@ public class SocketManager {
                     String userId = data.getString("userId");
                     String removedBy = data.getString("removedBy");
 
-                    Log.d(TAG, "➖ Member removed from " + conversationId + ": " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "➖ Member removed from " + conversationId + ": " + userId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onMemberRemoved(conversationId, userId, removedBy);
@@ -674,7 +681,7 @@ public class SocketManager {
                     String conversationId = data.getString("conversationId");
                     String userId = data.getString("userId");
 
-                    Log.d(TAG, "🚪 Member left " + conversationId + ": " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "🚪 Member left " + conversationId + ": " + userId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onMemberLeft(conversationId, userId, "");
@@ -695,7 +702,7 @@ public class SocketManager {
                     String action = data.getString("action"); // "add" or "remove"
                     String updatedBy = data.getString("updatedBy");
 
-                    Log.d(TAG, "👑 Admin " + action + " in " + conversationId + ": " + userId);
+                    if (AppLog.DEBUG) Log.d(TAG, "👑 Admin " + action + " in " + conversationId + ": " + userId);
 
                     if (groupEventListener != null) {
                         groupEventListener.onAdminUpdated(conversationId, userId, action, updatedBy);
@@ -705,13 +712,14 @@ public class SocketManager {
                 }
             }
         });
+
     }
 
     /**
      * Join a conversation room
      */
     public void joinConversation(String conversationId) {
-        Log.d(TAG, "🚪 joinConversation called: " + conversationId + ", socket=" + (socket != null) + ", isConnected=" + isConnected);
+        if (AppLog.DEBUG) Log.d(TAG, "🚪 joinConversation called: " + conversationId + ", socket=" + (socket != null) + ", isConnected=" + isConnected);
         
         if (socket == null) {
             Log.w(TAG, "Cannot join room - socket is null");
@@ -727,7 +735,7 @@ public class SocketManager {
 
         socket.emit("join_conversation", conversationId);
         currentConversationRoom = conversationId; // Track for auto-rejoin on reconnect
-        Log.d(TAG, "✅ Emitted join_conversation for room: " + conversationId);
+        if (AppLog.DEBUG) Log.d(TAG, "✅ Emitted join_conversation for room: " + conversationId);
         pendingConversationJoin = null;
     }
 
@@ -739,13 +747,13 @@ public class SocketManager {
      */
     private void onSocketConnected() {
         if (pendingConversationJoin != null) {
-            Log.d(TAG, "🔄 Joining pending conversation after connect: " + pendingConversationJoin);
+            if (AppLog.DEBUG) Log.d(TAG, "🔄 Joining pending conversation after connect: " + pendingConversationJoin);
             socket.emit("join_conversation", pendingConversationJoin);
             currentConversationRoom = pendingConversationJoin;
             pendingConversationJoin = null;
         } else if (currentConversationRoom != null) {
             // Auto-rejoin current room on reconnect
-            Log.d(TAG, "🔄 Auto-rejoining conversation after reconnect: " + currentConversationRoom);
+            if (AppLog.DEBUG) Log.d(TAG, "🔄 Auto-rejoining conversation after reconnect: " + currentConversationRoom);
             socket.emit("join_conversation", currentConversationRoom);
         }
     }
@@ -764,7 +772,7 @@ public class SocketManager {
         if (conversationId != null && conversationId.equals(currentConversationRoom)) {
             currentConversationRoom = null;
         }
-        Log.d(TAG, "Left conversation: " + conversationId);
+        if (AppLog.DEBUG) Log.d(TAG, "Left conversation: " + conversationId);
     }
 
     /**
@@ -796,7 +804,7 @@ public class SocketManager {
             socket.off();
             socket = null;
             isConnected = false;
-            Log.d(TAG, "Disconnected from WebSocket");
+            if (AppLog.DEBUG) Log.d(TAG, "Disconnected from WebSocket");
         }
     }
 
@@ -885,7 +893,7 @@ public class SocketManager {
      */
     public void triggerConversationCreated(String conversationId) {
         if (groupEventListener != null) {
-            Log.d(TAG, "Manually triggering conversation_created for: " + conversationId);
+            if (AppLog.DEBUG) Log.d(TAG, "Manually triggering conversation_created for: " + conversationId);
             groupEventListener.onConversationCreated(conversationId);
         }
     }
@@ -895,7 +903,7 @@ public class SocketManager {
      */
     public void triggerConversationUpdated(String conversationId) {
         if (groupEventListener != null) {
-            Log.d(TAG, "Manually triggering conversation_updated for: " + conversationId);
+            if (AppLog.DEBUG) Log.d(TAG, "Manually triggering conversation_updated for: " + conversationId);
             groupEventListener.onConversationUpdated(conversationId);
         }
     }
@@ -0,0 +1,38 @@
+package com.example.doan_zaloclone.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Geohash keys of the geocoding cache
+ */
+public class GeocodingServiceTest {
+    @Test
+    public void geohash_matchesReferenceValues() {
+        assertEquals("u4pruydqqvj", GeocodingService.geohash(57.64911, 10.40744, 11));
+        assertEquals("ezs42", GeocodingService.geohash(42.6, -5.6, 5));
+        assertEquals("w3gvk1c", GeocodingService.geohash(10.7769, 106.7009, 7));
+    }
+
+    @Test
+    public void geohash_hasRequestedPrecision() {
+        assertEquals(7, GeocodingService.geohash(21.0285, 105.8542, 7).length());
+        assertEquals(1, GeocodingService.geohash(0, 0, 1).length());
+    }
+
+    @Test
+    public void geohash_nearbyPointsShareACell() {
+        // About 20 m apart, well inside one precision 7 cell (~150 m)
+        assertEquals(GeocodingService.geohash(10.77690, 106.70090, 7),
+                GeocodingService.geohash(10.77700, 106.70100, 7));
+        assertNotEquals(GeocodingService.geohash(10.7769, 106.7009, 7),
+                GeocodingService.geohash(10.7869, 106.7009, 7));
+    }
+
+    @Test
+    public void geohash_handlesBounds() {
+        assertEquals("00000", GeocodingService.geohash(-90, -180, 5));
+        assertEquals("zzzzz", GeocodingService.geohash(90, 180, 5));
+    }
+}
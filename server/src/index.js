@@ -16,6 +16,7 @@ const callRoutes = require('./routes/calls');
 const friendRoutes = require('./routes/friends');
 const stickerRoutes = require('./routes/stickers');
 const messageRoutes = require('./routes/messages');
+const push = require('./services/push');
 
 const app = express();
 const server = http.createServer(app);
@@ -116,6 +117,9 @@ app.use((err, req, res, next) => {
   });
 });
 
+// Wake receivers of new calls that are in push delivery mode
+push.watchIncomingCalls();
+
 // Start server
 const PORT = process.env.PORT || 3000;
 server.listen(PORT, () => {
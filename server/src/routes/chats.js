@@ -2,6 +2,8 @@ const express = require('express');
 const router = express.Router();
 const { authenticateUser, db } = require('../middleware/auth');
 const { broadcastMessage } = require('../websocket');
+const mediaIndex = require('../services/mediaIndex');
+const push = require('../services/push');
 
 router.get('/:conversationId/messages', authenticateUser, async (req, res) => {
   try {
@@ -56,7 +58,15 @@ router.post('/:conversationId/messages', authenticateUser, async (req, res) => {
       isStickerAnimated,
       // Voice message
       voiceUrl,
-      voiceDuration
+      voiceDuration,
+      voicePeaks,
+      // Video poster and metadata
+      thumbnailUrl,
+      videoDuration,
+      videoWidth,
+      videoHeight,
+      videoCodec,
+      uploading
     } = req.body;
     
     // Log incoming request for debugging
@@ -79,6 +89,16 @@ router.post('/:conversationId/messages', authenticateUser, async (req, res) => {
     if (fileSize) message.fileSize = fileSize;
     if (fileMimeType) message.fileMimeType = fileMimeType;
     
+    // Video poster; an uploading message gets its content through PUT /api/messages/:id (attach)
+    if (thumbnailUrl) message.thumbnailUrl = thumbnailUrl;
+    if (videoDuration) message.videoDuration = videoDuration;
+    if (videoWidth && videoHeight) {
+      message.videoWidth = videoWidth;
+      message.videoHeight = videoHeight;
+    }
+    if (videoCodec) message.videoCodec = videoCodec;
+    if (uploading) message.uploading = true;
+    
     // Reply fields
     if (replyToId) {
       message.replyToId = replyToId;
@@ -120,6 +140,7 @@ router.post('/:conversationId/messages', authenticateUser, async (req, res) => {
     if (voiceUrl) {
       message.voiceUrl = voiceUrl;
       if (voiceDuration !== undefined) message.voiceDuration = voiceDuration;
+      if (voicePeaks) message.voicePeaks = voicePeaks;
       console.log(`🎤 [VOICE] Voice message - URL: ${voiceUrl}, Duration: ${voiceDuration}`);
     }
     
@@ -128,6 +149,11 @@ router.post('/:conversationId/messages', authenticateUser, async (req, res) => {
     
     const messageRef = await db.collection('conversations').doc(conversationId)
       .collection('messages').add(message);
+
+    // Keep the "Files & media" index in step (not awaited; failures are logged)
+    mediaIndex.indexMessage(conversationId, messageRef.id, message);
+    // Wake members whose app is in push delivery mode
+    push.notifyNewMessage(conversationId, messageRef.id, message);
     
     await db.collection('conversations').doc(conversationId).update({
       lastMessage: content || `[${type}]`,
@@ -216,6 +242,7 @@ router.post('/:conversationId/messages/:messageId/recall', authenticateUser, asy
       isRecalled: true,
       content: 'Tin nhắn đã bị thu hồi'
     });
+    mediaIndex.removeMessage(conversationId, messageId);
     
     // Get updated message
     const updatedDoc = await messageRef.get();
@@ -1,6 +1,7 @@
 const express = require('express');
 const router = express.Router();
 const { authenticateUser, db } = require('../middleware/auth');
+const mediaIndex = require('../services/mediaIndex');
 
 // DEBUG: Get all conversations (no filter) to check structure
 router.get('/debug/all', authenticateUser, async (req, res) => {
@@ -24,9 +25,21 @@ router.get('/debug/all', authenticateUser, async (req, res) => {
   }
 });
 
+/**
+ * Full-precision sync token for a Firestore Timestamp
+ * Commit times are microsecond-precise; millisecond tokens made two writes in the same
+ * millisecond compare equal, so the second one was never sent as a delta.
+ */
+function toMicros(timestamp) {
+  return timestamp.seconds * 1000000 + Math.floor(timestamp.nanoseconds / 1000);
+}
+
 router.get('/', authenticateUser, async (req, res) => {
   try {
     console.log('📋 Fetching conversations for user:', req.user.uid);
+    // Sync token from a previous response: only conversations written after it are returned
+    // (Number is exact for it: microseconds since epoch stay far below 2^53)
+    const since = parseInt(req.query.since, 10) || 0;
     
     // Try with orderBy first (requires Firestore composite index)
     let snapshot;
@@ -49,7 +62,14 @@ router.get('/', authenticateUser, async (req, res) => {
     console.log('📊 Found', snapshot.size, 'conversations');
     
     const conversations = [];
+    const updateTimes = {};
+    let syncToken = since;
     snapshot.forEach(doc => {
+      // Firestore bumps updateTime on every write (messages, unread counts, pins, tags, members...)
+      const updateTime = doc.updateTime ? toMicros(doc.updateTime) : Date.now() * 1000;
+      updateTimes[doc.id] = updateTime;
+      syncToken = Math.max(syncToken, updateTime);
+
       const data = doc.data();
       console.log('  - Conversation', doc.id, '- memberIds:', data.memberIds, '- unreadCounts:', JSON.stringify(data.unreadCounts));
       
@@ -72,8 +92,20 @@ router.get('/', authenticateUser, async (req, res) => {
     // Sort in memory if we didn't use orderBy
     conversations.sort((a, b) => (b.lastMessageTime || 0) - (a.lastMessageTime || 0));
     
+    if (since > 0) {
+      // Delta: changed conversations plus the current order; ids missing from the list were removed
+      const changed = conversations.filter(c => updateTimes[c.id] > since);
+      console.log('✅ Returning', changed.length, 'of', conversations.length, 'conversations (delta)');
+      return res.json({
+        conversations: changed,
+        ids: conversations.map(c => c.id),
+        syncToken,
+        delta: true
+      });
+    }
+
     console.log('✅ Returning', conversations.length, 'conversations');
-    res.json({ conversations });
+    res.json({ conversations, ids: conversations.map(c => c.id), syncToken, delta: false });
   } catch (error) {
     console.error('❌ Error fetching conversations:', error);
     res.status(500).json({ error: error.message });
@@ -1184,6 +1216,33 @@ router.get('/:conversationId/messages/search', authenticateUser, async (req, res
   }
 });
 
+/**
+ * POST /api/conversations/:conversationId/media/index - Build the "Files & media" index
+ * No-op once built; new messages are indexed as they are sent. Clients then read
+ * conversations/{id}/media directly, filtered and paged by precomputed fields.
+ */
+router.post('/:conversationId/media/index', authenticateUser, async (req, res) => {
+  try {
+    const { conversationId } = req.params;
+
+    const conversationDoc = await db.collection('conversations').doc(conversationId).get();
+    if (!conversationDoc.exists) {
+      return res.status(404).json({ error: 'Conversation not found' });
+    }
+
+    const conversationData = conversationDoc.data();
+    if (!conversationData.memberIds || !conversationData.memberIds.includes(req.user.uid)) {
+      return res.status(403).json({ error: 'Not a member of this conversation' });
+    }
+
+    const backfilled = await mediaIndex.ensureIndexed(conversationId);
+    res.json({ success: true, backfilled });
+  } catch (error) {
+    console.error('❌ Error indexing media:', error);
+    res.status(500).json({ error: error.message });
+  }
+});
+
 /**
  * GET /api/conversations/filter - Filter conversations by type/status
  * Phase 3F: Search & Filter
@@ -1,6 +1,7 @@
 const express = require('express');
 const router = express.Router();
 const { authenticateUser, db, admin } = require('../middleware/auth');
+const push = require('../services/push');
 
 router.get('/', authenticateUser, async (req, res) => {
   try {
@@ -131,6 +132,8 @@ router.post('/requests', authenticateUser, async (req, res) => {
       });
     }
     
+    push.notifyFriendRequest(receiverId, requestRef.id, req.user.uid, fromUserName);
+
     console.log(`📤 Friend request sent from ${fromUserName} to ${receiverId}`);
     res.json({ success: true, requestId: requestRef.id });
   } catch (error) {
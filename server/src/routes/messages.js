@@ -1,6 +1,8 @@
 const express = require('express');
 const router = express.Router();
 const { authenticateUser, db, admin } = require('../middleware/auth');
+const mediaIndex = require('../services/mediaIndex');
+const push = require('../services/push');
 
 /**
  * POST /api/messages - Send a new message
@@ -20,7 +22,8 @@ router.post('/', authenticateUser, async (req, res) => {
       latitude, longitude, locationName, locationAddress,
       liveLocationSessionId,
       stickerId, stickerPackId, stickerUrl, isStickerAnimated,
-      voiceUrl, voiceDuration,
+      voiceUrl, voiceDuration, voicePeaks,
+      thumbnailUrl, videoDuration, videoWidth, videoHeight, videoCodec, uploading,
       pollData
     } = req.body;
     
@@ -104,6 +107,15 @@ router.post('/', authenticateUser, async (req, res) => {
     // Voice
     addIfPresent('voiceUrl', voiceUrl);
     addIfPresent('voiceDuration', voiceDuration);
+    addIfPresent('voicePeaks', voicePeaks);
+
+    // Video poster and metadata
+    addIfPresent('thumbnailUrl', thumbnailUrl);
+    addIfPresent('videoDuration', videoDuration);
+    addIfPresent('videoWidth', videoWidth);
+    addIfPresent('videoHeight', videoHeight);
+    addIfPresent('videoCodec', videoCodec);
+    if (uploading) message.uploading = true;
 
     // Poll
     addIfPresent('pollData', pollData);
@@ -118,6 +130,11 @@ router.post('/', authenticateUser, async (req, res) => {
       .add(message);
     
     console.log(`✅ Message created with ID: ${messageRef.id}`);
+
+    // Keep the "Files & media" index in step (not awaited; failures are logged)
+    mediaIndex.indexMessage(conversationId, messageRef.id, message);
+    // Wake members whose app is in push delivery mode
+    push.notifyNewMessage(conversationId, messageRef.id, message);
     
     // Update conversation lastMessage and timestamp
     await db.collection('conversations').doc(conversationId).update({
@@ -220,6 +237,7 @@ router.delete('/:messageId', authenticateUser, async (req, res) => {
     // Delete message
     await messageDoc.ref.delete();
     console.log(`✅ Message ${messageId} deleted`);
+    mediaIndex.removeMessage(conversationId, messageId);
     
     // Emit WebSocket event
     const io = req.app.get('io');
@@ -244,7 +262,7 @@ router.delete('/:messageId', authenticateUser, async (req, res) => {
 router.put('/:messageId', authenticateUser, async (req, res) => {
   try {
     const { messageId } = req.params;
-    const { conversationId, action, content } = req.body;
+    const { conversationId, action, content, fileName, fileSize, fileMimeType, videoCodec } = req.body;
     
     if (!conversationId || !action) {
       return res.status(400).json({ error: 'Missing required fields: conversationId, action' });
@@ -287,18 +305,41 @@ router.put('/:messageId', authenticateUser, async (req, res) => {
         editedAt: Date.now()
       };
       console.log(`✏️ Editing message ${messageId}`);
+    } else if (action === 'attach') {
+      // The uploaded file of a message that was sent ahead of it (video poster first)
+      if (!content) {
+        return res.status(400).json({ error: 'Content required for attach action' });
+      }
+      if (!messageData.uploading) {
+        return res.status(409).json({ error: 'Message is not waiting for an upload' });
+      }
+      updates = {
+        content,
+        uploading: false
+      };
+      if (fileName) updates.fileName = fileName;
+      if (fileSize) updates.fileSize = fileSize;
+      if (fileMimeType) updates.fileMimeType = fileMimeType;
+      if (videoCodec) updates.videoCodec = videoCodec;
+      console.log(`📎 Attaching upload to message ${messageId}`);
     } else {
-      return res.status(400).json({ error: 'Invalid action. Must be "recall" or "edit"' });
+      return res.status(400).json({ error: 'Invalid action. Must be "recall", "edit" or "attach"' });
     }
     
     await messageRef.update(updates);
     console.log(`✅ Message ${messageId} updated`);
+    if (action === 'recall') {
+      mediaIndex.removeMessage(conversationId, messageId);
+    } else {
+      mediaIndex.indexMessage(conversationId, messageId, { ...messageData, ...updates });
+    }
     
     // Emit WebSocket event
     const io = req.app.get('io');
     if (io) {
       console.log(`📡 Emitting message_updated to conversation:${conversationId}`);
       io.to(`conversation:${conversationId}`).emit('message_updated', {
+        id: messageId, // Client looks for 'id' to find the message in cache
         messageId,
         conversationId,
         ...updates
@@ -126,6 +126,55 @@ router.get('/packs/:packId', optionalAuth, async (req, res) => {
   }
 });
 
+// Pack version used by bundle manifests (bumped whenever stickers are added/removed)
+function packVersion(data) {
+  return data.updatedAt || data.createdAt || 0;
+}
+
+/**
+ * Get pack bundle manifest with delta sync
+ * GET /api/stickers/packs/:packId/bundle?since=<version>
+ * Returns only stickers changed after `since`, plus the full list of sticker IDs
+ * so clients can drop removed stickers from their local copy.
+ */
+router.get('/packs/:packId/bundle', optionalAuth, async (req, res) => {
+  try {
+    const { packId } = req.params;
+    const since = parseInt(req.query.since, 10) || 0;
+
+    const packDoc = await db.collection('stickerPacks').doc(packId).get();
+    if (!packDoc.exists) return res.status(404).json({ error: 'Not found' });
+
+    const packData = packDoc.data();
+    const version = packVersion(packData);
+    if (since > 0 && since === version) {
+      return res.json({ packId, version, unchanged: true });
+    }
+
+    const stickersSnapshot = await db.collection('stickerPacks')
+      .doc(packId).collection('stickers').get();
+    const all = [];
+    stickersSnapshot.forEach(doc => all.push({ id: doc.id, ...doc.data() }));
+    all.sort((a, b) => (a.createdAt || 0) - (b.createdAt || 0));
+
+    const full = since === 0;
+    const stickers = full
+      ? all
+      : all.filter(s => (s.updatedAt || s.createdAt || 0) > since);
+
+    res.json({
+      packId,
+      version,
+      full,
+      pack: { id: packDoc.id, ...packData },
+      stickers,
+      stickerIds: all.map(s => s.id)
+    });
+  } catch (error) {
+    res.status(500).json({ error: error.message });
+  }
+});
+
 // Create pack (admin only)
 router.post('/packs', authenticateUser, requireAdmin, async (req, res) => {
   try {
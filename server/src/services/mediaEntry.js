@@ -0,0 +1,89 @@
+/**
+ * Index entries for the "Files & media" screen, built from a message
+ * Kept free of Firestore so it can be unit tested (test/mediaEntry.test.js).
+ */
+
+const URL_PATTERN = /(https?:\/\/[^\s]+)/i;
+
+/**
+ * Domain of a URL, lower-cased, without www. or port (same rules as FileItem.getDomain)
+ */
+function extractDomain(url) {
+  let domain = url.replace(/^https?:\/\//i, '').replace(/^www\./i, '');
+  const slash = domain.indexOf('/');
+  if (slash > 0) domain = domain.substring(0, slash);
+  const colon = domain.indexOf(':');
+  if (colon > 0) domain = domain.substring(0, colon);
+  return domain.toLowerCase();
+}
+
+function classifyFileType(mimeType, fileName) {
+  const mime = (mimeType || '').toLowerCase();
+  const name = (fileName || '').toLowerCase();
+  const ext = name.includes('.') ? name.substring(name.lastIndexOf('.') + 1) : '';
+
+  if (mime.includes('pdf') || ext === 'pdf') return 'PDF';
+  if (mime.includes('word') || mime.includes('officedocument.wordprocessing') ||
+      ext === 'doc' || ext === 'docx') return 'WORD';
+  if (mime.includes('excel') || mime.includes('spreadsheet') ||
+      ext === 'xls' || ext === 'xlsx') return 'EXCEL';
+  if (mime.includes('powerpoint') || mime.includes('presentation') ||
+      ext === 'ppt' || ext === 'pptx') return 'POWERPOINT';
+  if (mime.includes('zip') || mime.includes('rar') || mime.includes('compress') ||
+      mime.includes('archive') || ['zip', 'rar', '7z', 'tar', 'gz'].includes(ext)) return 'ARCHIVE';
+  return 'OTHER';
+}
+
+/**
+ * Index entry for a message, or null if it does not belong in "Files & media"
+ */
+function buildEntry(messageId, message) {
+  // Videos sent ahead of their upload are indexed once the file is attached
+  if (!message || message.isRecalled || message.uploading) return null;
+
+  const type = message.type;
+  const mimeType = message.fileMimeType || null;
+  const entry = {
+    messageId,
+    type,
+    content: message.content || '',
+    senderId: message.senderId || null,
+    senderName: message.senderName || null,
+    timestamp: message.timestamp || 0,
+    fileName: message.fileName || null,
+    fileSize: message.fileSize || 0,
+    fileMimeType: mimeType,
+    thumbnailUrl: message.thumbnailUrl || null,
+    mediaType: null,
+    fileType: null,
+    url: null,
+    domain: null
+  };
+
+  if (type === 'IMAGE' || (type === 'FILE' && mimeType &&
+      (mimeType.startsWith('image/') || mimeType.startsWith('video/')))) {
+    entry.category = 'MEDIA';
+    entry.mediaType = mimeType && mimeType.startsWith('video/') ? 'VIDEO' : 'IMAGE';
+  } else if (type === 'FILE') {
+    entry.category = 'FILES';
+    entry.fileType = classifyFileType(mimeType, message.fileName);
+  } else if (type === 'TEXT') {
+    const match = URL_PATTERN.exec(message.content || '');
+    if (!match) return null;
+    entry.category = 'LINKS';
+    entry.url = match[1];
+    entry.domain = extractDomain(match[1]);
+  } else {
+    return null;
+  }
+
+  const displayName = entry.category === 'LINKS' ? entry.domain : entry.fileName;
+  entry.nameLower = (displayName || '').toLowerCase();
+  return entry;
+}
+
+module.exports = {
+  extractDomain,
+  classifyFileType,
+  buildEntry
+};
@@ -0,0 +1,172 @@
+const { db, admin } = require('../middleware/auth');
+const { buildEntry } = require('./mediaEntry');
+
+/**
+ * Per-conversation media/file/link index
+ *
+ * conversations/{id}/media/{messageId} holds one entry per image, video, file or
+ * URL-bearing text, with the fields the "Files & media" filters need precomputed
+ * (category, mediaType, fileType, domain, nameLower). conversations/{id}/mediaMeta/facets
+ * keeps per-sender and per-domain counts for the filter dialogs.
+ * Entries are written as messages are sent, edited, recalled or deleted; older
+ * conversations are backfilled once by ensureIndexed().
+ */
+
+const INDEX_VERSION = 1;
+// Two reads and up to one write per message, plus the facets doc, per transaction
+const BACKFILL_PAGE_SIZE = 200;
+
+// Conversations currently being backfilled, so concurrent requests share one pass
+const backfills = new Map();
+
+const mediaCollection = (conversationId) =>
+  db.collection('conversations').doc(conversationId).collection('media');
+
+const facetsDoc = (conversationId) =>
+  db.collection('conversations').doc(conversationId).collection('mediaMeta').doc('facets');
+
+/**
+ * Accumulate facet count changes for an entry; applied with addFacetUpdate
+ */
+function tallyFacets(tally, entry, delta) {
+  if (entry.senderId) {
+    const sender = tally.senders[entry.senderId] || (tally.senders[entry.senderId] = { count: 0 });
+    sender.count += delta;
+    if (delta > 0 && entry.senderName) sender.name = entry.senderName;
+  }
+  if (entry.domain) {
+    tally.domains[entry.domain] = (tally.domains[entry.domain] || 0) + delta;
+  }
+}
+
+const emptyTally = () => ({ senders: {}, domains: {} });
+
+/**
+ * Queue the tally as merged increments on the facets doc (within a transaction)
+ */
+function addFacetUpdate(transaction, conversationId, tally, extra = {}) {
+  const update = { ...extra };
+  const increment = (n) => admin.firestore.FieldValue.increment(n);
+  Object.entries(tally.senders).forEach(([senderId, sender]) => {
+    if (sender.count === 0 && !sender.name) return;
+    const value = { count: increment(sender.count) };
+    if (sender.name) value.name = sender.name;
+    (update.senders || (update.senders = {}))[senderId] = value;
+  });
+  Object.entries(tally.domains).forEach(([domain, count]) => {
+    if (count === 0) return;
+    (update.domains || (update.domains = {}))[domain] = increment(count);
+  });
+  if (Object.keys(update).length > 0) {
+    transaction.set(facetsDoc(conversationId), update, { merge: true });
+  }
+}
+
+/**
+ * Replace the entry of one message inside a transaction whose reads are done,
+ * counting the old entry out and the new one in
+ */
+function applyEntry(transaction, ref, previous, entry, tally) {
+  if (previous.exists) tallyFacets(tally, previous.data(), -1);
+  if (entry) {
+    transaction.set(ref, entry);
+    tallyFacets(tally, entry, 1);
+  } else if (previous.exists) {
+    transaction.delete(ref);
+  }
+}
+
+/**
+ * Add, update or drop the index entry for a message after it was written
+ * Entry and facet counts change in one transaction, so live updates and a running
+ * backfill never count the same message twice.
+ */
+async function indexMessage(conversationId, messageId, message) {
+  try {
+    const ref = mediaCollection(conversationId).doc(messageId);
+    const entry = buildEntry(messageId, message);
+    await db.runTransaction(async (transaction) => {
+      const previous = await transaction.get(ref);
+      const tally = emptyTally();
+      applyEntry(transaction, ref, previous, entry, tally);
+      addFacetUpdate(transaction, conversationId, tally);
+    });
+  } catch (error) {
+    console.error(`❌ [MEDIA_INDEX] Failed to index ${conversationId}/${messageId}:`, error);
+  }
+}
+
+/**
+ * Drop the index entry of a deleted or recalled message
+ */
+async function removeMessage(conversationId, messageId) {
+  return indexMessage(conversationId, messageId, null);
+}
+
+async function backfill(conversationId) {
+  const messages = db.collection('conversations').doc(conversationId).collection('messages');
+  let indexed = 0;
+  let cursor = null;
+
+  console.log(`🗂️ [MEDIA_INDEX] Backfilling conversation ${conversationId}`);
+  while (true) {
+    let query = messages.orderBy('timestamp').limit(BACKFILL_PAGE_SIZE);
+    if (cursor) query = query.startAfter(cursor);
+    const page = await query.get();
+    if (page.empty) break;
+
+    // Same delta rules as indexMessage: facets are only ever incremented, never overwritten,
+    // so messages indexed live while the backfill runs keep their counts
+    indexed += await db.runTransaction(async (transaction) => {
+      const messageRefs = page.docs.map(doc => doc.ref);
+      const mediaRefs = page.docs.map(doc => mediaCollection(conversationId).doc(doc.id));
+      const current = await transaction.getAll(...messageRefs);
+      const previous = await transaction.getAll(...mediaRefs);
+      const tally = emptyTally();
+      let count = 0;
+      current.forEach((doc, i) => {
+        const entry = doc.exists ? buildEntry(doc.id, doc.data()) : null;
+        applyEntry(transaction, mediaRefs[i], previous[i], entry, tally);
+        if (entry) count++;
+      });
+      addFacetUpdate(transaction, conversationId, tally);
+      return count;
+    });
+
+    cursor = page.docs[page.docs.length - 1];
+    if (page.size < BACKFILL_PAGE_SIZE) break;
+  }
+
+  await facetsDoc(conversationId).set({
+    indexVersion: INDEX_VERSION,
+    indexedAt: Date.now()
+  }, { merge: true });
+  console.log(`✅ [MEDIA_INDEX] Indexed ${indexed} items in ${conversationId}`);
+  return indexed;
+}
+
+/**
+ * Build the index for a conversation if it was never built (or built by an older version)
+ * @returns {Promise<boolean>} true if a backfill ran
+ */
+async function ensureIndexed(conversationId) {
+  const facets = await facetsDoc(conversationId).get();
+  if (facets.exists && facets.data().indexVersion >= INDEX_VERSION) {
+    return false;
+  }
+
+  let running = backfills.get(conversationId);
+  if (!running) {
+    running = backfill(conversationId).finally(() => backfills.delete(conversationId));
+    backfills.set(conversationId, running);
+  }
+  await running;
+  return true;
+}
+
+module.exports = {
+  buildEntry,
+  indexMessage,
+  removeMessage,
+  ensureIndexed
+};
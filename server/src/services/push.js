@@ -0,0 +1,138 @@
+const { db, admin } = require('../middleware/auth');
+
+/**
+ * Compact FCM data pushes for the app's push-wake delivery mode
+ *
+ * Payloads only say *that* something happened (conversation, message id, timestamp);
+ * the app wakes a short sync job and fetches the delta itself, so message content
+ * never goes through FCM. Tokens live in users/{uid}.devices (see FirestoreManager
+ * addDeviceToken); tokens starting with "local-" belong to the app's local stand-in
+ * transport and are skipped.
+ */
+
+const LOCAL_TOKEN_PREFIX = 'local-';
+const CALL_MAX_AGE_MS = 60 * 1000;
+const STALE_TOKEN_ERRORS = new Set([
+  'messaging/registration-token-not-registered',
+  'messaging/invalid-registration-token'
+]);
+
+async function getTokens(userId) {
+  const userDoc = await db.collection('users').doc(userId).get();
+  if (!userDoc.exists) return [];
+  const devices = userDoc.data().devices || {};
+  return Object.keys(devices).filter(token => devices[token] && !token.startsWith(LOCAL_TOKEN_PREFIX));
+}
+
+/**
+ * Send a data message to every registered device of a user
+ * @param {Object<string, string>} data - FCM data values must be strings
+ */
+async function sendToUser(userId, data, { collapseKey, ttlMs } = {}) {
+  try {
+    const tokens = await getTokens(userId);
+    if (tokens.length === 0) return;
+
+    const response = await admin.messaging().sendEachForMulticast({
+      tokens,
+      data,
+      android: {
+        priority: 'high',
+        collapseKey,
+        ttl: ttlMs
+      }
+    });
+
+    // Forget tokens of uninstalled apps
+    const stale = {};
+    response.responses.forEach((result, i) => {
+      if (!result.success && result.error && STALE_TOKEN_ERRORS.has(result.error.code)) {
+        stale['devices.' + tokens[i]] = admin.firestore.FieldValue.delete();
+      }
+    });
+    if (Object.keys(stale).length > 0) {
+      await db.collection('users').doc(userId).update(stale);
+    }
+  } catch (error) {
+    console.error(`❌ [PUSH] Failed to push to ${userId}:`, error.message);
+  }
+}
+
+/**
+ * Wake the other members of a conversation after a new message
+ * Pushes for one conversation collapse, since the app fetches everything newer anyway.
+ */
+async function notifyNewMessage(conversationId, messageId, message) {
+  try {
+    const convDoc = await db.collection('conversations').doc(conversationId).get();
+    if (!convDoc.exists) return;
+    const data = convDoc.data();
+    const members = data.memberIds || data.participantIds || [];
+
+    const payload = {
+      type: 'message',
+      conversationId,
+      messageId,
+      senderId: message.senderId || '',
+      timestamp: String(message.timestamp || Date.now())
+    };
+    await Promise.all(members
+      .filter(memberId => memberId !== message.senderId)
+      .map(memberId => sendToUser(memberId, payload, { collapseKey: conversationId })));
+  } catch (error) {
+    console.error('❌ [PUSH] Failed to notify new message:', error.message);
+  }
+}
+
+async function notifyFriendRequest(receiverId, requestId, senderId, senderName) {
+  await sendToUser(receiverId, {
+    type: 'friend_request',
+    requestId,
+    senderId,
+    senderName: senderName || ''
+  });
+}
+
+/**
+ * Calls are created by the apps directly in Firestore, so watch for new ringing calls
+ * and wake the receiver (its socket and Firestore listeners may be closed)
+ */
+function watchIncomingCalls() {
+  return db.collection('calls')
+    .where('status', 'in', ['CALLING', 'RINGING'])
+    .onSnapshot(snapshot => {
+      snapshot.docChanges().forEach(async change => {
+        if (change.type !== 'added') return;
+        const call = change.doc.data();
+        // Restarting the server replays every open call as "added"
+        if (!call.receiverId || Date.now() - (call.startTime || 0) > CALL_MAX_AGE_MS) return;
+
+        let callerName = '';
+        try {
+          const callerDoc = await db.collection('users').doc(call.callerId).get();
+          if (callerDoc.exists) callerName = callerDoc.data().name || '';
+        } catch (e) {
+          console.error('❌ [PUSH] Failed to load caller name:', e.message);
+        }
+
+        await sendToUser(call.receiverId, {
+          type: 'call',
+          callId: change.doc.id,
+          callerId: call.callerId || '',
+          callerName,
+          conversationId: call.conversationId || '',
+          callType: call.type || 'VOICE',
+          startTime: String(call.startTime || Date.now())
+        }, { ttlMs: CALL_MAX_AGE_MS });
+      });
+    }, error => {
+      console.error('❌ [PUSH] Incoming call watcher failed:', error.message);
+    });
+}
+
+module.exports = {
+  sendToUser,
+  notifyNewMessage,
+  notifyFriendRequest,
+  watchIncomingCalls
+};
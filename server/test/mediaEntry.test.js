@@ -0,0 +1,49 @@
+const test = require('node:test');
+const assert = require('node:assert');
+const { extractDomain, buildEntry } = require('../src/services/mediaEntry');
+
+test('extractDomain strips scheme, www., path and port', () => {
+  assert.strictEqual(extractDomain('https://www.Example.com/a/b?c=1'), 'example.com');
+  assert.strictEqual(extractDomain('http://sub.example.com:8080/x'), 'sub.example.com');
+  assert.strictEqual(extractDomain('HTTPS://example.com'), 'example.com');
+});
+
+test('buildEntry indexes images and video files as MEDIA', () => {
+  const image = buildEntry('m1', { type: 'IMAGE', senderId: 'u1', timestamp: 5 });
+  assert.strictEqual(image.category, 'MEDIA');
+  assert.strictEqual(image.mediaType, 'IMAGE');
+  assert.strictEqual(image.timestamp, 5);
+
+  const video = buildEntry('m2', { type: 'FILE', fileMimeType: 'video/mp4', fileName: 'Clip.MP4' });
+  assert.strictEqual(video.category, 'MEDIA');
+  assert.strictEqual(video.mediaType, 'VIDEO');
+  assert.strictEqual(video.nameLower, 'clip.mp4');
+});
+
+test('buildEntry classifies files by mime type or extension', () => {
+  const pdf = buildEntry('m1', { type: 'FILE', fileMimeType: 'application/pdf', fileName: 'a.bin' });
+  assert.strictEqual(pdf.category, 'FILES');
+  assert.strictEqual(pdf.fileType, 'PDF');
+
+  const docx = buildEntry('m2', { type: 'FILE', fileName: 'Report.docx' });
+  assert.strictEqual(docx.fileType, 'WORD');
+
+  const other = buildEntry('m3', { type: 'FILE', fileName: 'notes' });
+  assert.strictEqual(other.fileType, 'OTHER');
+});
+
+test('buildEntry keeps the first URL of a text message as a LINK', () => {
+  const entry = buildEntry('m1', { type: 'TEXT', content: 'xem https://www.YouTube.com/watch?v=1 nhé' });
+  assert.strictEqual(entry.category, 'LINKS');
+  assert.strictEqual(entry.url, 'https://www.YouTube.com/watch?v=1');
+  assert.strictEqual(entry.domain, 'youtube.com');
+  assert.strictEqual(entry.nameLower, 'youtube.com');
+});
+
+test('buildEntry skips messages that do not belong in Files & media', () => {
+  assert.strictEqual(buildEntry('m1', null), null);
+  assert.strictEqual(buildEntry('m1', { type: 'TEXT', content: 'không có link' }), null);
+  assert.strictEqual(buildEntry('m1', { type: 'IMAGE', isRecalled: true }), null);
+  assert.strictEqual(buildEntry('m1', { type: 'FILE', fileMimeType: 'video/mp4', uploading: true }), null);
+  assert.strictEqual(buildEntry('m1', { type: 'VOICE' }), null);
+});